@@ -16,6 +16,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.example.QLThuocTay.Entities.MedicineCategory;
 import com.example.QLThuocTay.Repository.MedicineCategoryRepository;
+import com.example.QLThuocTay.service.MedicineSearchIndex;
+import com.example.QLThuocTay.service.RelatedMedicinesIndex;
 
 @RestController
 @RequestMapping("/categories")
@@ -24,6 +26,12 @@ public class MedicineCategoryController {
     @Autowired
     private MedicineCategoryRepository categoryRepository;
 
+    @Autowired
+    private MedicineSearchIndex searchIndex;
+
+    @Autowired
+    private RelatedMedicinesIndex relatedIndex;
+
     @GetMapping("/all")
     public List<MedicineCategory> getAllCategories() {
         return categoryRepository.findAll();
@@ -45,7 +53,11 @@ public class MedicineCategoryController {
         return categoryRepository.findById(id)
                 .map(category -> {
                     category.setCategoryName(updatedCategory.getCategoryName());
-                    return ResponseEntity.ok(categoryRepository.save(category));
+                    MedicineCategory saved = categoryRepository.save(category);
+                    // Tên loại nằm trong chỉ mục của mọi thuốc thuộc loại này
+                    searchIndex.rebuild();
+                    relatedIndex.rebuild();
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -54,6 +66,8 @@ public class MedicineCategoryController {
     public ResponseEntity<Void> deleteCategory(@PathVariable Long id) {
         if (categoryRepository.existsById(id)) {
             categoryRepository.deleteById(id);
+            searchIndex.rebuild();
+            relatedIndex.rebuild();
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
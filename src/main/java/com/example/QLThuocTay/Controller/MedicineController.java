@@ -1,14 +1,23 @@
 package com.example.QLThuocTay.Controller;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,8 +26,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.example.QLThuocTay.Entities.Medicine;
@@ -27,7 +38,31 @@ import com.example.QLThuocTay.Entities.Supplier;
 import com.example.QLThuocTay.Repository.MedicineCategoryRepository;
 import com.example.QLThuocTay.Repository.MedicineRepository;
 import com.example.QLThuocTay.Repository.SupplierRepository;
+import com.example.QLThuocTay.dto.AdjustedMedicineDTO;
+import com.example.QLThuocTay.dto.BulkAdjustRequest;
+import com.example.QLThuocTay.dto.MedicineBatchDTO;
 import com.example.QLThuocTay.dto.MedicineDTO;
+import com.example.QLThuocTay.dto.MedicineFilterDTO;
+import com.example.QLThuocTay.dto.MedicineImportStatusDTO;
+import com.example.QLThuocTay.dto.MedicinePageDTO;
+import com.example.QLThuocTay.dto.MedicineSearchPageDTO;
+import com.example.QLThuocTay.dto.TopMedicineDTO;
+import com.example.QLThuocTay.service.CatalogSnapshotService;
+import com.example.QLThuocTay.service.ExpiryAlertService;
+import com.example.QLThuocTay.service.ImageTooLargeException;
+import com.example.QLThuocTay.service.InsufficientStockException;
+import com.example.QLThuocTay.service.MedicineAdjustmentService;
+import com.example.QLThuocTay.service.MedicineExpiryIndex;
+import com.example.QLThuocTay.service.MedicineImageStore;
+import com.example.QLThuocTay.service.MedicineImportService;
+import com.example.QLThuocTay.service.MedicineQueryService;
+import com.example.QLThuocTay.service.MedicineSearchIndex;
+import com.example.QLThuocTay.service.MedicineSuggestIndex;
+import com.example.QLThuocTay.service.RelatedMedicinesIndex;
+import com.example.QLThuocTay.service.SpaceSavingSketch;
+import com.example.QLThuocTay.service.TopSellingService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/medicines")
@@ -42,19 +77,348 @@ public class MedicineController {
     @Autowired
     private SupplierRepository supplierRepository;
 
+    @Autowired
+    private TopSellingService topSellingService;
+
+    @Autowired
+    private MedicineSearchIndex searchIndex;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private MedicineQueryService medicineQueryService;
+
+    @Autowired
+    private RelatedMedicinesIndex relatedIndex;
+
+    @Autowired
+    private MedicineExpiryIndex expiryIndex;
+
+    @Autowired
+    private ExpiryAlertService expiryAlertService;
+
+    @Autowired
+    private MedicineImportService importService;
+
+    @Autowired
+    private MedicineAdjustmentService adjustmentService;
+
+    @Autowired
+    private MedicineSuggestIndex suggestIndex;
+
+    @Autowired
+    private MedicineImageStore imageStore;
+
+    private static final int MAX_BATCH_IDS = 500;
+
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MedicineController.class);
 
+    // Danh sách lọc theo loại, nhà cung cấp, khoảng giá, còn hàng, hạn dùng; kèm đếm facet.
+    // Trang sau: truyền lại next của trang trước qua after (cùng sort).
+    @GetMapping
+    public ResponseEntity<?> queryMedicines(
+            MedicineFilterDTO filter,
+            @RequestParam(value = "sort", defaultValue = "name") String sort,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        if (size <= 0 || size > MedicineQueryService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("size từ 1 đến " + MedicineQueryService.MAX_PAGE_SIZE);
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            return ResponseEntity.badRequest().body("minPrice phải <= maxPrice");
+        }
+        try {
+            return ResponseEntity.ok(medicineQueryService.query(filter, MedicineQueryService.Sort.of(sort), after, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Lỗi khi lọc danh sách thuốc", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Trả bản chụp đã serialize sẵn; client gửi lại If-None-Match thì nhận 304 khi catalog chưa đổi
     @GetMapping("/all")
-    public ResponseEntity<?> getAllMedicines() {
+    public ResponseEntity<?> getAllMedicines(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request
+    ) {
         try {
-            List<MedicineDTO> list = repository.findAllMedicineDTO();
-            return ResponseEntity.ok(list);
+            CatalogSnapshotService.Snapshot snapshot = catalogSnapshotService.current();
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            String etag = snapshot.getEtag(gzip);
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .contentType(MediaType.APPLICATION_JSON);
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzipped());
+            }
+            return response.body(snapshot.getJson());
         } catch (Exception e) {
             logger.error("Lỗi khi lấy danh sách thuốc", e);
             return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
         }
     }
 
+    // Tìm theo tên/loại/hoạt chất/mô tả, không phân biệt dấu ("thuoc ho" khớp "Thuốc ho"), xếp theo độ liên quan
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMedicines(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        if (page < 0 || size <= 0 || size > MedicineSearchIndex.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("page phải >= 0, size từ 1 đến " + MedicineSearchIndex.MAX_PAGE_SIZE);
+        }
+        MedicineSearchPageDTO result = searchIndex.search(q, category, page, size);
+        return ResponseEntity.ok(result);
+    }
+
+    // Gợi ý khi gõ: tên thuốc/hoạt chất bắt đầu bằng q (không dấu), thuốc bán chạy trước
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestMedicines(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        if (limit <= 0 || limit > MedicineSuggestIndex.MAX_LIMIT) {
+            return ResponseEntity.badRequest().body("limit từ 1 đến " + MedicineSuggestIndex.MAX_LIMIT);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(30)))
+                .body(suggestIndex.suggest(q, limit));
+    }
+
+    // Thuốc bán chạy trong giờ/ngày/tuần gần nhất, đọc từ sketch trong bộ nhớ
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopMedicines(
+            @RequestParam(value = "window", defaultValue = "day") String window,
+            @RequestParam(value = "k", defaultValue = "20") int k
+    ) {
+        if (!topSellingService.hasWindow(window)) {
+            return ResponseEntity.badRequest().body("Cửa sổ không hợp lệ (hour, day, week): " + window);
+        }
+        try {
+            List<SpaceSavingSketch.Counter> top = topSellingService.top(window, k);
+            List<Long> ids = new ArrayList<>(top.size());
+            for (SpaceSavingSketch.Counter counter : top) {
+                ids.add(counter.getItem());
+            }
+            Map<Long, MedicineDTO> medicines = new HashMap<>();
+            if (!ids.isEmpty()) {
+                for (MedicineDTO dto : repository.findMedicineDTOByIds(ids)) {
+                    medicines.put(dto.getId(), dto);
+                }
+            }
+            List<TopMedicineDTO> result = new ArrayList<>(top.size());
+            for (SpaceSavingSketch.Counter counter : top) {
+                MedicineDTO medicine = medicines.get(counter.getItem());
+                // Thuốc đã bị xoá thì bỏ qua
+                if (medicine != null) {
+                    result.add(new TopMedicineDTO(counter.getItem(), counter.getCount(), counter.getError(), medicine));
+                }
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Lỗi khi lấy thuốc bán chạy", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Thuốc liên quan (cùng hoạt chất/loại), tính sẵn trong bộ nhớ
+    @GetMapping("/{id}/related")
+    public ResponseEntity<?> getRelatedMedicines(
+            @PathVariable Long id,
+            @RequestParam(value = "k", defaultValue = "8") int k
+    ) {
+        if (!relatedIndex.contains(id)) {
+            return ResponseEntity.status(404).body("Không tìm thấy thuốc với id: " + id);
+        }
+        try {
+            List<Long> ids = relatedIndex.related(id, k);
+            Map<Long, MedicineDTO> medicines = new HashMap<>();
+            if (!ids.isEmpty()) {
+                for (MedicineDTO dto : repository.findMedicineDTOByIds(ids)) {
+                    medicines.put(dto.getId(), dto);
+                }
+            }
+            // Giữ thứ tự theo độ tương đồng
+            List<MedicineDTO> result = new ArrayList<>(ids.size());
+            for (Long relatedId : ids) {
+                MedicineDTO medicine = medicines.get(relatedId);
+                if (medicine != null) result.add(medicine);
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Lỗi khi lấy thuốc liên quan", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Thuốc hết hạn trong `days` ngày tới, hạn gần nhất trước; đọc từ chỉ mục hạn dùng trong bộ nhớ.
+    // includeExpired=true lấy cả thuốc đã quá hạn. Trang sau: truyền lại next qua after.
+    @GetMapping("/expiring")
+    public ResponseEntity<?> getExpiringMedicines(
+            @RequestParam(value = "days", defaultValue = "30") int days,
+            @RequestParam(value = "includeExpired", defaultValue = "false") boolean includeExpired,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        if (days < 0 || days > 3650) {
+            return ResponseEntity.badRequest().body("days từ 0 đến 3650");
+        }
+        if (size <= 0 || size > MedicineExpiryIndex.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("size từ 1 đến " + MedicineExpiryIndex.MAX_PAGE_SIZE);
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            MedicineExpiryIndex.Slice slice = expiryIndex.range(includeExpired ? null : today, today.plusDays(days), after, size);
+            List<Long> ids = new ArrayList<>(slice.getEntries().size());
+            for (MedicineExpiryIndex.Entry entry : slice.getEntries()) {
+                ids.add(entry.getMedicineId());
+            }
+            Map<Long, MedicineDTO> medicines = new HashMap<>();
+            if (!ids.isEmpty()) {
+                for (MedicineDTO dto : repository.findMedicineDTOByIds(ids)) {
+                    medicines.put(dto.getId(), dto);
+                }
+            }
+            // Giữ thứ tự theo hạn dùng
+            List<MedicineDTO> items = new ArrayList<>(ids.size());
+            for (Long medicineId : ids) {
+                MedicineDTO medicine = medicines.get(medicineId);
+                if (medicine != null) items.add(medicine);
+            }
+            return ResponseEntity.ok(new MedicinePageDTO(items, slice.getNext(), slice.isHasMore(), slice.getTotal(), null, null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Lỗi khi lấy thuốc sắp hết hạn", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Cảnh báo hạn dùng đã phát trong `days` ngày gần đây
+    @GetMapping("/expiry-alerts")
+    public ResponseEntity<?> getExpiryAlerts(@RequestParam(value = "days", defaultValue = "7") int days) {
+        if (days <= 0 || days > 365) {
+            return ResponseEntity.badRequest().body("days từ 1 đến 365");
+        }
+        try {
+            return ResponseEntity.ok(expiryAlertService.recent(days));
+        } catch (Exception e) {
+            logger.error("Lỗi khi lấy cảnh báo hạn dùng", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Chạy job cảnh báo ngay (không chờ lịch); trả về số cảnh báo mới
+    @PostMapping("/expiry-alerts/run")
+    public ResponseEntity<?> runExpiryAlerts() {
+        try {
+            return ResponseEntity.ok(expiryAlertService.emitAlerts());
+        } catch (Exception e) {
+            logger.error("Lỗi khi chạy cảnh báo hạn dùng", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Nhập thuốc hàng loạt: body là file CSV (text/csv), xử lý nền.
+    // Trả 202 kèm jobId; hỏi tiến độ và lỗi từng dòng qua GET /medicines/import/{jobId}.
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> importMedicines(
+            @RequestParam(value = "delimiter", defaultValue = ",") String delimiter,
+            HttpServletRequest request
+    ) {
+        if (delimiter.length() != 1) {
+            return ResponseEntity.badRequest().body("delimiter phải là một ký tự");
+        }
+        try {
+            MedicineImportStatusDTO status = importService.submit(request.getInputStream(), delimiter.charAt(0));
+            return ResponseEntity.accepted()
+                    .header("Location", "/medicines/import/" + status.getJobId())
+                    .body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            logger.error("Lỗi khi nhận file CSV", e);
+            return ResponseEntity.status(500).body("Lỗi khi nhận file CSV: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<MedicineImportStatusDTO> getImportStatus(@PathVariable String jobId) {
+        MedicineImportStatusDTO status = importService.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    // Điều chỉnh giá/tồn kho hàng loạt: danh sách (medicineId, price, stockDelta) và/hoặc quy tắc theo loại/nhà cung cấp.
+    // Tất cả hoặc không: tồn kho âm -> 409, id không tồn tại -> 400.
+    @PostMapping("/bulk-adjust")
+    public ResponseEntity<?> bulkAdjust(@RequestBody BulkAdjustRequest request) {
+        try {
+            List<AdjustedMedicineDTO> adjusted = adjustmentService.adjust(request);
+            List<Long> ids = new ArrayList<>(adjusted.size());
+            for (AdjustedMedicineDTO medicine : adjusted) {
+                ids.add(medicine.getMedicineId());
+            }
+            searchIndex.refreshAll(ids);
+            return ResponseEntity.ok(adjusted);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Lỗi khi điều chỉnh thuốc hàng loạt", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
+    // Tra nhiều thuốc theo id trong một lần (giỏ hàng): GET ?ids=1,2,3 hoặc POST [1,2,3].
+    // Lấy từ bản chụp catalog khi còn mới, không thì một câu IN; chi phí theo số id, không theo cả catalog.
+    @GetMapping("/batch")
+    public ResponseEntity<?> getMedicinesByIds(@RequestParam(value = "ids", required = false) List<Long> ids) {
+        return findBatch(ids);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> postMedicinesByIds(@RequestBody(required = false) List<Long> ids) {
+        return findBatch(ids);
+    }
+
+    private ResponseEntity<?> findBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.ok(new MedicineBatchDTO(List.of(), List.of()));
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().body("Tối đa " + MAX_BATCH_IDS + " id mỗi lần");
+        }
+        try {
+            Map<Long, MedicineDTO> found = catalogSnapshotService.findByIds(distinct);
+            List<MedicineDTO> items = new ArrayList<>(found.size());
+            List<Long> missing = new ArrayList<>();
+            for (Long id : distinct) {
+                MedicineDTO medicine = found.get(id);
+                if (medicine != null) items.add(medicine);
+                else missing.add(id);
+            }
+            return ResponseEntity.ok(new MedicineBatchDTO(items, missing));
+        } catch (Exception e) {
+            logger.error("Lỗi khi lấy thuốc theo danh sách id", e);
+            return ResponseEntity.status(500).body("Lỗi server: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getMedicineById(@PathVariable Long id) {
         try {
@@ -87,27 +451,16 @@ public class MedicineController {
         try {
             String imageUrl = null;
             if (image != null && !image.isEmpty()) {
-                String uploadDir = "C:/QLThuocTay/web/images/medicines/";
-                File dir = new File(uploadDir);
-                if (!dir.exists()) {
-                    boolean created = dir.mkdirs();
-                    if (!created) {
-                        return ResponseEntity.status(500).body("Không thể tạo thư mục lưu ảnh.");
-                    }
-                }
-                String originalFilename = image.getOriginalFilename();
-                if (originalFilename == null || originalFilename.isEmpty()) {
-                    return ResponseEntity.status(400).body("Tên file ảnh không hợp lệ.");
-                }
-                String fileName = System.currentTimeMillis() + "_" + originalFilename.replaceAll("[^a-zA-Z0-9\\.\\-]", "_");
-                java.nio.file.Path path = java.nio.file.Paths.get(uploadDir + fileName);
-                try {
-                    image.transferTo(path);
+                try (InputStream content = image.getInputStream()) {
+                    imageUrl = imageStore.store(content);
+                } catch (ImageTooLargeException e) {
+                    return ResponseEntity.status(413).body(e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(400).body(e.getMessage());
                 } catch (IOException e) {
                     logger.error("Lỗi khi lưu file ảnh", e);
                     return ResponseEntity.status(500).body("Lỗi khi lưu file ảnh: " + e.getMessage());
                 }
-                imageUrl = fileName;
             }
 
             Optional<MedicineCategory> categoryOpt = categoryRepository.findById(categoryId);
@@ -136,6 +489,9 @@ public class MedicineController {
             medicine.setImageUrl(imageUrl);
 
             Medicine savedMedicine = repository.save(medicine);
+            searchIndex.refresh(savedMedicine.getMedicineId());
+            relatedIndex.refresh(savedMedicine.getMedicineId());
+            expiryIndex.put(savedMedicine.getMedicineId(), savedMedicine.getExpiryDate());
             return ResponseEntity.ok(savedMedicine);
         } catch (IllegalStateException e) {
             logger.error("Lỗi khi thêm thuốc", e);
@@ -154,6 +510,7 @@ public class MedicineController {
         Optional<Medicine> medicineOpt = repository.findById(id);
         if (medicineOpt.isPresent()) {
             Medicine medicine = medicineOpt.get();
+            String previousImageUrl = medicine.getImageUrl();
             medicine.setMedicineName(medicineDetails.getMedicineName());
             medicine.setCategory(medicineDetails.getCategory());
             medicine.setSupplier(medicineDetails.getSupplier());
@@ -167,6 +524,12 @@ public class MedicineController {
             medicine.setIngredient(medicineDetails.getIngredient());
 
             Medicine updatedMedicine = repository.save(medicine);
+            searchIndex.refresh(updatedMedicine.getMedicineId());
+            relatedIndex.refresh(updatedMedicine.getMedicineId());
+            expiryIndex.put(updatedMedicine.getMedicineId(), updatedMedicine.getExpiryDate());
+            if (previousImageUrl != null && !previousImageUrl.equals(updatedMedicine.getImageUrl())) {
+                imageStore.release(previousImageUrl);
+            }
             return ResponseEntity.ok(updatedMedicine);
         } else {
             return ResponseEntity.notFound().build();
@@ -194,29 +557,19 @@ public class MedicineController {
             }
             Medicine medicine = medicineOpt.get();
 
-            String imageUrl = medicine.getImageUrl();
+            String previousImageUrl = medicine.getImageUrl();
+            String imageUrl = previousImageUrl;
             if (image != null && !image.isEmpty()) {
-                String uploadDir = "C:/QLThuocTay/web/images/medicines/";
-                File dir = new File(uploadDir);
-                if (!dir.exists()) {
-                    boolean created = dir.mkdirs();
-                    if (!created) {
-                        return ResponseEntity.status(500).body("Không thể tạo thư mục lưu ảnh.");
-                    }
-                }
-                String originalFilename = image.getOriginalFilename();
-                if (originalFilename == null || originalFilename.isEmpty()) {
-                    return ResponseEntity.status(400).body("Tên file ảnh không hợp lệ.");
-                }
-                String fileName = System.currentTimeMillis() + "_" + originalFilename.replaceAll("[^a-zA-Z0-9\\.\\-]", "_");
-                java.nio.file.Path path = java.nio.file.Paths.get(uploadDir + fileName);
-                try {
-                    image.transferTo(path);
+                try (InputStream content = image.getInputStream()) {
+                    imageUrl = imageStore.store(content);
+                } catch (ImageTooLargeException e) {
+                    return ResponseEntity.status(413).body(e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(400).body(e.getMessage());
                 } catch (IOException e) {
                     logger.error("Lỗi khi lưu file ảnh", e);
                     return ResponseEntity.status(500).body("Lỗi khi lưu file ảnh: " + e.getMessage());
                 }
-                imageUrl = fileName;
             }
 
             Optional<MedicineCategory> categoryOpt = categoryRepository.findById(categoryId);
@@ -244,6 +597,12 @@ public class MedicineController {
             medicine.setImageUrl(imageUrl);
 
             Medicine updatedMedicine = repository.save(medicine);
+            searchIndex.refresh(updatedMedicine.getMedicineId());
+            relatedIndex.refresh(updatedMedicine.getMedicineId());
+            expiryIndex.put(updatedMedicine.getMedicineId(), updatedMedicine.getExpiryDate());
+            if (previousImageUrl != null && !previousImageUrl.equals(imageUrl)) {
+                imageStore.release(previousImageUrl);
+            }
             return ResponseEntity.ok(updatedMedicine);
         } catch (IllegalStateException e) {
             logger.error("Lỗi khi cập nhật thuốc", e);
@@ -258,17 +617,12 @@ public class MedicineController {
     public ResponseEntity<Void> deleteMedicine(@PathVariable Long id) {
         Optional<Medicine> medicineOpt = repository.findById(id);
         if (medicineOpt.isPresent()) {
-            Medicine medicine = medicineOpt.get();
-            if (medicine.getImageUrl() != null) {
-                try {
-                    String fileName = medicine.getImageUrl();
-                    java.nio.file.Path imagePath = java.nio.file.Paths.get("C:/QLThuocTay/web/images/medicines/", fileName);
-                    java.nio.file.Files.deleteIfExists(imagePath);
-                } catch (IOException e) {
-                    logger.error("Lỗi khi xóa file ảnh", e);
-                }
-            }
             repository.deleteById(id);
+            searchIndex.remove(id);
+            relatedIndex.remove(id);
+            expiryIndex.remove(id);
+            // Ảnh có thể dùng chung với thuốc khác: chỉ xoá khi không còn ai tham chiếu
+            imageStore.release(medicineOpt.get().getImageUrl());
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -0,0 +1,80 @@
+package com.example.QLThuocTay.Controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.QLThuocTay.service.MedicineImageService;
+import com.example.QLThuocTay.service.MedicineImageStore;
+import com.example.QLThuocTay.service.StaticFileSender;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Ảnh thuốc: ảnh gốc /images/medicines/{file}, theo kích thước /images/medicines/{thumb|card|detail}/{file}.
+// Gửi bằng sendfile (StaticFileSender); GET dùng chung cho HEAD.
+@RestController
+@RequestMapping("/images/medicines")
+public class MedicineImageController {
+
+    // Tên theo hash nội dung: nội dung gắn chặt với URL, trình duyệt không cần hỏi lại
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    // Ảnh tên cũ (timestamp_tên gốc): thực tế không đổi nhưng không bảo đảm, vẫn kiểm tra lại qua ETag
+    private static final String LEGACY = "public, max-age=2592000";
+    // Ảnh gốc trả thay khi bản thu nhỏ chưa tạo xong: cache ngắn để lần sau lấy được bản nhỏ.
+    // Định dạng không có bản thu nhỏ (vd. webp khi không có plugin ImageIO) thì cache như ảnh gốc.
+    private static final String FALLBACK = "public, max-age=60";
+
+    private final MedicineImageService imageService;
+    private final StaticFileSender fileSender;
+
+    @Autowired
+    public MedicineImageController(MedicineImageService imageService, StaticFileSender fileSender) {
+        this.imageService = imageService;
+        this.fileSender = fileSender;
+    }
+
+    @GetMapping("/{fileName}")
+    public void getOriginal(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path file = imageService.original(fileName);
+        String hash = MedicineImageStore.contentHash(fileName);
+        send(file, hash == null ? null : "\"" + hash + "\"", hash == null ? LEGACY : IMMUTABLE, request, response);
+    }
+
+    @GetMapping("/{size}/{fileName}")
+    public void getImage(@PathVariable String size, @PathVariable String fileName,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MedicineImageService.Size imageSize = MedicineImageService.Size.of(size);
+        if (imageSize == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!imageService.supportsDerivatives(fileName)) {
+            // Sẽ không bao giờ có bản nhỏ hơn: ảnh gốc chính là kết quả cuối
+            getOriginal(fileName, request, response);
+            return;
+        }
+        String hash = MedicineImageStore.contentHash(fileName);
+        Path file = imageService.derivative(fileName, imageSize);
+        if (file != null) {
+            send(file, hash == null ? null : "\"" + hash + "-" + imageSize.directory() + "\"",
+                    hash == null ? LEGACY : IMMUTABLE, request, response);
+            return;
+        }
+        // Chưa có bản thu nhỏ (đã xếp hàng tạo): trả ảnh gốc, ETag theo file để không lẫn với bản thu nhỏ
+        send(imageService.original(fileName), null, FALLBACK, request, response);
+    }
+
+    private void send(Path file, String etag, String cacheControl, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (file == null || !fileSender.send(file, etag, cacheControl, request, response)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+}
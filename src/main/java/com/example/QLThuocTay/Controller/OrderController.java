@@ -1,29 +1,44 @@
 package com.example.QLThuocTay.Controller;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import com.example.QLThuocTay.Entities.Medicine;
 import com.example.QLThuocTay.Entities.Order;
-import com.example.QLThuocTay.Entities.OrderDetail;
-import com.example.QLThuocTay.Entities.OrderDetailKey;
-import com.example.QLThuocTay.Entities.OrderStatus;
 import com.example.QLThuocTay.Entities.User;
-import com.example.QLThuocTay.Repository.MedicineRepository;
 import com.example.QLThuocTay.Repository.OrderRepository;
-import com.example.QLThuocTay.Repository.OrderStatusRepository;
 import com.example.QLThuocTay.Repository.UserRepository;
+import com.example.QLThuocTay.dto.CacheStatsDTO;
 import com.example.QLThuocTay.dto.OrderDTO;
-import com.example.QLThuocTay.dto.OrderDetailDTO;
+import com.example.QLThuocTay.dto.OrderIntakeStatusDTO;
 import com.example.QLThuocTay.dto.OrderItemDTO;
+import com.example.QLThuocTay.dto.OrderPageDTO;
 import com.example.QLThuocTay.dto.OrderResponseDTO;
+import com.example.QLThuocTay.dto.OrderTransitionRequest;
+import com.example.QLThuocTay.dto.OrderTransitionResultDTO;
+import com.example.QLThuocTay.service.IdempotencyService;
+import com.example.QLThuocTay.service.InsufficientStockException;
+import com.example.QLThuocTay.service.IntakeQueueFullException;
+import com.example.QLThuocTay.service.OrderCacheService;
+import com.example.QLThuocTay.service.OrderIntakeService;
+import com.example.QLThuocTay.service.OrderNotEditableException;
+import com.example.QLThuocTay.service.OrderExportService;
+import com.example.QLThuocTay.service.OrderService;
+import com.example.QLThuocTay.service.OrderTransition;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/orders")
@@ -31,191 +46,206 @@ public class OrderController {
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
-    private final OrderStatusRepository orderStatusRepository;
-    private final MedicineRepository medicineRepository;
+    private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final IdempotencyService idempotencyService;
+    private final OrderIntakeService orderIntakeService;
+    private final OrderCacheService orderCacheService;
 
     @Autowired
     public OrderController(
             OrderRepository orderRepository,
             UserRepository userRepository,
-            OrderStatusRepository orderStatusRepository,
-            MedicineRepository medicineRepository
+            OrderService orderService,
+            OrderExportService orderExportService,
+            IdempotencyService idempotencyService,
+            OrderIntakeService orderIntakeService,
+            OrderCacheService orderCacheService
     ) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
-        this.orderStatusRepository = orderStatusRepository;
-        this.medicineRepository = medicineRepository;
+        this.orderService = orderService;
+        this.orderExportService = orderExportService;
+        this.idempotencyService = idempotencyService;
+        this.orderIntakeService = orderIntakeService;
+        this.orderCacheService = orderCacheService;
     }
 
-    // Convert Order entity to DTO
-    private OrderResponseDTO convertToDTO(Order order) {
-        OrderResponseDTO dto = new OrderResponseDTO();
-        dto.setOrderId(order.getOrderId());
-        if (order.getUser() != null) {
-            dto.setUserId(order.getUser().getUserId());
-            dto.setUserName(order.getUser().getFullName());
-        }
-        dto.setTotalAmount(order.getTotalAmount());
-        dto.setCreateAt(order.getCreateAt());
-        if (order.getStatus() != null) {
-            dto.setStatusId(order.getStatus().getStatusId());
-            dto.setStatusName(order.getStatus().getStatusName());
-        }
-        dto.setShippingAddress(order.getShippingAddress());
-
-        List<OrderDetailDTO> detailDTOs = new ArrayList<>();
-        for (OrderDetail detail : order.getOrderDetails()) {
-            OrderDetailDTO detailDTO = new OrderDetailDTO();
-            detailDTO.setMedicineId(detail.getMedicine().getMedicineId());
-            detailDTO.setMedicineName(detail.getMedicine().getMedicineName());
-            detailDTO.setQuantity(detail.getQuantity());
-            detailDTO.setPrice(detail.getPrice());
-            detailDTOs.add(detailDTO);
-        }
-        dto.setOrderDetails(detailDTOs);
-        return dto;
+    // Danh sách đơn phân trang keyset, lọc theo trạng thái và người dùng.
+    // Trang sau: truyền lại nextCreateAt/nextOrderId của trang trước.
+    @GetMapping
+    public OrderPageDTO getOrders(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "afterCreateAt", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreateAt,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        return orderService.findOrders(status, userId, afterCreateAt, afterId, size);
     }
 
+    // Giữ cho client cũ: duyệt hết các trang keyset thay vì findAll + lazy load
     @GetMapping("/all")
     public List<OrderResponseDTO> getAllOrders() {
-        List<Order> orders = orderRepository.findAll();
         List<OrderResponseDTO> dtoList = new ArrayList<>();
-        for (Order order : orders) {
-            dtoList.add(convertToDTO(order));
+        OrderPageDTO page = orderService.findOrders(null, null, null, null, OrderService.MAX_PAGE_SIZE);
+        dtoList.addAll(page.getItems());
+        while (page.isHasMore()) {
+            page = orderService.findOrders(null, null, page.getNextCreateAt(), page.getNextOrderId(), OrderService.MAX_PAGE_SIZE);
+            dtoList.addAll(page.getItems());
         }
         return dtoList;
     }
 
+    // Xuất toàn bộ lịch sử đơn hàng dạng NDJSON (mỗi dòng một đơn kèm chi tiết),
+    // ghi thẳng từ cursor JDBC nên bộ nhớ không tăng theo số đơn.
+    @GetMapping("/export")
+    public void exportOrders(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "status", required = false) String status,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"orders.ndjson\"");
+        try {
+            orderExportService.export(from, to, status, response.getOutputStream());
+        } catch (UncheckedIOException e) {
+            // Client đã ngắt kết nối: dừng đọc cursor, không còn gì để trả về
+        }
+    }
+
+    // Số lần trúng/trượt/bị loại của cache đơn hàng
+    @GetMapping("/cache/stats")
+    public List<CacheStatsDTO> getCacheStats() {
+        return orderCacheService.getStats();
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponseDTO> getOrderById(@PathVariable Long orderId) {
-        return orderRepository.findById(orderId)
-                .map(order -> ResponseEntity.ok(convertToDTO(order)))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+        OrderResponseDTO dto = orderCacheService.getOrder(orderId,
+                () -> orderService.findOrderDTO(orderId).orElse(null));
+        return dto != null ? ResponseEntity.ok(dto) : ResponseEntity.notFound().build();
     }
 
+    // Header Idempotency-Key (tuỳ chọn): client gửi lại cùng khóa sẽ nhận lại đơn đã tạo thay vì tạo đơn mới
     @PostMapping("/add")
-    public ResponseEntity<?> createOrder(@RequestBody OrderDTO orderDTO) {
+    public ResponseEntity<?> createOrder(
+            @RequestBody OrderDTO orderDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
         try {
-            // 1. Check user (required)
-            User user = null;
-            if (orderDTO.getUserId() != null) {
-                Optional<User> userOpt = userRepository.findById(orderDTO.getUserId());
-                if (userOpt.isEmpty()) {
-                    return ResponseEntity.badRequest().body("Invalid user id");
-                }
-                user = userOpt.get();
-            } else {
+            if (orderDTO.getUserId() == null) {
                 return ResponseEntity.badRequest().body("User id is required.");
             }
-
-            // 2. Get status (default 1 if not provided)
-            Integer statusId = orderDTO.getStatusId() != null ? orderDTO.getStatusId() : 1;
-            OrderStatus status = orderStatusRepository.findById(statusId)
-                    .orElseThrow(() -> new RuntimeException("Invalid status id"));
-
-            // 3. Create order (no OrderDetail yet)
-            Order order = new Order();
-            order.setUser(user);
-            order.setStatus(status);
-            order.setCreateAt(LocalDateTime.now());
-            order.setShippingAddress(orderDTO.getShippingAddress());
-            order.setTotalAmount(BigDecimal.ZERO); // to be calculated
-
-            // 4. Save order to get orderId
-            Order savedOrder = orderRepository.save(order);
-
-            // 5. Create list of orderDetails with orderId
-            List<OrderDetail> orderDetails = new ArrayList<>();
-            BigDecimal totalAmount = BigDecimal.ZERO;
-
-            for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-                Optional<Medicine> medicineOpt = medicineRepository.findById(itemDTO.getMedicineId());
-                if (medicineOpt.isEmpty()) continue;
-                Medicine medicine = medicineOpt.get();
-
-                OrderDetail detail = new OrderDetail();
-                detail.setOrder(savedOrder);
-                detail.setMedicine(medicine);
-                detail.setQuantity(itemDTO.getQuantity());
-                detail.setPrice(medicine.getPrice());
-
-                BigDecimal subTotal = medicine.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity()));
-                totalAmount = totalAmount.add(subTotal);
-
-                detail.setId(new OrderDetailKey(savedOrder.getOrderId(), medicine.getMedicineId()));
-                orderDetails.add(detail);
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                return ResponseEntity.ok(placeOrder(orderDTO));
             }
-
-            // 6. Set orderDetails and total, then save order again
-            savedOrder.setOrderDetails(orderDetails);
-            savedOrder.setTotalAmount(totalAmount);
-            Order finalOrder = orderRepository.save(savedOrder);
-
-            return ResponseEntity.ok(convertToDTO(finalOrder));
-
+            return ResponseEntity.ok(idempotencyService.execute("orders/add", idempotencyKey,
+                    new TypeReference<OrderResponseDTO>() {}, () -> placeOrder(orderDTO)));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Lỗi tạo đơn hàng: " + e.getMessage());
         }
     }
 
-    @PutMapping("/update/{orderId}")
-    public ResponseEntity<?> updateOrder(@PathVariable Long orderId, @RequestBody OrderDTO orderDTO) {
+    // Nhận nhiều đơn (đơn sỉ) trong một request, ghi bằng JDBC batch
+    @PostMapping("/batch")
+    public ResponseEntity<?> createOrders(
+            @RequestBody List<OrderDTO> orderDTOs,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
+        if (orderDTOs == null || orderDTOs.isEmpty()) {
+            return ResponseEntity.badRequest().body("Danh sách đơn hàng rỗng.");
+        }
         try {
-            Optional<Order> orderOpt = orderRepository.findById(orderId);
-            if (orderOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                return ResponseEntity.ok(placeOrders(orderDTOs));
             }
-            Order order = orderOpt.get();
-
-            User user = null;
-            if (orderDTO.getUserId() != null) {
-                Optional<User> userOpt = userRepository.findById(orderDTO.getUserId());
-                if (userOpt.isEmpty()) {
-                    return ResponseEntity.badRequest().body("Invalid user id");
-                }
-                user = userOpt.get();
-            }
-
-            Optional<OrderStatus> statusOpt = orderStatusRepository.findById(orderDTO.getStatusId());
-            if (statusOpt.isEmpty()) {
-                return ResponseEntity.badRequest().body("Invalid status id");
-            }
-            OrderStatus status = statusOpt.get();
-
-            order.setUser(user);
-            order.setStatus(status);
-            order.setShippingAddress(orderDTO.getShippingAddress());
-
-            // Clear old details
-            order.getOrderDetails().clear();
-
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            List<OrderDetail> updatedDetails = new ArrayList<>();
-
-            for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-                Optional<Medicine> medicineOpt = medicineRepository.findById(itemDTO.getMedicineId());
-                if (medicineOpt.isEmpty()) continue;
-                Medicine medicine = medicineOpt.get();
+            return ResponseEntity.ok(idempotencyService.execute("orders/batch", idempotencyKey,
+                    new TypeReference<List<OrderResponseDTO>>() {}, () -> placeOrders(orderDTOs)));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Lỗi tạo đơn hàng: " + e.getMessage());
+        }
+    }
 
-                OrderDetail detail = new OrderDetail();
-                detail.setOrder(order);
-                detail.setMedicine(medicine);
-                detail.setQuantity(itemDTO.getQuantity());
-                detail.setPrice(medicine.getPrice());
+    // Nhận đơn bất đồng bộ: trả 202 kèm mã theo dõi ngay, đơn được ghi theo micro-batch.
+    // Hàng đợi đầy -> 429 thay vì giữ luồng Tomcat và kết nối DB.
+    @PostMapping("/async")
+    public ResponseEntity<?> submitOrder(@RequestBody OrderDTO orderDTO) {
+        if (!orderIntakeService.isEnabled()) {
+            return ResponseEntity.status(503).body("Chế độ nhận đơn bất đồng bộ đang tắt.");
+        }
+        try {
+            OrderIntakeStatusDTO status = orderIntakeService.submit(orderDTO);
+            return ResponseEntity.accepted()
+                    .header("Location", "/orders/async/" + status.getTrackingId())
+                    .body(status);
+        } catch (IntakeQueueFullException e) {
+            return ResponseEntity.status(429).header("Retry-After", "1").body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-                BigDecimal subTotal = medicine.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity()));
-                totalAmount = totalAmount.add(subTotal);
+    // Client hỏi lại trạng thái đơn bất đồng bộ theo mã theo dõi
+    @GetMapping("/async/{trackingId}")
+    public ResponseEntity<OrderIntakeStatusDTO> getSubmittedOrder(@PathVariable String trackingId) {
+        OrderIntakeStatusDTO status = orderIntakeService.getStatus(trackingId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
 
-                detail.setId(new OrderDetailKey(order.getOrderId(), medicine.getMedicineId()));
-                updatedDetails.add(detail);
-            }
+    // Một lần INSERT đơn + chi tiết, thuốc nạp bằng một truy vấn, tồn kho trừ cùng transaction
+    private OrderResponseDTO placeOrder(OrderDTO orderDTO) {
+        return orderService.toResponseDTO(orderService.createOrders(List.of(orderDTO)).get(0));
+    }
 
-            order.setTotalAmount(totalAmount);
-            order.setOrderDetails(updatedDetails);
+    private List<OrderResponseDTO> placeOrders(List<OrderDTO> orderDTOs) {
+        List<Order> orders = orderService.createOrders(orderDTOs);
+        List<OrderResponseDTO> dtoList = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            dtoList.add(orderService.toResponseDTO(order));
+        }
+        return dtoList;
+    }
 
-            Order updatedOrder = orderRepository.save(order);
-            return ResponseEntity.ok(convertToDTO(updatedOrder));
+    // Chỉ ghi các dòng thay đổi (thêm/sửa/xoá), tổng tiền và tồn kho điều chỉnh theo chênh lệch.
+    // Đơn đã huỷ/hoàn thành hoặc đổi trạng thái sai quy tắc -> 409
+    @PutMapping("/update/{orderId}")
+    public ResponseEntity<?> updateOrder(@PathVariable Long orderId, @RequestBody OrderDTO orderDTO) {
+        try {
+            return orderService.updateOrder(orderId, orderDTO)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (InsufficientStockException | OrderNotEditableException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Lỗi cập nhật đơn hàng: " + e.getMessage());
+        }
+    }
 
+    // Thêm hoặc sửa một dòng của đơn; quantity = 0 thì xoá dòng
+    @PatchMapping("/{orderId}/items")
+    public ResponseEntity<?> updateOrderItem(@PathVariable Long orderId, @RequestBody OrderItemDTO itemDTO) {
+        try {
+            return orderService.updateOrderLine(orderId, itemDTO.getMedicineId(), itemDTO.getQuantity())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (InsufficientStockException | OrderNotEditableException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Lỗi cập nhật đơn hàng: " + e.getMessage());
         }
@@ -223,8 +253,7 @@ public class OrderController {
 
     @DeleteMapping("/delete/{orderId}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long orderId) {
-        if (orderRepository.existsById(orderId)) {
-            orderRepository.deleteById(orderId);
+        if (orderService.deleteOrder(orderId)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -236,92 +265,77 @@ public class OrderController {
         if (userOpt.isEmpty()) {
             return ResponseEntity.ok(List.of()); // Không trả lỗi, trả mảng rỗng cho FE
         }
-        User user = userOpt.get();
-        List<Order> orders = orderRepository.findByUser(user);
-        List<OrderResponseDTO> dtoList = new ArrayList<>();
-        for (Order order : orders) {
-            dtoList.add(convertToDTO(order));
-        }
-        return ResponseEntity.ok(dtoList);
+        Long userId = userOpt.get().getUserId();
+        return ResponseEntity.ok(orderCacheService.getUserOrders(userId,
+                () -> orderService.findOrdersByUser(userId)));
     }
 
     // Xác nhận đơn hàng (Pending -> Processing)
     @PutMapping("/confirm/{orderId}")
     public ResponseEntity<?> confirmOrder(@PathVariable Long orderId) {
-        try {
-            Optional<Order> orderOpt = orderRepository.findById(orderId);
-            if (orderOpt.isEmpty()) {
-                return ResponseEntity.status(404).body("Không tìm thấy đơn hàng.");
-            }
-            Order order = orderOpt.get();
-            // Chỉ cho phép xác nhận nếu đơn đang Pending
-            if (order.getStatus() == null || !"Pending".equalsIgnoreCase(order.getStatus().getStatusName())) {
-                return ResponseEntity.badRequest().body("Chỉ đơn hàng ở trạng thái 'Chờ xác nhận' mới được xác nhận.");
-            }
-            // Tìm status Processing
-            Optional<OrderStatus> processingStatusOpt = orderStatusRepository.findByStatusNameIgnoreCase("Processing");
-            if (processingStatusOpt.isEmpty()) {
-                return ResponseEntity.status(500).body("Không tìm thấy trạng thái 'Processing'.");
-            }
-            order.setStatus(processingStatusOpt.get());
-            orderRepository.save(order);
-            return ResponseEntity.ok(convertToDTO(order));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("Lỗi xác nhận đơn hàng: " + e.getMessage());
-        }
+        return applyTransition(orderId, OrderTransition.CONFIRM,
+                "Chỉ đơn hàng ở trạng thái 'Chờ xác nhận' mới được xác nhận.",
+                "Lỗi xác nhận đơn hàng: ");
     }
 
     // Chuyển sang hoàn thành (Processing -> Completed)
     @PutMapping("/complete/{orderId}")
     public ResponseEntity<?> completeOrder(@PathVariable Long orderId) {
+        return applyTransition(orderId, OrderTransition.COMPLETE,
+                "Chỉ đơn hàng ở trạng thái 'Đang vận chuyển' mới chuyển thành 'Thành công'.",
+                "Lỗi cập nhật trạng thái đơn hàng: ");
+    }
+
+    // Huỷ đơn hàng (Pending, Processing), hoàn lại tồn kho
+    @PutMapping("/cancel/{orderId}")
+    public ResponseEntity<?> cancelOrder(@PathVariable Long orderId) {
+        return applyTransition(orderId, OrderTransition.CANCEL,
+                "Chỉ đơn ở trạng thái 'Chờ xác nhận' hoặc 'Đang vận chuyển' mới được huỷ.",
+                "Lỗi huỷ đơn hàng: ");
+    }
+
+    // Chuyển trạng thái hàng loạt: một UPDATE có điều kiện cho cả danh sách,
+    // trả về id nào thành công, id nào không (không tồn tại hoặc sai trạng thái).
+    @PostMapping("/transition")
+    public ResponseEntity<?> transitionOrders(@RequestBody OrderTransitionRequest request) {
+        Optional<OrderTransition> transitionOpt = OrderTransition.fromAction(request.getAction());
+        if (transitionOpt.isEmpty()) {
+            return ResponseEntity.badRequest().body("Hành động không hợp lệ: " + request.getAction());
+        }
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+            return ResponseEntity.badRequest().body("Danh sách đơn hàng rỗng.");
+        }
         try {
-            Optional<Order> orderOpt = orderRepository.findById(orderId);
-            if (orderOpt.isEmpty()) {
-                return ResponseEntity.status(404).body("Không tìm thấy đơn hàng.");
-            }
-            Order order = orderOpt.get();
-            // Chỉ cho phép hoàn thành nếu đơn đang Processing
-            if (order.getStatus() == null || !"Processing".equalsIgnoreCase(order.getStatus().getStatusName())) {
-                return ResponseEntity.badRequest().body("Chỉ đơn hàng ở trạng thái 'Đang vận chuyển' mới chuyển thành 'Thành công'.");
-            }
-            // Tìm status Completed
-            Optional<OrderStatus> completedStatusOpt = orderStatusRepository.findByStatusNameIgnoreCase("Completed");
-            if (completedStatusOpt.isEmpty()) {
-                return ResponseEntity.status(500).body("Không tìm thấy trạng thái 'Completed'.");
-            }
-            order.setStatus(completedStatusOpt.get());
-            orderRepository.save(order);
-            return ResponseEntity.ok(convertToDTO(order));
+            Set<Long> requested = new LinkedHashSet<>(request.getOrderIds());
+            List<Long> succeeded = orderService.transition(transitionOpt.get(), requested);
+            requested.removeAll(succeeded);
+            return ResponseEntity.ok(new OrderTransitionResultDTO(
+                    transitionOpt.get().getAction(), succeeded, new ArrayList<>(requested)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(500).body(e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(500).body("Lỗi cập nhật trạng thái đơn hàng: " + e.getMessage());
+            return ResponseEntity.status(500).body("Lỗi chuyển trạng thái đơn hàng: " + e.getMessage());
         }
     }
 
-    // Huỷ đơn hàng (Pending, Processing)
-    @PutMapping("/cancel/{orderId}")
-    public ResponseEntity<?> cancelOrder(@PathVariable Long orderId) {
+    // Trường hợp thường chỉ tốn một UPDATE có điều kiện + hai truy vấn dựng DTO;
+    // chỉ khi thất bại mới kiểm tra đơn có tồn tại để trả 404 hay 400.
+    private ResponseEntity<?> applyTransition(Long orderId, OrderTransition transition,
+                                              String invalidStatusMessage, String errorPrefix) {
         try {
-            Optional<Order> orderOpt = orderRepository.findById(orderId);
-            if (orderOpt.isEmpty()) {
-                return ResponseEntity.status(404).body("Không tìm thấy đơn hàng.");
-            }
-            Order order = orderOpt.get();
-            // Chỉ cho phép huỷ nếu đơn đang Pending hoặc Processing
-            if (order.getStatus() == null ||
-                    (!"Pending".equalsIgnoreCase(order.getStatus().getStatusName())
-                            && !"Processing".equalsIgnoreCase(order.getStatus().getStatusName()))) {
-                return ResponseEntity.badRequest().body("Chỉ đơn ở trạng thái 'Chờ xác nhận' hoặc 'Đang vận chuyển' mới được huỷ.");
-            }
-            // Tìm status Cancelled
-            Optional<OrderStatus> cancelledStatusOpt = orderStatusRepository.findByStatusNameIgnoreCase("Cancelled");
-            if (cancelledStatusOpt.isEmpty()) {
-                return ResponseEntity.status(500).body("Không tìm thấy trạng thái 'Cancelled'.");
+            if (orderService.transition(transition, List.of(orderId)).isEmpty()) {
+                if (!orderRepository.existsById(orderId)) {
+                    return ResponseEntity.status(404).body("Không tìm thấy đơn hàng.");
+                }
+                return ResponseEntity.badRequest().body(invalidStatusMessage);
             }
-            order.setStatus(cancelledStatusOpt.get());
-            orderRepository.save(order);
-            return ResponseEntity.ok(convertToDTO(order));
+            return orderService.findOrderDTO(orderId)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(404).body("Không tìm thấy đơn hàng."));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(500).body(e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(500).body("Lỗi huỷ đơn hàng: " + e.getMessage());
+            return ResponseEntity.status(500).body(errorPrefix + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
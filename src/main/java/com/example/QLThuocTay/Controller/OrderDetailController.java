@@ -19,16 +19,22 @@ import com.example.QLThuocTay.Entities.OrderDetail;
 import com.example.QLThuocTay.Entities.OrderDetailKey;
 import com.example.QLThuocTay.Repository.OrderDetailRepository;
 import com.example.QLThuocTay.dto.OrderDetailDTO;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+import com.example.QLThuocTay.service.InsufficientStockException;
+import com.example.QLThuocTay.service.OrderNotEditableException;
+import com.example.QLThuocTay.service.OrderService;
 
 @RestController
 @RequestMapping("/orderdetails")
 public class OrderDetailController {
 
     private final OrderDetailRepository orderDetailRepository;
+    private final OrderService orderService;
 
     @Autowired
-    public OrderDetailController(OrderDetailRepository orderDetailRepository) {
+    public OrderDetailController(OrderDetailRepository orderDetailRepository, OrderService orderService) {
         this.orderDetailRepository = orderDetailRepository;
+        this.orderService = orderService;
     }
 
     // Chuyển đổi entity sang DTO
@@ -65,51 +71,58 @@ public class OrderDetailController {
                          .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // Create new order detail
+    // Thêm dòng vào đơn. Ghi qua OrderService như PATCH /orders/{id}/items: giữ tồn kho,
+    // cập nhật tổng tiền, bảng doanh số và xoá cache đơn; giá lấy theo giá thuốc hiện tại
     @PostMapping
-    public ResponseEntity<OrderDetailDTO> createOrderDetail(@RequestBody OrderDetail detail) {
+    public ResponseEntity<?> createOrderDetail(@RequestBody OrderDetail detail) {
         if (detail == null || detail.getOrder() == null || detail.getOrder().getOrderId() == null
                 || detail.getMedicine() == null || detail.getMedicine().getMedicineId() == null) {
             return ResponseEntity.badRequest().build();
         }
-        detail.setId(new OrderDetailKey(
-                detail.getOrder().getOrderId(),
-                detail.getMedicine().getMedicineId()
-        ));
-        OrderDetail saved = orderDetailRepository.save(detail);
-        return ResponseEntity.ok(toDTO(saved));
+        return writeLine(detail.getOrder().getOrderId(), detail.getMedicine().getMedicineId(), detail.getQuantity());
     }
 
-    // Update order detail
+    // Sửa số lượng một dòng; giá giữ theo lúc đặt (không sửa qua endpoint này)
     @PutMapping("/{orderId}/{medicineId}")
-    public ResponseEntity<OrderDetailDTO> updateOrderDetail(
+    public ResponseEntity<?> updateOrderDetail(
             @PathVariable Long orderId,
             @PathVariable Long medicineId,
             @RequestBody OrderDetail detailInput) {
-        OrderDetailKey key = new OrderDetailKey(orderId, medicineId);
-        Optional<OrderDetail> optionalOrderDetail = orderDetailRepository.findById(key);
-
-        if (optionalOrderDetail.isPresent()) {
-            OrderDetail orderDetail = optionalOrderDetail.get();
-            orderDetail.setQuantity(detailInput.getQuantity());
-            orderDetail.setPrice(detailInput.getPrice());
-            OrderDetail updated = orderDetailRepository.save(orderDetail);
-            return ResponseEntity.ok(toDTO(updated));
+        if (!orderDetailRepository.existsById(new OrderDetailKey(orderId, medicineId))) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        return writeLine(orderId, medicineId, detailInput.getQuantity());
     }
 
-    // Delete order detail
+    // Xoá dòng (số lượng 0): hoàn tồn kho, trừ tổng tiền
     @DeleteMapping("/{orderId}/{medicineId}")
-    public ResponseEntity<Void> deleteOrderDetail(
+    public ResponseEntity<?> deleteOrderDetail(
             @PathVariable Long orderId,
             @PathVariable Long medicineId) {
-        OrderDetailKey key = new OrderDetailKey(orderId, medicineId);
-        if (orderDetailRepository.existsById(key)) {
-            orderDetailRepository.deleteById(key);
+        if (!orderDetailRepository.existsById(new OrderDetailKey(orderId, medicineId))) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity<?> response = writeLine(orderId, medicineId, 0);
+        return response.getStatusCode().is2xxSuccessful() ? ResponseEntity.ok().build() : response;
+    }
+
+    private ResponseEntity<?> writeLine(Long orderId, Long medicineId, Integer quantity) {
+        try {
+            Optional<OrderResponseDTO> order = orderService.updateOrderLine(orderId, medicineId, quantity);
+            if (order.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            for (OrderDetailDTO line : order.get().getOrderDetails()) {
+                if (medicineId.equals(line.getMedicineId())) {
+                    return ResponseEntity.ok(line);
+                }
+            }
             return ResponseEntity.ok().build();
+        } catch (InsufficientStockException | OrderNotEditableException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
-        return ResponseEntity.notFound().build();
     }
 
     // Get order details by order ID
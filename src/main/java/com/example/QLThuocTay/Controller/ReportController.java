@@ -0,0 +1,63 @@
+package com.example.QLThuocTay.Controller;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.QLThuocTay.service.SalesAggregateService;
+
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+
+    private static final int DEFAULT_DAYS = 30;
+
+    private final SalesAggregateService salesAggregateService;
+
+    @Autowired
+    public ReportController(SalesAggregateService salesAggregateService) {
+        this.salesAggregateService = salesAggregateService;
+    }
+
+    // Doanh thu theo ngày/tuần/tháng và thuốc bán chạy, đọc từ bảng gộp sales_daily.
+    // Mặc định 30 ngày gần nhất, mọi trạng thái trừ đơn huỷ.
+    @GetMapping("/sales")
+    public ResponseEntity<?> getSales(
+            @RequestParam(value = "period", defaultValue = "day") String period,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "top", defaultValue = "10") int top
+    ) {
+        if (!SalesAggregateService.PERIODS.contains(period)) {
+            return ResponseEntity.badRequest().body("Kỳ báo cáo không hợp lệ (day, week, month): " + period);
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().body("Ngày bắt đầu phải trước ngày kết thúc.");
+        }
+        try {
+            return ResponseEntity.ok(salesAggregateService.report(period, start, end, status, top));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Dựng lại bảng gộp từ toàn bộ đơn hàng (cũng chạy định kỳ mỗi đêm)
+    @PostMapping("/sales/rebuild")
+    public ResponseEntity<?> rebuildSales() {
+        try {
+            return ResponseEntity.ok(salesAggregateService.rebuild());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Lỗi dựng lại báo cáo doanh số: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.QLThuocTay.Controller;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +14,10 @@ import com.example.QLThuocTay.Entities.UserRole;
 import com.example.QLThuocTay.Repository.UserRepository;
 import com.example.QLThuocTay.Repository.UserRoleRepository;
 import com.example.QLThuocTay.dto.LoginRequest;
+import com.example.QLThuocTay.dto.LoginResponseDTO;
 import com.example.QLThuocTay.dto.RegisterRequest;
+import com.example.QLThuocTay.dto.UserDTO;
+import com.example.QLThuocTay.service.SessionTokenService;
 
 @RestController
 @RequestMapping("/users")
@@ -22,12 +26,15 @@ public class UserController {
     private final UserRepository userRepository;
     private final UserRoleRepository userRoleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final SessionTokenService sessionTokenService;
 
     @Autowired
-    public UserController(UserRepository userRepository, UserRoleRepository userRoleRepository, PasswordEncoder passwordEncoder) {
+    public UserController(UserRepository userRepository, UserRoleRepository userRoleRepository, PasswordEncoder passwordEncoder,
+                          SessionTokenService sessionTokenService) {
         this.userRepository = userRepository;
         this.userRoleRepository = userRoleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.sessionTokenService = sessionTokenService;
     }
 
     // Lấy tất cả người dùng
@@ -63,10 +70,12 @@ public class UserController {
         user.setPhoneNumber(updatedUser.getPhoneNumber());
 
         // Nếu password không được gửi lên hoặc để rỗng thì giữ nguyên
-        if (updatedUser.getPassword() != null && !updatedUser.getPassword().isBlank()) {
+        boolean passwordChanged = updatedUser.getPassword() != null && !updatedUser.getPassword().isBlank();
+        if (passwordChanged) {
             user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
         }
         // Cập nhật role nếu có gửi lên
+        boolean roleChanged = false;
         if (updatedUser.getUserRole() != null) {
             UserRole userRole = null;
             if (updatedUser.getUserRole().getRoleId() != null) {
@@ -77,10 +86,16 @@ public class UserController {
             if (userRole == null) {
                 return ResponseEntity.badRequest().body("Vai trò không hợp lệ!");
             }
+            roleChanged = user.getUserRole() == null || !userRole.getRoleId().equals(user.getUserRole().getRoleId());
             user.setUserRole(userRole);
         }
 
-        return ResponseEntity.ok(userRepository.save(user));
+        User savedUser = userRepository.save(user);
+        // Đổi mật khẩu hoặc vai trò: token cũ mang vai trò cũ (hoặc cấp bằng mật khẩu cũ) phải đăng nhập lại
+        if (passwordChanged || roleChanged) {
+            sessionTokenService.revokeUser(id);
+        }
+        return ResponseEntity.ok(savedUser);
     }
 
     // Xoá người dùng
@@ -91,6 +106,7 @@ public class UserController {
             return ResponseEntity.notFound().build();
         }
         userRepository.deleteById(id);
+        sessionTokenService.revokeUser(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -134,7 +150,7 @@ public class UserController {
         return ResponseEntity.ok(savedUser);
     }
 
-    // Đăng nhập
+    // Đăng nhập: BCrypt chỉ chạy ở đây, trả token phiên để các request sau gửi qua header Authorization
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
         if (request.getEmail() == null || request.getEmail().isBlank()
@@ -149,7 +165,8 @@ public class UserController {
                 return ResponseEntity.status(500).body("Tài khoản chưa có mật khẩu!");
             }
             if (passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-                return ResponseEntity.ok(user);
+                SessionTokenService.Session session = sessionTokenService.issue(user);
+                return ResponseEntity.ok(new LoginResponseDTO(session.getToken(), session.getExpiresAt(), new UserDTO(user)));
             } else {
                 return ResponseEntity.status(401).body("Tài khoản hoặc mật khẩu không đúng");
             }
@@ -158,6 +175,26 @@ public class UserController {
         }
     }
 
+    // Đăng xuất: thu hồi token hiện tại
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        sessionTokenService.revoke(SessionTokenService.bearerToken(authorization));
+        return ResponseEntity.noContent().build();
+    }
+
+    // Phiên hiện tại theo token (chỉ kiểm tra chữ ký + danh sách thu hồi, không truy vấn DB)
+    @GetMapping("/me")
+    public ResponseEntity<?> me(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        SessionTokenService.Session session = sessionTokenService.verify(SessionTokenService.bearerToken(authorization));
+        if (session == null) {
+            return ResponseEntity.status(401).body("Phiên đăng nhập không hợp lệ hoặc đã hết hạn");
+        }
+        return ResponseEntity.ok(Map.of(
+                "userId", session.getUserId(),
+                "roleName", session.getRole(),
+                "expiresAt", session.getExpiresAt()));
+    }
+
     // Thêm người dùng (toàn quyền, cho admin)
     @PostMapping("/add")
     public ResponseEntity<?> addUser(@RequestBody User user) {
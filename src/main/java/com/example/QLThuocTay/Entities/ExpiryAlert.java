@@ -0,0 +1,58 @@
+package com.example.QLThuocTay.Entities;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// Cảnh báo sắp hết hạn đã phát (ExpiryAlertService).
+// Unique (thuốc, ngưỡng, hạn dùng): mỗi thuốc chỉ được báo một lần cho mỗi ngưỡng;
+// sửa hạn dùng thì lô mới được báo lại từ đầu.
+@Entity
+@Table(name = "expiry_alerts",
+        uniqueConstraints = @UniqueConstraint(name = "uk_expiry_alerts_medicine_threshold_expiry",
+                columnNames = {"medicine_id", "threshold_days", "expiry_date"}),
+        indexes = @Index(name = "idx_expiry_alerts_created_at", columnList = "created_at"))
+public class ExpiryAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "alert_id")
+    private Long alertId;
+
+    @Column(name = "medicine_id", nullable = false)
+    private Long medicineId;
+
+    @Column(name = "threshold_days", nullable = false)
+    private Integer thresholdDays;
+
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDate expiryDate;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public ExpiryAlert() {}
+
+    public Long getAlertId() { return alertId; }
+    public void setAlertId(Long alertId) { this.alertId = alertId; }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public Integer getThresholdDays() { return thresholdDays; }
+    public void setThresholdDays(Integer thresholdDays) { this.thresholdDays = thresholdDays; }
+
+    public LocalDate getExpiryDate() { return expiryDate; }
+    public void setExpiryDate(LocalDate expiryDate) { this.expiryDate = expiryDate; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,37 @@
+package com.example.QLThuocTay.Entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Khóa Idempotency-Key đã xử lý, lưu lại để sống sót qua khởi động lại
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyKey {
+
+    // scope + ":" + giá trị header
+    @Id
+    @Column(name = "idem_key", length = 320)
+    private String key;
+
+    // Response JSON của request đầu tiên (null khi đang xử lý)
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public IdempotencyKey() {}
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -4,17 +4,30 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import com.example.QLThuocTay.service.CatalogChangeListener;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "medicines")
+@EntityListeners(CatalogChangeListener.class)
+@Table(name = "medicines", indexes = {
+        // Phân trang keyset cho GET /medicines: (khoá sắp xếp, medicine_id), quét ngược cho chiều giảm dần
+        @Index(name = "idx_medicines_price_id", columnList = "price, medicine_id"),
+        @Index(name = "idx_medicines_name_id", columnList = "medicine_name, medicine_id"),
+        @Index(name = "idx_medicines_category_price_id", columnList = "category_id, price, medicine_id"),
+        @Index(name = "idx_medicines_category_name_id", columnList = "category_id, medicine_name, medicine_id"),
+        @Index(name = "idx_medicines_supplier_id", columnList = "supplier_id, medicine_id"),
+        @Index(name = "idx_medicines_expiry_date", columnList = "expiry_date")
+})
 public class Medicine {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,13 +1,17 @@
 package com.example.QLThuocTay.Entities;
 
+import com.example.QLThuocTay.service.CatalogChangeListener;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @Table(name = "medicinecategories")
 public class MedicineCategory {
     @Id
@@ -14,18 +14,28 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Phục vụ phân trang keyset theo (create_at, order_id)
+        @Index(name = "idx_orders_create_at_id", columnList = "create_at DESC, order_id DESC"),
+        @Index(name = "idx_orders_user_create_at", columnList = "user_id, create_at DESC")
+})
 public class Order {
 
+    // Dùng sequence thay cho IDENTITY: Hibernate cấp id trước khi INSERT nên
+    // các lệnh INSERT orders/orderdetail gom được thành JDBC batch.
+    // allocationSize khớp với INCREMENT BY trong db/orders_sequence.sql.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_order_id_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long orderId;
 
@@ -49,6 +59,11 @@ public class Order {
     @Column(name = "shipping_address")
     private String shippingAddress;
 
+    // true: tồn kho đã bị trừ lúc tạo đơn. Đơn tạo trước khi có giữ kho để null,
+    // huỷ/xoá các đơn đó không được cộng trả tồn kho
+    @Column(name = "stock_reserved")
+    private Boolean stockReserved;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JsonManagedReference
     private final List<OrderDetail> orderDetails = new ArrayList<>();
@@ -106,6 +121,13 @@ public class Order {
         this.shippingAddress = shippingAddress;
     }
 
+    public Boolean getStockReserved() {
+        return stockReserved;
+    }
+    public void setStockReserved(Boolean stockReserved) {
+        this.stockReserved = stockReserved;
+    }
+
     public List<OrderDetail> getOrderDetails() {
         return orderDetails;
     }
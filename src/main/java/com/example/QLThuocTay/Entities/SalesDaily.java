@@ -0,0 +1,35 @@
+package com.example.QLThuocTay.Entities;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+// Doanh số gộp theo (ngày đặt, thuốc, trạng thái đơn).
+// Được cập nhật cùng transaction với đơn hàng (SalesAggregateService), báo cáo chỉ đọc bảng này.
+@Entity
+@Table(name = "sales_daily")
+public class SalesDaily {
+
+    @EmbeddedId
+    private SalesDailyKey id;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal revenue;
+
+    public SalesDaily() {}
+
+    public SalesDailyKey getId() { return id; }
+    public void setId(SalesDailyKey id) { this.id = id; }
+
+    public Long getUnits() { return units; }
+    public void setUnits(Long units) { this.units = units; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+}
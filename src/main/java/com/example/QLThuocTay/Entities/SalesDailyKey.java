@@ -0,0 +1,52 @@
+package com.example.QLThuocTay.Entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+@Embeddable
+public class SalesDailyKey implements Serializable {
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Column(name = "medicine_id")
+    private Long medicineId;
+
+    @Column(name = "status_id")
+    private Integer statusId;
+
+    public SalesDailyKey() {}
+
+    public SalesDailyKey(LocalDate saleDate, Long medicineId, Integer statusId) {
+        this.saleDate = saleDate;
+        this.medicineId = medicineId;
+        this.statusId = statusId;
+    }
+
+    public LocalDate getSaleDate() { return saleDate; }
+    public void setSaleDate(LocalDate saleDate) { this.saleDate = saleDate; }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public Integer getStatusId() { return statusId; }
+    public void setStatusId(Integer statusId) { this.statusId = statusId; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SalesDailyKey)) return false;
+        SalesDailyKey that = (SalesDailyKey) o;
+        return Objects.equals(saleDate, that.saleDate) &&
+               Objects.equals(medicineId, that.medicineId) &&
+               Objects.equals(statusId, that.statusId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(saleDate, medicineId, statusId);
+    }
+}
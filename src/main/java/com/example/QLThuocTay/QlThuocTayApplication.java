@@ -3,9 +3,11 @@ package com.example.QLThuocTay;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories(basePackages = "com.example.QLThuocTay.Repository")
+@EnableScheduling
 public class QlThuocTayApplication {
     public static void main(String[] args) {
         SpringApplication.run(QlThuocTayApplication.class, args);
@@ -1,9 +1,11 @@
 package com.example.QLThuocTay.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.QLThuocTay.Entities.Medicine;
 import com.example.QLThuocTay.dto.MedicineDTO;
@@ -17,4 +19,20 @@ public interface MedicineRepository extends JpaRepository<Medicine, Long> { // <
        "FROM Medicine m")
     List<MedicineDTO> findAllMedicineDTO();
 
+    // Như findAllMedicineDTO nhưng giữ cả thuốc chưa gán loại/nhà cung cấp (dùng để dựng chỉ mục tìm kiếm)
+    @Query("SELECT new com.example.QLThuocTay.dto.MedicineDTO(" +
+       "m.medicineId, m.medicineName, c.categoryName, m.dosage, m.price, " +
+       "m.stockQuantity, m.expiryDate, m.createdAt, m.updatedAt, m.imageUrl, " +
+       "m.description, m.ingredient, s.supplierId, s.supplierName) " +
+       "FROM Medicine m LEFT JOIN m.category c LEFT JOIN m.supplier s")
+    List<MedicineDTO> findAllMedicineDTOIncludingUnassigned();
+
+    // LEFT JOIN: thuốc chưa gán loại/nhà cung cấp vẫn được trả về
+    @Query("SELECT new com.example.QLThuocTay.dto.MedicineDTO(" +
+       "m.medicineId, m.medicineName, c.categoryName, m.dosage, m.price, " +
+       "m.stockQuantity, m.expiryDate, m.createdAt, m.updatedAt, m.imageUrl, " +
+       "m.description, m.ingredient, s.supplierId, s.supplierName) " +
+       "FROM Medicine m LEFT JOIN m.category c LEFT JOIN m.supplier s WHERE m.medicineId IN :ids")
+    List<MedicineDTO> findMedicineDTOByIds(@Param("ids") Collection<Long> ids);
+
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.QLThuocTay.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Giới hạn số upload ảnh chạy song song. Multipart được parse lười (spring.servlet.multipart.resolve-lazily),
+// nên interceptor chạy trước khi container đọc body: hết chỗ thì trả 429 ngay, không tốn đĩa/IO cho file.
+// Content-Length vượt giới hạn thì trả 413 trước khi đọc; body không khai báo độ dài vẫn bị
+// spring.servlet.multipart.max-file-size chặn khi đang đọc.
+@Component
+public class ImageUploadLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = ImageUploadLimitInterceptor.class.getName() + ".permit";
+
+    private final Semaphore permits;
+    private final long maxRequestBytes;
+
+    @Autowired
+    public ImageUploadLimitInterceptor(
+            @Value("${app.images.upload.max-concurrent:4}") int maxConcurrent,
+            @Value("${spring.servlet.multipart.max-request-size:6MB}") DataSize maxRequestSize
+    ) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxRequestBytes = maxRequestSize.toBytes();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.regionMatches(true, 0, "multipart/", 0, 10)) {
+            return true;
+        }
+        if (request.getContentLengthLong() > maxRequestBytes) {
+            reject(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Ảnh vượt quá dung lượng cho phép (" + maxRequestBytes / (1024 * 1024) + " MB)");
+            return false;
+        }
+        if (!permits.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+            reject(response, 429, "Đang có quá nhiều ảnh được tải lên, vui lòng thử lại sau.");
+            return false;
+        }
+        request.setAttribute(PERMIT, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT) != null) {
+            request.removeAttribute(PERMIT);
+            permits.release();
+        }
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        // Đóng kết nối: không đọc phần body còn lại của upload bị từ chối
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+}
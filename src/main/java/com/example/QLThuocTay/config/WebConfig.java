@@ -1,25 +1,31 @@
 package com.example.QLThuocTay.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+// Ảnh thuốc (/images/medicines/**) do MedicineImageController gửi bằng sendfile, không qua resource handler
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private ImageUploadLimitInterceptor imageUploadLimitInterceptor;
+
     // CORS config
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
             .allowedOrigins("http://localhost:5173")
-            .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+            .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
             .allowCredentials(true);
     }
 
-    // Static resource handler cho ảnh ngoài ổ đĩa
+    // Giới hạn upload ảnh song song cho các endpoint nhận multipart
     @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/images/medicines/**")
-.addResourceLocations("file:C:/QLThuocTay/web/images/medicines/");    }
-}
\ No newline at end of file
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(imageUploadLimitInterceptor)
+            .addPathPatterns("/medicines/add", "/medicines/update-with-image/**");
+    }
+}
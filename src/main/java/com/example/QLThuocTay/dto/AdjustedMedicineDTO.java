@@ -0,0 +1,32 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+
+// Giá và tồn kho sau khi điều chỉnh
+public class AdjustedMedicineDTO {
+    private Long medicineId;
+    private String name;
+    private BigDecimal price;
+    private Integer stockQuantity;
+
+    public AdjustedMedicineDTO() {}
+
+    public AdjustedMedicineDTO(Long medicineId, String name, BigDecimal price, Integer stockQuantity) {
+        this.medicineId = medicineId;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public Integer getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+}
@@ -0,0 +1,28 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+
+public class BulkAdjustItemDTO {
+    private Long medicineId;
+    // Giá mới (null: giữ nguyên)
+    private BigDecimal price;
+    // Cộng/trừ tồn kho (null: giữ nguyên), ví dụ -3 sau kiểm kê
+    private Integer stockDelta;
+
+    public BulkAdjustItemDTO() {}
+
+    public BulkAdjustItemDTO(Long medicineId, BigDecimal price, Integer stockDelta) {
+        this.medicineId = medicineId;
+        this.price = price;
+        this.stockDelta = stockDelta;
+    }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public Integer getStockDelta() { return stockDelta; }
+    public void setStockDelta(Integer stockDelta) { this.stockDelta = stockDelta; }
+}
@@ -0,0 +1,15 @@
+package com.example.QLThuocTay.dto;
+
+import java.util.List;
+
+// Danh sách thuốc cụ thể và/hoặc một quy tắc; áp quy tắc trước rồi tới từng thuốc, chung một transaction
+public class BulkAdjustRequest {
+    private List<BulkAdjustItemDTO> items;
+    private BulkAdjustRuleDTO rule;
+
+    public List<BulkAdjustItemDTO> getItems() { return items; }
+    public void setItems(List<BulkAdjustItemDTO> items) { this.items = items; }
+
+    public BulkAdjustRuleDTO getRule() { return rule; }
+    public void setRule(BulkAdjustRuleDTO rule) { this.rule = rule; }
+}
@@ -0,0 +1,29 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+
+// Điều chỉnh theo quy tắc cho mọi thuốc khớp bộ lọc, ví dụ "+5% giá cho loại X"
+public class BulkAdjustRuleDTO {
+    // Bộ lọc: cần ít nhất một trong hai
+    private Long categoryId;
+    private Long supplierId;
+    // Giá mới = giá * (100 + pricePercent) / 100 + priceDelta, làm tròn 2 chữ số, không âm
+    private BigDecimal pricePercent;
+    private BigDecimal priceDelta;
+    private Integer stockDelta;
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public Long getSupplierId() { return supplierId; }
+    public void setSupplierId(Long supplierId) { this.supplierId = supplierId; }
+
+    public BigDecimal getPricePercent() { return pricePercent; }
+    public void setPricePercent(BigDecimal pricePercent) { this.pricePercent = pricePercent; }
+
+    public BigDecimal getPriceDelta() { return priceDelta; }
+    public void setPriceDelta(BigDecimal priceDelta) { this.priceDelta = priceDelta; }
+
+    public Integer getStockDelta() { return stockDelta; }
+    public void setStockDelta(Integer stockDelta) { this.stockDelta = stockDelta; }
+}
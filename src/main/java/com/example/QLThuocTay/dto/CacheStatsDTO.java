@@ -0,0 +1,34 @@
+package com.example.QLThuocTay.dto;
+
+public class CacheStatsDTO {
+    private String name;
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CacheStatsDTO() {}
+
+    public CacheStatsDTO(String name, int size, long hits, long misses, long evictions) {
+        this.name = name;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public long getHits() { return hits; }
+    public void setHits(long hits) { this.hits = hits; }
+
+    public long getMisses() { return misses; }
+    public void setMisses(long misses) { this.misses = misses; }
+
+    public long getEvictions() { return evictions; }
+    public void setEvictions(long evictions) { this.evictions = evictions; }
+}
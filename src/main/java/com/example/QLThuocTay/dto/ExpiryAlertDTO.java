@@ -0,0 +1,39 @@
+package com.example.QLThuocTay.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class ExpiryAlertDTO {
+    private Long medicineId;
+    private String medicineName;
+    // Ngưỡng đã chạm (30/60/90 ngày...)
+    private int thresholdDays;
+    private LocalDate expiryDate;
+    private LocalDateTime createdAt;
+
+    public ExpiryAlertDTO() {}
+
+    public ExpiryAlertDTO(Long medicineId, String medicineName, int thresholdDays,
+                          LocalDate expiryDate, LocalDateTime createdAt) {
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.thresholdDays = thresholdDays;
+        this.expiryDate = expiryDate;
+        this.createdAt = createdAt;
+    }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public String getMedicineName() { return medicineName; }
+    public void setMedicineName(String medicineName) { this.medicineName = medicineName; }
+
+    public int getThresholdDays() { return thresholdDays; }
+    public void setThresholdDays(int thresholdDays) { this.thresholdDays = thresholdDays; }
+
+    public LocalDate getExpiryDate() { return expiryDate; }
+    public void setExpiryDate(LocalDate expiryDate) { this.expiryDate = expiryDate; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
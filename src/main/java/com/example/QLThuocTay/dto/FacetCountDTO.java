@@ -0,0 +1,25 @@
+package com.example.QLThuocTay.dto;
+
+public class FacetCountDTO {
+    // null = thuốc chưa gán loại/nhà cung cấp
+    private Long id;
+    private String name;
+    private long count;
+
+    public FacetCountDTO() {}
+
+    public FacetCountDTO(Long id, String name, long count) {
+        this.id = id;
+        this.name = name;
+        this.count = count;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
@@ -0,0 +1,20 @@
+package com.example.QLThuocTay.dto;
+
+public class ImportRowErrorDTO {
+    // Dòng trong file CSV (dòng tiêu đề là 1)
+    private long line;
+    private String message;
+
+    public ImportRowErrorDTO() {}
+
+    public ImportRowErrorDTO(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() { return line; }
+    public void setLine(long line) { this.line = line; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,26 @@
+package com.example.QLThuocTay.dto;
+
+public class LoginResponseDTO {
+    // Gửi lại qua header Authorization: Bearer <token>
+    private String token;
+    // Thời điểm token hết hạn (epoch millis)
+    private long expiresAt;
+    private UserDTO user;
+
+    public LoginResponseDTO() {}
+
+    public LoginResponseDTO(String token, long expiresAt, UserDTO user) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+        this.user = user;
+    }
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+
+    public UserDTO getUser() { return user; }
+    public void setUser(UserDTO user) { this.user = user; }
+}
@@ -0,0 +1,23 @@
+package com.example.QLThuocTay.dto;
+
+import java.util.List;
+
+public class MedicineBatchDTO {
+    // Theo thứ tự id trong yêu cầu (id lặp chỉ trả một lần)
+    private List<MedicineDTO> items;
+    // Id không tìm thấy (đã xoá), để client dọn giỏ hàng
+    private List<Long> missing;
+
+    public MedicineBatchDTO() {}
+
+    public MedicineBatchDTO(List<MedicineDTO> items, List<Long> missing) {
+        this.items = items;
+        this.missing = missing;
+    }
+
+    public List<MedicineDTO> getItems() { return items; }
+    public void setItems(List<MedicineDTO> items) { this.items = items; }
+
+    public List<Long> getMissing() { return missing; }
+    public void setMissing(List<Long> missing) { this.missing = missing; }
+}
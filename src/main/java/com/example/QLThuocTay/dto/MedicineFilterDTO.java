@@ -0,0 +1,41 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+// Bộ lọc cho GET /medicines, bind thẳng từ query string
+public class MedicineFilterDTO {
+    private Long categoryId;
+    private Long supplierId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private boolean inStock;
+    // Hạn dùng trong [expiryFrom, expiryTo]
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate expiryFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate expiryTo;
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public Long getSupplierId() { return supplierId; }
+    public void setSupplierId(Long supplierId) { this.supplierId = supplierId; }
+
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+
+    public boolean isInStock() { return inStock; }
+    public void setInStock(boolean inStock) { this.inStock = inStock; }
+
+    public LocalDate getExpiryFrom() { return expiryFrom; }
+    public void setExpiryFrom(LocalDate expiryFrom) { this.expiryFrom = expiryFrom; }
+
+    public LocalDate getExpiryTo() { return expiryTo; }
+    public void setExpiryTo(LocalDate expiryTo) { this.expiryTo = expiryTo; }
+}
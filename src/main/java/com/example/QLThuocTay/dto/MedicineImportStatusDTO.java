@@ -0,0 +1,60 @@
+package com.example.QLThuocTay.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class MedicineImportStatusDTO {
+    // QUEUED | RUNNING | INDEXING | COMPLETED | FAILED
+    private String jobId;
+    private String state;
+    // Tiến độ theo số byte đã đọc của file tải lên
+    private long bytesTotal;
+    private long bytesRead;
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long failed;
+    // Lỗi từng dòng (giữ tối đa app.medicines.import.max-errors dòng đầu)
+    private List<ImportRowErrorDTO> errors;
+    private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public MedicineImportStatusDTO() {}
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public long getBytesTotal() { return bytesTotal; }
+    public void setBytesTotal(long bytesTotal) { this.bytesTotal = bytesTotal; }
+
+    public long getBytesRead() { return bytesRead; }
+    public void setBytesRead(long bytesRead) { this.bytesRead = bytesRead; }
+
+    public long getRowsRead() { return rowsRead; }
+    public void setRowsRead(long rowsRead) { this.rowsRead = rowsRead; }
+
+    public long getInserted() { return inserted; }
+    public void setInserted(long inserted) { this.inserted = inserted; }
+
+    public long getUpdated() { return updated; }
+    public void setUpdated(long updated) { this.updated = updated; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public List<ImportRowErrorDTO> getErrors() { return errors; }
+    public void setErrors(List<ImportRowErrorDTO> errors) { this.errors = errors; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -0,0 +1,45 @@
+package com.example.QLThuocTay.dto;
+
+import java.util.List;
+
+public class MedicinePageDTO {
+    private List<MedicineDTO> items;
+    // Con trỏ keyset cho trang kế tiếp (null nếu đã hết), truyền lại qua tham số after
+    private String next;
+    private boolean hasMore;
+    // Tổng số thuốc khớp bộ lọc
+    private long total;
+    // Đếm theo loại (áp mọi bộ lọc trừ categoryId) và theo nhà cung cấp (trừ supplierId)
+    private List<FacetCountDTO> categories;
+    private List<FacetCountDTO> suppliers;
+
+    public MedicinePageDTO() {}
+
+    public MedicinePageDTO(List<MedicineDTO> items, String next, boolean hasMore, long total,
+                           List<FacetCountDTO> categories, List<FacetCountDTO> suppliers) {
+        this.items = items;
+        this.next = next;
+        this.hasMore = hasMore;
+        this.total = total;
+        this.categories = categories;
+        this.suppliers = suppliers;
+    }
+
+    public List<MedicineDTO> getItems() { return items; }
+    public void setItems(List<MedicineDTO> items) { this.items = items; }
+
+    public String getNext() { return next; }
+    public void setNext(String next) { this.next = next; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public List<FacetCountDTO> getCategories() { return categories; }
+    public void setCategories(List<FacetCountDTO> categories) { this.categories = categories; }
+
+    public List<FacetCountDTO> getSuppliers() { return suppliers; }
+    public void setSuppliers(List<FacetCountDTO> suppliers) { this.suppliers = suppliers; }
+}
@@ -0,0 +1,31 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+
+public class MedicineSalesDTO {
+    private Long medicineId;
+    private String medicineName;
+    private long units;
+    private BigDecimal revenue;
+
+    public MedicineSalesDTO() {}
+
+    public MedicineSalesDTO(Long medicineId, String medicineName, long units, BigDecimal revenue) {
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public String getMedicineName() { return medicineName; }
+    public void setMedicineName(String medicineName) { this.medicineName = medicineName; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+}
@@ -0,0 +1,31 @@
+package com.example.QLThuocTay.dto;
+
+import java.util.List;
+
+public class MedicineSearchPageDTO {
+    private List<MedicineDTO> items;
+    private int total;
+    private int page;
+    private int size;
+
+    public MedicineSearchPageDTO() {}
+
+    public MedicineSearchPageDTO(List<MedicineDTO> items, int total, int page, int size) {
+        this.items = items;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+    }
+
+    public List<MedicineDTO> getItems() { return items; }
+    public void setItems(List<MedicineDTO> items) { this.items = items; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+}
@@ -0,0 +1,19 @@
+package com.example.QLThuocTay.dto;
+
+public class MedicineSuggestionDTO {
+    private Long id;
+    private String name;
+
+    public MedicineSuggestionDTO() {}
+
+    public MedicineSuggestionDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -9,6 +9,17 @@ public class OrderDetailDTO {
     private Integer quantity;
     private BigDecimal price;
 
+    public OrderDetailDTO() {}
+
+    // Dùng cho JPQL constructor expression
+    public OrderDetailDTO(Long orderId, Long medicineId, String medicineName, Integer quantity, BigDecimal price) {
+        this.orderId = orderId;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
     // getters & setters
     public Long getOrderId() { return orderId; }
     public void setOrderId(Long orderId) { this.orderId = orderId; }
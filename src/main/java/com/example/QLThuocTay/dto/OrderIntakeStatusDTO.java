@@ -0,0 +1,32 @@
+package com.example.QLThuocTay.dto;
+
+public class OrderIntakeStatusDTO {
+    // QUEUED | COMPLETED | FAILED
+    private String trackingId;
+    private String state;
+    private Long orderId;
+    private String message;
+    private OrderResponseDTO order;
+
+    public OrderIntakeStatusDTO() {}
+
+    public OrderIntakeStatusDTO(String trackingId, String state) {
+        this.trackingId = trackingId;
+        this.state = state;
+    }
+
+    public String getTrackingId() { return trackingId; }
+    public void setTrackingId(String trackingId) { this.trackingId = trackingId; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public OrderResponseDTO getOrder() { return order; }
+    public void setOrder(OrderResponseDTO order) { this.order = order; }
+}
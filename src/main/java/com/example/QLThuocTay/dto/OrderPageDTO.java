@@ -0,0 +1,33 @@
+package com.example.QLThuocTay.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class OrderPageDTO {
+    private List<OrderResponseDTO> items;
+    // Con trỏ keyset cho trang kế tiếp (null nếu đã hết)
+    private LocalDateTime nextCreateAt;
+    private Long nextOrderId;
+    private boolean hasMore;
+
+    public OrderPageDTO() {}
+
+    public OrderPageDTO(List<OrderResponseDTO> items, LocalDateTime nextCreateAt, Long nextOrderId, boolean hasMore) {
+        this.items = items;
+        this.nextCreateAt = nextCreateAt;
+        this.nextOrderId = nextOrderId;
+        this.hasMore = hasMore;
+    }
+
+    public List<OrderResponseDTO> getItems() { return items; }
+    public void setItems(List<OrderResponseDTO> items) { this.items = items; }
+
+    public LocalDateTime getNextCreateAt() { return nextCreateAt; }
+    public void setNextCreateAt(LocalDateTime nextCreateAt) { this.nextCreateAt = nextCreateAt; }
+
+    public Long getNextOrderId() { return nextOrderId; }
+    public void setNextOrderId(Long nextOrderId) { this.nextOrderId = nextOrderId; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
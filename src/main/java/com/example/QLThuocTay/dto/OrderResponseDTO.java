@@ -16,6 +16,21 @@ public class OrderResponseDTO {
     private String shippingAddress;
     private List<OrderDetailDTO> orderDetails;
 
+    public OrderResponseDTO() {}
+
+    // Dùng cho JPQL constructor expression (phân trang đơn hàng)
+    public OrderResponseDTO(Long orderId, Long userId, String userName, BigDecimal totalAmount,
+                            LocalDateTime createAt, Integer statusId, String statusName, String shippingAddress) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.userName = userName;
+        this.totalAmount = totalAmount;
+        this.createAt = createAt;
+        this.statusId = statusId;
+        this.statusName = statusName;
+        this.shippingAddress = shippingAddress;
+    }
+
     // Getters and setters
     public Long getOrderId() { return orderId; }
     public void setOrderId(Long orderId) { this.orderId = orderId; }
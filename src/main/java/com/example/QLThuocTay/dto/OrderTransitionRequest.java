@@ -0,0 +1,15 @@
+package com.example.QLThuocTay.dto;
+
+import java.util.List;
+
+public class OrderTransitionRequest {
+    // confirm | complete | cancel
+    private String action;
+    private List<Long> orderIds;
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public List<Long> getOrderIds() { return orderIds; }
+    public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
+}
@@ -0,0 +1,27 @@
+package com.example.QLThuocTay.dto;
+
+import java.util.List;
+
+public class OrderTransitionResultDTO {
+    private String action;
+    private List<Long> succeeded;
+    // Không tồn tại hoặc không ở trạng thái cho phép chuyển
+    private List<Long> failed;
+
+    public OrderTransitionResultDTO() {}
+
+    public OrderTransitionResultDTO(String action, List<Long> succeeded, List<Long> failed) {
+        this.action = action;
+        this.succeeded = succeeded;
+        this.failed = failed;
+    }
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public List<Long> getSucceeded() { return succeeded; }
+    public void setSucceeded(List<Long> succeeded) { this.succeeded = succeeded; }
+
+    public List<Long> getFailed() { return failed; }
+    public void setFailed(List<Long> failed) { this.failed = failed; }
+}
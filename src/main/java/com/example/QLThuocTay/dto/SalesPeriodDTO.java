@@ -0,0 +1,28 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class SalesPeriodDTO {
+    // Ngày đầu của kỳ (ngày/tuần/tháng)
+    private LocalDate periodStart;
+    private long units;
+    private BigDecimal revenue;
+
+    public SalesPeriodDTO() {}
+
+    public SalesPeriodDTO(LocalDate periodStart, long units, BigDecimal revenue) {
+        this.periodStart = periodStart;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    public LocalDate getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+}
@@ -0,0 +1,49 @@
+package com.example.QLThuocTay.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class SalesReportDTO {
+    private String period;
+    private LocalDate from;
+    private LocalDate to;
+    private long totalUnits;
+    private BigDecimal totalRevenue;
+    private List<SalesPeriodDTO> periods;
+    private List<MedicineSalesDTO> topMedicines;
+
+    public SalesReportDTO() {}
+
+    public SalesReportDTO(String period, LocalDate from, LocalDate to, long totalUnits, BigDecimal totalRevenue,
+                          List<SalesPeriodDTO> periods, List<MedicineSalesDTO> topMedicines) {
+        this.period = period;
+        this.from = from;
+        this.to = to;
+        this.totalUnits = totalUnits;
+        this.totalRevenue = totalRevenue;
+        this.periods = periods;
+        this.topMedicines = topMedicines;
+    }
+
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    public long getTotalUnits() { return totalUnits; }
+    public void setTotalUnits(long totalUnits) { this.totalUnits = totalUnits; }
+
+    public BigDecimal getTotalRevenue() { return totalRevenue; }
+    public void setTotalRevenue(BigDecimal totalRevenue) { this.totalRevenue = totalRevenue; }
+
+    public List<SalesPeriodDTO> getPeriods() { return periods; }
+    public void setPeriods(List<SalesPeriodDTO> periods) { this.periods = periods; }
+
+    public List<MedicineSalesDTO> getTopMedicines() { return topMedicines; }
+    public void setTopMedicines(List<MedicineSalesDTO> topMedicines) { this.topMedicines = topMedicines; }
+}
@@ -0,0 +1,31 @@
+package com.example.QLThuocTay.dto;
+
+public class TopMedicineDTO {
+    private Long medicineId;
+    // Số lượng bán ước lượng (chặn trên) trong cửa sổ
+    private long units;
+    // Số thật nằm trong [units - maxError, units]
+    private long maxError;
+    private MedicineDTO medicine;
+
+    public TopMedicineDTO() {}
+
+    public TopMedicineDTO(Long medicineId, long units, long maxError, MedicineDTO medicine) {
+        this.medicineId = medicineId;
+        this.units = units;
+        this.maxError = maxError;
+        this.medicine = medicine;
+    }
+
+    public Long getMedicineId() { return medicineId; }
+    public void setMedicineId(Long medicineId) { this.medicineId = medicineId; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public long getMaxError() { return maxError; }
+    public void setMaxError(long maxError) { this.maxError = maxError; }
+
+    public MedicineDTO getMedicine() { return medicine; }
+    public void setMedicine(MedicineDTO medicine) { this.medicine = medicine; }
+}
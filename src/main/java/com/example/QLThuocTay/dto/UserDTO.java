@@ -0,0 +1,38 @@
+package com.example.QLThuocTay.dto;
+
+import com.example.QLThuocTay.Entities.User;
+import com.example.QLThuocTay.Entities.UserRole;
+
+// Thông tin người dùng trả cho client (không có mật khẩu)
+public class UserDTO {
+    private Long userId;
+    private String fullName;
+    private String email;
+    private String phoneNumber;
+    private UserRole userRole;
+
+    public UserDTO() {}
+
+    public UserDTO(User user) {
+        this.userId = user.getUserId();
+        this.fullName = user.getFullName();
+        this.email = user.getEmail();
+        this.phoneNumber = user.getPhoneNumber();
+        this.userRole = user.getUserRole();
+    }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getFullName() { return fullName; }
+    public void setFullName(String fullName) { this.fullName = fullName; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getPhoneNumber() { return phoneNumber; }
+    public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
+
+    public UserRole getUserRole() { return userRole; }
+    public void setUserRole(UserRole userRole) { this.userRole = userRole; }
+}
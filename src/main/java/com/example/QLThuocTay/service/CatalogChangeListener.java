@@ -0,0 +1,29 @@
+package com.example.QLThuocTay.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+// Listener JPA cho Medicine, MedicineCategory, Supplier: mọi ghi qua JPA làm mới bản chụp catalog.
+// @Lazy vì Hibernate lấy listener trong lúc dựng EntityManagerFactory, trước khi repository sẵn sàng.
+@Component
+public class CatalogChangeListener {
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    public CatalogChangeListener(@Lazy CatalogSnapshotService catalogSnapshotService) {
+        this.catalogSnapshotService = catalogSnapshotService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        catalogSnapshotService.markChanged();
+    }
+}
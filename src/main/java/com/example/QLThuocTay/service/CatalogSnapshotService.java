@@ -0,0 +1,217 @@
+package com.example.QLThuocTay.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.dto.MedicineDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Bản chụp /medicines/all đã serialize sẵn (JSON + gzip), gắn với số phiên bản catalog.
+// Mọi ghi vào thuốc/loại/nhà cung cấp (kể cả trừ tồn kho) tăng phiên bản sau commit;
+// bản chụp được dựng lại lười ở lần đọc kế tiếp, nên nhiều lần ghi liên tiếp chỉ tốn một lần dựng.
+// Đơn hàng chỉ đổi tồn kho (markStockChanged): không tăng contentVersion, và bản chụp cũ còn được dùng
+// tới stock-refresh-ms, nên lượng bán liên tục không làm dựng lại cả catalog sau mỗi đơn.
+// Khi cần dựng lại, chỉ một luồng dựng; các luồng khác trả ngay bản chụp cũ thay vì chờ.
+@Service
+public class CatalogSnapshotService {
+
+    private final MedicineRepository medicineRepository;
+    private final ObjectMapper objectMapper;
+    private final long stockRefreshMillis;
+    // Mọi thay đổi, kể cả tồn kho
+    private final AtomicLong version = new AtomicLong(1);
+    // Chỉ thay đổi nội dung catalog (tên, giá, loại, ...), không tính tồn kho do đơn hàng
+    private final AtomicLong contentVersion = new AtomicLong(1);
+    private final Object stockResource = new Object();
+    // Khác nhau giữa các lần khởi động để ETag cũ không khớp nhầm sau restart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public CatalogSnapshotService(
+            MedicineRepository medicineRepository,
+            ObjectMapper objectMapper,
+            @Value("${app.medicines.snapshot.stock-refresh-ms:5000}") long stockRefreshMillis
+    ) {
+        this.medicineRepository = medicineRepository;
+        this.objectMapper = objectMapper;
+        this.stockRefreshMillis = stockRefreshMillis;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // Phiên bản không tính tồn kho: cache chỉ phụ thuộc tên/giá/loại (facet, gợi ý) dùng số này
+    public long contentVersion() {
+        return contentVersion.get();
+    }
+
+    // Đánh dấu catalog đã đổi. Trong transaction thì chỉ tăng phiên bản sau commit (một lần mỗi transaction):
+    // tăng trước commit có thể để một lượt đọc dựng bản chụp phiên bản mới từ dữ liệu cũ.
+    public void markChanged() {
+        afterCommit(this, () -> {
+            contentVersion.incrementAndGet();
+            version.incrementAndGet();
+        });
+    }
+
+    // Chỉ tồn kho đổi (đặt/huỷ/sửa đơn)
+    public void markStockChanged() {
+        afterCommit(stockResource, version::incrementAndGet);
+    }
+
+    private void afterCommit(Object resource, Runnable bump) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump.run();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(resource)) return;
+        TransactionSynchronizationManager.bindResource(resource, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(resource);
+            }
+        });
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && isFreshEnough(current)) {
+            return current;
+        }
+        if (current == null) {
+            // Chưa có bản chụp nào: phải chờ lần dựng đầu
+            buildLock.lock();
+        } else if (!buildLock.tryLock()) {
+            // Luồng khác đang dựng: trả bản cũ, không xếp hàng chờ
+            return current;
+        }
+        try {
+            current = snapshot;
+            if (current != null && isFreshEnough(current)) {
+                return current;
+            }
+            // Đọc phiên bản trước khi truy vấn: ghi xen giữa sẽ làm bản chụp này lỗi thời ngay, không bị giữ sai
+            long target = version.get();
+            long targetContent = contentVersion.get();
+            List<MedicineDTO> medicines = medicineRepository.findAllMedicineDTO();
+            byte[] json;
+            try {
+                json = objectMapper.writeValueAsBytes(medicines);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Không serialize được danh sách thuốc", e);
+            }
+            current = new Snapshot(target, targetContent, System.currentTimeMillis(),
+                    "catalog-" + epoch + "-" + target, json, gzip(json), medicines);
+            snapshot = current;
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // Đúng phiên bản, hoặc chỉ lệch tồn kho và chưa quá stock-refresh-ms
+    private boolean isFreshEnough(Snapshot current) {
+        if (current.version == version.get()) return true;
+        return current.contentVersion == contentVersion.get()
+                && System.currentTimeMillis() - current.builtAt < stockRefreshMillis;
+    }
+
+    // Tra thuốc theo id: lấy từ bản chụp nếu bản chụp còn đúng phiên bản (không tự dựng lại),
+    // id không có trong bản chụp (hoặc catalog vừa đổi) thì truy vấn một lần bằng IN.
+    // Id không tồn tại đơn giản là không có trong map trả về.
+    public Map<Long, MedicineDTO> findByIds(Collection<Long> ids) {
+        Map<Long, MedicineDTO> found = new HashMap<>(Math.max(16, ids.size() * 2));
+        Snapshot current = snapshot;
+        List<Long> misses = new ArrayList<>();
+        if (current != null && current.version == version.get()) {
+            for (Long id : ids) {
+                MedicineDTO medicine = current.byId.get(id);
+                if (medicine != null) found.put(id, medicine);
+                else misses.add(id);
+            }
+        } else {
+            misses.addAll(ids);
+        }
+        if (!misses.isEmpty()) {
+            for (MedicineDTO medicine : medicineRepository.findMedicineDTOByIds(misses)) {
+                found.put(medicine.getId(), medicine);
+            }
+        }
+        return found;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Bất biến sau khi dựng: các request dùng chung mảng byte, không copy
+    public static final class Snapshot {
+        private final long version;
+        private final long contentVersion;
+        private final long builtAt;
+        private final String tag;
+        private final byte[] json;
+        private final byte[] gzipped;
+        private final int count;
+        // Các DTO đã dựng cho /medicines/all, dùng lại cho tra cứu theo id; không được sửa sau khi dựng
+        private final Map<Long, MedicineDTO> byId;
+
+        Snapshot(long version, long contentVersion, long builtAt, String tag, byte[] json, byte[] gzipped,
+                 List<MedicineDTO> medicines) {
+            this.version = version;
+            this.contentVersion = contentVersion;
+            this.builtAt = builtAt;
+            this.tag = tag;
+            this.json = json;
+            this.gzipped = gzipped;
+            this.count = medicines.size();
+            this.byId = new HashMap<>(Math.max(16, medicines.size() * 2));
+            for (MedicineDTO medicine : medicines) {
+                byId.put(medicine.getId(), medicine);
+            }
+        }
+
+        public long getVersion() { return version; }
+
+        // ETag mạnh: bản gzip và bản thường là hai biểu diễn khác nhau nên khác ETag
+        public String getEtag(boolean gzip) { return "\"" + tag + (gzip ? "-gz" : "") + "\""; }
+
+        public byte[] getJson() { return json; }
+
+        public byte[] getGzipped() { return gzipped; }
+
+        public int getCount() { return count; }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.QLThuocTay.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Đọc CSV (RFC 4180) theo luồng, mỗi lần một dòng dữ liệu: không nạp cả file vào bộ nhớ.
+// Hỗ trợ ô trong ngoặc kép, "" bên trong ô, xuống dòng trong ô, CRLF/LF và BOM UTF-8 ở đầu file.
+public class CsvReader {
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private boolean started;
+    // Dòng vật lý bắt đầu bản ghi vừa đọc (1 = dòng đầu file)
+    private long recordLine;
+    private long line = 1;
+
+    public CsvReader(Reader reader, char delimiter) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Ký tự phân cách không hợp lệ");
+        }
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    // Các ô của bản ghi kế tiếp, null khi hết file. Dòng trống bị bỏ qua.
+    public List<String> next() throws IOException {
+        if (!started) {
+            started = true;
+            if (fill() && buffer[position] == '\uFEFF') position++;
+        }
+        while (true) {
+            if (position >= limit && !fill()) return null;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                if (position >= limit && !fill()) {
+                    if (quoted) throw new IOException("Thiếu dấu \" đóng ô bắt đầu ở dòng " + recordLine);
+                    fields.add(field.toString());
+                    return fields;
+                }
+                char c = buffer[position++];
+                if (quoted) {
+                    if (c == '"') {
+                        if ((position < limit || fill()) && buffer[position] == '"') {
+                            field.append('"');
+                            position++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        field.append(c);
+                    }
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && (position < limit || fill()) && buffer[position] == '\n') position++;
+                    line++;
+                    if (fields.isEmpty() && field.length() == 0 && !wasQuoted) break;
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append(c);
+                }
+            }
+        }
+    }
+
+    public long recordLine() {
+        return recordLine;
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.QLThuocTay.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.QLThuocTay.dto.ExpiryAlertDTO;
+
+// Job cảnh báo sắp hết hạn: lấy thuốc trong [hôm nay, hôm nay + ngưỡng lớn nhất] từ MedicineExpiryIndex
+// (không quét bảng medicines), gán ngưỡng chặt nhất còn đúng và ghi vào expiry_alerts.
+// ON CONFLICT DO NOTHING trên (thuốc, ngưỡng, hạn dùng) nên chạy lại bao nhiêu lần cũng chỉ báo một lần.
+@Service
+public class ExpiryAlertService {
+
+    public static final int MAX_RECENT = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryAlertService.class);
+    private static final int CHUNK_SIZE = 5_000;
+
+    private final MedicineExpiryIndex expiryIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final int[] thresholds;
+
+    @Autowired
+    public ExpiryAlertService(
+            MedicineExpiryIndex expiryIndex,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.medicines.expiry.alert-days:30,60,90}") int[] thresholds
+    ) {
+        if (thresholds.length == 0 || Arrays.stream(thresholds).anyMatch(t -> t <= 0)) {
+            throw new IllegalArgumentException("app.medicines.expiry.alert-days phải là các số ngày > 0");
+        }
+        this.expiryIndex = expiryIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.thresholds = Arrays.stream(thresholds).sorted().distinct().toArray();
+    }
+
+    @Scheduled(cron = "${app.medicines.expiry.alert-cron:0 0 7 * * *}")
+    public int emitAlerts() {
+        return emitAlerts(LocalDate.now());
+    }
+
+    // Trả về số cảnh báo mới (đã báo trước đó thì không tính)
+    @Transactional
+    public int emitAlerts(LocalDate today) {
+        List<MedicineExpiryIndex.Entry> due = expiryIndex.entries(today, today.plusDays(thresholds[thresholds.length - 1]));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int created = 0;
+        for (int from = 0; from < due.size(); from += CHUNK_SIZE) {
+            List<MedicineExpiryIndex.Entry> chunk = due.subList(from, Math.min(due.size(), from + CHUNK_SIZE));
+            Long[] medicineIds = new Long[chunk.size()];
+            Integer[] thresholdDays = new Integer[chunk.size()];
+            Date[] expiryDates = new Date[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                MedicineExpiryIndex.Entry entry = chunk.get(i);
+                medicineIds[i] = entry.getMedicineId();
+                thresholdDays[i] = thresholdFor(entry.getExpiryDate().toEpochDay() - today.toEpochDay());
+                expiryDates[i] = Date.valueOf(entry.getExpiryDate());
+            }
+            List<String> inserted = jdbcTemplate.query(
+                    "INSERT INTO expiry_alerts (medicine_id, threshold_days, expiry_date, created_at) " +
+                    "SELECT a.medicine_id, a.threshold_days, a.expiry_date, ? " +
+                    "FROM unnest(?, ?, ?) AS a(medicine_id, threshold_days, expiry_date) " +
+                    "ON CONFLICT (medicine_id, threshold_days, expiry_date) DO NOTHING " +
+                    "RETURNING medicine_id, threshold_days, expiry_date",
+                    (rs, rowNum) -> rs.getLong(1) + " (" + rs.getInt(2) + " ngày, hạn " + rs.getDate(3) + ")",
+                    now,
+                    new SqlArrayValue("bigint", (Object[]) medicineIds),
+                    new SqlArrayValue("integer", (Object[]) thresholdDays),
+                    new SqlArrayValue("date", (Object[]) expiryDates));
+            if (!inserted.isEmpty()) {
+                // Chỉ in vài thuốc đầu, danh sách đầy đủ xem qua /medicines/expiry-alerts
+                logger.warn("Thuốc sắp hết hạn: {}{}", String.join(", ", inserted.subList(0, Math.min(20, inserted.size()))),
+                        inserted.size() > 20 ? " và " + (inserted.size() - 20) + " thuốc khác" : "");
+            }
+            created += inserted.size();
+        }
+        logger.info("Cảnh báo hạn dùng: {} thuốc trong {} ngày tới, {} cảnh báo mới", due.size(),
+                thresholds[thresholds.length - 1], created);
+        return created;
+    }
+
+    // Cảnh báo phát trong `days` ngày gần đây, xếp theo hạn dùng gần nhất
+    @Transactional(readOnly = true)
+    public List<ExpiryAlertDTO> recent(int days) {
+        return jdbcTemplate.query(
+                "SELECT a.medicine_id, m.medicine_name, a.threshold_days, a.expiry_date, a.created_at " +
+                "FROM expiry_alerts a JOIN medicines m ON m.medicine_id = a.medicine_id " +
+                "WHERE a.created_at >= ? AND a.expiry_date = m.expiry_date " +
+                "ORDER BY a.expiry_date, a.medicine_id, a.threshold_days LIMIT " + MAX_RECENT,
+                (rs, rowNum) -> new ExpiryAlertDTO(
+                        rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        rs.getObject(4, LocalDate.class), rs.getObject(5, LocalDateTime.class)),
+                Timestamp.valueOf(LocalDate.now().minusDays(days).atStartOfDay()));
+    }
+
+    // Ngưỡng nhỏ nhất vẫn >= số ngày còn lại
+    int thresholdFor(long daysLeft) {
+        for (int threshold : thresholds) {
+            if (daysLeft <= threshold) return threshold;
+        }
+        return thresholds[thresholds.length - 1];
+    }
+}
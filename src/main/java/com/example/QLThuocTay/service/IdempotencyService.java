@@ -0,0 +1,148 @@
+package com.example.QLThuocTay.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.QLThuocTay.Repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Xử lý header Idempotency-Key cho các request tạo đơn:
+// - cùng khóa đã xử lý xong -> trả lại response cũ (cache bộ nhớ, rồi bảng idempotency_keys);
+// - cùng khóa đang xử lý trên node này -> chờ request đầu tiên và dùng chung kết quả;
+// - khóa được ghi trong cùng transaction với đơn hàng nên không thể có đơn mà mất khóa (hoặc ngược lại).
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long waitMillis;
+
+    private final BoundedTtlCache<String, String> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyService(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+            @Value("${app.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${app.idempotency.wait-seconds:30}") long waitSeconds
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.waitMillis = TimeUnit.SECONDS.toMillis(waitSeconds);
+        this.completed = new BoundedTtlCache<>(maxEntries, ttlMillis);
+    }
+
+    public <T> T execute(String scope, String key, TypeReference<T> type, Supplier<T> action) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " quá dài (tối đa " + MAX_KEY_LENGTH + " ký tự).");
+        }
+        String id = scope + ":" + key;
+        String cached = completed.get(id);
+        if (cached != null) {
+            return read(cached, type);
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return read(await(running), type);
+        }
+        try {
+            String body = transactionTemplate.execute(status -> claimAndRun(id, action));
+            completed.put(id, body);
+            mine.complete(body);
+            return read(body, type);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    private <T> String claimAndRun(String id, Supplier<T> action) {
+        LocalDateTime now = LocalDateTime.now();
+        // Giành khóa; dòng cũ đã quá TTL thì được dùng lại.
+        // Node khác đang giữ cùng khóa chưa commit -> INSERT chờ tới khi nó kết thúc.
+        int claimed = jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (idem_key, response_body, created_at) VALUES (?, NULL, ?) " +
+                "ON CONFLICT (idem_key) DO UPDATE SET response_body = NULL, created_at = EXCLUDED.created_at " +
+                "WHERE idempotency_keys.created_at < ?",
+                id, Timestamp.valueOf(now), Timestamp.valueOf(now.minusNanos(ttlMillis * 1_000_000)));
+        if (claimed == 0) {
+            return jdbcTemplate.queryForObject(
+                    "SELECT response_body FROM idempotency_keys WHERE idem_key = ?", String.class, id);
+        }
+        String body = write(action.get());
+        jdbcTemplate.update("UPDATE idempotency_keys SET response_body = ? WHERE idem_key = ?", body, id);
+        return body;
+    }
+
+    private String await(CompletableFuture<String> running) {
+        try {
+            return running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Request cùng " + HEADER + " vẫn đang được xử lý.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị ngắt khi chờ request cùng " + HEADER + ".");
+        }
+    }
+
+    // Dọn khóa hết hạn trong bộ nhớ và trong bảng
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        completed.purgeExpired();
+        idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusNanos(ttlMillis * 1_000_000));
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể lưu response cho " + HEADER, e);
+        }
+    }
+
+    private <T> T read(String body, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response đã lưu cho " + HEADER + " không hợp lệ", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.QLThuocTay.service;
+
+// Ném ra khi ảnh upload vượt giới hạn dung lượng; file tạm đã bị xoá
+public class ImageTooLargeException extends RuntimeException {
+
+    private final long maxBytes;
+
+    public ImageTooLargeException(long maxBytes) {
+        super("Ảnh vượt quá dung lượng cho phép (" + maxBytes / (1024 * 1024) + " MB)");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
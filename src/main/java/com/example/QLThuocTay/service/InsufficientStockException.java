@@ -0,0 +1,16 @@
+package com.example.QLThuocTay.service;
+
+// Ném ra khi tồn kho không đủ cho một dòng đơn hàng; transaction sẽ rollback
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long medicineId;
+
+    public InsufficientStockException(Long medicineId, String medicineName) {
+        super("Không đủ tồn kho cho thuốc: " + (medicineName != null ? medicineName : medicineId));
+        this.medicineId = medicineId;
+    }
+
+    public Long getMedicineId() {
+        return medicineId;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.QLThuocTay.service;
+
+// Hàng đợi nhận đơn bất đồng bộ đã đầy; controller trả 429 để client thử lại sau
+public class IntakeQueueFullException extends RuntimeException {
+
+    public IntakeQueueFullException() {
+        super("Hệ thống đang quá tải, vui lòng thử lại sau.");
+    }
+}
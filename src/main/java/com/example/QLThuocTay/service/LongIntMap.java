@@ -0,0 +1,100 @@
+package com.example.QLThuocTay.service;
+
+import java.util.Arrays;
+
+// Bảng băm long -> int địa chỉ mở (dò tuyến tính), tránh boxing khi có hàng triệu phần tử.
+// Không thread-safe: caller tự khoá.
+final class LongIntMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key, int missing) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) return missing;
+            if (keys[i] == key) return values[i];
+        }
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) grow();
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+
+    // Xoá kiểu dồn ngược để chuỗi dò không bị đứt, không cần ô đánh dấu xoá
+    void remove(long key) {
+        int hole = slot(key);
+        while (keys[hole] != key) {
+            if (keys[hole] == EMPTY) return;
+            hole = (hole + 1) & mask;
+        }
+        for (int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    // Xoá mọi phần tử có value < threshold (dọn mục hết hạn), dựng lại bảng một lượt. Trả số phần tử đã xoá
+    int removeValuesBelow(int threshold) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int before = size;
+        keys = new long[oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+        values = new int[keys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && oldValues[i] >= threshold) put(oldKeys[i], oldValues[i]);
+        }
+        return before - size;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new int[keys.length];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.QLThuocTay.service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.QLThuocTay.dto.AdjustedMedicineDTO;
+import com.example.QLThuocTay.dto.BulkAdjustItemDTO;
+import com.example.QLThuocTay.dto.BulkAdjustRequest;
+import com.example.QLThuocTay.dto.BulkAdjustRuleDTO;
+
+// Điều chỉnh giá/tồn kho hàng loạt bằng câu UPDATE theo tập: một câu cho quy tắc, một câu (unnest) cho danh sách,
+// chung một transaction. Tồn kho âm hoặc id không tồn tại thì rollback cả yêu cầu.
+// Catalog chỉ đánh dấu thay đổi một lần cho cả yêu cầu.
+@Service
+public class MedicineAdjustmentService {
+
+    public static final int MAX_ITEMS = 10_000;
+
+    private static final String RETURNING = " RETURNING m.medicine_id, m.medicine_name, m.price, m.stock_quantity";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    public MedicineAdjustmentService(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            CatalogSnapshotService catalogSnapshotService
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.catalogSnapshotService = catalogSnapshotService;
+    }
+
+    // Trả về các thuốc đã bị điều chỉnh (giá trị sau cùng, mỗi thuốc một dòng)
+    @Transactional
+    public List<AdjustedMedicineDTO> adjust(BulkAdjustRequest request) {
+        boolean hasItems = request.getItems() != null && !request.getItems().isEmpty();
+        if (!hasItems && request.getRule() == null) {
+            throw new IllegalArgumentException("Cần items hoặc rule.");
+        }
+        Map<Long, AdjustedMedicineDTO> adjusted = new LinkedHashMap<>();
+        if (request.getRule() != null) {
+            for (AdjustedMedicineDTO medicine : applyRule(request.getRule())) {
+                adjusted.put(medicine.getMedicineId(), medicine);
+            }
+        }
+        if (hasItems) {
+            for (AdjustedMedicineDTO medicine : applyItems(request.getItems())) {
+                adjusted.put(medicine.getMedicineId(), medicine);
+            }
+        }
+        for (AdjustedMedicineDTO medicine : adjusted.values()) {
+            if (medicine.getStockQuantity() != null && medicine.getStockQuantity() < 0) {
+                throw new InsufficientStockException(medicine.getMedicineId(), medicine.getName());
+            }
+        }
+        if (!adjusted.isEmpty()) {
+            // UPDATE JDBC không qua listener JPA
+            catalogSnapshotService.markChanged();
+        }
+        return new ArrayList<>(adjusted.values());
+    }
+
+    private List<AdjustedMedicineDTO> applyRule(BulkAdjustRuleDTO rule) {
+        if (rule.getCategoryId() == null && rule.getSupplierId() == null) {
+            throw new IllegalArgumentException("Quy tắc cần categoryId hoặc supplierId.");
+        }
+        if (rule.getPricePercent() == null && rule.getPriceDelta() == null && rule.getStockDelta() == null) {
+            throw new IllegalArgumentException("Quy tắc cần pricePercent, priceDelta hoặc stockDelta.");
+        }
+        if (rule.getPricePercent() != null && rule.getPricePercent().compareTo(BigDecimal.valueOf(-100)) <= 0) {
+            throw new IllegalArgumentException("pricePercent phải > -100.");
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> set = new ArrayList<>();
+        if (rule.getPricePercent() != null || rule.getPriceDelta() != null) {
+            String price = "m.price";
+            if (rule.getPricePercent() != null) {
+                price = price + " * (100 + :pricePercent) / 100";
+                params.addValue("pricePercent", rule.getPricePercent());
+            }
+            if (rule.getPriceDelta() != null) {
+                price = price + " + :priceDelta";
+                params.addValue("priceDelta", rule.getPriceDelta());
+            }
+            set.add("price = GREATEST(0, ROUND(" + price + ", 2))");
+        }
+        if (rule.getStockDelta() != null) {
+            set.add("stock_quantity = m.stock_quantity + :stockDelta");
+            params.addValue("stockDelta", rule.getStockDelta());
+        }
+        List<String> where = new ArrayList<>();
+        if (rule.getCategoryId() != null) {
+            where.add("m.category_id = :categoryId");
+            params.addValue("categoryId", rule.getCategoryId());
+        }
+        if (rule.getSupplierId() != null) {
+            where.add("m.supplier_id = :supplierId");
+            params.addValue("supplierId", rule.getSupplierId());
+        }
+        return namedJdbcTemplate.query(
+                "UPDATE medicines m SET " + String.join(", ", set) + ", updated_at = now() " +
+                "WHERE " + String.join(" AND ", where) + RETURNING,
+                params, MedicineAdjustmentService::toAdjusted);
+    }
+
+    private List<AdjustedMedicineDTO> applyItems(List<BulkAdjustItemDTO> items) {
+        if (items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Tối đa " + MAX_ITEMS + " thuốc mỗi lần.");
+        }
+        // Gộp dòng trùng id (UPDATE ... FROM chỉ áp một dòng nguồn cho mỗi dòng đích);
+        // sắp theo id để khóa dòng cùng thứ tự với OrderService
+        TreeMap<Long, BulkAdjustItemDTO> merged = new TreeMap<>();
+        for (BulkAdjustItemDTO item : items) {
+            if (item.getMedicineId() == null) {
+                throw new IllegalArgumentException("Thiếu medicineId.");
+            }
+            if (item.getPrice() == null && item.getStockDelta() == null) {
+                throw new IllegalArgumentException("Thuốc " + item.getMedicineId() + " cần price hoặc stockDelta.");
+            }
+            if (item.getPrice() != null && item.getPrice().signum() < 0) {
+                throw new IllegalArgumentException("Giá phải >= 0 (thuốc " + item.getMedicineId() + ").");
+            }
+            BulkAdjustItemDTO previous = merged.get(item.getMedicineId());
+            if (previous == null) {
+                merged.put(item.getMedicineId(), new BulkAdjustItemDTO(item.getMedicineId(), item.getPrice(), item.getStockDelta()));
+            } else {
+                if (item.getPrice() != null) previous.setPrice(item.getPrice());
+                if (item.getStockDelta() != null) {
+                    previous.setStockDelta((previous.getStockDelta() == null ? 0 : previous.getStockDelta()) + item.getStockDelta());
+                }
+            }
+        }
+        Long[] ids = new Long[merged.size()];
+        BigDecimal[] prices = new BigDecimal[merged.size()];
+        Integer[] stockDeltas = new Integer[merged.size()];
+        int i = 0;
+        for (BulkAdjustItemDTO item : merged.values()) {
+            ids[i] = item.getMedicineId();
+            prices[i] = item.getPrice();
+            stockDeltas[i] = item.getStockDelta();
+            i++;
+        }
+        List<AdjustedMedicineDTO> adjusted = jdbcTemplate.query(
+                "UPDATE medicines m SET price = COALESCE(u.price, m.price), " +
+                "stock_quantity = m.stock_quantity + COALESCE(u.stock_delta, 0), updated_at = now() " +
+                "FROM unnest(?, ?, ?) AS u(medicine_id, price, stock_delta) " +
+                "WHERE m.medicine_id = u.medicine_id" + RETURNING,
+                MedicineAdjustmentService::toAdjusted,
+                new SqlArrayValue("bigint", (Object[]) ids),
+                new SqlArrayValue("numeric", (Object[]) prices),
+                new SqlArrayValue("integer", (Object[]) stockDeltas));
+        if (adjusted.size() < ids.length) {
+            for (AdjustedMedicineDTO medicine : adjusted) {
+                merged.remove(medicine.getMedicineId());
+            }
+            throw new IllegalArgumentException("Không tìm thấy thuốc với id: " + merged.keySet());
+        }
+        return adjusted;
+    }
+
+    private static AdjustedMedicineDTO toAdjusted(ResultSet rs, int rowNum) throws SQLException {
+        return new AdjustedMedicineDTO(rs.getLong(1), rs.getString(2), rs.getBigDecimal(3), (Integer) rs.getObject(4));
+    }
+}
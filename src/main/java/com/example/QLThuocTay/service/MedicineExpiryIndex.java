@@ -0,0 +1,262 @@
+package com.example.QLThuocTay.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+// Chỉ mục hạn dùng trong bộ nhớ: ngày hết hạn -> các id thuốc (mảng đã sắp xếp).
+// Truy vấn khoảng ngày đi thẳng tới ngày đầu tiên qua TreeMap rồi đọc tuần tự: O(log n + k),
+// không quét bảng medicines. MedicineController cập nhật sau mỗi lần thêm/sửa/xoá thuốc.
+@Service
+public class MedicineExpiryIndex {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Ngày "không có" trong dayById
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // epochDay -> id thuốc hết hạn ngày đó
+    private TreeMap<Integer, Bucket> byDay = new TreeMap<>();
+    // id -> epochDay đang được chỉ mục (để sửa/xoá không phải tìm lại ngày cũ)
+    private LongIntMap dayById = new LongIntMap(16);
+
+    @Autowired
+    public MedicineExpiryIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Chỉ đọc hai cột (id, ngày) thay vì dựng DTO đầy đủ cho mọi thuốc
+    @PostConstruct
+    public void rebuild() {
+        TreeMap<Integer, Bucket> days = new TreeMap<>();
+        LongIntMap ids = new LongIntMap(1024);
+        jdbcTemplate.query(
+                "SELECT medicine_id, expiry_date FROM medicines WHERE expiry_date IS NOT NULL",
+                rs -> {
+                    long id = rs.getLong(1);
+                    int day = (int) rs.getObject(2, LocalDate.class).toEpochDay();
+                    ids.put(id, day);
+                    days.computeIfAbsent(day, d -> new Bucket()).append(id);
+                });
+        for (Bucket bucket : days.values()) {
+            bucket.sort();
+        }
+        lock.writeLock().lock();
+        try {
+            byDay = days;
+            dayById = ids;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Thêm/sửa: expiryDate null nghĩa là thuốc không còn hạn dùng để theo dõi
+    public void put(long medicineId, LocalDate expiryDate) {
+        lock.writeLock().lock();
+        try {
+            int day = expiryDate == null ? NONE : (int) expiryDate.toEpochDay();
+            int previous = dayById.get(medicineId, NONE);
+            if (previous == day) return;
+            if (previous != NONE) {
+                detach(medicineId, previous);
+            }
+            if (day != NONE) {
+                dayById.put(medicineId, day);
+                byDay.computeIfAbsent(day, d -> new Bucket()).insert(medicineId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long medicineId) {
+        put(medicineId, null);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return dayById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Thuốc hết hạn trong [from, to] (from null: kể cả đã hết hạn), xếp theo (ngày, id).
+    // after là con trỏ keyset từ trang trước; total tính bằng cộng kích thước từng ngày, không duyệt id.
+    public Slice range(LocalDate from, LocalDate to, String after, int limit) {
+        int fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        int startDay = fromDay;
+        long afterId = Long.MIN_VALUE;
+        if (after != null && !after.isBlank()) {
+            Entry cursor = Entry.parse(after);
+            startDay = Math.max(fromDay, (int) cursor.expiryDate.toEpochDay());
+            if (startDay == (int) cursor.expiryDate.toEpochDay()) {
+                afterId = cursor.medicineId;
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>(limit);
+            boolean hasMore = false;
+            long total = 0;
+            if (fromDay <= toDay) {
+                for (Map.Entry<Integer, Bucket> day : byDay.subMap(fromDay, true, toDay, true).entrySet()) {
+                    total += day.getValue().size;
+                }
+            }
+            if (startDay <= toDay) {
+                NavigableMap<Integer, Bucket> tail = byDay.subMap(startDay, true, toDay, true);
+                scan:
+                for (Map.Entry<Integer, Bucket> day : tail.entrySet()) {
+                    Bucket bucket = day.getValue();
+                    int i = 0;
+                    if (day.getKey() == startDay && afterId != Long.MIN_VALUE) {
+                        i = bucket.indexAfter(afterId);
+                    }
+                    LocalDate date = LocalDate.ofEpochDay(day.getKey());
+                    for (; i < bucket.size; i++) {
+                        if (entries.size() == limit) {
+                            hasMore = true;
+                            break scan;
+                        }
+                        entries.add(new Entry(bucket.ids[i], date));
+                    }
+                }
+            }
+            String next = hasMore ? entries.get(entries.size() - 1).cursor() : null;
+            return new Slice(entries, next, hasMore, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Toàn bộ thuốc hết hạn trong [from, to], không phân trang (cho job cảnh báo)
+    public List<Entry> entries(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            if (from.isAfter(to)) return entries;
+            for (Map.Entry<Integer, Bucket> day : byDay.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).entrySet()) {
+                LocalDate date = LocalDate.ofEpochDay(day.getKey());
+                Bucket bucket = day.getValue();
+                for (int i = 0; i < bucket.size; i++) {
+                    entries.add(new Entry(bucket.ids[i], date));
+                }
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Gọi khi đang giữ khóa ghi
+    private void detach(long medicineId, int day) {
+        dayById.remove(medicineId);
+        Bucket bucket = byDay.get(day);
+        if (bucket != null && bucket.delete(medicineId) && bucket.size == 0) {
+            byDay.remove(day);
+        }
+    }
+
+    public static final class Entry {
+        private final long medicineId;
+        private final LocalDate expiryDate;
+
+        public Entry(long medicineId, LocalDate expiryDate) {
+            this.medicineId = medicineId;
+            this.expiryDate = expiryDate;
+        }
+
+        public long getMedicineId() { return medicineId; }
+        public LocalDate getExpiryDate() { return expiryDate; }
+
+        // Dạng "yyyy-MM-dd_id", đọc được và an toàn trong URL
+        public String cursor() {
+            return expiryDate + "_" + medicineId;
+        }
+
+        static Entry parse(String cursor) {
+            int sep = cursor.lastIndexOf('_');
+            try {
+                return new Entry(Long.parseLong(cursor.substring(sep + 1)), LocalDate.parse(cursor.substring(0, sep)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Con trỏ after không hợp lệ: " + cursor);
+            }
+        }
+    }
+
+    public static final class Slice {
+        private final List<Entry> entries;
+        private final String next;
+        private final boolean hasMore;
+        private final long total;
+
+        Slice(List<Entry> entries, String next, boolean hasMore, long total) {
+            this.entries = entries;
+            this.next = next;
+            this.hasMore = hasMore;
+            this.total = total;
+        }
+
+        public List<Entry> getEntries() { return entries; }
+        public String getNext() { return next; }
+        public boolean isHasMore() { return hasMore; }
+        public long getTotal() { return total; }
+    }
+
+    // Các id hết hạn cùng một ngày, giữ tăng dần để phân trang theo id
+    private static final class Bucket {
+        private long[] ids = new long[4];
+        private int size;
+
+        void append(long id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        void sort() {
+            Arrays.sort(ids, 0, size);
+        }
+
+        void insert(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean delete(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        // Vị trí đầu tiên có id > afterId
+        int indexAfter(long afterId) {
+            int at = Arrays.binarySearch(ids, 0, size, afterId);
+            return at >= 0 ? at + 1 : -at - 1;
+        }
+    }
+}
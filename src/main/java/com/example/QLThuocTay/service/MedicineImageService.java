@@ -0,0 +1,305 @@
+package com.example.QLThuocTay.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+// Ảnh thu nhỏ cho ảnh thuốc: thumb (giỏ hàng), card (danh sách), detail (trang chi tiết).
+// Ảnh gốc giữ nguyên; bản thu nhỏ nằm trong thư mục con theo kích thước, cùng tên file:
+// <dir>/card/1748056407298_Ibuprofen_400mg.jpg -> /images/medicines/card/1748056407298_Ibuprofen_400mg.jpg.
+// Tạo trên executor nền có giới hạn (chỉ dùng ImageIO của JDK); hàng đợi đầy thì bỏ qua,
+// lần đọc kế tiếp sẽ xếp hàng lại và tạm trả ảnh gốc.
+// Mọi định dạng ImageIO đọc và ghi được đều có bản thu nhỏ (JDK: jpg, png, gif, bmp; webp cần plugin);
+// ảnh động (GIF nhiều khung) thì bản thu nhỏ là bản sao ảnh gốc để không mất chuyển động.
+@Service
+public class MedicineImageService {
+
+    // Cạnh dài tối đa (px) của mỗi kích thước; ảnh nhỏ hơn thì không phóng to
+    public enum Size {
+        THUMB(128), CARD(320), DETAIL(800);
+
+        private final int maxEdge;
+
+        Size(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        public int getMaxEdge() { return maxEdge; }
+
+        public String directory() { return name().toLowerCase(Locale.ROOT); }
+
+        public static Size of(String value) {
+            for (Size size : values()) {
+                if (size.directory().equalsIgnoreCase(value)) return size;
+            }
+            return null;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicineImageService.class);
+    // Tên file do server sinh khi upload (đã thay ký tự lạ bằng _); chặn ../ và đường dẫn con
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final Path dir;
+    private final ThreadPoolExecutor executor;
+    // File đang chờ/đang tạo, tránh xếp hàng trùng khi nhiều request cùng hỏi một ảnh
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Đuôi file -> ImageIO có cả reader và writer (plugin nạp lúc khởi động, không đổi về sau)
+    private final ConcurrentHashMap<String, Boolean> derivativeFormats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MedicineImageService(
+            @Value("${app.images.medicines.dir:C:/QLThuocTay/web/images/medicines/}") String dir,
+            @Value("${app.images.derivatives.threads:2}") int threads,
+            @Value("${app.images.derivatives.queue-capacity:500}") int queueCapacity
+    ) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "medicine-image-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Giải mã ảnh tốn CPU; không tranh với luồng xử lý request
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Ảnh đã có trước khi có pipeline: tạo bù bản thu nhỏ còn thiếu sau khi khởi động xong
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!Files.isDirectory(dir)) return;
+        int queued = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (supportsDerivatives(fileName) && missingAny(fileName) && submit(fileName)) queued++;
+            }
+        } catch (IOException e) {
+            logger.warn("Không duyệt được thư mục ảnh {}", dir, e);
+        }
+        if (queued > 0) logger.info("Xếp hàng tạo ảnh thu nhỏ cho {} ảnh cũ", queued);
+    }
+
+    // Gọi sau khi lưu ảnh gốc; không chặn request
+    public void generateAsync(String fileName) {
+        if (supportsDerivatives(fileName)) submit(fileName);
+    }
+
+    // Định dạng có bản thu nhỏ hay không; không có thì ảnh gốc là bản duy nhất (caller cache như ảnh gốc)
+    public boolean supportsDerivatives(String fileName) {
+        if (!isValidName(fileName)) return false;
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) return false;
+        return derivativeFormats.computeIfAbsent(fileName.substring(dot + 1).toLowerCase(Locale.ROOT),
+                suffix -> ImageIO.getImageReadersBySuffix(suffix).hasNext()
+                        && ImageIO.getImageWritersBySuffix(suffix).hasNext());
+    }
+
+    // Đường dẫn ảnh gốc, null nếu tên không hợp lệ hoặc file không tồn tại
+    public Path original(String fileName) {
+        if (!isValidName(fileName)) return null;
+        Path file = dir.resolve(fileName);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    // Bản thu nhỏ nếu đã có; chưa có thì xếp hàng tạo và trả null (caller trả ảnh gốc)
+    public Path derivative(String fileName, Size size) {
+        if (!isValidName(fileName)) return null;
+        Path file = derivativePath(fileName, size);
+        if (Files.isRegularFile(file)) return file;
+        if (supportsDerivatives(fileName) && Files.isRegularFile(dir.resolve(fileName))) submit(fileName);
+        return null;
+    }
+
+    public void deleteDerivatives(String fileName) {
+        if (!isValidName(fileName)) return;
+        for (Size size : Size.values()) {
+            try {
+                Files.deleteIfExists(derivativePath(fileName, size));
+            } catch (IOException e) {
+                logger.warn("Không xoá được ảnh thu nhỏ {} ({})", fileName, size, e);
+            }
+        }
+    }
+
+    private boolean submit(String fileName) {
+        if (!pending.add(fileName)) return true;
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(fileName);
+                } catch (Exception e) {
+                    logger.warn("Không tạo được ảnh thu nhỏ cho {}", fileName, e);
+                } finally {
+                    pending.remove(fileName);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(fileName);
+            return false;
+        }
+    }
+
+    // Giải mã ảnh gốc một lần, thu nhỏ dần từ lớn đến nhỏ (detail -> card -> thumb)
+    void generate(String fileName) throws IOException {
+        Path source = dir.resolve(fileName);
+        BufferedImage image;
+        boolean animated;
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                logger.warn("Không đọc được ảnh {} (định dạng không hỗ trợ)", fileName);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                animated = reader.getNumImages(true) > 1;
+                image = animated ? null : reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+        String format = format(fileName);
+        // Chỉ PNG/GIF giữ kênh alpha; JPEG/BMP không có nên nền trắng
+        boolean alpha = image != null && image.getColorModel().hasAlpha() && (format.equals("png") || format.equals("gif"));
+        BufferedImage current = image;
+        Size[] sizes = Size.values();
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            Size size = sizes[i];
+            Path target = derivativePath(fileName, size);
+            if (current != null) current = resize(current, size.getMaxEdge(), alpha);
+            if (Files.isRegularFile(target)) continue;
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), ".tmp-", "");
+            try {
+                // Ảnh động, không ghi được, ảnh gốc đã nhỏ (hoặc nén lại bị to hơn): dùng luôn bản gốc,
+                // không bao giờ trả file nặng hơn gốc
+                if (current == null || !write(current, temp, format) || Files.size(temp) >= Files.size(source)) {
+                    Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    // Thu nhỏ giữ tỉ lệ; giảm một nửa mỗi bước (bilinear) để ảnh camera lớn không bị răng cưa
+    static BufferedImage resize(BufferedImage image, int maxEdge, boolean alpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (current.getType() == type && current.getWidth() == width && current.getHeight() == height) break;
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                if (!alpha) {
+                    // JPEG không có kênh alpha: nền trắng như thẻ sản phẩm
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, width, height);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // false nếu không có ImageWriter ghi được ảnh này (caller dùng bản gốc)
+    private static boolean write(BufferedImage image, Path target, String format) throws IOException {
+        if (!format.equals("jpeg")) {
+            return ImageIO.write(image, format, target.toFile());
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            return false;
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return true;
+    }
+
+    // Tên định dạng ImageIO theo đuôi file (jpg -> jpeg)
+    private static String format(String fileName) {
+        String suffix = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return suffix.equals("jpg") ? "jpeg" : suffix;
+    }
+
+    private boolean missingAny(String fileName) {
+        for (Size size : Size.values()) {
+            if (!Files.isRegularFile(derivativePath(fileName, size))) return true;
+        }
+        return false;
+    }
+
+    private Path derivativePath(String fileName, Size size) {
+        return dir.resolve(size.directory()).resolve(fileName);
+    }
+
+    private static boolean isValidName(String fileName) {
+        return fileName != null && FILE_NAME.matcher(fileName).matches() && !fileName.startsWith(".");
+    }
+}
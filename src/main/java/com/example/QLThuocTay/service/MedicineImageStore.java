@@ -0,0 +1,224 @@
+package com.example.QLThuocTay.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+// Kho ảnh thuốc định địa chỉ theo nội dung: tên file = SHA-256 của nội dung + đuôi,
+// nên cùng một ảnh upload lại chỉ lưu một lần và dùng chung giữa các thuốc.
+// Số tham chiếu lấy thẳng từ medicines.image_url (không giữ bộ đếm riêng nên không lệch):
+// file chỉ bị xoá khi không còn thuốc nào trỏ tới.
+// Ảnh vừa ghi/vừa dùng lại được giữ qua một khoảng ân hạn, vì thuốc trỏ tới nó có thể chưa lưu xong.
+@Service
+public class MedicineImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicineImageStore.class);
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern HASHED_NAME = Pattern.compile("([0-9a-f]{64})\\.[a-z]+");
+    private static final Pattern IMAGE_NAME = Pattern.compile("[A-Za-z0-9_.-]+\\.(?i:jpg|jpeg|png|gif|webp)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MedicineImageService imageService;
+    private final Path dir;
+    private final Duration grace;
+    private final long maxBytes;
+
+    @Autowired
+    public MedicineImageStore(
+            JdbcTemplate jdbcTemplate,
+            MedicineImageService imageService,
+            @Value("${app.images.medicines.dir:C:/QLThuocTay/web/images/medicines/}") String dir,
+            @Value("${app.images.orphan-grace-minutes:60}") long graceMinutes,
+            @Value("${app.images.upload.max-size:5MB}") DataSize maxSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.imageService = imageService;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.grace = Duration.ofMinutes(graceMinutes);
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    // Băm trong lúc chép ra file tạm qua bộ đệm cố định (bộ nhớ không phụ thuộc cỡ ảnh), dừng ngay khi vượt giới hạn.
+    // Loại ảnh xác định theo magic bytes, không tin tên file/Content-Type. Trả tên file để lưu vào image_url.
+    public String store(InputStream content) throws IOException {
+        Files.createDirectories(dir);
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(dir, ".upload-", ".tmp");
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            String extension = null;
+            long total = 0;
+            try (InputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    if (total == 0) {
+                        extension = sniff(buffer, read);
+                        if (extension == null) {
+                            throw new IllegalArgumentException("File không phải ảnh jpg, png, gif hoặc webp");
+                        }
+                    }
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new ImageTooLargeException(maxBytes);
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (extension == null) {
+                throw new IllegalArgumentException("File ảnh rỗng");
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+            Path target = dir.resolve(fileName);
+            if (Files.exists(target)) {
+                // Đã có: bỏ bản vừa chép, làm mới thời gian để release/sweep không xoá trong lúc thuốc mới đang lưu
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                imageService.generateAsync(fileName);
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Gọi sau khi thuốc đã lưu/xoá: bỏ một tham chiếu tới fileName, xoá file nếu không còn ai dùng
+    public void release(String fileName) {
+        if (fileName == null || !IMAGE_NAME.matcher(fileName).matches()) return;
+        try {
+            if (isReferenced(fileName)) return;
+            Path file = dir.resolve(fileName);
+            if (!Files.isRegularFile(file) || isRecent(file)) return;
+            delete(fileName);
+        } catch (IOException e) {
+            logger.warn("Không xoá được ảnh {}", fileName, e);
+        }
+    }
+
+    // Dọn file mồ côi: ảnh bản cũ để lại (xoá thuốc trước khi có đếm tham chiếu, ảnh bị thay),
+    // bản thu nhỏ của ảnh gốc đã xoá, file tạm upload dở
+    @Scheduled(cron = "${app.images.sweep-cron:0 15 4 * * *}")
+    public int sweep() {
+        if (!Files.isDirectory(dir)) return 0;
+        Set<String> referenced = new HashSet<>();
+        for (String imageUrl : jdbcTemplate.queryForList(
+                "SELECT DISTINCT image_url FROM medicines WHERE image_url IS NOT NULL", String.class)) {
+            // Dữ liệu cũ có thể lưu cả đường dẫn (file:///C:/.../ten.jpg); frontend chỉ dùng phần tên file
+            referenced.add(imageUrl.substring(imageUrl.lastIndexOf('/') + 1));
+        }
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                boolean orphan = fileName.startsWith(".upload-")
+                        || IMAGE_NAME.matcher(fileName).matches() && !referenced.contains(fileName);
+                if (orphan && !isRecent(file)) {
+                    delete(fileName);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Lỗi khi dọn ảnh mồ côi trong {}", dir, e);
+        }
+        for (MedicineImageService.Size size : MedicineImageService.Size.values()) {
+            Path sizeDir = dir.resolve(size.directory());
+            if (!Files.isDirectory(sizeDir)) continue;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(sizeDir, Files::isRegularFile)) {
+                for (Path file : files) {
+                    if (!Files.exists(dir.resolve(file.getFileName())) && !isRecent(file)) {
+                        Files.deleteIfExists(file);
+                        removed++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Lỗi khi dọn ảnh thu nhỏ trong {}", sizeDir, e);
+            }
+        }
+        if (removed > 0) logger.info("Đã dọn {} file ảnh không còn thuốc nào dùng", removed);
+        return removed;
+    }
+
+    // Hash nội dung nếu tên file do kho này đặt, null với ảnh tên cũ (timestamp_tên gốc)
+    public static String contentHash(String fileName) {
+        if (fileName == null) return null;
+        Matcher matcher = HASHED_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private boolean isReferenced(String fileName) {
+        Boolean referenced = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM medicines WHERE image_url = ? OR image_url LIKE ?)",
+                Boolean.class, fileName, "%/" + fileName);
+        return Boolean.TRUE.equals(referenced);
+    }
+
+    private boolean isRecent(Path file) throws IOException {
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+        return age < grace.toMillis();
+    }
+
+    private void delete(String fileName) throws IOException {
+        Files.deleteIfExists(dir.resolve(fileName));
+        imageService.deleteDerivatives(fileName);
+    }
+
+    // Đuôi file theo chữ ký đầu file; null nếu không phải định dạng ảnh nhận
+    static String sniff(byte[] head, int length) {
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        if (startsWith(head, length, PNG_SIGNATURE, 0)) return "png";
+        if (startsWith(head, length, "GIF87a".getBytes(StandardCharsets.US_ASCII), 0)
+                || startsWith(head, length, "GIF89a".getBytes(StandardCharsets.US_ASCII), 0)) {
+            return "gif";
+        }
+        if (startsWith(head, length, "RIFF".getBytes(StandardCharsets.US_ASCII), 0)
+                && startsWith(head, length, "WEBP".getBytes(StandardCharsets.US_ASCII), 8)) {
+            return "webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] signature, int offset) {
+        if (length < offset + signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if (head[offset + i] != signature[i]) return false;
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package com.example.QLThuocTay.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.QLThuocTay.dto.ImportRowErrorDTO;
+import com.example.QLThuocTay.dto.MedicineImportStatusDTO;
+
+import jakarta.annotation.PreDestroy;
+
+// Nhập thuốc hàng loạt từ CSV của nhà cung cấp.
+// Request chỉ chép body ra file tạm (không giữ trong bộ nhớ) rồi trả jobId; một luồng nền đọc file theo luồng,
+// tra loại/nhà cung cấp theo tên trong map nạp sẵn và ghi mỗi batch bằng một INSERT + một UPDATE (unnest mảng).
+// Dòng có cột id cập nhật thuốc đó; không có id thì khớp theo (tên, nhà cung cấp), chưa có thì thêm mới.
+// Dòng lỗi được ghi lại kèm số dòng, không làm dừng cả lần nhập.
+@Service
+public class MedicineImportService {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String INDEXING = "INDEXING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicineImportService.class);
+    private static final DateTimeFormatter DAY_MONTH_YEAR = DateTimeFormatter.ofPattern("d/M/uuuu");
+    private static final int MAX_VARCHAR = 255;
+
+    // Tiêu đề cột (bỏ dấu, bỏ khoảng trắng và gạch) -> cột; nhận cả tên tiếng Việt hay gặp trong file Excel
+    private static final Map<String, Column> HEADERS = new HashMap<>();
+    private static final String ID_HEADER = "id";
+
+    static {
+        alias(Column.NAME, "name", "medicinename", "tenthuoc", "ten");
+        alias(Column.CATEGORY, "category", "categoryname", "loai", "loaithuoc");
+        alias(Column.SUPPLIER, "supplier", "suppliername", "nhacungcap", "ncc");
+        alias(Column.PRICE, "price", "gia", "giaban");
+        alias(Column.STOCK, "stock", "quantity", "stockquantity", "soluong", "tonkho");
+        alias(Column.EXPIRY, "expirydate", "expiry", "hansudung", "handung");
+        alias(Column.DOSAGE, "dosage", "lieudung", "lieuluong");
+        alias(Column.INGREDIENT, "ingredient", "hoatchat", "thanhphan");
+        alias(Column.DESCRIPTION, "description", "mota");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final MedicineSearchIndex searchIndex;
+    private final RelatedMedicinesIndex relatedIndex;
+    private final MedicineExpiryIndex expiryIndex;
+    private final int batchSize;
+    private final int maxErrors;
+
+    // Một lần nhập tại một thời điểm; các file gửi sau chờ trên đĩa
+    private final ExecutorService executor;
+    private final BoundedTtlCache<String, Job> jobs;
+
+    @Autowired
+    public MedicineImportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            CatalogSnapshotService catalogSnapshotService,
+            MedicineSearchIndex searchIndex,
+            RelatedMedicinesIndex relatedIndex,
+            MedicineExpiryIndex expiryIndex,
+            @Value("${app.medicines.import.batch-size:1000}") int batchSize,
+            @Value("${app.medicines.import.max-errors:1000}") int maxErrors,
+            @Value("${app.medicines.import.status-ttl-minutes:1440}") long statusTtlMinutes
+    ) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("app.medicines.import.batch-size phải > 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.searchIndex = searchIndex;
+        this.relatedIndex = relatedIndex;
+        this.expiryIndex = expiryIndex;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "medicine-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = new BoundedTtlCache<>(100, TimeUnit.MINUTES.toMillis(statusTtlMinutes));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Chép body ra file tạm rồi xếp hàng; trả trạng thái QUEUED kèm jobId để hỏi tiến độ
+    public MedicineImportStatusDTO submit(InputStream body, char delimiter) throws IOException {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Ký tự phân cách không hợp lệ");
+        }
+        Path file = Files.createTempFile("medicine-import-", ".csv");
+        long size;
+        try {
+            size = Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), size);
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job, file, delimiter));
+        return job.snapshot();
+    }
+
+    public MedicineImportStatusDTO getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        return job == null ? null : job.snapshot();
+    }
+
+    private void run(Job job, Path file, char delimiter) {
+        job.state = RUNNING;
+        job.startedAt = LocalDateTime.now();
+        try (Reader reader = new InputStreamReader(new CountingInputStream(Files.newInputStream(file), job), StandardCharsets.UTF_8)) {
+            importRows(job, new CsvReader(reader, delimiter));
+            job.state = INDEXING;
+            refreshCatalog(job);
+            job.finish(COMPLETED, null);
+            logger.info("Nhập thuốc {}: {} dòng, {} thêm, {} cập nhật, {} lỗi", job.id, job.rowsRead, job.inserted, job.updated, job.failed);
+        } catch (Exception e) {
+            logger.error("Lỗi khi nhập thuốc từ CSV", e);
+            // Các batch đã commit vẫn phải hiện ra trong catalog
+            refreshCatalog(job);
+            job.finish(FAILED, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Không xoá được file tạm {}", file, e);
+            }
+        }
+    }
+
+    private void importRows(Job job, CsvReader csv) throws IOException {
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("File CSV rỗng");
+        }
+        Map<Column, Integer> positions = new EnumMap<>(Column.class);
+        Integer idPosition = null;
+        for (int i = 0; i < header.size(); i++) {
+            String name = normalizeHeader(header.get(i));
+            if (ID_HEADER.equals(name) || "medicineid".equals(name)) {
+                if (idPosition == null) idPosition = i;
+                continue;
+            }
+            Column column = HEADERS.get(name);
+            if (column != null) positions.putIfAbsent(column, i);
+        }
+        List<String> missing = new ArrayList<>();
+        for (Column column : Column.values()) {
+            if (column.required && !positions.containsKey(column)) missing.add(column.header);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Thiếu cột bắt buộc: " + String.join(", ", missing));
+        }
+
+        Lookups lookups = loadLookups();
+        // Cột không có trong file thì khi cập nhật giữ nguyên giá trị cũ
+        List<Column> updated = new ArrayList<>(positions.keySet());
+        Batch batch = new Batch();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            job.rowsRead++;
+            Row row;
+            try {
+                row = parse(record, csv.recordLine(), positions, idPosition, lookups);
+            } catch (IllegalArgumentException e) {
+                job.error(csv.recordLine(), e.getMessage(), maxErrors);
+                continue;
+            }
+            if (row.id == null) {
+                row.id = lookups.medicines.get(row.key());
+            }
+            // Cùng thuốc xuất hiện hai lần trong một batch: ghi batch trước để dòng sau cập nhật lên dòng trước
+            if (batch.contains(row)) {
+                flush(batch, updated, lookups, job);
+                if (row.id == null) row.id = lookups.medicines.get(row.key());
+            }
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                flush(batch, updated, lookups, job);
+            }
+        }
+        flush(batch, updated, lookups, job);
+    }
+
+    // Cả batch trong một transaction; lỗi thì rollback và ghi lại từng dòng để tìm đúng dòng hỏng
+    private void flush(Batch batch, List<Column> updated, Lookups lookups, Job job) {
+        if (batch.size() == 0) return;
+        List<Row> inserts = new ArrayList<>(batch.inserts.values());
+        List<Row> updates = new ArrayList<>(batch.updates.values());
+        batch.clear();
+        try {
+            Result result = transactionTemplate.execute(status -> write(inserts, updates, updated));
+            apply(result, updates, lookups, job);
+        } catch (RuntimeException batchError) {
+            if (inserts.size() + updates.size() == 1) {
+                Row row = inserts.isEmpty() ? updates.get(0) : inserts.get(0);
+                job.error(row.line, rootMessage(batchError), maxErrors);
+                return;
+            }
+            for (Row row : inserts) {
+                writeOne(row, true, updated, lookups, job);
+            }
+            for (Row row : updates) {
+                writeOne(row, false, updated, lookups, job);
+            }
+        }
+    }
+
+    private void writeOne(Row row, boolean insert, List<Column> updated, Lookups lookups, Job job) {
+        List<Row> single = List.of(row);
+        try {
+            Result result = transactionTemplate.execute(status ->
+                    insert ? write(single, List.of(), updated) : write(List.of(), single, updated));
+            apply(result, insert ? List.of() : single, lookups, job);
+        } catch (RuntimeException e) {
+            job.error(row.line, rootMessage(e), maxErrors);
+        }
+    }
+
+    // Map (tên, nhà cung cấp) -> id chỉ cập nhật sau khi commit, rollback thì không để lại id ma
+    private void apply(Result result, List<Row> updates, Lookups lookups, Job job) {
+        lookups.medicines.putAll(result.insertedKeys);
+        job.inserted += result.insertedKeys.size();
+        for (Row row : updates) {
+            if (result.updatedIds.contains(row.id)) {
+                job.updated++;
+                lookups.medicines.put(row.key(), row.id);
+            } else {
+                job.error(row.line, "Không tìm thấy thuốc với id: " + row.id, maxErrors);
+            }
+        }
+        if (!result.insertedKeys.isEmpty() || !result.updatedIds.isEmpty()) {
+            job.written = true;
+        }
+    }
+
+    private Result write(List<Row> inserts, List<Row> updates, List<Column> updated) {
+        Result result = new Result();
+        if (!inserts.isEmpty()) {
+            Column[] columns = Column.values();
+            StringBuilder names = new StringBuilder();
+            StringBuilder select = new StringBuilder();
+            StringBuilder arrays = new StringBuilder();
+            Object[] args = new Object[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                String sep = c == 0 ? "" : ", ";
+                names.append(sep).append(columns[c].column);
+                select.append(sep).append("u.").append(columns[c].column);
+                arrays.append(sep).append('?');
+                args[c] = columns[c].array(inserts);
+            }
+            jdbcTemplate.query(
+                    "INSERT INTO medicines (" + names + ", created_at, updated_at) " +
+                    "SELECT " + select + ", now(), now() FROM unnest(" + arrays + ") AS u(" + names + ") " +
+                    "RETURNING medicine_id, medicine_name, supplier_id",
+                    rs -> {
+                        result.insertedKeys.put(key(rs.getString(2), rs.getLong(3)), rs.getLong(1));
+                    },
+                    args);
+        }
+        if (!updates.isEmpty()) {
+            StringBuilder set = new StringBuilder();
+            StringBuilder names = new StringBuilder("medicine_id");
+            StringBuilder arrays = new StringBuilder("?");
+            Object[] args = new Object[updated.size() + 1];
+            Long[] ids = new Long[updates.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = updates.get(i).id;
+            }
+            args[0] = new SqlArrayValue("bigint", (Object[]) ids);
+            for (int c = 0; c < updated.size(); c++) {
+                Column column = updated.get(c);
+                set.append(column.column).append(" = u.").append(column.column).append(", ");
+                names.append(", ").append(column.column);
+                arrays.append(", ?");
+                args[c + 1] = column.array(updates);
+            }
+            result.updatedIds.addAll(jdbcTemplate.queryForList(
+                    "UPDATE medicines m SET " + set + "updated_at = now() " +
+                    "FROM unnest(" + arrays + ") AS u(" + names + ") " +
+                    "WHERE m.medicine_id = u.medicine_id RETURNING m.medicine_id",
+                    Long.class, args));
+        }
+        return result;
+    }
+
+    // Nhập xong mới làm mới catalog và các chỉ mục, một lần cho cả file thay vì từng dòng
+    private void refreshCatalog(Job job) {
+        if (!job.written) return;
+        try {
+            catalogSnapshotService.markChanged();
+            searchIndex.rebuild();
+            relatedIndex.rebuild();
+            expiryIndex.rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Lỗi khi dựng lại chỉ mục thuốc sau khi nhập", e);
+        }
+    }
+
+    private Lookups loadLookups() {
+        Lookups lookups = new Lookups();
+        jdbcTemplate.query("SELECT category_id, category_name FROM medicinecategories",
+                rs -> { lookups.categories.putIfAbsent(VietnameseText.fold(rs.getString(2).trim()), rs.getLong(1)); });
+        jdbcTemplate.query("SELECT supplier_id, supplier_name FROM suppliers",
+                rs -> { lookups.suppliers.putIfAbsent(VietnameseText.fold(rs.getString(2).trim()), rs.getLong(1)); });
+        jdbcTemplate.query("SELECT medicine_id, medicine_name, supplier_id FROM medicines WHERE medicine_name IS NOT NULL",
+                rs -> { lookups.medicines.putIfAbsent(key(rs.getString(2), rs.getLong(3)), rs.getLong(1)); });
+        return lookups;
+    }
+
+    private static Row parse(List<String> record, long line, Map<Column, Integer> positions, Integer idPosition, Lookups lookups) {
+        Row row = new Row(line);
+        String id = cell(record, idPosition);
+        if (id != null) {
+            try {
+                row.id = Long.parseLong(id);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("id không hợp lệ: " + id);
+            }
+        }
+        row.name = required(record, positions, Column.NAME);
+        if (row.name.length() > MAX_VARCHAR) {
+            throw new IllegalArgumentException("Tên thuốc dài quá " + MAX_VARCHAR + " ký tự");
+        }
+        String category = required(record, positions, Column.CATEGORY);
+        row.categoryId = lookups.categories.get(VietnameseText.fold(category));
+        if (row.categoryId == null) {
+            throw new IllegalArgumentException("Không có loại thuốc: " + category);
+        }
+        String supplier = required(record, positions, Column.SUPPLIER);
+        row.supplierId = lookups.suppliers.get(VietnameseText.fold(supplier));
+        if (row.supplierId == null) {
+            throw new IllegalArgumentException("Không có nhà cung cấp: " + supplier);
+        }
+        row.price = parsePrice(required(record, positions, Column.PRICE));
+        if (row.price.signum() < 0) {
+            throw new IllegalArgumentException("Giá phải >= 0");
+        }
+        String stock = cell(record, positions.get(Column.STOCK));
+        try {
+            row.stock = stock == null ? 0 : Integer.parseInt(stock);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Số lượng không hợp lệ: " + stock);
+        }
+        if (row.stock < 0) {
+            throw new IllegalArgumentException("Số lượng phải >= 0");
+        }
+        String expiry = cell(record, positions.get(Column.EXPIRY));
+        if (expiry != null) {
+            try {
+                row.expiryDate = expiry.indexOf('/') >= 0 ? LocalDate.parse(expiry, DAY_MONTH_YEAR) : LocalDate.parse(expiry);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Hạn dùng không hợp lệ (yyyy-MM-dd hoặc dd/MM/yyyy): " + expiry);
+            }
+        }
+        row.dosage = cell(record, positions.get(Column.DOSAGE));
+        if (row.dosage != null && row.dosage.length() > MAX_VARCHAR) {
+            throw new IllegalArgumentException("Liều dùng dài quá " + MAX_VARCHAR + " ký tự");
+        }
+        row.ingredient = cell(record, positions.get(Column.INGREDIENT));
+        row.description = cell(record, positions.get(Column.DESCRIPTION));
+        return row;
+    }
+
+    // Giá chấp nhận cả kiểu Việt ("12.000,5") lẫn kiểu Anh ("12,000.5"). Có cả hai dấu: dấu cuối là thập phân;
+    // một dấu lặp lại: phân cách hàng nghìn. Chỉ một dấu đứng trước đúng 3 chữ số ("12.000", "1,500")
+    // thì không biết là nghìn hay thập phân -> từ chối thay vì đoán (trước đây "12.000" thành 12).
+    static BigDecimal parsePrice(String price) {
+        String plain = price.replace(" ", "");
+        int lastDot = plain.lastIndexOf('.');
+        int lastComma = plain.lastIndexOf(',');
+        int decimal = -1;
+        char grouping = 0;
+        if (lastDot >= 0 && lastComma >= 0) {
+            decimal = Math.max(lastDot, lastComma);
+            grouping = decimal == lastDot ? ',' : '.';
+        } else if (lastDot >= 0 || lastComma >= 0) {
+            char separator = lastDot >= 0 ? '.' : ',';
+            int last = Math.max(lastDot, lastComma);
+            if (plain.indexOf(separator) != last) {
+                grouping = separator;
+            } else if (plain.length() - last - 1 == 3) {
+                throw new IllegalArgumentException("Giá không rõ dấu phân cách nghìn hay thập phân: " + price
+                        + " (ghi 12000 hoặc 12.000,00)");
+            } else {
+                decimal = last;
+            }
+        }
+        String integer = decimal < 0 ? plain : plain.substring(0, decimal);
+        if (grouping != 0) {
+            String[] groups = integer.split(grouping == '.' ? "\\." : ",", -1);
+            for (int i = 1; i < groups.length; i++) {
+                if (groups[i].length() != 3 || groups[0].isEmpty()) {
+                    throw new IllegalArgumentException("Giá không hợp lệ: " + price);
+                }
+            }
+            integer = String.join("", groups);
+        }
+        try {
+            return new BigDecimal(decimal < 0 ? integer : integer + "." + plain.substring(decimal + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Giá không hợp lệ: " + price);
+        }
+    }
+
+    private static String required(List<String> record, Map<Column, Integer> positions, Column column) {
+        String value = cell(record, positions.get(column));
+        if (value == null) {
+            throw new IllegalArgumentException("Thiếu " + column.header);
+        }
+        return value;
+    }
+
+    private static String cell(List<String> record, Integer position) {
+        if (position == null || position >= record.size()) return null;
+        String value = record.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    static String normalizeHeader(String header) {
+        return VietnameseText.fold(header).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static String key(String name, long supplierId) {
+        return VietnameseText.fold(name.trim()) + '\u0001' + supplierId;
+    }
+
+    private static String rootMessage(RuntimeException e) {
+        Throwable root = NestedExceptionUtils.getMostSpecificCause(e);
+        return root.getMessage() == null ? root.getClass().getSimpleName() : root.getMessage();
+    }
+
+    private static void alias(Column column, String... names) {
+        for (String name : names) {
+            HEADERS.put(name, column);
+        }
+    }
+
+    // Cột của bảng medicines nhận từ CSV, kèm kiểu mảng dùng cho unnest
+    private enum Column {
+        NAME("medicine_name", "varchar", "name", true, r -> r.name),
+        CATEGORY("category_id", "bigint", "category", true, r -> r.categoryId),
+        SUPPLIER("supplier_id", "bigint", "supplier", true, r -> r.supplierId),
+        PRICE("price", "numeric", "price", true, r -> r.price),
+        STOCK("stock_quantity", "integer", "stock", false, r -> r.stock),
+        EXPIRY("expiry_date", "date", "expiry_date", false, r -> r.expiryDate == null ? null : Date.valueOf(r.expiryDate)),
+        DOSAGE("dosage", "varchar", "dosage", false, r -> r.dosage),
+        INGREDIENT("ingredient", "text", "ingredient", false, r -> r.ingredient),
+        DESCRIPTION("description", "text", "description", false, r -> r.description);
+
+        private final String column;
+        private final String sqlType;
+        private final String header;
+        private final boolean required;
+        private final Function<Row, Object> value;
+
+        Column(String column, String sqlType, String header, boolean required, Function<Row, Object> value) {
+            this.column = column;
+            this.sqlType = sqlType;
+            this.header = header;
+            this.required = required;
+            this.value = value;
+        }
+
+        SqlArrayValue array(List<Row> rows) {
+            Object[] values = new Object[rows.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = value.apply(rows.get(i));
+            }
+            return new SqlArrayValue(sqlType, values);
+        }
+    }
+
+    private static final class Row {
+        private final long line;
+        private Long id;
+        private String name;
+        private Long categoryId;
+        private Long supplierId;
+        private BigDecimal price;
+        private Integer stock;
+        private LocalDate expiryDate;
+        private String dosage;
+        private String ingredient;
+        private String description;
+
+        Row(long line) {
+            this.line = line;
+        }
+
+        String key() {
+            return MedicineImportService.key(name, supplierId);
+        }
+    }
+
+    // Dòng chờ ghi: thêm mới theo (tên, nhà cung cấp), cập nhật theo id
+    private static final class Batch {
+        private final Map<String, Row> inserts = new LinkedHashMap<>();
+        private final Map<Long, Row> updates = new LinkedHashMap<>();
+
+        boolean contains(Row row) {
+            return row.id != null ? updates.containsKey(row.id) : inserts.containsKey(row.key());
+        }
+
+        void add(Row row) {
+            if (row.id != null) {
+                updates.put(row.id, row);
+            } else {
+                inserts.put(row.key(), row);
+            }
+        }
+
+        int size() {
+            return inserts.size() + updates.size();
+        }
+
+        void clear() {
+            inserts.clear();
+            updates.clear();
+        }
+    }
+
+    private static final class Result {
+        private final Map<String, Long> insertedKeys = new HashMap<>();
+        private final Set<Long> updatedIds = new HashSet<>();
+    }
+
+    private static final class Lookups {
+        private final Map<String, Long> categories = new HashMap<>();
+        private final Map<String, Long> suppliers = new HashMap<>();
+        // (tên đã bỏ dấu, nhà cung cấp) -> id thuốc đã có
+        private final Map<String, Long> medicines = new HashMap<>();
+    }
+
+    // Trạng thái một lần nhập; chỉ luồng nhập ghi, request hỏi tiến độ đọc qua snapshot()
+    private static final class Job {
+        private final String id;
+        private final long bytesTotal;
+        private final List<ImportRowErrorDTO> errors = new ArrayList<>();
+        private volatile String state = QUEUED;
+        private volatile long bytesRead;
+        private volatile long rowsRead;
+        private volatile long inserted;
+        private volatile long updated;
+        private volatile long failed;
+        private volatile boolean written;
+        private volatile String message;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+
+        Job(String id, long bytesTotal) {
+            this.id = id;
+            this.bytesTotal = bytesTotal;
+        }
+
+        synchronized void error(long line, String message, int maxErrors) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportRowErrorDTO(line, message));
+            }
+        }
+
+        void finish(String state, String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.state = state;
+        }
+
+        synchronized MedicineImportStatusDTO snapshot() {
+            MedicineImportStatusDTO status = new MedicineImportStatusDTO();
+            status.setJobId(id);
+            status.setState(state);
+            status.setBytesTotal(bytesTotal);
+            status.setBytesRead(bytesRead);
+            status.setRowsRead(rowsRead);
+            status.setInserted(inserted);
+            status.setUpdated(updated);
+            status.setFailed(failed);
+            status.setErrors(new ArrayList<>(errors));
+            status.setMessage(message);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            return status;
+        }
+    }
+
+    // Đếm số byte đã đọc để báo tiến độ theo phần trăm file
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Job job;
+
+        CountingInputStream(InputStream in, Job job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) job.bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) job.bytesRead += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.QLThuocTay.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.QLThuocTay.dto.FacetCountDTO;
+import com.example.QLThuocTay.dto.MedicineDTO;
+import com.example.QLThuocTay.dto.MedicineFilterDTO;
+import com.example.QLThuocTay.dto.MedicinePageDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+// Danh sách thuốc lọc/sắp xếp ở DB, phân trang keyset theo (khoá sắp xếp, medicine_id)
+// dựa trên các index khai báo trong Medicine. Đếm facet được cache theo phiên bản catalog.
+@Service
+public class MedicineQueryService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String PROJECTION =
+            "SELECT new com.example.QLThuocTay.dto.MedicineDTO(" +
+            "m.medicineId, m.medicineName, c.categoryName, m.dosage, m.price, " +
+            "m.stockQuantity, m.expiryDate, m.createdAt, m.updatedAt, m.imageUrl, " +
+            "m.description, m.ingredient, s.supplierId, s.supplierName) " +
+            "FROM Medicine m LEFT JOIN m.category c LEFT JOIN m.supplier s";
+
+    // Thứ tự NULL theo mặc định của PostgreSQL (NULL lớn nhất) để một index phục vụ được cả hai chiều
+    public enum Sort {
+        NAME("name", "m.medicineName", true),
+        PRICE_ASC("price_asc", "m.price", true),
+        PRICE_DESC("price_desc", "m.price", false),
+        // createdAt chưa bao giờ được ghi; medicine_id (IDENTITY) tăng theo thời gian thêm
+        NEWEST("newest", null, false);
+
+        private final String param;
+        private final String key;
+        private final boolean ascending;
+
+        Sort(String param, String key, boolean ascending) {
+            this.param = param;
+            this.key = key;
+            this.ascending = ascending;
+        }
+
+        public static Sort of(String param) {
+            for (Sort sort : values()) {
+                if (sort.param.equalsIgnoreCase(param)) return sort;
+            }
+            throw new IllegalArgumentException("sort không hợp lệ (name, price_asc, price_desc, newest): " + param);
+        }
+    }
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final BoundedTtlCache<String, Facets> facetCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public MedicineQueryService(
+            CatalogSnapshotService catalogSnapshotService,
+            @Value("${app.medicines.facets.cache-size:1000}") int facetCacheSize
+    ) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.facetCache = new BoundedTtlCache<>(facetCacheSize, TimeUnit.MINUTES.toMillis(10));
+    }
+
+    @Transactional(readOnly = true)
+    public MedicinePageDTO query(MedicineFilterDTO filter, Sort sort, String after, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Cursor cursor = after == null || after.isBlank() ? null : Cursor.decode(after, sort);
+
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(PROJECTION).append(where(filter, params, true, true));
+        if (cursor != null) {
+            jpql.append(" AND ").append(keyset(sort, cursor, params));
+        }
+        jpql.append(" ORDER BY ");
+        if (sort.key != null) {
+            jpql.append(sort.key).append(sort.ascending ? " ASC NULLS LAST, " : " DESC NULLS FIRST, ");
+        }
+        jpql.append("m.medicineId ").append(sort.ascending ? "ASC" : "DESC");
+
+        TypedQuery<MedicineDTO> query = entityManager.createQuery(jpql.toString(), MedicineDTO.class);
+        params.forEach(query::setParameter);
+        // Lấy dư một dòng để biết còn trang sau hay không
+        query.setMaxResults(limit + 1);
+        List<MedicineDTO> rows = query.getResultList();
+        boolean hasMore = rows.size() > limit;
+        List<MedicineDTO> items = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        String next = hasMore ? Cursor.encode(sort, items.get(items.size() - 1)) : null;
+
+        Facets facets = facets(filter);
+        // Facet loại áp mọi bộ lọc trừ loại, nên tổng = cả nhóm (không lọc loại) hoặc đúng nhóm đang chọn
+        long total = 0;
+        for (FacetCountDTO facet : facets.categories) {
+            if (filter.getCategoryId() == null || filter.getCategoryId().equals(facet.getId())) {
+                total += facet.getCount();
+            }
+        }
+        return new MedicinePageDTO(items, next, hasMore, total, facets.categories, facets.suppliers);
+    }
+
+    private Facets facets(MedicineFilterDTO filter) {
+        // Số đếm chỉ phụ thuộc tồn kho khi lọc còn hàng; các bộ lọc khác không bị xoá cache sau mỗi đơn bán
+        long version = filter.isInStock() ? catalogSnapshotService.version() : catalogSnapshotService.contentVersion();
+        String key = version + "|" + filter.getCategoryId() + "|" + filter.getSupplierId() + "|" +
+                filter.getMinPrice() + "|" + filter.getMaxPrice() + "|" + filter.isInStock() + "|" +
+                filter.getExpiryFrom() + "|" + filter.getExpiryTo();
+        Facets facets = facetCache.get(key);
+        if (facets == null) {
+            facets = new Facets(
+                    countBy(filter, "c.categoryId", "c.categoryName", false),
+                    countBy(filter, "s.supplierId", "s.supplierName", true));
+            facetCache.put(key, facets);
+        }
+        return facets;
+    }
+
+    private List<FacetCountDTO> countBy(MedicineFilterDTO filter, String id, String name, boolean bySupplier) {
+        Map<String, Object> params = new HashMap<>();
+        String jpql = "SELECT new com.example.QLThuocTay.dto.FacetCountDTO(" + id + ", " + name + ", COUNT(m)) " +
+                "FROM Medicine m LEFT JOIN m.category c LEFT JOIN m.supplier s" +
+                where(filter, params, bySupplier, !bySupplier) +
+                " GROUP BY " + id + ", " + name + " ORDER BY COUNT(m) DESC, " + name;
+        TypedQuery<FacetCountDTO> query = entityManager.createQuery(jpql, FacetCountDTO.class);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private static String where(MedicineFilterDTO filter, Map<String, Object> params,
+                                boolean withCategory, boolean withSupplier) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (withCategory && filter.getCategoryId() != null) {
+            where.append(" AND m.category.categoryId = :categoryId");
+            params.put("categoryId", filter.getCategoryId());
+        }
+        if (withSupplier && filter.getSupplierId() != null) {
+            where.append(" AND m.supplier.supplierId = :supplierId");
+            params.put("supplierId", filter.getSupplierId());
+        }
+        if (filter.getMinPrice() != null) {
+            where.append(" AND m.price >= :minPrice");
+            params.put("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            where.append(" AND m.price <= :maxPrice");
+            params.put("maxPrice", filter.getMaxPrice());
+        }
+        if (filter.isInStock()) {
+            where.append(" AND m.stockQuantity > 0");
+        }
+        if (filter.getExpiryFrom() != null) {
+            where.append(" AND m.expiryDate >= :expiryFrom");
+            params.put("expiryFrom", filter.getExpiryFrom());
+        }
+        if (filter.getExpiryTo() != null) {
+            where.append(" AND m.expiryDate <= :expiryTo");
+            params.put("expiryTo", filter.getExpiryTo());
+        }
+        return where.toString();
+    }
+
+    // Điều kiện "đứng sau con trỏ" theo đúng thứ tự ORDER BY (kể cả NULL)
+    private static String keyset(Sort sort, Cursor cursor, Map<String, Object> params) {
+        params.put("afterId", cursor.id);
+        if (sort.key == null) {
+            return "m.medicineId < :afterId";
+        }
+        String key = sort.key;
+        if (cursor.value == null) {
+            return sort.ascending
+                    ? "(" + key + " IS NULL AND m.medicineId > :afterId)"
+                    : "((" + key + " IS NULL AND m.medicineId < :afterId) OR " + key + " IS NOT NULL)";
+        }
+        params.put("afterValue", cursor.value);
+        return sort.ascending
+                ? "(" + key + " > :afterValue OR (" + key + " = :afterValue AND m.medicineId > :afterId) OR " + key + " IS NULL)"
+                : "(" + key + " < :afterValue OR (" + key + " = :afterValue AND m.medicineId < :afterId))";
+    }
+
+    private static final class Facets {
+        private final List<FacetCountDTO> categories;
+        private final List<FacetCountDTO> suppliers;
+
+        Facets(List<FacetCountDTO> categories, List<FacetCountDTO> suppliers) {
+            this.categories = categories;
+            this.suppliers = suppliers;
+        }
+    }
+
+    // Con trỏ mờ: base64url của "sort|id|giá trị khoá" (thiếu phần thứ ba = khoá NULL)
+    static final class Cursor {
+        private final long id;
+        private final Object value;
+
+        private Cursor(long id, Object value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        static String encode(Sort sort, MedicineDTO last) {
+            StringBuilder raw = new StringBuilder(sort.param).append('|').append(last.getId());
+            Object value = sort == Sort.NAME ? last.getName() : sort.key != null ? last.getPrice() : null;
+            if (value != null) {
+                raw.append('|').append(value instanceof BigDecimal price ? price.toPlainString() : value);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String encoded, Sort sort) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", 3);
+                if (parts.length < 2 || !parts[0].equals(sort.param)) {
+                    throw new IllegalArgumentException("Con trỏ after không khớp kiểu sắp xếp");
+                }
+                long id = Long.parseLong(parts[1]);
+                if (parts.length == 2 || sort.key == null) {
+                    return new Cursor(id, null);
+                }
+                return new Cursor(id, sort == Sort.NAME ? parts[2] : new BigDecimal(parts[2]));
+            } catch (IllegalArgumentException e) {
+                // Gồm cả base64 / số sai định dạng (NumberFormatException)
+                throw new IllegalArgumentException("Con trỏ after không hợp lệ", e);
+            }
+        }
+    }
+}
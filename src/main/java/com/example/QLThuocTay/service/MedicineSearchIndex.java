@@ -0,0 +1,388 @@
+package com.example.QLThuocTay.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.dto.MedicineDTO;
+import com.example.QLThuocTay.dto.MedicineSearchPageDTO;
+
+import jakarta.annotation.PostConstruct;
+
+// Chỉ mục ngược trong bộ nhớ cho tìm kiếm thuốc: tên, loại, hoạt chất, mô tả (đã bỏ dấu).
+// Xếp hạng BM25 có trọng số theo trường; mọi từ trong câu truy vấn phải khớp, từ cuối khớp theo tiền tố
+// (gõ dở "para" vẫn ra "paracetamol"). Cập nhật từng thuốc khi thêm/sửa/xoá, không dựng lại cả chỉ mục.
+// Chỉ mục chỉ dùng để chọn và xếp hạng; giá/tồn kho đổi liên tục theo đơn hàng (UPDATE JDBC) nên
+// các thuốc của trang kết quả được lấy lại từ CatalogSnapshotService (bản chụp còn đúng phiên bản hoặc DB).
+@Service
+public class MedicineSearchIndex {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float INGREDIENT_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int REFRESH_CHUNK = 1000;
+
+    private final MedicineRepository medicineRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Đọc DB + ghi vào chỉ mục của rebuild/refresh/index/remove đi tuần tự: nếu không, rebuild đọc trước
+    // một lần sửa nhưng ghi sau nó sẽ đè mất thay đổi (và ngược lại). Truy vấn tìm kiếm không cần khoá này.
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // Số thứ tự nội bộ -> tài liệu (null khi đã xoá, dọn khi số ô chết quá nhiều)
+    private List<Doc> docs = new ArrayList<>();
+    private Map<Long, Integer> ordinals = new HashMap<>();
+    private TreeMap<String, Postings> terms = new TreeMap<>();
+    private double totalLength;
+    private int liveDocs;
+    // Danh sách theo tên cho truy vấn rỗng, dựng lại khi có thay đổi
+    private volatile List<Doc> byName;
+
+    @Autowired
+    public MedicineSearchIndex(MedicineRepository medicineRepository, CatalogSnapshotService catalogSnapshotService) {
+        this.medicineRepository = medicineRepository;
+        this.catalogSnapshotService = catalogSnapshotService;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        reloadLock.lock();
+        try {
+            List<MedicineDTO> all = medicineRepository.findAllMedicineDTOIncludingUnassigned();
+            lock.writeLock().lock();
+            try {
+                docs = new ArrayList<>(all.size());
+                ordinals = new HashMap<>(all.size() * 2);
+                terms = new TreeMap<>();
+                totalLength = 0;
+                liveDocs = 0;
+                byName = null;
+                for (MedicineDTO medicine : all) {
+                    add(medicine);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Nạp lại một thuốc từ DB rồi cập nhật chỉ mục (không còn trong DB -> xoá khỏi chỉ mục)
+    public void refresh(Long medicineId) {
+        reloadLock.lock();
+        try {
+            List<MedicineDTO> found = medicineRepository.findMedicineDTOByIds(List.of(medicineId));
+            if (found.isEmpty()) {
+                remove(medicineId);
+            } else {
+                index(found.get(0));
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Nạp lại nhiều thuốc sau thao tác hàng loạt: mỗi 1000 id một truy vấn, một lần khóa ghi
+    public void refreshAll(Collection<Long> medicineIds) {
+        List<Long> ids = new ArrayList<>(medicineIds);
+        for (int from = 0; from < ids.size(); from += REFRESH_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + REFRESH_CHUNK));
+            reloadLock.lock();
+            try {
+                List<MedicineDTO> found = medicineRepository.findMedicineDTOByIds(chunk);
+                lock.writeLock().lock();
+                try {
+                    for (Long medicineId : chunk) {
+                        removeLocked(medicineId);
+                    }
+                    for (MedicineDTO medicine : found) {
+                        add(medicine);
+                    }
+                    compactIfSparse();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+    }
+
+    public void index(MedicineDTO medicine) {
+        reloadLock.lock();
+        lock.writeLock().lock();
+        try {
+            removeLocked(medicine.getId());
+            add(medicine);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+            reloadLock.unlock();
+        }
+    }
+
+    public void remove(Long medicineId) {
+        reloadLock.lock();
+        lock.writeLock().lock();
+        try {
+            removeLocked(medicineId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+            reloadLock.unlock();
+        }
+    }
+
+    public MedicineSearchPageDTO search(String query, String categoryName, int page, int size) {
+        MedicineSearchPageDTO result = rank(query, categoryName, page, size);
+        result.setItems(current(result.getItems()));
+        return result;
+    }
+
+    // Thay DTO trong chỉ mục bằng bản hiện tại (một lần tra theo id cho cả trang), giữ thứ tự xếp hạng.
+    // Thuốc vừa bị xoá mà chỉ mục chưa kịp bỏ thì không trả về.
+    private List<MedicineDTO> current(List<MedicineDTO> ranked) {
+        if (ranked.isEmpty()) return ranked;
+        List<Long> ids = new ArrayList<>(ranked.size());
+        for (MedicineDTO medicine : ranked) {
+            ids.add(medicine.getId());
+        }
+        Map<Long, MedicineDTO> found = catalogSnapshotService.findByIds(ids);
+        List<MedicineDTO> items = new ArrayList<>(ranked.size());
+        for (Long id : ids) {
+            MedicineDTO medicine = found.get(id);
+            if (medicine != null) items.add(medicine);
+        }
+        return items;
+    }
+
+    private MedicineSearchPageDTO rank(String query, String categoryName, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * limit;
+        String category = categoryName == null || categoryName.isBlank() ? null : VietnameseText.fold(categoryName.trim());
+        List<String> tokens = VietnameseText.tokenize(query);
+        if (tokens.size() > MAX_QUERY_TOKENS) {
+            tokens = tokens.subList(0, MAX_QUERY_TOKENS);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (tokens.isEmpty()) {
+                return browse(category, page, offset, limit);
+            }
+            int n = docs.size();
+            float[] scores = new float[n];
+            int[] matched = new int[n];
+            float avgLength = liveDocs == 0 ? 1f : (float) (totalLength / liveDocs);
+            for (int t = 0; t < tokens.size(); t++) {
+                String token = tokens.get(t);
+                boolean prefix = t == tokens.size() - 1;
+                int bit = 1 << t;
+                for (Map.Entry<String, Postings> term : expand(token, prefix)) {
+                    Postings postings = term.getValue();
+                    float idf = (float) Math.log(1 + (liveDocs - postings.live + 0.5) / (postings.live + 0.5));
+                    for (int i = 0; i < postings.size; i++) {
+                        int ordinal = postings.docs[i];
+                        Doc doc = docs.get(ordinal);
+                        if (doc == null) continue;
+                        float tf = postings.tfs[i];
+                        scores[ordinal] += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * doc.length / avgLength));
+                        matched[ordinal] |= bit;
+                    }
+                }
+            }
+
+            int all = (1 << tokens.size()) - 1;
+            int keep = offset + limit;
+            PriorityQueue<Integer> heap = new PriorityQueue<>(keep + 1,
+                    Comparator.<Integer>comparingDouble(o -> scores[o]).thenComparing(o -> -o));
+            int total = 0;
+            for (int ordinal = 0; ordinal < n; ordinal++) {
+                if (matched[ordinal] != all) continue;
+                Doc doc = docs.get(ordinal);
+                if (category != null && !category.equals(doc.category)) continue;
+                total++;
+                heap.add(ordinal);
+                if (heap.size() > keep) heap.poll();
+            }
+            Integer[] ranked = heap.toArray(new Integer[0]);
+            Arrays.sort(ranked, Comparator.<Integer>comparingDouble(o -> -scores[o]).thenComparing(o -> o));
+            List<MedicineDTO> items = new ArrayList<>(limit);
+            for (int i = offset; i < ranked.length; i++) {
+                items.add(docs.get(ranked[i]).medicine);
+            }
+            return new MedicineSearchPageDTO(items, total, Math.max(0, page), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Truy vấn rỗng: duyệt theo tên (lọc theo loại nếu có)
+    private MedicineSearchPageDTO browse(String category, int page, int offset, int limit) {
+        List<Doc> sorted = byName;
+        if (sorted == null) {
+            sorted = new ArrayList<>(liveDocs);
+            for (Doc doc : docs) {
+                if (doc != null) sorted.add(doc);
+            }
+            sorted.sort(Comparator.comparing((Doc d) -> d.sortName).thenComparing(d -> d.medicine.getId()));
+            // Nhiều luồng đọc có thể cùng dựng; kết quả như nhau nên không cần khóa ghi
+            byName = sorted;
+        }
+        List<MedicineDTO> items = new ArrayList<>(limit);
+        int total = 0;
+        for (Doc doc : sorted) {
+            if (category != null && !category.equals(doc.category)) continue;
+            if (total >= offset && items.size() < limit) {
+                items.add(doc.medicine);
+            }
+            total++;
+        }
+        return new MedicineSearchPageDTO(items, total, Math.max(0, page), limit);
+    }
+
+    private List<Map.Entry<String, Postings>> expand(String token, boolean prefix) {
+        List<Map.Entry<String, Postings>> matches = new ArrayList<>();
+        if (!prefix) {
+            Postings postings = terms.get(token);
+            if (postings != null) matches.add(Map.entry(token, postings));
+            return matches;
+        }
+        NavigableMap<String, Postings> tail = terms.tailMap(token, true);
+        for (Map.Entry<String, Postings> entry : tail.entrySet()) {
+            if (!entry.getKey().startsWith(token) || matches.size() >= MAX_PREFIX_TERMS) break;
+            matches.add(entry);
+        }
+        return matches;
+    }
+
+    // Gọi khi đang giữ khóa ghi
+    private void add(MedicineDTO medicine) {
+        if (medicine == null || medicine.getId() == null) return;
+        Map<String, Float> weighted = new HashMap<>();
+        float length = 0;
+        length += addField(weighted, medicine.getName(), NAME_WEIGHT);
+        length += addField(weighted, medicine.getCategoryName(), CATEGORY_WEIGHT);
+        length += addField(weighted, medicine.getIngredient(), INGREDIENT_WEIGHT);
+        length += addField(weighted, medicine.getDescription(), DESCRIPTION_WEIGHT);
+
+        int ordinal = docs.size();
+        Doc doc = new Doc(medicine, length, weighted.keySet().toArray(new String[0]));
+        docs.add(doc);
+        ordinals.put(medicine.getId(), ordinal);
+        for (Map.Entry<String, Float> entry : weighted.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), k -> new Postings()).add(ordinal, entry.getValue());
+        }
+        totalLength += length;
+        liveDocs++;
+        byName = null;
+    }
+
+    private static float addField(Map<String, Float> weighted, String text, float weight) {
+        List<String> tokens = VietnameseText.tokenize(text);
+        for (String token : tokens) {
+            weighted.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    // Đánh dấu xoá: posting giữ lại tới lần compact, bị bỏ qua khi chấm điểm
+    private void removeLocked(Long medicineId) {
+        if (medicineId == null) return;
+        Integer ordinal = ordinals.remove(medicineId);
+        if (ordinal == null) return;
+        Doc doc = docs.set(ordinal, null);
+        for (String term : doc.terms) {
+            Postings postings = terms.get(term);
+            if (postings != null && --postings.live == 0) {
+                terms.remove(term);
+            }
+        }
+        totalLength -= doc.length;
+        liveDocs--;
+        byName = null;
+    }
+
+    // Dọn khi hơn 20% số thứ tự đã chết (sửa = xoá + thêm nên tích luỹ nhanh)
+    private void compactIfSparse() {
+        if (docs.size() < 1024 || docs.size() - liveDocs <= docs.size() / 5) return;
+        List<MedicineDTO> live = new ArrayList<>(liveDocs);
+        for (Doc doc : docs) {
+            if (doc != null) live.add(doc.medicine);
+        }
+        docs = new ArrayList<>(live.size());
+        ordinals = new HashMap<>(live.size() * 2);
+        terms = new TreeMap<>();
+        totalLength = 0;
+        liveDocs = 0;
+        for (MedicineDTO medicine : live) {
+            add(medicine);
+        }
+    }
+
+    private static final class Doc {
+        private final MedicineDTO medicine;
+        private final float length;
+        private final String[] terms;
+        private final String category;
+        private final String sortName;
+
+        Doc(MedicineDTO medicine, float length, String[] terms) {
+            this.medicine = medicine;
+            this.length = length;
+            this.terms = terms;
+            this.category = VietnameseText.fold(medicine.getCategoryName() == null ? "" : medicine.getCategoryName().trim());
+            this.sortName = VietnameseText.fold(medicine.getName());
+        }
+    }
+
+    // Danh sách (ordinal, tf có trọng số) của một từ, chỉ nối thêm
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private float[] tfs = new float[4];
+        private int size;
+        // Số tài liệu còn sống chứa từ này (dùng cho idf)
+        private int live;
+
+        void add(int doc, float tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+            live++;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.example.QLThuocTay.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.QLThuocTay.dto.MedicineSuggestionDTO;
+
+import jakarta.annotation.PostConstruct;
+
+// Gợi ý khi gõ (typeahead) theo tên thuốc và hoạt chất, đã bỏ dấu.
+// Mọi hậu tố bắt đầu từ một từ của tên (và từng hoạt chất) được sắp xếp trong mảng nén (char[] + int[]),
+// tiền tố tìm bằng tìm kiếm nhị phân. Thuốc được đánh số theo độ phổ biến (tổng số lượng đã bán)
+// nên top-k chỉ là k số thứ tự nhỏ nhất trong khoảng; khoảng quá lớn (tiền tố ngắn) được tính sẵn.
+// Chỉ dựng lại mảng hậu tố khi tên/hoạt chất đổi (contentVersion); bán hàng chỉ đổi độ phổ biến,
+// lấy từ bảng gộp sales_daily và đánh số lại thuốc trên cấu trúc cũ. Đổi tham chiếu, truy vấn không khóa.
+@Service
+public class MedicineSuggestIndex {
+
+    public static final int MAX_LIMIT = 20;
+
+    // Khoảng nhỏ hơn thì quét trực tiếp, lớn hơn thì đã tính sẵn top MAX_LIMIT
+    private static final int SCAN_LIMIT = 2048;
+    private static final int MAX_NAME_TOKENS = 8;
+    private static final int MIN_INGREDIENT_TOKEN = 3;
+    private static final Pattern INGREDIENT_SEPARATOR = Pattern.compile("[,;+/\\n]");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final long popularityRefreshMillis;
+
+    private volatile Snapshot snapshot = Snapshot.build(new long[0], new String[0], new String[0], new long[0]);
+    private volatile long builtVersion = -1;
+    private volatile long rankedAt;
+
+    @Autowired
+    public MedicineSuggestIndex(
+            JdbcTemplate jdbcTemplate,
+            CatalogSnapshotService catalogSnapshotService,
+            @Value("${app.medicines.suggest.popularity-refresh-ms:600000}") long popularityRefreshMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.popularityRefreshMillis = popularityRefreshMillis;
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        // Đọc version trước khi nạp: thay đổi xảy ra trong lúc dựng sẽ kích hoạt lần dựng sau
+        long version = catalogSnapshotService.contentVersion();
+        Map<Long, Long> sold = loadPopularity();
+        List<Long> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> ingredients = new ArrayList<>();
+        jdbcTemplate.query("SELECT medicine_id, medicine_name, ingredient FROM medicines WHERE medicine_name IS NOT NULL",
+                rs -> {
+                    ids.add(rs.getLong(1));
+                    names.add(rs.getString(2));
+                    ingredients.add(rs.getString(3));
+                });
+        long[] idArray = new long[ids.size()];
+        long[] popularity = new long[ids.size()];
+        for (int i = 0; i < idArray.length; i++) {
+            idArray[i] = ids.get(i);
+            popularity[i] = sold.getOrDefault(idArray[i], 0L);
+        }
+        load(idArray, names.toArray(new String[0]), ingredients.toArray(new String[0]), popularity);
+        builtVersion = version;
+        rankedAt = System.currentTimeMillis();
+    }
+
+    // Tên/hoạt chất đổi thì dựng lại (nhiều nhất một lần mỗi chu kỳ); tồn kho đổi do bán hàng thì bỏ qua.
+    // Độ phổ biến được xếp lại sau mỗi popularity-refresh-ms mà không dựng lại mảng hậu tố.
+    @Scheduled(fixedDelayString = "${app.medicines.suggest.refresh-ms:30000}",
+            initialDelayString = "${app.medicines.suggest.refresh-ms:30000}")
+    public void refreshIfChanged() {
+        if (catalogSnapshotService.contentVersion() != builtVersion) {
+            rebuild();
+        } else if (System.currentTimeMillis() - rankedAt >= popularityRefreshMillis) {
+            rerank();
+        }
+    }
+
+    public synchronized void rerank() {
+        rerank(loadPopularity());
+        rankedAt = System.currentTimeMillis();
+    }
+
+    void load(long[] ids, String[] names, String[] ingredients, long[] popularity) {
+        snapshot = Snapshot.build(ids, names, ingredients, popularity);
+    }
+
+    void rerank(Map<Long, Long> sold) {
+        snapshot = snapshot.rerank(sold);
+    }
+
+    // Tổng số lượng đã bán theo thuốc từ bảng gộp (vài dòng mỗi thuốc mỗi ngày), không quét orderdetail
+    private Map<Long, Long> loadPopularity() {
+        Map<Long, Long> sold = new HashMap<>();
+        jdbcTemplate.query("SELECT medicine_id, SUM(units) FROM sales_daily GROUP BY medicine_id",
+                rs -> { sold.put(rs.getLong(1), rs.getLong(2)); });
+        return sold;
+    }
+
+    public List<MedicineSuggestionDTO> suggest(String query, int limit) {
+        return snapshot.suggest(String.join(" ", VietnameseText.tokenize(query)), Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    // Ước lượng bộ nhớ của chỉ mục hiện tại (byte)
+    public long memoryBytes() {
+        return snapshot.memoryBytes();
+    }
+
+    static final class Snapshot {
+        // Thuốc theo thứ tự phổ biến giảm dần: số thứ tự càng nhỏ càng được ưu tiên
+        private final long[] ids;
+        private final String[] names;
+        // Văn bản đã bỏ dấu (tên chuẩn hoá, từng hoạt chất) nối liền; text t chiếm [textStart[t], textStart[t + 1])
+        private final char[] chars;
+        private final int[] textStart;
+        private final int[] textDoc;
+        // Mục tìm kiếm = (text, vị trí bắt đầu từ), đã sắp theo hậu tố
+        private final int[] entryText;
+        private final int[] entryOffset;
+        // Tiền tố có khoảng > SCAN_LIMIT -> top MAX_LIMIT số thứ tự thuốc
+        private final Map<String, int[]> heavy;
+
+        private Snapshot(long[] ids, String[] names, char[] chars, int[] textStart, int[] textDoc,
+                         int[] entryText, int[] entryOffset) {
+            this.ids = ids;
+            this.names = names;
+            this.chars = chars;
+            this.textStart = textStart;
+            this.textDoc = textDoc;
+            this.entryText = entryText;
+            this.entryOffset = entryOffset;
+            this.heavy = new HashMap<>();
+            collectHeavy(0, entryText.length, 0);
+        }
+
+        static Snapshot build(long[] ids, String[] names, String[] ingredients, long[] popularity) {
+            int n = ids.length;
+            Integer[] order = rankOrder(ids, names, popularity);
+
+            long[] rankedIds = new long[n];
+            String[] rankedNames = new String[n];
+            StringBuilder chars = new StringBuilder();
+            IntList textStart = new IntList();
+            IntList textDoc = new IntList();
+            IntList entryText = new IntList();
+            IntList entryOffset = new IntList();
+            for (int doc = 0; doc < n; doc++) {
+                int source = order[doc];
+                rankedIds[doc] = ids[source];
+                rankedNames[doc] = names[source];
+
+                List<String> nameTokens = VietnameseText.tokenize(names[source]);
+                if (!nameTokens.isEmpty()) {
+                    int text = textStart.size;
+                    textStart.add(chars.length());
+                    textDoc.add(doc);
+                    chars.append(String.join(" ", nameTokens));
+                    int offset = 0;
+                    for (int k = 0; k < nameTokens.size() && k < MAX_NAME_TOKENS; k++) {
+                        entryText.add(text);
+                        entryOffset.add(offset);
+                        offset += nameTokens.get(k).length() + 1;
+                    }
+                }
+                // Hoạt chất tách theo dấu phẩy/chấm phẩy/+; mỗi cụm là một text, gợi ý từ đầu mỗi từ trong cụm
+                Set<String> seen = new HashSet<>();
+                String ingredient = ingredients[source];
+                for (String part : ingredient == null ? new String[0] : INGREDIENT_SEPARATOR.split(ingredient)) {
+                    List<String> tokens = VietnameseText.tokenize(part);
+                    if (tokens.isEmpty()) continue;
+                    String phrase = String.join(" ", tokens);
+                    int text = textStart.size;
+                    boolean used = false;
+                    int offset = 0;
+                    for (int k = 0; k < tokens.size() && k < MAX_NAME_TOKENS; k++) {
+                        String token = tokens.get(k);
+                        // Bỏ hàm lượng ("500mg") và hậu tố đã có trong tên
+                        if (token.length() >= MIN_INGREDIENT_TOKEN && !Character.isDigit(token.charAt(0))
+                                && !nameTokens.contains(token) && seen.add(phrase.substring(offset))) {
+                            entryText.add(text);
+                            entryOffset.add(offset);
+                            used = true;
+                        }
+                        offset += token.length() + 1;
+                    }
+                    if (used) {
+                        textStart.add(chars.length());
+                        textDoc.add(doc);
+                        chars.append(phrase);
+                    }
+                }
+            }
+            textStart.add(chars.length());
+
+            char[] packed = chars.toString().toCharArray();
+            int[] starts = textStart.toArray();
+            int[] texts = entryText.toArray();
+            int[] offsets = entryOffset.toArray();
+            int[] docs = textDoc.toArray();
+            Integer[] entries = new Integer[texts.length];
+            for (int i = 0; i < entries.length; i++) entries[i] = i;
+            // Cùng hậu tố thì thuốc phổ biến hơn đứng trước
+            Arrays.sort(entries, (a, b) -> {
+                int bySuffix = compareSuffixes(packed, starts, texts[a], offsets[a], texts[b], offsets[b]);
+                return bySuffix != 0 ? bySuffix : Integer.compare(docs[texts[a]], docs[texts[b]]);
+            });
+            int[] sortedTexts = new int[entries.length];
+            int[] sortedOffsets = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                sortedTexts[i] = texts[entries[i]];
+                sortedOffsets[i] = offsets[entries[i]];
+            }
+            return new Snapshot(rankedIds, rankedNames, packed, starts, docs, sortedTexts, sortedOffsets);
+        }
+
+        // Cùng văn bản và mục đã sắp, chỉ đánh số lại thuốc theo độ phổ biến mới và tính lại top của tiền tố lớn.
+        // Trong một khoảng, thứ tự mục không còn theo số thứ tự thuốc; topDocs không cần điều đó.
+        Snapshot rerank(Map<Long, Long> sold) {
+            int n = ids.length;
+            long[] popularity = new long[n];
+            for (int doc = 0; doc < n; doc++) {
+                popularity[doc] = sold.getOrDefault(ids[doc], 0L);
+            }
+            Integer[] order = rankOrder(ids, names, popularity);
+            int[] newDoc = new int[n];
+            boolean changed = false;
+            for (int doc = 0; doc < n; doc++) {
+                newDoc[order[doc]] = doc;
+                changed |= order[doc] != doc;
+            }
+            if (!changed) return this;
+            long[] rankedIds = new long[n];
+            String[] rankedNames = new String[n];
+            for (int doc = 0; doc < n; doc++) {
+                rankedIds[doc] = ids[order[doc]];
+                rankedNames[doc] = names[order[doc]];
+            }
+            int[] docs = new int[textDoc.length];
+            for (int text = 0; text < docs.length; text++) {
+                docs[text] = newDoc[textDoc[text]];
+            }
+            return new Snapshot(rankedIds, rankedNames, chars, textStart, docs, entryText, entryOffset);
+        }
+
+        // Vị trí ban đầu của thuốc theo thứ tự: bán chạy hơn, rồi tên không dấu, rồi id
+        private static Integer[] rankOrder(long[] ids, String[] names, long[] popularity) {
+            int n = ids.length;
+            Integer[] order = new Integer[n];
+            String[] folded = new String[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                folded[i] = VietnameseText.fold(names[i]);
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byPopularity = Long.compare(popularity[b], popularity[a]);
+                if (byPopularity != 0) return byPopularity;
+                int byName = folded[a].compareTo(folded[b]);
+                return byName != 0 ? byName : Long.compare(ids[a], ids[b]);
+            });
+            return order;
+        }
+
+        List<MedicineSuggestionDTO> suggest(String prefix, int limit) {
+            int[] top;
+            if (prefix.isEmpty()) {
+                top = new int[Math.min(limit, ids.length)];
+                for (int i = 0; i < top.length; i++) top[i] = i;
+            } else {
+                int lo = bound(prefix, false);
+                int hi = bound(prefix, true);
+                top = hi - lo > SCAN_LIMIT ? heavy.get(prefix) : null;
+                if (top == null) {
+                    top = topDocs(lo, hi, limit);
+                }
+            }
+            List<MedicineSuggestionDTO> suggestions = new ArrayList<>(Math.min(limit, top.length));
+            for (int i = 0; i < top.length && i < limit; i++) {
+                suggestions.add(new MedicineSuggestionDTO(ids[top[i]], names[top[i]]));
+            }
+            return suggestions;
+        }
+
+        long memoryBytes() {
+            long bytes = ids.length * 8L + names.length * 4L + chars.length * 2L
+                    + (textStart.length + textDoc.length + entryText.length + entryOffset.length) * 4L;
+            for (String name : names) {
+                bytes += 40 + (name == null ? 0 : name.length());
+            }
+            for (Map.Entry<String, int[]> entry : heavy.entrySet()) {
+                bytes += 64 + entry.getKey().length() + entry.getValue().length * 4L;
+            }
+            return bytes;
+        }
+
+        // Số thứ tự thuốc nhỏ nhất (khác nhau) trong khoảng mục [lo, hi)
+        private int[] topDocs(int lo, int hi, int limit) {
+            int[] best = new int[limit];
+            int count = 0;
+            for (int i = lo; i < hi; i++) {
+                int doc = textDoc[entryText[i]];
+                if (count == limit && doc >= best[count - 1]) continue;
+                int at = count;
+                while (at > 0 && best[at - 1] > doc) at--;
+                if (at > 0 && best[at - 1] == doc) continue;
+                int end = Math.min(count, limit - 1);
+                System.arraycopy(best, at, best, at + 1, end - at);
+                best[at] = doc;
+                if (count < limit) count++;
+            }
+            return Arrays.copyOf(best, count);
+        }
+
+        // Vị trí đầu tiên có hậu tố >= prefix (upper = false) hoặc không còn bắt đầu bằng prefix (upper = true)
+        private int bound(String prefix, boolean upper) {
+            int lo = 0;
+            int hi = entryText.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = comparePrefix(mid, prefix);
+                if (cmp < 0 || (upper && cmp == 0)) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        // So hậu tố của mục với prefix chỉ trên độ dài prefix: 0 nghĩa là hậu tố bắt đầu bằng prefix
+        private int comparePrefix(int entry, String prefix) {
+            int from = textStart[entryText[entry]] + entryOffset[entry];
+            int length = textStart[entryText[entry] + 1] - from;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (i == length) return -1;
+                int diff = chars[from + i] - prefix.charAt(i);
+                if (diff != 0) return diff;
+            }
+            return 0;
+        }
+
+        // Tính sẵn top cho mọi tiền tố có khoảng quá lớn để quét (đi sâu từng ký tự, chỉ vào nhóm lớn)
+        private void collectHeavy(int lo, int hi, int depth) {
+            if (hi - lo <= SCAN_LIMIT) return;
+            if (depth > 0) {
+                int from = textStart[entryText[lo]] + entryOffset[lo];
+                heavy.put(new String(chars, from, depth), topDocs(lo, hi, MAX_LIMIT));
+            }
+            int i = lo;
+            // Mục có hậu tố đúng bằng tiền tố hiện tại đứng đầu nhóm
+            while (i < hi && suffixLength(i) == depth) i++;
+            while (i < hi) {
+                char c = charAt(i, depth);
+                int j = i + 1;
+                while (j < hi && charAt(j, depth) == c) j++;
+                collectHeavy(i, j, depth + 1);
+                i = j;
+            }
+        }
+
+        private int suffixLength(int entry) {
+            return textStart[entryText[entry] + 1] - textStart[entryText[entry]] - entryOffset[entry];
+        }
+
+        private char charAt(int entry, int index) {
+            return chars[textStart[entryText[entry]] + entryOffset[entry] + index];
+        }
+
+        private static int compareSuffixes(char[] chars, int[] starts, int textA, int offsetA, int textB, int offsetB) {
+            int a = starts[textA] + offsetA;
+            int aEnd = starts[textA + 1];
+            int b = starts[textB] + offsetB;
+            int bEnd = starts[textB + 1];
+            while (a < aEnd && b < bEnd) {
+                int diff = chars[a++] - chars[b++];
+                if (diff != 0) return diff;
+            }
+            return (aEnd - a) - (bEnd - b);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.QLThuocTay.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.QLThuocTay.dto.CacheStatsDTO;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+
+// Cache đọc-qua cho GET /orders/{id} và lịch sử đơn theo người dùng.
+// Xoá đúng khóa khi đơn được tạo/sửa/xoá/chuyển trạng thái, sau khi transaction commit.
+// Mỗi lần xoá tăng generation: lần nạp bắt đầu trước đó (có thể đọc dữ liệu cũ) sẽ không được ghi vào cache.
+@Service
+public class OrderCacheService {
+
+    private final BoundedTtlCache<Long, OrderResponseDTO> byOrder;
+    private final BoundedTtlCache<Long, List<OrderResponseDTO>> byUser;
+
+    // Chỉ đọc/ghi trong synchronized (this)
+    private long generation;
+
+    @Autowired
+    public OrderCacheService(
+            @Value("${app.orders.cache.max-orders:5000}") int maxOrders,
+            @Value("${app.orders.cache.max-users:2000}") int maxUsers,
+            @Value("${app.orders.cache.ttl-minutes:10}") long ttlMinutes
+    ) {
+        long ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.byOrder = new BoundedTtlCache<>(maxOrders, ttlMillis);
+        this.byUser = new BoundedTtlCache<>(maxUsers, ttlMillis);
+    }
+
+    // loader trả null (không tìm thấy) thì không cache
+    public OrderResponseDTO getOrder(Long orderId, Supplier<OrderResponseDTO> loader) {
+        return readThrough(byOrder, orderId, loader);
+    }
+
+    public List<OrderResponseDTO> getUserOrders(Long userId, Supplier<List<OrderResponseDTO>> loader) {
+        return readThrough(byUser, userId, loader);
+    }
+
+    // Gọi trong transaction ghi: việc xoá chờ tới khi commit (rollback thì không cần xoá).
+    // Ngoài transaction thì xoá ngay.
+    public void invalidate(Collection<Long> orderIds, Collection<Long> userIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(orderIds, userIds);
+                }
+            });
+        } else {
+            evict(orderIds, userIds);
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            generation++;
+            byOrder.clear();
+            byUser.clear();
+        }
+    }
+
+    public List<CacheStatsDTO> getStats() {
+        return List.of(
+                new CacheStatsDTO("orders", byOrder.size(), byOrder.getHits(), byOrder.getMisses(), byOrder.getEvictions()),
+                new CacheStatsDTO("userOrders", byUser.size(), byUser.getHits(), byUser.getMisses(), byUser.getEvictions()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        byOrder.purgeExpired();
+        byUser.purgeExpired();
+    }
+
+    private <K, V> V readThrough(BoundedTtlCache<K, V> cache, K key, Supplier<V> loader) {
+        V cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long startedAt;
+        synchronized (this) {
+            startedAt = generation;
+        }
+        V loaded = loader.get();
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == startedAt) {
+                    cache.put(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private void evict(Collection<Long> orderIds, Collection<Long> userIds) {
+        synchronized (this) {
+            generation++;
+            for (Long orderId : orderIds) {
+                byOrder.remove(orderId);
+            }
+            for (Long userId : userIds) {
+                if (userId != null) byUser.remove(userId);
+            }
+        }
+    }
+}
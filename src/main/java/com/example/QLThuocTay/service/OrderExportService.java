@@ -0,0 +1,140 @@
+package com.example.QLThuocTay.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.QLThuocTay.dto.OrderDetailDTO;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Service
+public class OrderExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OrderExportService(
+            DataSource dataSource,
+            ObjectMapper objectMapper,
+            @Value("${app.orders.export.fetch-size:1000}") int fetchSize
+    ) {
+        // JdbcTemplate riêng với fetch size: PostgreSQL chỉ đọc theo cursor
+        // (không nạp hết kết quả) khi có fetch size và autocommit tắt (trong transaction).
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    // Ghi từng đơn (kèm chi tiết) thành một dòng JSON ngay khi đọc xong từ cursor.
+    // Bộ nhớ chỉ giữ đơn đang ghi, không phụ thuộc tổng số đơn.
+    // Client ngắt kết nối -> IOException khi ghi -> UncheckedIOException, cursor được đóng.
+    @Transactional(readOnly = true)
+    public long export(LocalDate from, LocalDate to, String statusName, OutputStream outputStream) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.order_id, o.user_id, u.full_name, o.total_amount, o.create_at, " +
+                "o.status_id, s.status_name, o.shipping_address, " +
+                "d.medicine_id, m.medicine_name, d.quantity, d.price " +
+                "FROM orders o " +
+                "LEFT JOIN users u ON u.user_id = o.user_id " +
+                "LEFT JOIN orderstatus s ON s.status_id = o.status_id " +
+                "LEFT JOIN orderdetail d ON d.order_id = o.order_id " +
+                "LEFT JOIN medicines m ON m.medicine_id = d.medicine_id " +
+                "WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND o.create_at >= ?");
+            params.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND o.create_at < ?");
+            params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        if (statusName != null && !statusName.isBlank()) {
+            sql.append(" AND lower(s.status_name) = lower(?)");
+            params.add(statusName);
+        }
+        // Các dòng của cùng một đơn nằm liền nhau
+        sql.append(" ORDER BY o.create_at, o.order_id");
+
+        NdjsonOrderWriter writer = new NdjsonOrderWriter(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        jdbcTemplate.query(sql.toString(), writer, params.toArray());
+        writer.finish();
+        return writer.count;
+    }
+
+    private class NdjsonOrderWriter implements RowCallbackHandler {
+        private final OutputStream out;
+        private OrderResponseDTO current;
+        private long count;
+
+        NdjsonOrderWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong("order_id");
+            if (current == null || current.getOrderId() != orderId) {
+                write(current);
+                current = new OrderResponseDTO();
+                current.setOrderId(orderId);
+                current.setUserId(rs.getObject("user_id", Long.class));
+                current.setUserName(rs.getString("full_name"));
+                current.setTotalAmount(rs.getBigDecimal("total_amount"));
+                Timestamp createAt = rs.getTimestamp("create_at");
+                current.setCreateAt(createAt != null ? createAt.toLocalDateTime() : null);
+                current.setStatusId(rs.getObject("status_id", Integer.class));
+                current.setStatusName(rs.getString("status_name"));
+                current.setShippingAddress(rs.getString("shipping_address"));
+                current.setOrderDetails(new ArrayList<>());
+            }
+            Long medicineId = rs.getObject("medicine_id", Long.class);
+            if (medicineId != null) {
+                current.getOrderDetails().add(new OrderDetailDTO(
+                        orderId, medicineId, rs.getString("medicine_name"),
+                        rs.getObject("quantity", Integer.class), rs.getBigDecimal("price")));
+            }
+        }
+
+        void finish() {
+            write(current);
+            current = null;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void write(OrderResponseDTO order) {
+            if (order == null) return;
+            try {
+                out.write(objectMapper.writeValueAsBytes(order));
+                out.write('\n');
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.QLThuocTay.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.QLThuocTay.Entities.Order;
+import com.example.QLThuocTay.dto.OrderDTO;
+import com.example.QLThuocTay.dto.OrderIntakeStatusDTO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Nhận đơn bất đồng bộ cho giờ cao điểm:
+// request chỉ kiểm tra sơ bộ rồi đưa đơn vào hàng đợi có giới hạn (đầy -> 429),
+// một luồng ghi gom nhiều đơn thành micro-batch và commit chung một transaction.
+@Service
+public class OrderIntakeService {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+
+    private final BlockingQueue<Ticket> queue;
+    private final BoundedTtlCache<String, OrderIntakeStatusDTO> statuses;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public OrderIntakeService(
+            OrderService orderService,
+            @Value("${app.orders.async-intake.enabled:true}") boolean enabled,
+            @Value("${app.orders.async-intake.queue-capacity:2000}") int queueCapacity,
+            @Value("${app.orders.async-intake.max-batch-size:100}") int maxBatchSize,
+            @Value("${app.orders.async-intake.linger-ms:5}") long lingerMillis,
+            @Value("${app.orders.async-intake.status-ttl-minutes:60}") long statusTtlMinutes
+    ) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Trạng thái chờ client hỏi lại; giới hạn để không giữ mãi trong bộ nhớ
+        this.statuses = new BoundedTtlCache<>(queueCapacity * 10, TimeUnit.MINUTES.toMillis(statusTtlMinutes));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        writer = new Thread(this::drainLoop, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Kiểm tra sơ bộ rồi xếp hàng; không giữ kết nối DB trong request
+    public OrderIntakeStatusDTO submit(OrderDTO orderDTO) {
+        if (orderDTO.getUserId() == null) {
+            throw new IllegalArgumentException("User id is required.");
+        }
+        if (orderDTO.getItems() == null || orderDTO.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Đơn hàng không có sản phẩm.");
+        }
+        String trackingId = UUID.randomUUID().toString();
+        OrderIntakeStatusDTO status = new OrderIntakeStatusDTO(trackingId, QUEUED);
+        statuses.put(trackingId, status);
+        if (!queue.offer(new Ticket(trackingId, orderDTO))) {
+            statuses.remove(trackingId);
+            throw new IntakeQueueFullException();
+        }
+        return status;
+    }
+
+    public OrderIntakeStatusDTO getStatus(String trackingId) {
+        return statuses.get(trackingId);
+    }
+
+    private void drainLoop() {
+        List<Ticket> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // Chờ thêm một chút để gom đơn đến cùng lúc vào một transaction
+                if (lingerMillis > 0 && queue.size() < maxBatchSize - 1) {
+                    Thread.sleep(lingerMillis);
+                }
+                queue.drainTo(batch, maxBatchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(batch);
+                    commit(batch);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Lỗi luồng ghi đơn bất đồng bộ", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Cả micro-batch trong một transaction (group commit). Nếu có đơn lỗi (thiếu hàng, user sai...)
+    // cả batch rollback, khi đó ghi lại từng đơn để các đơn hợp lệ không bị ảnh hưởng.
+    private void commit(List<Ticket> batch) {
+        if (batch.isEmpty()) return;
+        List<OrderDTO> orderDTOs = new ArrayList<>(batch.size());
+        for (Ticket ticket : batch) {
+            orderDTOs.add(ticket.orderDTO);
+        }
+        try {
+            List<Order> orders = orderService.createOrders(orderDTOs);
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), orders.get(i));
+            }
+        } catch (RuntimeException batchError) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), batchError);
+                return;
+            }
+            for (Ticket ticket : batch) {
+                try {
+                    complete(ticket, orderService.createOrders(List.of(ticket.orderDTO)).get(0));
+                } catch (RuntimeException e) {
+                    fail(ticket, e);
+                }
+            }
+        }
+    }
+
+    private void complete(Ticket ticket, Order order) {
+        OrderIntakeStatusDTO status = new OrderIntakeStatusDTO(ticket.trackingId, COMPLETED);
+        status.setOrderId(order.getOrderId());
+        status.setOrder(orderService.toResponseDTO(order));
+        statuses.put(ticket.trackingId, status);
+    }
+
+    private void fail(Ticket ticket, RuntimeException error) {
+        OrderIntakeStatusDTO status = new OrderIntakeStatusDTO(ticket.trackingId, FAILED);
+        status.setMessage(error.getMessage());
+        statuses.put(ticket.trackingId, status);
+    }
+
+    private static final class Ticket {
+        private final String trackingId;
+        private final OrderDTO orderDTO;
+
+        Ticket(String trackingId, OrderDTO orderDTO) {
+            this.trackingId = trackingId;
+            this.orderDTO = orderDTO;
+        }
+    }
+}
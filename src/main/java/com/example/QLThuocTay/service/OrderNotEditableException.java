@@ -0,0 +1,9 @@
+package com.example.QLThuocTay.service;
+
+// Ném ra khi sửa dòng/trạng thái của đơn không còn cho phép (đã huỷ, đã hoàn thành, chuyển trạng thái sai quy tắc)
+public class OrderNotEditableException extends RuntimeException {
+
+    public OrderNotEditableException(String message) {
+        super(message);
+    }
+}
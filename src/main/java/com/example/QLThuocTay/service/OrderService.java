@@ -0,0 +1,647 @@
+package com.example.QLThuocTay.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.QLThuocTay.Entities.Medicine;
+import com.example.QLThuocTay.Entities.Order;
+import com.example.QLThuocTay.Entities.OrderDetail;
+import com.example.QLThuocTay.Entities.OrderDetailKey;
+import com.example.QLThuocTay.Entities.OrderStatus;
+import com.example.QLThuocTay.Entities.User;
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.Repository.UserRepository;
+import com.example.QLThuocTay.dto.OrderDTO;
+import com.example.QLThuocTay.dto.OrderDetailDTO;
+import com.example.QLThuocTay.dto.OrderItemDTO;
+import com.example.QLThuocTay.dto.OrderPageDTO;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+@Service
+public class OrderService {
+
+    private static final Integer DEFAULT_STATUS_ID = 1;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String ORDER_PROJECTION =
+            "SELECT new com.example.QLThuocTay.dto.OrderResponseDTO(" +
+            "o.orderId, u.userId, u.fullName, o.totalAmount, o.createAt, " +
+            "s.statusId, s.statusName, o.shippingAddress) " +
+            "FROM Order o LEFT JOIN o.user u LEFT JOIN o.status s";
+
+    private final UserRepository userRepository;
+    private final OrderStatusRegistry orderStatusRegistry;
+    private final MedicineRepository medicineRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final OrderCacheService orderCacheService;
+    private final SalesAggregateService salesAggregateService;
+    private final TopSellingService topSellingService;
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Flush + clear sau mỗi batchSize đơn để persistence context không phình ra
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Autowired
+    public OrderService(
+            UserRepository userRepository,
+            OrderStatusRegistry orderStatusRegistry,
+            MedicineRepository medicineRepository,
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            OrderCacheService orderCacheService,
+            SalesAggregateService salesAggregateService,
+            TopSellingService topSellingService,
+            CatalogSnapshotService catalogSnapshotService
+    ) {
+        this.userRepository = userRepository;
+        this.orderStatusRegistry = orderStatusRegistry;
+        this.medicineRepository = medicineRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.orderCacheService = orderCacheService;
+        this.salesAggregateService = salesAggregateService;
+        this.topSellingService = topSellingService;
+        this.catalogSnapshotService = catalogSnapshotService;
+    }
+
+    // Convert Order entity to DTO
+    public OrderResponseDTO toResponseDTO(Order order) {
+        OrderResponseDTO dto = new OrderResponseDTO();
+        dto.setOrderId(order.getOrderId());
+        if (order.getUser() != null) {
+            dto.setUserId(order.getUser().getUserId());
+            dto.setUserName(order.getUser().getFullName());
+        }
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setCreateAt(order.getCreateAt());
+        if (order.getStatus() != null) {
+            dto.setStatusId(order.getStatus().getStatusId());
+            dto.setStatusName(order.getStatus().getStatusName());
+        }
+        dto.setShippingAddress(order.getShippingAddress());
+
+        List<OrderDetailDTO> detailDTOs = new ArrayList<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            OrderDetailDTO detailDTO = new OrderDetailDTO();
+            detailDTO.setMedicineId(detail.getMedicine().getMedicineId());
+            detailDTO.setMedicineName(detail.getMedicine().getMedicineName());
+            detailDTO.setQuantity(detail.getQuantity());
+            detailDTO.setPrice(detail.getPrice());
+            detailDTOs.add(detailDTO);
+        }
+        dto.setOrderDetails(detailDTOs);
+        return dto;
+    }
+
+    // Tạo nhiều đơn trong một transaction:
+    // user, status và thuốc được nạp bằng một truy vấn IN cho mỗi loại,
+    // INSERT orders/orderdetail được Hibernate gom thành JDBC batch.
+    // Tồn kho được trừ trong cùng transaction; thiếu hàng -> InsufficientStockException, rollback toàn bộ.
+    @Transactional
+    public List<Order> createOrders(List<OrderDTO> orderDTOs) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> medicineIds = new HashSet<>();
+        List<OrderStatus> statuses = new ArrayList<>(orderDTOs.size());
+        for (OrderDTO orderDTO : orderDTOs) {
+            if (orderDTO.getUserId() == null) {
+                throw new IllegalArgumentException("User id is required.");
+            }
+            userIds.add(orderDTO.getUserId());
+            OrderStatus status = orderStatusRegistry.findById(statusIdOf(orderDTO))
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid status id: " + statusIdOf(orderDTO)));
+            // Đơn mới luôn giữ tồn kho; đơn đã đóng không bao giờ hoàn lại nên không cho tạo
+            if (!orderStatusRegistry.openStatusIds().contains(status.getStatusId())) {
+                throw new IllegalArgumentException("Không thể tạo đơn ở trạng thái đã đóng: " + status.getStatusName());
+            }
+            statuses.add(status);
+            if (orderDTO.getItems() != null) {
+                for (OrderItemDTO itemDTO : orderDTO.getItems()) {
+                    if (itemDTO.getMedicineId() != null) {
+                        medicineIds.add(itemDTO.getMedicineId());
+                    }
+                }
+            }
+        }
+
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getUserId(), user);
+        }
+        Map<Long, Medicine> medicines = new HashMap<>();
+        for (Medicine medicine : medicineRepository.findAllById(medicineIds)) {
+            medicines.put(medicine.getMedicineId(), medicine);
+        }
+
+        List<Map<Long, Integer>> linesPerOrder = new ArrayList<>(orderDTOs.size());
+        Map<Long, Integer> demand = new TreeMap<>();
+        for (OrderDTO orderDTO : orderDTOs) {
+            Map<Long, Integer> lines = mergeItems(orderDTO.getItems());
+            linesPerOrder.add(lines);
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                if (medicines.containsKey(line.getKey())) {
+                    demand.merge(line.getKey(), line.getValue(), Integer::sum);
+                }
+            }
+        }
+        reserveStock(demand, medicines);
+
+        List<Order> created = new ArrayList<>(orderDTOs.size());
+        SalesAggregateService.Deltas sales = new SalesAggregateService.Deltas();
+        Map<Long, Long> unitsSold = new HashMap<>();
+        int count = 0;
+        for (OrderDTO orderDTO : orderDTOs) {
+            User user = users.get(orderDTO.getUserId());
+            if (user == null) {
+                throw new IllegalArgumentException("Invalid user id: " + orderDTO.getUserId());
+            }
+            OrderStatus status = statuses.get(count);
+            Map<Long, Integer> lines = linesPerOrder.get(count);
+            Order order = new Order();
+            order.setUser(user);
+            order.setStatus(status);
+            order.setCreateAt(LocalDateTime.now());
+            order.setShippingAddress(orderDTO.getShippingAddress());
+            order.setStockReserved(true);
+            // Tổng tiền tính trước khi persist: INSERT đã có giá trị cuối, không phát sinh UPDATE do dirty check
+            order.setTotalAmount(totalAmount(lines, medicines));
+            // Sequence cấp id ngay tại persist, chưa cần INSERT
+            entityManager.persist(order);
+
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                Medicine medicine = medicines.get(line.getKey());
+                if (medicine == null) continue;
+
+                OrderDetail detail = new OrderDetail();
+                detail.setId(new OrderDetailKey(order.getOrderId(), medicine.getMedicineId()));
+                detail.setMedicine(medicine);
+                detail.setQuantity(line.getValue());
+                detail.setPrice(medicine.getPrice());
+                order.addOrderDetail(detail);
+                entityManager.persist(detail);
+
+                BigDecimal subTotal = medicine.getPrice().multiply(BigDecimal.valueOf(line.getValue()));
+                sales.add(order.getCreateAt().toLocalDate(), status.getStatusId(),
+                        medicine.getMedicineId(), line.getValue(), subTotal);
+                unitsSold.merge(medicine.getMedicineId(), (long) line.getValue(), Long::sum);
+            }
+            created.add(order);
+
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        salesAggregateService.apply(sales);
+        topSellingService.record(unitsSold, System.currentTimeMillis());
+        orderCacheService.invalidate(List.of(), userIds);
+        return created;
+    }
+
+    // Chuyển trạng thái cho nhiều đơn bằng một UPDATE có điều kiện trên trạng thái nguồn,
+    // trả về các id đã chuyển thành công. Huỷ đơn thì hoàn tồn kho trong cùng transaction;
+    // vì UPDATE có điều kiện nên một đơn không thể bị huỷ (và hoàn kho) hai lần.
+    // CTE khóa dòng (FOR UPDATE) để lấy đúng trạng thái cũ, dùng chuyển doanh số sang trạng thái mới.
+    @Transactional
+    public List<Long> transition(OrderTransition transition, Collection<Long> orderIds) {
+        OrderStatus target = orderStatusRegistry.require(transition.getTarget());
+        Set<Integer> sourceIds = orderStatusRegistry.idsOf(transition.getSources());
+        if (orderIds.isEmpty() || sourceIds.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("target", target.getStatusId())
+                .addValue("orderIds", orderIds)
+                .addValue("sourceIds", sourceIds);
+        List<Long> updated = new ArrayList<>();
+        Set<Long> userIds = new HashSet<>();
+        Map<Integer, List<Long>> byPreviousStatus = new HashMap<>();
+        namedJdbcTemplate.query(
+                "WITH moved AS (SELECT order_id, status_id FROM orders " +
+                "WHERE order_id IN (:orderIds) AND status_id IN (:sourceIds) FOR UPDATE) " +
+                "UPDATE orders o SET status_id = :target FROM moved m WHERE o.order_id = m.order_id " +
+                "RETURNING o.order_id, o.user_id, m.status_id AS previous_status_id",
+                params, rs -> {
+                    long orderId = rs.getLong("order_id");
+                    updated.add(orderId);
+                    userIds.add(rs.getObject("user_id", Long.class));
+                    byPreviousStatus.computeIfAbsent(rs.getObject("previous_status_id", Integer.class),
+                            k -> new ArrayList<>()).add(orderId);
+                });
+        if (updated.isEmpty()) {
+            return updated;
+        }
+        if (transition == OrderTransition.CANCEL) {
+            restoreStock(updated);
+        }
+        for (Map.Entry<Integer, List<Long>> moved : byPreviousStatus.entrySet()) {
+            salesAggregateService.applyOrders(moved.getValue(), moved.getKey(), -1);
+        }
+        salesAggregateService.applyOrders(updated, target.getStatusId(), 1);
+        orderCacheService.invalidate(updated, userIds);
+        return updated;
+    }
+
+    // Cập nhật đơn theo chênh lệch: chỉ dòng thay đổi mới sinh INSERT/UPDATE/DELETE,
+    // tồn kho điều chỉnh theo phần chênh, tổng tiền cộng dồn thay vì tính lại.
+    // Thuốc không còn trong danh sách mới -> xoá dòng và hoàn kho.
+    // Chỉ sửa dòng khi đơn còn mở; đổi statusId đi qua transition() (đúng quy tắc, hoàn kho khi huỷ).
+    @Transactional
+    public Optional<OrderResponseDTO> updateOrder(Long orderId, OrderDTO orderDTO) {
+        // Khoá dòng đơn: không chen được với transition() (cũng FOR UPDATE) giữa lúc kiểm tra trạng thái và ghi
+        Order order = entityManager.find(Order.class, orderId, LockModeType.PESSIMISTIC_WRITE);
+        if (order == null) {
+            return Optional.empty();
+        }
+        Long previousUserId = userIdOf(order);
+        Integer previousStatusId = statusIdOf(order);
+        OrderTransition transition = null;
+        if (orderDTO.getStatusId() != null && !orderDTO.getStatusId().equals(previousStatusId)) {
+            transition = transitionTo(previousStatusId, orderDTO.getStatusId());
+        }
+        if (orderDTO.getUserId() != null
+                && (order.getUser() == null || !orderDTO.getUserId().equals(order.getUser().getUserId()))) {
+            User user = userRepository.findById(orderDTO.getUserId())
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid user id"));
+            order.setUser(user);
+        }
+        order.setShippingAddress(orderDTO.getShippingAddress());
+
+        // Không gửi items -> giữ nguyên các dòng; danh sách rỗng mới là xoá hết
+        SalesAggregateService.Deltas sales = new SalesAggregateService.Deltas();
+        if (orderDTO.getItems() != null) {
+            Map<Long, OrderDetail> existing = new HashMap<>();
+            for (OrderDetail detail : entityManager.createQuery(
+                    "SELECT d FROM OrderDetail d JOIN FETCH d.medicine WHERE d.id.orderId = :orderId", OrderDetail.class)
+                    .setParameter("orderId", orderId)
+                    .getResultList()) {
+                existing.put(detail.getId().getMedicineId(), detail);
+            }
+            Map<Long, Integer> target = mergeItems(orderDTO.getItems());
+            for (Long medicineId : existing.keySet()) {
+                target.putIfAbsent(medicineId, 0);
+            }
+            sales = applyLines(order, existing, target);
+        }
+        entityManager.flush();
+        salesAggregateService.apply(sales);
+        if (transition != null) {
+            // Entity vẫn giữ trạng thái cũ: bỏ khỏi persistence context để lần flush sau không ghi đè status_id
+            entityManager.clear();
+            if (transition(transition, List.of(orderId)).isEmpty()) {
+                throw new OrderNotEditableException("Không thể chuyển trạng thái đơn hàng " + orderId + ".");
+            }
+        }
+        orderCacheService.invalidate(List.of(orderId), Arrays.asList(previousUserId, userIdOf(order)));
+        return findOrderDTO(orderId);
+    }
+
+    // Thêm hoặc sửa một dòng của đơn (quantity = 0 -> xoá dòng).
+    // Sửa số lượng chỉ tốn một UPDATE orderdetail, một UPDATE tổng tiền và một UPDATE tồn kho.
+    @Transactional
+    public Optional<OrderResponseDTO> updateOrderLine(Long orderId, Long medicineId, Integer quantity) {
+        if (medicineId == null || quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("Số lượng không hợp lệ cho thuốc: " + medicineId);
+        }
+        Order order = entityManager.find(Order.class, orderId, LockModeType.PESSIMISTIC_WRITE);
+        if (order == null) {
+            return Optional.empty();
+        }
+        Map<Long, OrderDetail> existing = new HashMap<>();
+        OrderDetail detail = entityManager.find(OrderDetail.class, new OrderDetailKey(orderId, medicineId));
+        if (detail != null) {
+            existing.put(medicineId, detail);
+        } else if (quantity > 0 && !medicineRepository.existsById(medicineId)) {
+            throw new IllegalArgumentException("Không tìm thấy thuốc: " + medicineId);
+        }
+        SalesAggregateService.Deltas sales = applyLines(order, existing, Map.of(medicineId, quantity));
+        entityManager.flush();
+        salesAggregateService.apply(sales);
+        orderCacheService.invalidate(List.of(orderId), Arrays.asList(userIdOf(order)));
+        return findOrderDTO(orderId);
+    }
+
+    // Áp số lượng mới cho từng thuốc trong target lên các dòng hiện có của đơn.
+    // Dòng không có trong target giữ nguyên; giá của dòng cũ giữ theo lúc đặt.
+    // Có dòng thay đổi mà đơn đã đóng (huỷ/hoàn thành) -> OrderNotEditableException.
+    // Tồn kho chỉ điều chỉnh với đơn đã trừ kho lúc tạo.
+    // Trả về phần chênh doanh số (theo ngày đặt và trạng thái hiện tại của đơn).
+    private SalesAggregateService.Deltas applyLines(Order order, Map<Long, OrderDetail> existing, Map<Long, Integer> target) {
+        Map<Long, Medicine> medicines = new HashMap<>();
+        Map<Long, Integer> reserve = new TreeMap<>();
+        Map<Long, Integer> release = new TreeMap<>();
+        List<Long> newIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : target.entrySet()) {
+            OrderDetail detail = existing.get(line.getKey());
+            if (detail == null) {
+                if (line.getValue() > 0) newIds.add(line.getKey());
+                continue;
+            }
+            medicines.put(line.getKey(), detail.getMedicine());
+            int delta = line.getValue() - detail.getQuantity();
+            if (delta > 0) {
+                reserve.put(line.getKey(), delta);
+            } else if (delta < 0) {
+                release.put(line.getKey(), -delta);
+            }
+        }
+        if (!newIds.isEmpty()) {
+            for (Medicine medicine : medicineRepository.findAllById(newIds)) {
+                medicines.put(medicine.getMedicineId(), medicine);
+                reserve.put(medicine.getMedicineId(), target.get(medicine.getMedicineId()));
+            }
+        }
+        boolean changed = !newIds.isEmpty() || !reserve.isEmpty() || !release.isEmpty();
+        if (changed && !orderStatusRegistry.openStatusIds().contains(statusIdOf(order))) {
+            throw new OrderNotEditableException(
+                    "Chỉ sửa được đơn hàng ở trạng thái 'Chờ xác nhận' hoặc 'Đang vận chuyển'.");
+        }
+        if (Boolean.TRUE.equals(order.getStockReserved())) {
+            reserveStock(reserve, medicines);
+            releaseStock(release);
+        }
+
+        SalesAggregateService.Deltas sales = new SalesAggregateService.Deltas();
+        LocalDate day = order.getCreateAt() != null ? order.getCreateAt().toLocalDate() : null;
+        BigDecimal totalAmount = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> line : target.entrySet()) {
+            OrderDetail detail = existing.get(line.getKey());
+            if (detail != null) {
+                int delta = line.getValue() - detail.getQuantity();
+                if (delta == 0) continue;
+                BigDecimal change = detail.getPrice().multiply(BigDecimal.valueOf(delta));
+                totalAmount = totalAmount.add(change);
+                sales.add(day, statusIdOf(order), line.getKey(), delta, change);
+                if (line.getValue() == 0) {
+                    entityManager.remove(detail);
+                } else {
+                    detail.setQuantity(line.getValue());
+                }
+            } else if (line.getValue() > 0) {
+                Medicine medicine = medicines.get(line.getKey());
+                if (medicine == null) continue;
+                // Không đụng tới order.getOrderDetails() để khỏi nạp cả danh sách dòng
+                OrderDetail created = new OrderDetail();
+                created.setId(new OrderDetailKey(order.getOrderId(), medicine.getMedicineId()));
+                created.setOrder(order);
+                created.setMedicine(medicine);
+                created.setQuantity(line.getValue());
+                created.setPrice(medicine.getPrice());
+                entityManager.persist(created);
+                BigDecimal subTotal = medicine.getPrice().multiply(BigDecimal.valueOf(line.getValue()));
+                totalAmount = totalAmount.add(subTotal);
+                sales.add(day, statusIdOf(order), line.getKey(), line.getValue(), subTotal);
+            }
+        }
+        order.setTotalAmount(totalAmount);
+        return sales;
+    }
+
+    // Xoá đơn còn đang giữ hàng (Pending/Processing) thì trả tồn kho trong cùng transaction;
+    // đơn đã huỷ (đã hoàn kho) hoặc đã hoàn thành (hàng đã bán) thì không
+    @Transactional
+    public boolean deleteOrder(Long orderId) {
+        Order order = entityManager.find(Order.class, orderId);
+        if (order == null) {
+            return false;
+        }
+        Long userId = userIdOf(order);
+        if (holdsStock(order)) {
+            restoreStock(List.of(orderId));
+        }
+        salesAggregateService.applyOrders(List.of(orderId), statusIdOf(order), -1);
+        entityManager.remove(order);
+        orderCacheService.invalidate(List.of(orderId), Arrays.asList(userId));
+        return true;
+    }
+
+    // Trừ tồn kho bằng UPDATE có điều kiện (stock >= qty), không đọc-rồi-ghi nên không thể bán âm.
+    // Các dòng được sắp theo medicine_id để mọi transaction khóa hàng theo cùng thứ tự (tránh deadlock),
+    // và gửi thành một JDBC batch.
+    private void reserveStock(Map<Long, Integer> demand, Map<Long, Medicine> medicines) {
+        if (demand.isEmpty()) return;
+        List<Long> medicineIds = new ArrayList<>(demand.keySet());
+        List<Object[]> args = new ArrayList<>(demand.size());
+        for (Map.Entry<Long, Integer> entry : demand.entrySet()) {
+            args.add(new Object[] { entry.getValue(), entry.getKey(), entry.getValue() });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE medicines SET stock_quantity = stock_quantity - ? " +
+                "WHERE medicine_id = ? AND stock_quantity >= ?", args);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                Medicine medicine = medicines.get(medicineIds.get(i));
+                throw new InsufficientStockException(medicine.getMedicineId(), medicine.getMedicineName());
+            }
+        }
+        // Tồn kho nằm trong /medicines/all; UPDATE JDBC không qua listener JPA nên tự đánh dấu
+        catalogSnapshotService.markStockChanged();
+    }
+
+    // Hoàn phần tồn kho bị bớt khỏi đơn, cùng thứ tự medicine_id như reserveStock
+    private void releaseStock(Map<Long, Integer> released) {
+        if (released.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(released.size());
+        for (Map.Entry<Long, Integer> entry : released.entrySet()) {
+            args.add(new Object[] { entry.getValue(), entry.getKey() });
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE medicines SET stock_quantity = stock_quantity + ? WHERE medicine_id = ?", args);
+        catalogSnapshotService.markStockChanged();
+    }
+
+    // Cộng lại tồn kho theo tổng số lượng mỗi thuốc của các đơn bị huỷ/xoá
+    // (UPDATE ... FROM chỉ áp một dòng nguồn cho mỗi dòng đích nên phải SUM trước).
+    // Chỉ tính đơn đã trừ kho lúc tạo (stock_reserved), đơn cũ không được cộng thêm.
+    private void restoreStock(Collection<Long> orderIds) {
+        int restored = namedJdbcTemplate.update(
+                "UPDATE medicines m SET stock_quantity = m.stock_quantity + r.quantity " +
+                "FROM (SELECT d.medicine_id, SUM(d.quantity) AS quantity FROM orderdetail d " +
+                "JOIN orders o ON o.order_id = d.order_id " +
+                "WHERE d.order_id IN (:orderIds) AND o.stock_reserved GROUP BY d.medicine_id) r " +
+                "WHERE m.medicine_id = r.medicine_id",
+                new MapSqlParameterSource("orderIds", orderIds));
+        if (restored > 0) {
+            catalogSnapshotService.markStockChanged();
+        }
+    }
+
+    // Đơn đã trừ kho lúc tạo và chưa huỷ/hoàn thành: các dòng của nó đang giữ tồn kho
+    private boolean holdsStock(Order order) {
+        return Boolean.TRUE.equals(order.getStockReserved())
+                && orderStatusRegistry.openStatusIds().contains(statusIdOf(order));
+    }
+
+    // Quy tắc chuyển trạng thái cho PUT có statusId; không có quy tắc nào khớp thì từ chối
+    private OrderTransition transitionTo(Integer fromStatusId, Integer toStatusId) {
+        OrderStatus target = orderStatusRegistry.findById(toStatusId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid status id"));
+        for (OrderTransition transition : OrderTransition.values()) {
+            if (transition.getTarget().equalsIgnoreCase(target.getStatusName())
+                    && orderStatusRegistry.idsOf(transition.getSources()).contains(fromStatusId)) {
+                return transition;
+            }
+        }
+        throw new OrderNotEditableException("Không thể chuyển đơn hàng sang trạng thái '" + target.getStatusName() + "'.");
+    }
+
+    // Một đơn dạng DTO bằng hai truy vấn (không nạp entity graph)
+    @Transactional(readOnly = true)
+    public Optional<OrderResponseDTO> findOrderDTO(Long orderId) {
+        List<OrderResponseDTO> rows = entityManager
+                .createQuery(ORDER_PROJECTION + " WHERE o.orderId = :orderId", OrderResponseDTO.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        fillOrderDetails(rows);
+        return rows.stream().findFirst();
+    }
+
+    // Toàn bộ đơn của một người dùng, mới nhất trước (hai truy vấn)
+    @Transactional(readOnly = true)
+    public List<OrderResponseDTO> findOrdersByUser(Long userId) {
+        List<OrderResponseDTO> rows = entityManager
+                .createQuery(ORDER_PROJECTION + " WHERE u.userId = :userId ORDER BY o.createAt DESC, o.orderId DESC",
+                        OrderResponseDTO.class)
+                .setParameter("userId", userId)
+                .getResultList();
+        fillOrderDetails(rows);
+        return rows;
+    }
+
+    // Phân trang keyset trên (create_at, order_id), mới nhất trước.
+    // Mỗi trang đúng hai truy vấn: một cho đơn hàng, một IN cho chi tiết.
+    @Transactional(readOnly = true)
+    public OrderPageDTO findOrders(String statusName, Long userId, LocalDateTime afterCreateAt, Long afterId, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean hasStatus = statusName != null && !statusName.isBlank();
+        boolean hasCursor = afterCreateAt != null && afterId != null;
+
+        StringBuilder jpql = new StringBuilder(ORDER_PROJECTION + " WHERE 1 = 1");
+        if (hasStatus) {
+            jpql.append(" AND lower(s.statusName) = lower(:statusName)");
+        }
+        if (userId != null) {
+            jpql.append(" AND u.userId = :userId");
+        }
+        if (hasCursor) {
+            jpql.append(" AND (o.createAt < :afterCreateAt OR (o.createAt = :afterCreateAt AND o.orderId < :afterId))");
+        }
+        jpql.append(" ORDER BY o.createAt DESC, o.orderId DESC");
+
+        TypedQuery<OrderResponseDTO> query = entityManager.createQuery(jpql.toString(), OrderResponseDTO.class);
+        if (hasStatus) query.setParameter("statusName", statusName);
+        if (userId != null) query.setParameter("userId", userId);
+        if (hasCursor) {
+            query.setParameter("afterCreateAt", afterCreateAt);
+            query.setParameter("afterId", afterId);
+        }
+        // Lấy dư một dòng để biết còn trang sau hay không
+        query.setMaxResults(limit + 1);
+
+        List<OrderResponseDTO> rows = query.getResultList();
+        boolean hasMore = rows.size() > limit;
+        List<OrderResponseDTO> items = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        fillOrderDetails(items);
+
+        OrderResponseDTO last = items.isEmpty() ? null : items.get(items.size() - 1);
+        return new OrderPageDTO(items,
+                hasMore ? last.getCreateAt() : null,
+                hasMore ? last.getOrderId() : null,
+                hasMore);
+    }
+
+    // Gắn chi tiết cho một nhóm đơn bằng một truy vấn IN
+    @Transactional(readOnly = true)
+    public void fillOrderDetails(List<OrderResponseDTO> orders) {
+        if (orders.isEmpty()) return;
+        Map<Long, OrderResponseDTO> byId = new HashMap<>();
+        for (OrderResponseDTO order : orders) {
+            order.setOrderDetails(new ArrayList<>());
+            byId.put(order.getOrderId(), order);
+        }
+        for (OrderDetailDTO detail : findOrderDetails(byId.keySet())) {
+            OrderResponseDTO order = byId.get(detail.getOrderId());
+            if (order != null) {
+                order.getOrderDetails().add(detail);
+            }
+        }
+    }
+
+    private List<OrderDetailDTO> findOrderDetails(Collection<Long> orderIds) {
+        return entityManager.createQuery(
+                "SELECT new com.example.QLThuocTay.dto.OrderDetailDTO(" +
+                "d.id.orderId, m.medicineId, m.medicineName, d.quantity, d.price) " +
+                "FROM OrderDetail d JOIN d.medicine m WHERE d.id.orderId IN :orderIds", OrderDetailDTO.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    // Đọc id từ proxy LAZY không làm nạp User
+    private static Long userIdOf(Order order) {
+        return order.getUser() != null ? order.getUser().getUserId() : null;
+    }
+
+    private static Integer statusIdOf(Order order) {
+        return order.getStatus() != null ? order.getStatus().getStatusId() : null;
+    }
+
+    private static Integer statusIdOf(OrderDTO orderDTO) {
+        return orderDTO.getStatusId() != null ? orderDTO.getStatusId() : DEFAULT_STATUS_ID;
+    }
+
+    // Tổng tiền theo giá hiện tại của thuốc; thuốc không tồn tại bị bỏ qua như khi tạo dòng
+    static BigDecimal totalAmount(Map<Long, Integer> lines, Map<Long, Medicine> medicines) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            Medicine medicine = medicines.get(line.getKey());
+            if (medicine != null) {
+                total = total.add(medicine.getPrice().multiply(BigDecimal.valueOf(line.getValue())));
+            }
+        }
+        return total;
+    }
+
+    // Gộp các dòng trùng thuốc (khóa orderdetail là order_id + medicine_id)
+    private static Map<Long, Integer> mergeItems(List<OrderItemDTO> items) {
+        Map<Long, Integer> merged = new LinkedHashMap<>();
+        if (items == null) return merged;
+        for (OrderItemDTO itemDTO : items) {
+            if (itemDTO.getMedicineId() == null || itemDTO.getQuantity() == null) continue;
+            if (itemDTO.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Số lượng không hợp lệ cho thuốc: " + itemDTO.getMedicineId());
+            }
+            merged.merge(itemDTO.getMedicineId(), itemDTO.getQuantity(), Integer::sum);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.QLThuocTay.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.QLThuocTay.Entities.OrderStatus;
+import com.example.QLThuocTay.Repository.OrderStatusRepository;
+
+import jakarta.annotation.PostConstruct;
+
+// Bảng orderstatus chỉ có vài dòng và gần như không đổi:
+// nạp một lần lúc khởi động, tra cứu theo id/tên không cần truy vấn DB.
+@Component
+public class OrderStatusRegistry {
+
+    public static final String PENDING = "Pending";
+    public static final String PROCESSING = "Processing";
+    public static final String COMPLETED = "Completed";
+    public static final String CANCELLED = "Cancelled";
+
+    private final OrderStatusRepository orderStatusRepository;
+
+    private volatile Map<Integer, OrderStatus> byId = Map.of();
+    private volatile Map<String, OrderStatus> byName = Map.of();
+
+    @Autowired
+    public OrderStatusRegistry(OrderStatusRepository orderStatusRepository) {
+        this.orderStatusRepository = orderStatusRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Integer, OrderStatus> ids = new HashMap<>();
+        Map<String, OrderStatus> names = new HashMap<>();
+        for (OrderStatus status : orderStatusRepository.findAll()) {
+            ids.put(status.getStatusId(), status);
+            names.put(key(status.getStatusName()), status);
+        }
+        this.byId = Map.copyOf(ids);
+        this.byName = Map.copyOf(names);
+    }
+
+    public Optional<OrderStatus> findById(Integer statusId) {
+        return statusId == null ? Optional.empty() : Optional.ofNullable(byId.get(statusId));
+    }
+
+    public Optional<OrderStatus> findByName(String statusName) {
+        return statusName == null ? Optional.empty() : Optional.ofNullable(byName.get(key(statusName)));
+    }
+
+    public OrderStatus require(String statusName) {
+        return findByName(statusName)
+                .orElseThrow(() -> new IllegalStateException("Không tìm thấy trạng thái '" + statusName + "'."));
+    }
+
+    public Set<Integer> idsOf(Collection<String> statusNames) {
+        Set<Integer> ids = new HashSet<>();
+        for (String name : statusNames) {
+            findByName(name).ifPresent(status -> ids.add(status.getStatusId()));
+        }
+        return ids;
+    }
+
+    // Đơn còn mở (chờ xác nhận, đang xử lý): còn sửa dòng được, các dòng đang giữ tồn kho
+    public Set<Integer> openStatusIds() {
+        return idsOf(List.of(PENDING, PROCESSING));
+    }
+
+    private static String key(String statusName) {
+        return statusName.trim().toLowerCase(Locale.ROOT);
+    }
+}
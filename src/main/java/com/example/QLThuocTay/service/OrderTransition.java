@@ -0,0 +1,38 @@
+package com.example.QLThuocTay.service;
+
+import java.util.List;
+import java.util.Optional;
+
+// Quy tắc chuyển trạng thái đơn hàng, tập trung một chỗ:
+// Pending -> Processing -> Completed, Pending/Processing -> Cancelled
+public enum OrderTransition {
+    CONFIRM("confirm", OrderStatusRegistry.PROCESSING, OrderStatusRegistry.PENDING),
+    COMPLETE("complete", OrderStatusRegistry.COMPLETED, OrderStatusRegistry.PROCESSING),
+    CANCEL("cancel", OrderStatusRegistry.CANCELLED, OrderStatusRegistry.PENDING, OrderStatusRegistry.PROCESSING);
+
+    private final String action;
+    private final String target;
+    private final List<String> sources;
+
+    OrderTransition(String action, String target, String... sources) {
+        this.action = action;
+        this.target = target;
+        this.sources = List.of(sources);
+    }
+
+    public String getAction() { return action; }
+
+    public String getTarget() { return target; }
+
+    public List<String> getSources() { return sources; }
+
+    public static Optional<OrderTransition> fromAction(String action) {
+        if (action == null) return Optional.empty();
+        for (OrderTransition transition : values()) {
+            if (transition.action.equalsIgnoreCase(action.trim())) {
+                return Optional.of(transition);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.QLThuocTay.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.dto.MedicineDTO;
+
+import jakarta.annotation.PostConstruct;
+
+// Thuốc liên quan tính sẵn: cosine TF-IDF trên các từ của hoạt chất, cộng thêm một thành phần cho cùng loại.
+// Mỗi thuốc giữ sẵn K láng giềng; thêm/sửa/xoá một thuốc chỉ tính lại danh sách của nó
+// và của những thuốc bị ảnh hưởng (đang liệt kê nó, hoặc nay đủ gần để lọt vào top-K của chúng).
+// Đọc không khóa qua bản công bố published; ghi tuần tự (synchronized).
+@Service
+public class RelatedMedicinesIndex {
+
+    public static final int MAX_K = 20;
+
+    // Loại thuốc là tín hiệu phụ, hoạt chất là chính
+    private static final float CATEGORY_BOOST = 0.5f;
+    // Từ xuất hiện trong quá nhiều thuốc không dùng để sinh ứng viên (vẫn được tính qua loại)
+    private static final int MIN_CANDIDATE_DF = 1000;
+    private static final double MAX_CANDIDATE_DF_RATIO = 0.02;
+
+    private final MedicineRepository medicineRepository;
+
+    // Số thứ tự nội bộ -> thuốc (null khi đã xoá; dựng lại khi số ô chết quá nhiều)
+    private List<Doc> docs = new ArrayList<>();
+    private Map<Long, Integer> ordinals = new HashMap<>();
+    private Map<String, Postings> postings = new HashMap<>();
+    private Map<String, Postings> byCategory = new HashMap<>();
+    private int liveDocs;
+    // Bộ đệm chấm điểm dùng lại giữa các lần tính (chỉ dùng khi giữ khóa)
+    private float[] scratch = new float[0];
+
+    private volatile Map<Long, long[]> published = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RelatedMedicinesIndex(MedicineRepository medicineRepository) {
+        this.medicineRepository = medicineRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<MedicineDTO> all = medicineRepository.findAllMedicineDTOIncludingUnassigned();
+        List<Source> sources = new ArrayList<>(all.size());
+        for (MedicineDTO medicine : all) {
+            if (medicine.getId() != null) {
+                sources.add(new Source(medicine.getId(), medicine.getIngredient(), medicine.getCategoryName()));
+            }
+        }
+        rebuild(sources);
+    }
+
+    // Id các thuốc liên quan, gần nhất trước (rỗng nếu thuốc không có trong chỉ mục)
+    public List<Long> related(Long medicineId, int k) {
+        long[] ids = published.get(medicineId);
+        if (ids == null) return List.of();
+        int limit = Math.min(Math.max(1, Math.min(k, MAX_K)), ids.length);
+        List<Long> result = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    public boolean contains(Long medicineId) {
+        return published.containsKey(medicineId);
+    }
+
+    // Nạp lại một thuốc từ DB rồi cập nhật (không còn trong DB -> xoá khỏi chỉ mục)
+    public void refresh(Long medicineId) {
+        List<MedicineDTO> found = medicineRepository.findMedicineDTOByIds(List.of(medicineId));
+        if (found.isEmpty()) {
+            remove(medicineId);
+        } else {
+            index(found.get(0));
+        }
+    }
+
+    public synchronized void index(MedicineDTO medicine) {
+        if (medicine == null || medicine.getId() == null) return;
+        Doc old = detach(medicine.getId());
+        Set<Integer> stale = old == null ? Set.of() : old.listedBy;
+
+        Doc doc = attach(new Source(medicine.getId(), medicine.getIngredient(), medicine.getCategoryName()));
+        IntList candidates = new IntList();
+        setNeighbors(doc, score(doc, candidates, scratch));
+        publish(doc);
+
+        // Những thuốc mới đủ gần: chèn vào danh sách nếu vượt láng giềng yếu nhất (độ tương đồng đối xứng)
+        for (int i = 0; i < candidates.size; i++) {
+            int ordinal = candidates.values[i];
+            float score = scratch[ordinal];
+            scratch[ordinal] = 0;
+            if (!stale.contains(ordinal)) offer(docs.get(ordinal), doc, score);
+        }
+        // Thuốc cùng loại chưa đủ K láng giềng nhận thêm thuốc mới dù không chung hoạt chất
+        Postings sameCategory = doc.category == null ? null : byCategory.get(doc.category);
+        if (sameCategory != null) {
+            for (int i = 0; i < sameCategory.size; i++) {
+                Doc other = docs.get(sameCategory.ordinals[i]);
+                if (other != null && other != doc && other.neighbors.length < MAX_K && !stale.contains(other.ordinal)
+                        && !other.lists(doc.ordinal)) {
+                    offer(other, doc, doc.categoryWeight * other.categoryWeight);
+                }
+            }
+        }
+        // Những thuốc từng liệt kê bản cũ: điểm đã đổi nên tính lại cả danh sách
+        for (int ordinal : stale) {
+            Doc other = docs.get(ordinal);
+            if (other != null) recompute(other);
+        }
+        compactIfSparse();
+    }
+
+    public synchronized void remove(Long medicineId) {
+        Doc old = detach(medicineId);
+        if (old == null) return;
+        published.remove(medicineId);
+        for (int ordinal : old.listedBy) {
+            Doc other = docs.get(ordinal);
+            if (other != null) recompute(other);
+        }
+        compactIfSparse();
+    }
+
+    private synchronized void rebuild(List<Source> sources) {
+        docs = new ArrayList<>(sources.size());
+        ordinals = new HashMap<>(sources.size() * 2);
+        postings = new HashMap<>();
+        byCategory = new HashMap<>();
+        liveDocs = 0;
+        scratch = new float[sources.size()];
+
+        // Đếm df trước để idf của mọi thuốc tính trên cùng một tập
+        Map<String, Integer> df = new HashMap<>();
+        Map<String, Integer> categoryDf = new HashMap<>();
+        List<Map<String, Integer>> termCounts = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            Map<String, Integer> counts = termCounts(source.ingredient);
+            termCounts.add(counts);
+            for (String term : counts.keySet()) df.merge(term, 1, Integer::sum);
+            String category = categoryKey(source.category);
+            if (category != null) categoryDf.merge(category, 1, Integer::sum);
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            add(source, termCounts.get(i), df::get, categoryDf::get, sources.size());
+        }
+
+        // Chấm điểm chỉ đọc nên chạy song song, mỗi luồng một bộ đệm; gắn listedBy tuần tự sau đó
+        int n = docs.size();
+        ThreadLocal<float[]> scores = ThreadLocal.withInitial(() -> new float[n]);
+        List<PriorityQueue<Neighbor>> tops = IntStream.range(0, n).parallel().mapToObj(ordinal -> {
+            float[] buffer = scores.get();
+            IntList candidates = new IntList();
+            PriorityQueue<Neighbor> top = score(docs.get(ordinal), candidates, buffer);
+            candidates.clear(buffer);
+            return top;
+        }).toList();
+        for (int ordinal = 0; ordinal < n; ordinal++) {
+            setNeighbors(docs.get(ordinal), tops.get(ordinal));
+        }
+        Map<Long, long[]> next = new ConcurrentHashMap<>(n * 2);
+        for (Doc doc : docs) {
+            next.put(doc.source.id, neighborIds(doc));
+        }
+        published = next;
+    }
+
+    // Gọi khi giữ khóa: gỡ thuốc khỏi postings và khỏi listedBy của láng giềng, trả về bản cũ
+    private Doc detach(Long medicineId) {
+        Integer ordinal = ordinals.remove(medicineId);
+        if (ordinal == null) return null;
+        Doc doc = docs.set(ordinal, null);
+        for (Neighbor neighbor : doc.neighbors) {
+            Doc other = docs.get(neighbor.ordinal);
+            if (other != null) other.listedBy.remove(ordinal);
+        }
+        for (String term : doc.terms) {
+            Postings list = postings.get(term);
+            if (list != null && --list.live == 0) postings.remove(term);
+        }
+        if (doc.category != null) {
+            Postings list = byCategory.get(doc.category);
+            if (list != null && --list.live == 0) byCategory.remove(doc.category);
+        }
+        liveDocs--;
+        return doc;
+    }
+
+    private Doc attach(Source source) {
+        Map<String, Integer> counts = termCounts(source.ingredient);
+        int n = liveDocs + 1;
+        return add(source, counts,
+                term -> (postings.containsKey(term) ? postings.get(term).live : 0) + 1,
+                category -> (byCategory.containsKey(category) ? byCategory.get(category).live : 0) + 1,
+                n);
+    }
+
+    private Doc add(Source source, Map<String, Integer> counts, Function<String, Integer> df,
+                    Function<String, Integer> categoryDf, int n) {
+        String[] terms = counts.keySet().toArray(new String[0]);
+        float[] weights = new float[terms.length];
+        double norm = 0;
+        for (int i = 0; i < terms.length; i++) {
+            weights[i] = (float) ((1 + Math.log(counts.get(terms[i]))) * Math.log(1 + (double) n / df.apply(terms[i])));
+            norm += weights[i] * weights[i];
+        }
+        String category = categoryKey(source.category);
+        float categoryWeight = category == null ? 0f
+                : (float) (CATEGORY_BOOST * Math.log(1 + (double) n / categoryDf.apply(category)));
+        norm += categoryWeight * categoryWeight;
+        float scale = norm == 0 ? 0f : (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < weights.length; i++) weights[i] *= scale;
+
+        int ordinal = docs.size();
+        Doc doc = new Doc(ordinal, source, terms, weights, category, categoryWeight * scale);
+        docs.add(doc);
+        ordinals.put(source.id, ordinal);
+        if (scratch.length <= ordinal) scratch = Arrays.copyOf(scratch, Math.max(16, ordinal * 2));
+        for (int i = 0; i < terms.length; i++) {
+            postings.computeIfAbsent(terms[i], t -> new Postings()).add(ordinal, weights[i]);
+        }
+        if (category != null) {
+            byCategory.computeIfAbsent(category, c -> new Postings()).add(ordinal, doc.categoryWeight);
+        }
+        liveDocs++;
+        return doc;
+    }
+
+    // Chấm điểm mọi thuốc chung ít nhất một hoạt chất (không quá phổ biến) vào scores.
+    // Ứng viên được ghi vào candidates; người gọi phải xoá scores của chúng sau khi dùng.
+    private PriorityQueue<Neighbor> score(Doc doc, IntList candidates, float[] scores) {
+        int maxDf = Math.max(MIN_CANDIDATE_DF, (int) (liveDocs * MAX_CANDIDATE_DF_RATIO));
+        for (int t = 0; t < doc.terms.length; t++) {
+            Postings list = postings.get(doc.terms[t]);
+            if (list == null || list.live > maxDf) continue;
+            float weight = doc.weights[t];
+            for (int i = 0; i < list.size; i++) {
+                int ordinal = list.ordinals[i];
+                if (ordinal == doc.ordinal || docs.get(ordinal) == null) continue;
+                if (scores[ordinal] == 0) candidates.add(ordinal);
+                scores[ordinal] += weight * list.weights[i];
+            }
+        }
+        PriorityQueue<Neighbor> top = new PriorityQueue<>(MAX_K + 1, Neighbor.WEAKEST_FIRST);
+        for (int i = 0; i < candidates.size; i++) {
+            int ordinal = candidates.values[i];
+            Doc other = docs.get(ordinal);
+            if (doc.category != null && doc.category.equals(other.category)) {
+                scores[ordinal] += doc.categoryWeight * other.categoryWeight;
+            }
+            float score = scores[ordinal];
+            // Chỉ tạo Neighbor khi lọt vào top-K hiện tại
+            if (top.size() < MAX_K || score > top.peek().score
+                    || (score == top.peek().score && other.source.id < top.peek().id)) {
+                top.add(new Neighbor(ordinal, other.source.id, score));
+                if (top.size() > MAX_K) top.poll();
+            }
+        }
+        // Chưa đủ K: lấp bằng thuốc cùng loại (điểm chỉ từ thành phần loại)
+        Postings sameCategory = doc.category == null ? null : byCategory.get(doc.category);
+        if (top.size() < MAX_K && sameCategory != null) {
+            for (int i = 0; i < sameCategory.size && top.size() < MAX_K; i++) {
+                int ordinal = sameCategory.ordinals[i];
+                Doc other = docs.get(ordinal);
+                if (other == null || ordinal == doc.ordinal || scores[ordinal] != 0) continue;
+                top.add(new Neighbor(ordinal, other.source.id, doc.categoryWeight * other.categoryWeight));
+            }
+        }
+        return top;
+    }
+
+    private void setNeighbors(Doc doc, PriorityQueue<Neighbor> top) {
+        Neighbor[] neighbors = top.toArray(new Neighbor[0]);
+        Arrays.sort(neighbors, Neighbor.STRONGEST_FIRST);
+        doc.neighbors = neighbors;
+        for (Neighbor neighbor : neighbors) {
+            docs.get(neighbor.ordinal).listedBy.add(doc.ordinal);
+        }
+    }
+
+    private void recompute(Doc doc) {
+        for (Neighbor neighbor : doc.neighbors) {
+            Doc other = docs.get(neighbor.ordinal);
+            if (other != null) other.listedBy.remove(doc.ordinal);
+        }
+        IntList candidates = new IntList();
+        setNeighbors(doc, score(doc, candidates, scratch));
+        candidates.clear(scratch);
+        publish(doc);
+    }
+
+    // Chèn added vào danh sách của doc nếu đủ mạnh; láng giềng yếu nhất bị đẩy ra khi đã đủ K
+    private void offer(Doc doc, Doc added, float score) {
+        Neighbor[] current = doc.neighbors;
+        if (current.length >= MAX_K && Neighbor.STRONGEST_FIRST.compare(
+                new Neighbor(added.ordinal, added.source.id, score), current[current.length - 1]) >= 0) {
+            return;
+        }
+        Neighbor[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = new Neighbor(added.ordinal, added.source.id, score);
+        Arrays.sort(next, Neighbor.STRONGEST_FIRST);
+        if (next.length > MAX_K) {
+            Neighbor evicted = next[MAX_K];
+            docs.get(evicted.ordinal).listedBy.remove(doc.ordinal);
+            next = Arrays.copyOf(next, MAX_K);
+        }
+        added.listedBy.add(doc.ordinal);
+        doc.neighbors = next;
+        publish(doc);
+    }
+
+    private void publish(Doc doc) {
+        published.put(doc.source.id, neighborIds(doc));
+    }
+
+    private static long[] neighborIds(Doc doc) {
+        long[] ids = new long[doc.neighbors.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = doc.neighbors[i].id;
+        return ids;
+    }
+
+    // Dựng lại từ dữ liệu đang giữ khi hơn 20% số thứ tự đã chết (cũng làm mới idf)
+    private void compactIfSparse() {
+        if (docs.size() < 1024 || docs.size() - liveDocs <= docs.size() / 5) return;
+        List<Source> live = new ArrayList<>(liveDocs);
+        for (Doc doc : docs) {
+            if (doc != null) live.add(doc.source);
+        }
+        rebuild(live);
+    }
+
+    // Từ của hoạt chất: bỏ dấu, bỏ hàm lượng ("500mg") và từ quá ngắn
+    static Map<String, Integer> termCounts(String ingredient) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String token : VietnameseText.tokenize(ingredient)) {
+            if (token.length() < 3 || !Character.isLetter(token.charAt(0))) continue;
+            counts.merge(token, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static String categoryKey(String categoryName) {
+        if (categoryName == null || categoryName.isBlank()) return null;
+        return VietnameseText.fold(categoryName.trim());
+    }
+
+    private static final class Source {
+        private final long id;
+        private final String ingredient;
+        private final String category;
+
+        Source(long id, String ingredient, String category) {
+            this.id = id;
+            this.ingredient = ingredient;
+            this.category = category;
+        }
+    }
+
+    private static final class Doc {
+        private final int ordinal;
+        private final Source source;
+        private final String[] terms;
+        private final float[] weights;
+        private final String category;
+        private final float categoryWeight;
+        private Neighbor[] neighbors = new Neighbor[0];
+        // Các thuốc đang có thuốc này trong danh sách láng giềng
+        private final Set<Integer> listedBy = new HashSet<>();
+
+        Doc(int ordinal, Source source, String[] terms, float[] weights, String category, float categoryWeight) {
+            this.ordinal = ordinal;
+            this.source = source;
+            this.terms = terms;
+            this.weights = weights;
+            this.category = category;
+            this.categoryWeight = categoryWeight;
+        }
+
+        boolean lists(int ordinal) {
+            for (Neighbor neighbor : neighbors) {
+                if (neighbor.ordinal == ordinal) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Neighbor {
+        // Điểm giảm dần, hoà thì id nhỏ trước (thứ tự ổn định)
+        static final Comparator<Neighbor> STRONGEST_FIRST = (a, b) -> {
+            int byScore = Float.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Long.compare(a.id, b.id);
+        };
+        static final Comparator<Neighbor> WEAKEST_FIRST = STRONGEST_FIRST.reversed();
+
+        private final int ordinal;
+        private final long id;
+        private final float score;
+
+        Neighbor(int ordinal, long id, float score) {
+            this.ordinal = ordinal;
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    // Danh sách ordinal ứng viên (tránh boxing trên vòng lặp nóng)
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        // Trả bộ đệm điểm về 0 cho các ứng viên đã chấm
+        void clear(float[] scores) {
+            for (int i = 0; i < size; i++) scores[values[i]] = 0;
+            size = 0;
+        }
+    }
+
+    // (ordinal, trọng số đã chuẩn hoá) theo từ, chỉ nối thêm; ordinal chết bị bỏ qua khi đọc
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+        private int live;
+
+        void add(int ordinal, float weight) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ordinals[size] = ordinal;
+            weights[size] = weight;
+            size++;
+            live++;
+        }
+    }
+}
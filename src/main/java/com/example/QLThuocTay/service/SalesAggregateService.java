@@ -0,0 +1,200 @@
+package com.example.QLThuocTay.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.QLThuocTay.Entities.OrderStatus;
+import com.example.QLThuocTay.dto.MedicineSalesDTO;
+import com.example.QLThuocTay.dto.SalesPeriodDTO;
+import com.example.QLThuocTay.dto.SalesReportDTO;
+
+// Bảng sales_daily (ngày, thuốc, trạng thái) -> số lượng, doanh thu.
+// OrderService ghi phần chênh lệch trong cùng transaction với đơn hàng,
+// báo cáo chỉ đọc bảng gộp nên thời gian không phụ thuộc số đơn đã có.
+@Service
+public class SalesAggregateService {
+
+    public static final Set<String> PERIODS = Set.of("day", "week", "month");
+    public static final int MAX_TOP = 100;
+
+    private static final String UPSERT_CONFLICT =
+            " ON CONFLICT (sale_date, medicine_id, status_id) DO UPDATE SET " +
+            "units = sales_daily.units + EXCLUDED.units, revenue = sales_daily.revenue + EXCLUDED.revenue";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final OrderStatusRegistry orderStatusRegistry;
+
+    @Autowired
+    public SalesAggregateService(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            OrderStatusRegistry orderStatusRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.orderStatusRegistry = orderStatusRegistry;
+    }
+
+    // Ghi các phần chênh đã gom theo khóa bằng một JDBC batch.
+    // Khóa được sắp thứ tự để các transaction khóa dòng sales_daily theo cùng thứ tự.
+    public void apply(Deltas deltas) {
+        if (deltas.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(deltas.rows.size());
+        for (Map.Entry<Deltas.Key, Deltas.Value> row : deltas.rows.entrySet()) {
+            if (row.getValue().units == 0 && row.getValue().revenue.signum() == 0) continue;
+            args.add(new Object[] {
+                    Date.valueOf(row.getKey().day), row.getKey().medicineId, row.getKey().statusId,
+                    row.getValue().units, row.getValue().revenue });
+        }
+        if (args.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO sales_daily (sale_date, medicine_id, status_id, units, revenue) " +
+                "VALUES (?, ?, ?, ?, ?)" + UPSERT_CONFLICT, args);
+    }
+
+    // Cộng (sign = 1) hoặc trừ (sign = -1) toàn bộ dòng hiện có của các đơn vào trạng thái statusId.
+    // Dùng khi cả đơn đổi trạng thái hoặc bị xoá.
+    public void applyOrders(Collection<Long> orderIds, Integer statusId, int sign) {
+        if (orderIds.isEmpty() || statusId == null) return;
+        namedJdbcTemplate.update(
+                "INSERT INTO sales_daily (sale_date, medicine_id, status_id, units, revenue) " +
+                "SELECT CAST(o.create_at AS date), d.medicine_id, :statusId, " +
+                ":sign * SUM(d.quantity), :sign * SUM(d.quantity * d.price) " +
+                "FROM orders o JOIN orderdetail d ON d.order_id = o.order_id " +
+                "WHERE o.order_id IN (:orderIds) " +
+                "GROUP BY CAST(o.create_at AS date), d.medicine_id ORDER BY 1, 2" + UPSERT_CONFLICT,
+                new MapSqlParameterSource()
+                        .addValue("statusId", statusId)
+                        .addValue("sign", sign)
+                        .addValue("orderIds", orderIds));
+    }
+
+    // Dựng lại toàn bộ bảng gộp từ orders/orderdetail.
+    // Khóa EXCLUSIVE chặn các upsert đồng thời tới khi commit nên không đếm thiếu hay đếm trùng.
+    @Transactional
+    @Scheduled(cron = "${app.reports.sales.rebuild-cron:0 30 3 * * *}")
+    public int rebuild() {
+        jdbcTemplate.execute("LOCK TABLE sales_daily IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        return jdbcTemplate.update(
+                "INSERT INTO sales_daily (sale_date, medicine_id, status_id, units, revenue) " +
+                "SELECT CAST(o.create_at AS date), d.medicine_id, o.status_id, SUM(d.quantity), SUM(d.quantity * d.price) " +
+                "FROM orders o JOIN orderdetail d ON d.order_id = o.order_id " +
+                "WHERE o.status_id IS NOT NULL " +
+                "GROUP BY CAST(o.create_at AS date), d.medicine_id, o.status_id");
+    }
+
+    // Doanh thu theo ngày/tuần/tháng và các thuốc bán chạy trong khoảng [from, to].
+    // Không truyền trạng thái thì tính mọi đơn trừ đơn đã huỷ.
+    @Transactional(readOnly = true)
+    public SalesReportDTO report(String period, LocalDate from, LocalDate to, String statusName, int top) {
+        StringBuilder where = new StringBuilder(" WHERE s.sale_date BETWEEN :from AND :to");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Date.valueOf(from))
+                .addValue("to", Date.valueOf(to))
+                .addValue("top", Math.max(0, Math.min(top, MAX_TOP)));
+        if (statusName != null && !statusName.isBlank()) {
+            OrderStatus status = orderStatusRegistry.findByName(statusName)
+                    .orElseThrow(() -> new IllegalArgumentException("Trạng thái không hợp lệ: " + statusName));
+            where.append(" AND s.status_id = :statusId");
+            params.addValue("statusId", status.getStatusId());
+        } else {
+            orderStatusRegistry.findByName(OrderStatusRegistry.CANCELLED).ifPresent(cancelled -> {
+                where.append(" AND s.status_id <> :cancelledId");
+                params.addValue("cancelledId", cancelled.getStatusId());
+            });
+        }
+
+        // period đã được kiểm tra thuộc PERIODS nên ghép thẳng vào câu lệnh
+        List<SalesPeriodDTO> periods = namedJdbcTemplate.query(
+                "SELECT CAST(date_trunc('" + period + "', s.sale_date) AS date) AS period_start, " +
+                "SUM(s.units) AS units, SUM(s.revenue) AS revenue FROM sales_daily s" + where +
+                " GROUP BY 1 ORDER BY 1",
+                params,
+                (rs, rowNum) -> new SalesPeriodDTO(
+                        rs.getDate("period_start").toLocalDate(), rs.getLong("units"), rs.getBigDecimal("revenue")));
+
+        List<MedicineSalesDTO> topMedicines = namedJdbcTemplate.query(
+                "SELECT s.medicine_id, m.medicine_name, SUM(s.units) AS units, SUM(s.revenue) AS revenue " +
+                "FROM sales_daily s LEFT JOIN medicines m ON m.medicine_id = s.medicine_id" + where +
+                " GROUP BY s.medicine_id, m.medicine_name ORDER BY revenue DESC, s.medicine_id LIMIT :top",
+                params,
+                (rs, rowNum) -> new MedicineSalesDTO(
+                        rs.getLong("medicine_id"), rs.getString("medicine_name"),
+                        rs.getLong("units"), rs.getBigDecimal("revenue")));
+
+        long units = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (SalesPeriodDTO row : periods) {
+            units += row.getUnits();
+            revenue = revenue.add(row.getRevenue());
+        }
+        return new SalesReportDTO(period, from, to, units, revenue, periods, topMedicines);
+    }
+
+    // Phần chênh doanh số của một thao tác, gom theo (ngày, thuốc, trạng thái) trước khi ghi
+    public static final class Deltas {
+
+        private static final Comparator<Key> ORDER = Comparator
+                .comparing((Key k) -> k.day)
+                .thenComparing(k -> k.medicineId)
+                .thenComparing(k -> k.statusId);
+
+        private final Map<Key, Value> rows = new TreeMap<>(ORDER);
+
+        public void add(LocalDate day, Integer statusId, Long medicineId, long units, BigDecimal revenue) {
+            if (day == null || statusId == null || medicineId == null) return;
+            Value value = rows.computeIfAbsent(new Key(day, medicineId, statusId), k -> new Value());
+            value.units += units;
+            value.revenue = value.revenue.add(revenue);
+        }
+
+        public boolean isEmpty() {
+            return rows.isEmpty();
+        }
+
+        long units(LocalDate day, Integer statusId, Long medicineId) {
+            Value value = rows.get(new Key(day, medicineId, statusId));
+            return value == null ? 0 : value.units;
+        }
+
+        BigDecimal revenue(LocalDate day, Integer statusId, Long medicineId) {
+            Value value = rows.get(new Key(day, medicineId, statusId));
+            return value == null ? BigDecimal.ZERO : value.revenue;
+        }
+
+        private static final class Key {
+            private final LocalDate day;
+            private final Long medicineId;
+            private final Integer statusId;
+
+            Key(LocalDate day, Long medicineId, Integer statusId) {
+                this.day = day;
+                this.medicineId = medicineId;
+                this.statusId = statusId;
+            }
+        }
+
+        private static final class Value {
+            private long units;
+            private BigDecimal revenue = BigDecimal.ZERO;
+        }
+    }
+}
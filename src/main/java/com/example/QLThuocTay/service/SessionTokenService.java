@@ -0,0 +1,238 @@
+package com.example.QLThuocTay.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.QLThuocTay.Entities.User;
+
+// Token phiên đăng nhập ký HMAC-SHA256: BCrypt chỉ chạy một lần lúc /users/login,
+// các request sau chỉ giải base64 + tính một HMAC (vài µs), không chạm DB.
+// Token = base64url(payload) "." base64url(chữ ký); payload gồm phiên bản, tokenId, userId,
+// thời điểm cấp, hết hạn, tên vai trò.
+// Thu hồi: token đăng xuất giữ trong bảng băm long -> int (tokenId -> phút hết hạn) tới khi tự hết hạn;
+// đổi mật khẩu/vai trò, xoá tài khoản thì chặn mọi token của user cấp trước thời điểm đó.
+// Danh sách thu hồi nằm trong bộ nhớ: chạy nhiều node thì cần chia sẻ hoặc dùng TTL ngắn.
+@Service
+public class SessionTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int FIXED_LENGTH = 1 + 8 + 8 + 8 + 8;
+    private static final int MAX_TOKEN_LENGTH = 512;
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    // Mac không thread-safe; mỗi luồng request giữ một bản đã init
+    private final ThreadLocal<Mac> macs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // tokenId đã đăng xuất -> phút hết hạn (epoch minutes), dọn khi token hết hạn
+    private final LongIntMap revoked = new LongIntMap(1024);
+    // userId -> token cấp trước thời điểm này (millis) không còn hiệu lực
+    private final ConcurrentHashMap<Long, Long> notBefore = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SessionTokenService(
+            @Value("${app.auth.token-secret:}") String secret,
+            @Value("${app.auth.token-ttl-minutes:720}") long ttlMinutes
+    ) {
+        this(secretBytes(secret), TimeUnit.MINUTES.toMillis(ttlMinutes), System::currentTimeMillis);
+    }
+
+    SessionTokenService(byte[] secret, long ttlMillis, LongSupplier clock) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    // Cấp token cho user vừa đăng nhập thành công
+    public Session issue(User user) {
+        long tokenId;
+        do {
+            tokenId = random.nextLong();
+        } while (tokenId == Long.MIN_VALUE); // giá trị ô trống của LongIntMap
+        long now = clock.getAsLong();
+        String role = user.getUserRole() == null || user.getUserRole().getRoleName() == null
+                ? "" : user.getUserRole().getRoleName();
+        byte[] roleBytes = role.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(FIXED_LENGTH + roleBytes.length)
+                .put(VERSION)
+                .putLong(tokenId)
+                .putLong(user.getUserId())
+                .putLong(now)
+                .putLong(now + ttlMillis)
+                .put(roleBytes);
+        byte[] bytes = payload.array();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String token = encoder.encodeToString(bytes) + "." + encoder.encodeToString(macs.get().doFinal(bytes));
+        return new Session(token, tokenId, user.getUserId(), role, now, now + ttlMillis);
+    }
+
+    // Phiên của token nếu chữ ký đúng, chưa hết hạn và chưa bị thu hồi; ngược lại null
+    public Session verify(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0) return null;
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length < FIXED_LENGTH || payload[0] != VERSION) return null;
+        // So sánh thời gian hằng, không lộ số byte khớp
+        if (!MessageDigest.isEqual(macs.get().doFinal(payload), signature)) return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+        long tokenId = buffer.getLong();
+        long userId = buffer.getLong();
+        long issuedAt = buffer.getLong();
+        long expiresAt = buffer.getLong();
+        if (clock.getAsLong() >= expiresAt) return null;
+        if (!notBefore.isEmpty()) {
+            Long cutoff = notBefore.get(userId);
+            if (cutoff != null && issuedAt < cutoff) return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (revoked.size() > 0 && revoked.get(tokenId, -1) != -1) return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        String role = new String(payload, FIXED_LENGTH, payload.length - FIXED_LENGTH, StandardCharsets.UTF_8);
+        return new Session(token, tokenId, userId, role, issuedAt, expiresAt);
+    }
+
+    // Đăng xuất: token không hợp lệ/đã hết hạn thì không cần ghi gì. Trả false nếu token không hợp lệ
+    public boolean revoke(String token) {
+        Session session = verify(token);
+        if (session == null) return false;
+        int expiresAtMinute = (int) (TimeUnit.MILLISECONDS.toMinutes(session.getExpiresAt()) + 1);
+        lock.writeLock().lock();
+        try {
+            revoked.put(session.getTokenId(), expiresAtMinute);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    // Đổi mật khẩu/vai trò, xoá tài khoản: mọi token đã cấp cho user mất hiệu lực
+    public void revokeUser(long userId) {
+        notBefore.put(userId, clock.getAsLong());
+    }
+
+    // Dọn mục thu hồi của token đã tự hết hạn, giữ danh sách nhỏ
+    @Scheduled(fixedDelayString = "${app.auth.revoked-purge-ms:600000}")
+    public void purge() {
+        long now = clock.getAsLong();
+        int removed;
+        lock.writeLock().lock();
+        try {
+            removed = revoked.removeValuesBelow((int) TimeUnit.MILLISECONDS.toMinutes(now));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notBefore.values().removeIf(cutoff -> cutoff + ttlMillis < now);
+        if (removed > 0) logger.debug("Đã dọn {} token thu hồi đã hết hạn", removed);
+    }
+
+    int revokedCount() {
+        lock.readLock().lock();
+        try {
+            return revoked.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int notBeforeCount() {
+        return notBefore.size();
+    }
+
+    // Lấy token từ header "Authorization: Bearer <token>", null nếu không có
+    public static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        String token = authorization.substring(7).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private static byte[] secretBytes(String secret) {
+        if (secret == null || secret.isBlank()) {
+            // Chưa cấu hình: khoá ngẫu nhiên, token cũ mất hiệu lực mỗi lần khởi động lại
+            logger.warn("Chưa cấu hình app.auth.token-secret, dùng khoá ngẫu nhiên (đăng nhập lại sau mỗi lần khởi động)");
+            byte[] bytes = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(bytes);
+            return bytes;
+        }
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("app.auth.token-secret phải dài ít nhất " + MIN_SECRET_BYTES + " byte");
+        }
+        return bytes;
+    }
+
+    public static final class Session {
+        private final String token;
+        private final long tokenId;
+        private final long userId;
+        private final String role;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        Session(String token, long tokenId, long userId, String role, long issuedAt, long expiresAt) {
+            this.token = token;
+            this.tokenId = tokenId;
+            this.userId = userId;
+            this.role = role;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() { return token; }
+
+        public long getTokenId() { return tokenId; }
+
+        public long getUserId() { return userId; }
+
+        public String getRole() { return role; }
+
+        public long getIssuedAt() { return issuedAt; }
+
+        public long getExpiresAt() { return expiresAt; }
+    }
+}
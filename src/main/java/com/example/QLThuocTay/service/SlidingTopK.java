@@ -0,0 +1,84 @@
+package com.example.QLThuocTay.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Top-k trên cửa sổ trượt: vòng gồm bucketCount sketch Space-Saving, mỗi sketch ứng với một khoảng bucketMillis.
+// Bucket cũ được dùng lại cho khoảng thời gian mới nên bộ nhớ cố định (bucketCount * capacity bộ đếm).
+// Cửa sổ thực tế dài từ (bucketCount - 1) tới bucketCount khoảng, tuỳ thời điểm trong bucket hiện tại.
+public class SlidingTopK {
+
+    private final long bucketMillis;
+    private final SpaceSavingSketch[] buckets;
+    // Số thứ tự khoảng thời gian (timestamp / bucketMillis) mà mỗi bucket đang giữ
+    private final long[] epochs;
+
+    public SlidingTopK(long bucketMillis, int bucketCount, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new SpaceSavingSketch[bucketCount];
+        this.epochs = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new SpaceSavingSketch(capacity);
+            epochs[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public synchronized void offer(long item, long weight, long timestampMillis) {
+        long epoch = Math.floorDiv(timestampMillis, bucketMillis);
+        int index = (int) Math.floorMod(epoch, (long) buckets.length);
+        if (epochs[index] != epoch) {
+            // Bucket đang giữ khoảng mới hơn -> dữ liệu này đã trượt khỏi cửa sổ
+            if (epochs[index] > epoch) return;
+            buckets[index].clear();
+            epochs[index] = epoch;
+        }
+        buckets[index].offer(item, weight);
+    }
+
+    // Gộp các bucket còn trong cửa sổ tính tới nowMillis, trả về k phần tử lớn nhất.
+    // Phần tử vắng mặt ở một bucket đã đầy có thể có tới minCount() ở bucket đó -> cộng vào cả ước lượng và sai số,
+    // để vẫn giữ count - error <= số thật <= count như từng sketch.
+    public synchronized List<SpaceSavingSketch.Counter> top(int k, long nowMillis) {
+        long current = Math.floorDiv(nowMillis, bucketMillis);
+        List<Integer> live = new ArrayList<>();
+        for (int i = 0; i < buckets.length; i++) {
+            if (epochs[i] <= current && epochs[i] > current - buckets.length) {
+                live.add(i);
+            }
+        }
+        Map<Long, long[]> merged = new HashMap<>();
+        for (int i : live) {
+            for (SpaceSavingSketch.Counter counter : buckets[i].counters()) {
+                long[] sum = merged.computeIfAbsent(counter.getItem(), item -> new long[2]);
+                sum[0] += counter.getCount();
+                sum[1] += counter.getError();
+            }
+        }
+        List<SpaceSavingSketch.Counter> result = new ArrayList<>(merged.size());
+        for (Map.Entry<Long, long[]> entry : merged.entrySet()) {
+            long count = entry.getValue()[0];
+            long error = entry.getValue()[1];
+            for (int i : live) {
+                long unseen = buckets[i].minCount();
+                if (unseen > 0 && !buckets[i].contains(entry.getKey())) {
+                    count += unseen;
+                    error += unseen;
+                }
+            }
+            result.add(new SpaceSavingSketch.Counter(entry.getKey(), count, error));
+        }
+        result.sort(Comparator.comparingLong(SpaceSavingSketch.Counter::getCount).reversed()
+                .thenComparingLong(SpaceSavingSketch.Counter::getItem));
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i].clear();
+            epochs[i] = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.QLThuocTay.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Thuật toán Space-Saving (có trọng số): giữ tối đa capacity bộ đếm.
+// Phần tử mới khi đã đầy thay chỗ bộ đếm nhỏ nhất và kế thừa giá trị của nó làm sai số,
+// nên count - error <= số thật <= count; mọi phần tử có số thật > tổng / capacity đều được giữ lại.
+// Không thread-safe: SlidingTopK đồng bộ bên ngoài.
+public class SpaceSavingSketch {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator
+            .comparingLong((Counter c) -> c.count)
+            .thenComparingLong(c -> c.item);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity phải > 0");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(long item, long weight) {
+        if (weight <= 0) return;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(item, weight, 0);
+        } else {
+            Counter min = byCount.pollFirst();
+            counters.remove(min.item);
+            counter = new Counter(item, min.count + weight, min.count);
+        }
+        counters.put(item, counter);
+        byCount.add(counter);
+    }
+
+    // Số nhỏ nhất đang giữ: chặn trên cho số thật của phần tử không có trong sketch (0 nếu chưa đầy)
+    public long minCount() {
+        return counters.size() < capacity || byCount.isEmpty() ? 0 : byCount.first().count;
+    }
+
+    public boolean contains(long item) {
+        return counters.containsKey(item);
+    }
+
+    public List<Counter> counters() {
+        List<Counter> copy = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            copy.add(new Counter(counter.item, counter.count, counter.error));
+        }
+        return copy;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+
+    public static final class Counter {
+        private final long item;
+        private long count;
+        private long error;
+
+        public Counter(long item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getItem() { return item; }
+
+        // Ước lượng (chặn trên) số thật
+        public long getCount() { return count; }
+
+        // Sai số tối đa: số thật >= count - error
+        public long getError() { return error; }
+    }
+}
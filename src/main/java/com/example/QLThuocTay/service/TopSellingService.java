@@ -0,0 +1,121 @@
+package com.example.QLThuocTay.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+// Thuốc bán chạy theo giờ/ngày/tuần từ luồng dòng đơn hàng, không truy vấn orderdetail khi đọc.
+// Mỗi cửa sổ là một SlidingTopK nên bộ nhớ cố định, không phụ thuộc số đơn.
+@Service
+public class TopSellingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopSellingService.class);
+
+    public static final int MAX_K = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStatusRegistry orderStatusRegistry;
+    private final Map<String, SlidingTopK> windows = new LinkedHashMap<>();
+
+    @Autowired
+    public TopSellingService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            OrderStatusRegistry orderStatusRegistry,
+            @Value("${app.medicines.top.capacity:200}") int capacity,
+            @Value("${app.medicines.top.fetch-size:1000}") int fetchSize
+    ) {
+        // Cursor PostgreSQL khi nạp lại lúc khởi động (cần fetch size + transaction)
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.orderStatusRegistry = orderStatusRegistry;
+        windows.put("hour", new SlidingTopK(TimeUnit.MINUTES.toMillis(5), 12, capacity));
+        windows.put("day", new SlidingTopK(TimeUnit.HOURS.toMillis(1), 24, capacity));
+        windows.put("week", new SlidingTopK(TimeUnit.HOURS.toMillis(6), 28, capacity));
+    }
+
+    public boolean hasWindow(String window) {
+        return windows.containsKey(window);
+    }
+
+    // Ghi nhận số lượng bán theo thuốc. Trong transaction thì chờ commit (rollback -> không tính).
+    public void record(Map<Long, Long> unitsByMedicine, long timestampMillis) {
+        if (unitsByMedicine.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<Long, Long> copy = new HashMap<>(unitsByMedicine);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(copy, timestampMillis);
+                }
+            });
+        } else {
+            offer(unitsByMedicine, timestampMillis);
+        }
+    }
+
+    public List<SpaceSavingSketch.Counter> top(String window, int k) {
+        SlidingTopK topK = windows.get(window);
+        if (topK == null) {
+            throw new IllegalArgumentException("Cửa sổ không hợp lệ (hour, day, week): " + window);
+        }
+        return topK.top(Math.max(1, Math.min(k, MAX_K)), System.currentTimeMillis());
+    }
+
+    // Nạp lại một tuần dòng đơn (trừ đơn huỷ) lúc khởi động, theo thứ tự thời gian
+    @PostConstruct
+    public void rebuild() {
+        windows.values().forEach(SlidingTopK::clear);
+        LocalDateTime since = LocalDateTime.now().minusWeeks(1);
+        Integer cancelledId = orderStatusRegistry.findByName(OrderStatusRegistry.CANCELLED)
+                .map(status -> status.getStatusId()).orElse(-1);
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                    "SELECT d.medicine_id, d.quantity, o.create_at FROM orderdetail d " +
+                    "JOIN orders o ON o.order_id = d.order_id " +
+                    "WHERE o.create_at >= ? AND (o.status_id IS NULL OR o.status_id <> ?) ORDER BY o.create_at",
+                    rs -> {
+                        long timestamp = rs.getTimestamp("create_at").toLocalDateTime().atZone(zone).toInstant().toEpochMilli();
+                        for (SlidingTopK topK : windows.values()) {
+                            topK.offer(rs.getLong("medicine_id"), rs.getLong("quantity"), timestamp);
+                        }
+                    },
+                    Timestamp.valueOf(since), cancelledId));
+        } catch (RuntimeException e) {
+            // Không chặn khởi động: thống kê sẽ được lấp dần bởi đơn mới
+            logger.warn("Không nạp lại được thống kê thuốc bán chạy", e);
+        }
+    }
+
+    private void offer(Map<Long, Long> unitsByMedicine, long timestampMillis) {
+        for (SlidingTopK topK : windows.values()) {
+            for (Map.Entry<Long, Long> entry : unitsByMedicine.entrySet()) {
+                topK.offer(entry.getKey(), entry.getValue(), timestampMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Chạy một lần trên database hiện có để sequence của orders khớp với
+-- allocationSize = 50 trong Order (pooled optimizer của Hibernate).
+-- Nếu chưa chạy, Hibernate tự hạ increment về 1 (increment_size_mismatch_strategy=fix).
+ALTER SEQUENCE public.orders_order_id_seq AS bigint;
+ALTER SEQUENCE public.orders_order_id_seq INCREMENT BY 50;
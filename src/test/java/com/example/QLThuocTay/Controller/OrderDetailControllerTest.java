@@ -0,0 +1,185 @@
+package com.example.QLThuocTay.Controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.QLThuocTay.Entities.Medicine;
+import com.example.QLThuocTay.Entities.Order;
+import com.example.QLThuocTay.Entities.OrderDetail;
+import com.example.QLThuocTay.Entities.OrderDetailKey;
+import com.example.QLThuocTay.Entities.OrderStatus;
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.Repository.OrderDetailRepository;
+import com.example.QLThuocTay.Repository.OrderStatusRepository;
+import com.example.QLThuocTay.Repository.UserRepository;
+import com.example.QLThuocTay.dto.OrderDetailDTO;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+import com.example.QLThuocTay.service.CatalogSnapshotService;
+import com.example.QLThuocTay.service.OrderCacheService;
+import com.example.QLThuocTay.service.OrderService;
+import com.example.QLThuocTay.service.OrderStatusRegistry;
+import com.example.QLThuocTay.service.SalesAggregateService;
+import com.example.QLThuocTay.service.TopSellingService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+
+// /orderdetails ghi qua OrderService.updateOrderLine: tồn kho, doanh số, cache; đơn đã đóng thì 409 (DB thay bằng mock)
+class OrderDetailControllerTest {
+
+	private EntityManager entityManager;
+	private JdbcTemplate jdbcTemplate;
+	private SalesAggregateService salesAggregateService;
+	private OrderCacheService orderCacheService;
+	private OrderDetailRepository orderDetailRepository;
+	private OrderStatusRegistry statuses;
+	private OrderDetailController controller;
+	private final List<OrderDetail> lines = new ArrayList<>();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		entityManager = mock(EntityManager.class);
+		jdbcTemplate = mock(JdbcTemplate.class);
+		salesAggregateService = mock(SalesAggregateService.class);
+		orderCacheService = mock(OrderCacheService.class);
+		orderDetailRepository = mock(OrderDetailRepository.class);
+		OrderStatusRepository statusRepository = mock(OrderStatusRepository.class);
+		when(statusRepository.findAll()).thenReturn(List.of(
+				new OrderStatus(1, OrderStatusRegistry.PENDING),
+				new OrderStatus(2, OrderStatusRegistry.PROCESSING),
+				new OrderStatus(3, OrderStatusRegistry.COMPLETED),
+				new OrderStatus(4, OrderStatusRegistry.CANCELLED)));
+		statuses = new OrderStatusRegistry(statusRepository);
+		statuses.load();
+
+		OrderService orderService = new OrderService(mock(UserRepository.class), statuses, mock(MedicineRepository.class),
+				jdbcTemplate, mock(NamedParameterJdbcTemplate.class), orderCacheService, salesAggregateService,
+				mock(TopSellingService.class), mock(CatalogSnapshotService.class));
+		ReflectionTestUtils.setField(orderService, "entityManager", entityManager);
+		ReflectionTestUtils.setField(orderService, "batchSize", 50);
+		controller = new OrderDetailController(orderDetailRepository, orderService);
+
+		// Đọc lại đơn sau khi ghi: dòng lấy từ entity hiện tại
+		TypedQuery<OrderResponseDTO> orders = mock(TypedQuery.class, RETURNS_SELF);
+		when(orders.getResultList()).thenAnswer(invocation -> new ArrayList<>(List.of(
+				new OrderResponseDTO(10L, 3L, "Khách", BigDecimal.ZERO, LocalDateTime.now(), 1, "Pending", null))));
+		TypedQuery<OrderDetailDTO> details = mock(TypedQuery.class, RETURNS_SELF);
+		when(details.getResultList()).thenAnswer(invocation -> lines.stream()
+				.map(d -> new OrderDetailDTO(10L, d.getMedicine().getMedicineId(), d.getMedicine().getMedicineName(),
+						d.getQuantity(), d.getPrice()))
+				.toList());
+		when(entityManager.createQuery(anyString(), eq(OrderResponseDTO.class))).thenReturn(orders);
+		when(entityManager.createQuery(anyString(), eq(OrderDetailDTO.class))).thenReturn(details);
+		when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+			int[] counts = new int[invocation.<List<?>>getArgument(1).size()];
+			Arrays.fill(counts, 1);
+			return counts;
+		});
+	}
+
+	@Test
+	void updatingQuantityReservesTheDifferenceThroughOrderService() {
+		OrderDetail line = line(order(1), 2);
+
+		ResponseEntity<?> response = controller.updateOrderDetail(10L, 5L, quantity(5));
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(5, ((OrderDetailDTO) response.getBody()).getQuantity());
+		assertEquals(5, line.getQuantity());
+		assertArrayEquals(new Object[] {3, 5L, 3}, stockArgs("stock_quantity - ?").get(0));
+		verify(salesAggregateService).apply(any());
+		verify(orderCacheService).invalidate(eq(List.of(10L)), any());
+	}
+
+	@Test
+	void deletingLineReleasesItsStock() {
+		OrderDetail line = line(order(2), 2);
+
+		assertEquals(200, controller.deleteOrderDetail(10L, 5L).getStatusCode().value());
+
+		verify(entityManager).remove(line);
+		assertArrayEquals(new Object[] {2, 5L}, stockArgs("stock_quantity + ?").get(0));
+	}
+
+	@Test
+	void editingLineOfClosedOrderIsConflictWithoutWrites() {
+		for (int closed : new int[] {3, 4}) {
+			OrderDetail line = line(order(closed), 2);
+
+			assertEquals(409, controller.updateOrderDetail(10L, 5L, quantity(4)).getStatusCode().value());
+			assertEquals(409, controller.deleteOrderDetail(10L, 5L).getStatusCode().value());
+			assertEquals(2, line.getQuantity());
+		}
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+		verify(salesAggregateService, never()).apply(any());
+		verify(entityManager, never()).remove(any());
+	}
+
+	private Order order(int statusId) {
+		Order order = new Order();
+		order.setOrderId(10L);
+		order.setStatus(statuses.findById(statusId).orElseThrow());
+		order.setStockReserved(true);
+		order.setCreateAt(LocalDateTime.of(2026, 10, 1, 9, 30));
+		order.setTotalAmount(new BigDecimal("20000"));
+		when(entityManager.find(Order.class, 10L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(order);
+		return order;
+	}
+
+	private OrderDetail line(Order order, int quantity) {
+		Medicine medicine = new Medicine();
+		medicine.setMedicineId(5L);
+		medicine.setMedicineName("Panadol");
+		medicine.setPrice(new BigDecimal("10000"));
+		OrderDetail detail = new OrderDetail();
+		detail.setId(new OrderDetailKey(10L, 5L));
+		detail.setOrder(order);
+		detail.setMedicine(medicine);
+		detail.setQuantity(quantity);
+		detail.setPrice(new BigDecimal("10000"));
+		lines.clear();
+		lines.add(detail);
+		when(entityManager.find(OrderDetail.class, detail.getId())).thenReturn(detail);
+		when(orderDetailRepository.existsById(detail.getId())).thenReturn(true);
+		return detail;
+	}
+
+	private static OrderDetail quantity(int quantity) {
+		OrderDetail input = new OrderDetail();
+		input.setQuantity(quantity);
+		return input;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object[]> stockArgs(String change) {
+		ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(startsWith("UPDATE medicines SET stock_quantity = " + change), args.capture());
+		return args.getValue();
+	}
+}
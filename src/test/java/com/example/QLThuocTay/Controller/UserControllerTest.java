@@ -0,0 +1,81 @@
+package com.example.QLThuocTay.Controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.QLThuocTay.Entities.User;
+import com.example.QLThuocTay.Entities.UserRole;
+import com.example.QLThuocTay.Repository.UserRepository;
+import com.example.QLThuocTay.Repository.UserRoleRepository;
+import com.example.QLThuocTay.service.SessionTokenService;
+
+// Sửa người dùng: đổi vai trò hoặc mật khẩu thì mọi token cũ (mang vai trò cũ) phải hết hiệu lực
+class UserControllerTest {
+
+	private SessionTokenService sessionTokenService;
+	private PasswordEncoder passwordEncoder;
+	private UserController controller;
+	private User stored;
+
+	@BeforeEach
+	void setUp() {
+		UserRepository userRepository = mock(UserRepository.class);
+		UserRoleRepository userRoleRepository = mock(UserRoleRepository.class);
+		sessionTokenService = mock(SessionTokenService.class);
+		passwordEncoder = mock(PasswordEncoder.class);
+		when(userRoleRepository.findById(1L)).thenReturn(Optional.of(role(1L, "customer")));
+		when(userRoleRepository.findById(2L)).thenReturn(Optional.of(role(2L, "Admin")));
+		stored = new User(7L, "Nguyễn Văn A", "a@example.com", "0900000000", "hash", role(1L, "customer"));
+		when(userRepository.findById(7L)).thenReturn(Optional.of(stored));
+		when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		controller = new UserController(userRepository, userRoleRepository, passwordEncoder, sessionTokenService);
+	}
+
+	@Test
+	void changingRoleRevokesTheUsersSessions() {
+		assertEquals(200, controller.updateUser(7L, update(2L, null)).getStatusCode().value());
+
+		assertEquals("Admin", stored.getUserRole().getRoleName());
+		verify(sessionTokenService).revokeUser(7L);
+	}
+
+	@Test
+	void changingPasswordRevokesTheUsersSessions() {
+		when(passwordEncoder.encode("mật khẩu mới")).thenReturn("hash mới");
+
+		assertEquals(200, controller.updateUser(7L, update(1L, "mật khẩu mới")).getStatusCode().value());
+
+		assertEquals("hash mới", stored.getPassword());
+		verify(sessionTokenService).revokeUser(7L);
+	}
+
+	@Test
+	void keepingRoleAndPasswordLeavesSessionsAlone() {
+		assertEquals(200, controller.updateUser(7L, update(1L, "")).getStatusCode().value());
+
+		verify(sessionTokenService, never()).revokeUser(anyLong());
+	}
+
+	private static User update(Long roleId, String password) {
+		UserRole userRole = new UserRole();
+		userRole.setRoleId(roleId);
+		return new User(7L, "Nguyễn Văn A", "a@example.com", "0900000000", password, userRole);
+	}
+
+	private static UserRole role(Long id, String name) {
+		UserRole userRole = new UserRole(name);
+		userRole.setRoleId(id);
+		return userRole;
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.QLThuocTay.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+// Upload ảnh quá số luồng cho phép bị trả 429, quá dung lượng khai báo bị 413, trước khi đọc body
+class ImageUploadLimitInterceptorTest {
+
+	private final ImageUploadLimitInterceptor interceptor = new ImageUploadLimitInterceptor(2, DataSize.ofMegabytes(6));
+
+	@Test
+	void rejectsWhenAllPermitsAreTakenAndReleasesAfterCompletion() throws Exception {
+		MockHttpServletRequest first = upload(1024);
+		MockHttpServletRequest second = upload(1024);
+		assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+		assertTrue(interceptor.preHandle(second, new MockHttpServletResponse(), null));
+
+		MockHttpServletResponse busy = new MockHttpServletResponse();
+		assertFalse(interceptor.preHandle(upload(1024), busy, null));
+		assertEquals(429, busy.getStatus());
+		assertEquals("2", busy.getHeader("Retry-After"));
+
+		interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+		interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+		assertEquals(1, interceptor.availablePermits(), "mỗi request chỉ trả permit một lần");
+
+		MockHttpServletResponse tooLarge = new MockHttpServletResponse();
+		assertFalse(interceptor.preHandle(upload(7 * 1024 * 1024), tooLarge, null));
+		assertEquals(413, tooLarge.getStatus());
+		assertEquals(1, interceptor.availablePermits());
+
+		MockHttpServletRequest json = new MockHttpServletRequest("PUT", "/medicines/update-with-image/1");
+		json.setContentType("application/json");
+		assertTrue(interceptor.preHandle(json, new MockHttpServletResponse(), null));
+		assertEquals(1, interceptor.availablePermits());
+	}
+
+	private static MockHttpServletRequest upload(int length) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/medicines/add");
+		request.setContentType("multipart/form-data; boundary=x");
+		request.setContent(new byte[length]);
+		return request;
+	}
+}
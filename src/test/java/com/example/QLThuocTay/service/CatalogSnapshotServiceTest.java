@@ -0,0 +1,159 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.dto.MedicineDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Bản chụp catalog chỉ dựng lại sau khi ghi đã commit, và được dùng chung giữa các lượt đọc
+class CatalogSnapshotServiceTest {
+
+	private MedicineRepository repository;
+	private CatalogSnapshotService service;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(MedicineRepository.class);
+		when(repository.findAllMedicineDTO()).thenReturn(List.of(new MedicineDTO(1L, "Panadol", "Giảm đau", "500mg",
+				BigDecimal.TEN, 10, null, null, null, null, "Hạ sốt", "Paracetamol", 1L, "DHG")));
+		service = new CatalogSnapshotService(repository, new ObjectMapper().findAndRegisterModules(), 60_000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void snapshotIsReusedUntilCatalogChanges() throws IOException {
+		CatalogSnapshotService.Snapshot first = service.current();
+		assertSame(first, service.current());
+		verify(repository, times(1)).findAllMedicineDTO();
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.getGzipped()))) {
+			assertArrayEquals(first.getJson(), gzip.readAllBytes());
+		}
+		assertNotEquals(first.getEtag(true), first.getEtag(false));
+
+		service.markChanged();
+		CatalogSnapshotService.Snapshot second = service.current();
+		assertNotEquals(first.getEtag(false), second.getEtag(false));
+		verify(repository, times(2)).findAllMedicineDTO();
+	}
+
+	@Test
+	void versionBumpsOnceAfterCommit() {
+		CatalogSnapshotService.Snapshot before = service.current();
+		TransactionSynchronizationManager.initSynchronization();
+		service.markChanged();
+		service.markChanged();
+		assertSame(before, service.current(), "chưa commit thì chưa đổi phiên bản");
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		assertEquals(1, synchronizations.size());
+		for (TransactionSynchronization synchronization : synchronizations) {
+			synchronization.afterCommit();
+			synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+		assertEquals(before.getVersion() + 1, service.version());
+		assertNotEquals(before.getEtag(false), service.current().getEtag(false));
+	}
+
+	@Test
+	void stockOnlyChangeKeepsSnapshotAndContentVersion() {
+		when(repository.findMedicineDTOByIds(anyCollection())).thenReturn(List.of());
+		CatalogSnapshotService.Snapshot before = service.current();
+		long contentVersion = service.contentVersion();
+
+		service.markStockChanged();
+
+		assertSame(before, service.current(), "chỉ đổi tồn kho: dùng tiếp bản chụp trong stock-refresh-ms");
+		assertEquals(contentVersion, service.contentVersion());
+		assertEquals(before.getVersion() + 1, service.version());
+		verify(repository, times(1)).findAllMedicineDTO();
+		// Tra theo id vẫn phải thấy tồn kho mới: bản chụp lệch phiên bản nên truy vấn DB
+		service.findByIds(List.of(1L));
+		verify(repository).findMedicineDTOByIds(List.of(1L));
+
+		service.markChanged();
+		assertNotEquals(before.getEtag(false), service.current().getEtag(false));
+		assertEquals(contentVersion + 1, service.contentVersion());
+	}
+
+	@Test
+	void readersGetPreviousSnapshotWhileAnotherThreadRebuilds() throws Exception {
+		CatalogSnapshotService.Snapshot before = service.current();
+		CountDownLatch building = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(repository.findAllMedicineDTO()).thenAnswer(invocation -> {
+			building.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return List.of();
+		});
+		service.markChanged();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<CatalogSnapshotService.Snapshot> rebuilt = executor.submit(service::current);
+			assertTrue(building.await(5, TimeUnit.SECONDS));
+
+			assertSame(before, service.current(), "đang dựng lại: không chờ, trả bản cũ");
+
+			release.countDown();
+			assertEquals(service.version(), rebuilt.get(5, TimeUnit.SECONDS).getVersion());
+			assertNotEquals(before.getEtag(false), service.current().getEtag(false));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void findByIdsServesWarmSnapshotAndQueriesOnlyMisses() {
+		MedicineDTO unassigned = new MedicineDTO(2L, "Oresol", null, null, BigDecimal.ONE, 5, null, null, null, null,
+				null, null, null, null);
+		when(repository.findMedicineDTOByIds(anyCollection())).thenReturn(List.of(unassigned));
+
+		// Chưa có bản chụp: không tự dựng, truy vấn cả danh sách
+		service.findByIds(List.of(1L, 2L));
+		verify(repository, never()).findAllMedicineDTO();
+		verify(repository).findMedicineDTOByIds(List.of(1L, 2L));
+
+		// Bản chụp đã dựng: id có sẵn lấy từ bản chụp, chỉ truy vấn phần còn thiếu
+		service.current();
+		Map<Long, MedicineDTO> found = service.findByIds(List.of(1L, 2L, 3L));
+		assertEquals("Panadol", found.get(1L).getName());
+		assertSame(unassigned, found.get(2L));
+		assertEquals(2, found.size());
+		verify(repository).findMedicineDTOByIds(List.of(2L, 3L));
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Đọc CSV theo luồng: ô có ngoặc kép, xuống dòng trong ô, số dòng để báo lỗi, và 100k dòng không cần đệm cả tệp
+class CsvReaderTest {
+
+	@Test
+	void parsesQuotedFieldsAndTracksLineNumbers() throws IOException {
+		String csv = "\uFEFFname,price,description\r\n"
+				+ "Paracetamol,12000,\"Hạ sốt, giảm đau\"\r\n"
+				+ "\r\n"
+				+ "\"Vitamin \"\"C\"\"\",5000,\"Dòng 1\nDòng 2\"\n"
+				+ "Oresol,,\n"
+				+ "Cuối file,1,không xuống dòng";
+		CsvReader reader = new CsvReader(new StringReader(csv), ',');
+
+		assertEquals(List.of("name", "price", "description"), reader.next());
+		assertEquals(1, reader.recordLine());
+		assertEquals(List.of("Paracetamol", "12000", "Hạ sốt, giảm đau"), reader.next());
+		assertEquals(2, reader.recordLine());
+		assertEquals(List.of("Vitamin \"C\"", "5000", "Dòng 1\nDòng 2"), reader.next());
+		assertEquals(4, reader.recordLine());
+		assertEquals(List.of("Oresol", "", ""), reader.next());
+		assertEquals(6, reader.recordLine());
+		assertEquals(List.of("Cuối file", "1", "không xuống dòng"), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void semicolonDelimiterAndUnclosedQuote() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("a;b\n1,5;\"x\n"), ';');
+		assertEquals(List.of("a", "b"), reader.next());
+		assertThrows(IOException.class, reader::next);
+	}
+
+	@Test
+	void streamsOneHundredThousandRowsWithoutBuffering() throws IOException {
+		int rows = 100_000;
+		// Sinh dữ liệu theo từng đoạn nhỏ để chắc chắn reader không cần cả file trong bộ nhớ
+		Reader source = new Reader() {
+			private int row = -1;
+			private String pending = "";
+			private int offset;
+
+			@Override
+			public int read(char[] buffer, int off, int len) {
+				if (offset == pending.length()) {
+					if (row >= rows) return -1;
+					pending = row < 0
+							? "name,category,supplier,price,stock,expiry_date,ingredient\n"
+							: "Thuốc " + row + ",Giảm đau,Công ty A," + (1000 + row) + "," + (row % 500)
+									+ ",2027-01-" + String.format("%02d", 1 + row % 28) + ",\"Paracetamol, Cafein\"\n";
+					row++;
+					offset = 0;
+				}
+				int n = Math.min(len, pending.length() - offset);
+				pending.getChars(offset, offset + n, buffer, off);
+				offset += n;
+				return n;
+			}
+
+			@Override
+			public void close() {}
+		};
+		CsvReader reader = new CsvReader(source, ',');
+		assertEquals(7, reader.next().size());
+		int count = 0;
+		List<String> record;
+		while ((record = reader.next()) != null) {
+			assertEquals(7, record.size());
+			count++;
+		}
+		assertEquals(rows, count);
+		assertEquals(rows + 1, reader.recordLine());
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.QLThuocTay.Repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Idempotency-Key: cùng khoá chỉ chạy một lần (cache, bảng, request đang chạy song song), DB thay bằng mock
+class IdempotencyServiceTest {
+
+	private static final TypeReference<List<Long>> IDS = new TypeReference<>() {};
+
+	private JdbcTemplate jdbcTemplate;
+	private IdempotencyService service;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		when(jdbcTemplate.update(startsWith("INSERT INTO idempotency_keys"), any(Object[].class))).thenReturn(1);
+		service = new IdempotencyService(mock(IdempotencyKeyRepository.class), jdbcTemplate, transactionManager,
+				new ObjectMapper(), 60, 100, 5);
+	}
+
+	@Test
+	void repeatedKeyReturnsStoredResponseWithoutRunningAgain() {
+		AtomicInteger runs = new AtomicInteger();
+
+		assertEquals(List.of(7L), service.execute("orders", "k1", IDS, () -> List.of(7L + runs.getAndIncrement())));
+		assertEquals(List.of(7L), service.execute("orders", "k1", IDS, () -> List.of(7L + runs.getAndIncrement())));
+		// Khoá có phạm vi: cùng giá trị ở scope khác là request khác
+		assertEquals(List.of(8L), service.execute("imports", "k1", IDS, () -> List.of(7L + runs.getAndIncrement())));
+
+		assertEquals(2, runs.get());
+		verify(jdbcTemplate).update("UPDATE idempotency_keys SET response_body = ? WHERE idem_key = ?", "[7]", "orders:k1");
+	}
+
+	@Test
+	void keyClaimedByAnotherNodeReturnsItsCommittedResponse() {
+		when(jdbcTemplate.update(startsWith("INSERT INTO idempotency_keys"), any(Object[].class))).thenReturn(0);
+		when(jdbcTemplate.queryForObject(anyString(), eq(String.class), eq("orders:k2"))).thenReturn("[42]");
+
+		assertEquals(List.of(42L), service.execute("orders", "k2", IDS, () -> {
+			throw new AssertionError("không được tạo đơn lần hai");
+		}));
+	}
+
+	@Test
+	void concurrentRequestWithSameKeyWaitsForTheFirst() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		FutureTask<List<Long>> first = new FutureTask<>(() -> service.execute("orders", "k3", IDS, () -> {
+			runs.incrementAndGet();
+			started.countDown();
+			await(release);
+			return List.of(1L);
+		}));
+		FutureTask<List<Long>> second = new FutureTask<>(() -> service.execute("orders", "k3", IDS, () -> {
+			runs.incrementAndGet();
+			return List.of(2L);
+		}));
+		Thread secondThread = new Thread(second);
+		try {
+			new Thread(first).start();
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			secondThread.start();
+			// Chỉ thả request đầu khi request sau đã đứng chờ nó
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (secondThread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+				Thread.onSpinWait();
+			}
+
+			release.countDown();
+			assertEquals(List.of(1L), first.get(5, TimeUnit.SECONDS));
+			assertEquals(List.of(1L), second.get(5, TimeUnit.SECONDS));
+			assertEquals(1, runs.get());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void failedRequestIsNotRememberedAndLongKeysAreRejected() {
+		assertThrows(IllegalStateException.class, () -> service.execute("orders", "k4", IDS, () -> {
+			throw new IllegalStateException("hết hàng");
+		}));
+		assertEquals(List.of(5L), service.execute("orders", "k4", IDS, () -> List.of(5L)));
+		verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO idempotency_keys"), any(Object[].class));
+
+		assertThrows(IllegalArgumentException.class, () -> service.execute("orders", "x".repeat(256), IDS, List::of));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
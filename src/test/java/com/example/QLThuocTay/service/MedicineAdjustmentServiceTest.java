@@ -0,0 +1,178 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.QLThuocTay.dto.AdjustedMedicineDTO;
+import com.example.QLThuocTay.dto.BulkAdjustItemDTO;
+import com.example.QLThuocTay.dto.BulkAdjustRequest;
+import com.example.QLThuocTay.dto.BulkAdjustRuleDTO;
+
+// Điều chỉnh hàng loạt: gộp id trùng, báo id không có, tồn kho âm thì huỷ cả yêu cầu (DB thay bằng bảng giả)
+class MedicineAdjustmentServiceTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private NamedParameterJdbcTemplate namedJdbcTemplate;
+	private CatalogSnapshotService catalogSnapshotService;
+	private MedicineAdjustmentService service;
+	// Bảng medicines giả: id -> tồn kho, giá
+	private final Map<Long, Integer> stock = new TreeMap<>();
+	private final Map<Long, BigDecimal> prices = new TreeMap<>();
+	// Mảng unnest(?, ?, ?) của lần UPDATE theo danh sách gần nhất
+	private Object[][] unnested;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		catalogSnapshotService = mock(CatalogSnapshotService.class);
+		service = new MedicineAdjustmentService(jdbcTemplate, namedJdbcTemplate, catalogSnapshotService);
+		stock.put(3L, 10);
+		stock.put(5L, 2);
+		prices.put(3L, new BigDecimal("5000"));
+		prices.put(5L, new BigDecimal("10000"));
+
+		// UPDATE ... FROM unnest: áp từng dòng nguồn lên bảng giả, RETURNING chỉ các id có thật
+		when(jdbcTemplate.query(contains("FROM unnest"), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+			Object[] args = (Object[]) invocation.getRawArguments()[2];
+			unnested = new Object[args.length][];
+			for (int i = 0; i < args.length; i++) {
+				unnested[i] = (Object[]) ReflectionTestUtils.getField(args[i], "elements");
+			}
+			List<AdjustedMedicineDTO> returned = new ArrayList<>();
+			for (int i = 0; i < unnested[0].length; i++) {
+				Long id = (Long) unnested[0][i];
+				if (!stock.containsKey(id)) continue;
+				if (unnested[1][i] != null) prices.put(id, (BigDecimal) unnested[1][i]);
+				if (unnested[2][i] != null) stock.merge(id, (Integer) unnested[2][i], Integer::sum);
+				returned.add(row(id));
+			}
+			return returned;
+		});
+	}
+
+	@Test
+	void duplicateIdsAreMergedIntoOneSourceRowPerMedicine() {
+		List<AdjustedMedicineDTO> adjusted = service.adjust(items(
+				new BulkAdjustItemDTO(5L, new BigDecimal("12000"), null),
+				new BulkAdjustItemDTO(3L, null, 4),
+				new BulkAdjustItemDTO(5L, null, -1),
+				new BulkAdjustItemDTO(5L, null, 3)));
+
+		// UPDATE ... FROM chỉ áp một dòng nguồn cho mỗi dòng đích: id trùng phải gộp trước, sắp theo id
+		assertArrayEquals(new Object[] {3L, 5L}, unnested[0]);
+		assertArrayEquals(new Object[] {null, new BigDecimal("12000")}, unnested[1]);
+		assertArrayEquals(new Object[] {4, 2}, unnested[2]);
+		assertEquals(2, adjusted.size());
+		assertEquals(4, stock.get(5L));
+		assertEquals(14, stock.get(3L));
+		verify(catalogSnapshotService, times(1)).markChanged();
+	}
+
+	@Test
+	void missingIdsAreReportedAndCatalogIsNotMarked() {
+		IllegalArgumentException missing = assertThrows(IllegalArgumentException.class, () -> service.adjust(items(
+				new BulkAdjustItemDTO(5L, null, 1),
+				new BulkAdjustItemDTO(77L, null, 1),
+				new BulkAdjustItemDTO(78L, new BigDecimal("1000"), null))));
+
+		assertTrue(missing.getMessage().endsWith("[77, 78]"), missing.getMessage());
+		verify(catalogSnapshotService, never()).markChanged();
+	}
+
+	@Test
+	void negativeStockFailsTheWholeRequest() {
+		// Ném ra khỏi adjust() (@Transactional) -> rollback cả các dòng đã UPDATE trong cùng yêu cầu
+		InsufficientStockException insufficient = assertThrows(InsufficientStockException.class, () -> service.adjust(items(
+				new BulkAdjustItemDTO(3L, null, -1),
+				new BulkAdjustItemDTO(5L, null, -3))));
+
+		assertEquals(5L, insufficient.getMedicineId());
+		verify(catalogSnapshotService, never()).markChanged();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void ruleAndItemsInOneRequestMarkCatalogOnce() {
+		when(namedJdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+				.thenReturn(List.of(row(3L), row(5L)));
+		BulkAdjustRuleDTO rule = new BulkAdjustRuleDTO();
+		rule.setCategoryId(2L);
+		rule.setPricePercent(new BigDecimal("-10"));
+		BulkAdjustRequest request = items(new BulkAdjustItemDTO(5L, null, 1));
+		request.setRule(rule);
+
+		List<AdjustedMedicineDTO> adjusted = service.adjust(request);
+
+		assertEquals(2, adjusted.size());
+		assertEquals(3, adjusted.get(1).getStockQuantity());
+		verify(namedJdbcTemplate).query(contains("WHERE m.category_id = :categoryId RETURNING"),
+				argThat((SqlParameterSource params) -> new BigDecimal("-10").equals(params.getValue("pricePercent"))),
+				any(RowMapper.class));
+		verify(catalogSnapshotService, times(1)).markChanged();
+	}
+
+	@Test
+	void rejectsRulesWithoutFilterOrChangeAndPriceCutsOfAHundredPercent() {
+		BulkAdjustRuleDTO noFilter = new BulkAdjustRuleDTO();
+		noFilter.setStockDelta(5);
+		assertThrows(IllegalArgumentException.class, () -> service.adjust(rule(noFilter)));
+
+		BulkAdjustRuleDTO noChange = new BulkAdjustRuleDTO();
+		noChange.setSupplierId(1L);
+		assertThrows(IllegalArgumentException.class, () -> service.adjust(rule(noChange)));
+
+		for (String percent : new String[] {"-100", "-150"}) {
+			BulkAdjustRuleDTO free = new BulkAdjustRuleDTO();
+			free.setCategoryId(2L);
+			free.setPricePercent(new BigDecimal(percent));
+			assertThrows(IllegalArgumentException.class, () -> service.adjust(rule(free)));
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> service.adjust(new BulkAdjustRequest()));
+		verifyNoInteractions(namedJdbcTemplate, jdbcTemplate, catalogSnapshotService);
+	}
+
+	private AdjustedMedicineDTO row(Long id) {
+		return new AdjustedMedicineDTO(id, "Thuốc " + id, prices.get(id), stock.get(id));
+	}
+
+	private static BulkAdjustRequest items(BulkAdjustItemDTO... items) {
+		BulkAdjustRequest request = new BulkAdjustRequest();
+		request.setItems(List.of(items));
+		return request;
+	}
+
+	private static BulkAdjustRequest rule(BulkAdjustRuleDTO rule) {
+		BulkAdjustRequest request = new BulkAdjustRequest();
+		request.setRule(rule);
+		return request;
+	}
+}
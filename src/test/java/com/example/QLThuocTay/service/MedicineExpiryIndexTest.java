@@ -0,0 +1,133 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// So sánh chỉ mục hạn dùng với cách lọc + sắp xếp toàn bộ; đo truy vấn khoảng ở 1 triệu thuốc
+// là benchmark, chỉ chạy khi bật -Dbenchmark=true
+class MedicineExpiryIndexTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+	@Test
+	void rangePagesMatchFullScanAfterUpdatesAndRemoves() {
+		MedicineExpiryIndex index = new MedicineExpiryIndex(mock(JdbcTemplate.class));
+		Map<Long, LocalDate> expected = new HashMap<>();
+		Random random = new Random(7);
+		for (int op = 0; op < 50_000; op++) {
+			long id = 1 + random.nextInt(5_000);
+			int kind = random.nextInt(10);
+			if (kind < 7) {
+				LocalDate date = TODAY.plusDays(random.nextInt(400) - 30);
+				index.put(id, date);
+				expected.put(id, date);
+			} else if (kind < 9) {
+				index.remove(id);
+				expected.remove(id);
+			} else {
+				index.put(id, null);
+				expected.remove(id);
+			}
+		}
+		assertEquals(expected.size(), index.size());
+
+		for (int days : new int[] {0, 30, 60, 90, 365}) {
+			List<Long> scan = scan(expected, TODAY, TODAY.plusDays(days));
+			List<Long> paged = new ArrayList<>();
+			String after = null;
+			long total = -1;
+			do {
+				MedicineExpiryIndex.Slice slice = index.range(TODAY, TODAY.plusDays(days), after, 37);
+				for (MedicineExpiryIndex.Entry entry : slice.getEntries()) {
+					assertEquals(expected.get(entry.getMedicineId()), entry.getExpiryDate());
+					paged.add(entry.getMedicineId());
+				}
+				total = slice.getTotal();
+				assertEquals(slice.isHasMore(), slice.getNext() != null);
+				after = slice.getNext();
+			} while (after != null);
+			assertEquals(scan, paged, "days=" + days);
+			assertEquals(scan.size(), total);
+		}
+
+		// Kể cả thuốc đã quá hạn
+		MedicineExpiryIndex.Slice withExpired = index.range(null, TODAY, null, 100);
+		List<Long> scan = scan(expected, LocalDate.MIN, TODAY);
+		assertEquals(scan.size(), withExpired.getTotal());
+		assertEquals(scan.subList(0, 100), withExpired.getEntries().stream().map(MedicineExpiryIndex.Entry::getMedicineId).toList());
+	}
+
+	@Test
+	void movedMedicineLeavesItsOldDay() {
+		MedicineExpiryIndex index = new MedicineExpiryIndex(mock(JdbcTemplate.class));
+		index.put(1L, TODAY.plusDays(10));
+		index.put(2L, TODAY.plusDays(10));
+		index.put(1L, TODAY.plusDays(200));
+
+		MedicineExpiryIndex.Slice soon = index.range(TODAY, TODAY.plusDays(30), null, 10);
+		assertEquals(1, soon.getTotal());
+		assertEquals(2L, soon.getEntries().get(0).getMedicineId());
+		assertFalse(soon.isHasMore());
+		assertNull(soon.getNext());
+
+		index.remove(2L);
+		assertEquals(0, index.range(TODAY, TODAY.plusDays(30), null, 10).getTotal());
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	@Tag("benchmark")
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void rangeQueriesStayFastAtOneMillionMedicines() {
+		MedicineExpiryIndex index = new MedicineExpiryIndex(mock(JdbcTemplate.class));
+		Random random = new Random(11);
+		int n = 1_000_000;
+		for (long id = 1; id <= n; id++) {
+			// Hạn dùng rải trong khoảng 5 năm, một phần đã quá hạn
+			index.put(id, TODAY.plusDays(random.nextInt(1825) - 180));
+		}
+		assertEquals(n, index.size());
+
+		// Khởi động JIT trước khi đo
+		for (int i = 0; i < 2_000; i++) {
+			index.range(TODAY, TODAY.plusDays(30 + i % 60), null, 20);
+		}
+		long[] nanos = new long[1_000];
+		for (int i = 0; i < nanos.length; i++) {
+			LocalDate from = TODAY.plusDays(random.nextInt(1500));
+			long t0 = System.nanoTime();
+			MedicineExpiryIndex.Slice slice = index.range(from, from.plusDays(90), null, 50);
+			nanos[i] = System.nanoTime() - t0;
+			assertEquals(50, slice.getEntries().size());
+			assertTrue(slice.isHasMore());
+		}
+		Arrays.sort(nanos);
+		long medianMicros = nanos[nanos.length / 2] / 1_000;
+		// Quét toàn bộ 1 triệu phần tử mất vài ms; truy vấn theo chỉ mục phải nhỏ hơn nhiều bậc
+		assertTrue(medianMicros < 1_000, "range quá chậm: " + medianMicros + " µs");
+	}
+
+	private static List<Long> scan(Map<Long, LocalDate> expected, LocalDate from, LocalDate to) {
+		return expected.entrySet().stream()
+				.filter(e -> !e.getValue().isBefore(from) && !e.getValue().isAfter(to))
+				.sorted(Map.Entry.<Long, LocalDate>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+				.map(Map.Entry::getKey)
+				.toList();
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Ảnh thu nhỏ: giữ tỉ lệ, không phóng to, không nặng hơn ảnh gốc, mọi định dạng ImageIO ghi được, chặn tên file lạ
+class MedicineImageServiceTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void generatesEachSizeKeepingAspectRatio() throws IOException {
+		BufferedImage photo = new BufferedImage(2000, 1500, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = photo.createGraphics();
+		for (int x = 0; x < 2000; x += 50) {
+			graphics.setColor(new Color(x % 256, (x * 7) % 256, (x * 13) % 256));
+			graphics.fillRect(x, 0, 50, 1500);
+		}
+		graphics.dispose();
+		ImageIO.write(photo, "jpg", dir.resolve("1_photo.jpg").toFile());
+		ImageIO.write(new BufferedImage(100, 60, BufferedImage.TYPE_INT_ARGB), "png", dir.resolve("2_small.png").toFile());
+
+		MedicineImageService service = new MedicineImageService(dir.toString(), 1, 10);
+		service.generate("1_photo.jpg");
+		service.generate("2_small.png");
+
+		assertSize(800, 600, service.derivative("1_photo.jpg", MedicineImageService.Size.DETAIL));
+		assertSize(320, 240, service.derivative("1_photo.jpg", MedicineImageService.Size.CARD));
+		assertSize(128, 96, service.derivative("1_photo.jpg", MedicineImageService.Size.THUMB));
+		assertTrue(Files.size(dir.resolve("card/1_photo.jpg")) < Files.size(dir.resolve("1_photo.jpg")));
+		// Ảnh nhỏ hơn kích thước card: không phóng to
+		assertSize(100, 60, service.derivative("2_small.png", MedicineImageService.Size.CARD));
+		assertSize(100, 60, service.derivative("2_small.png", MedicineImageService.Size.DETAIL));
+
+		assertNull(service.derivative("../1_photo.jpg", MedicineImageService.Size.CARD));
+		assertNull(service.original("card/1_photo.jpg"));
+		assertNotNull(service.original("1_photo.jpg"));
+
+		service.deleteDerivatives("1_photo.jpg");
+		assertTrue(Files.notExists(dir.resolve("thumb/1_photo.jpg")));
+		service.stop();
+	}
+
+	@Test
+	void generatesGifDerivativesAndCopiesAnimatedOnes() throws IOException {
+		BufferedImage frame = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = frame.createGraphics();
+		for (int x = 0; x < 1000; x += 40) {
+			graphics.setColor(new Color((x * 3) % 256, (x * 5) % 256, (x * 11) % 256));
+			graphics.fillRect(x, 0, 40, 500);
+		}
+		graphics.dispose();
+		ImageIO.write(frame, "gif", dir.resolve("3_still.gif").toFile());
+		writeAnimatedGif(dir.resolve("4_animated.gif"), frame, new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB));
+		Files.write(dir.resolve("5_photo.webp"), "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII));
+
+		MedicineImageService service = new MedicineImageService(dir.toString(), 1, 10);
+		service.generate("3_still.gif");
+		service.generate("4_animated.gif");
+
+		assertTrue(service.supportsDerivatives("3_still.gif"));
+		assertSize(320, 160, service.derivative("3_still.gif", MedicineImageService.Size.CARD));
+		assertSize(128, 64, service.derivative("3_still.gif", MedicineImageService.Size.THUMB));
+		// Ảnh động: thu nhỏ khung đầu sẽ mất chuyển động, dùng đúng bản gốc
+		assertArrayEquals(Files.readAllBytes(dir.resolve("4_animated.gif")),
+				Files.readAllBytes(service.derivative("4_animated.gif", MedicineImageService.Size.THUMB)));
+		// JDK không ghi được webp: không có bản thu nhỏ, không xếp hàng tạo
+		assertEquals(ImageIO.getImageWritersBySuffix("webp").hasNext(), service.supportsDerivatives("5_photo.webp"));
+		if (!service.supportsDerivatives("5_photo.webp")) {
+			assertNull(service.derivative("5_photo.webp", MedicineImageService.Size.CARD));
+			assertTrue(Files.notExists(dir.resolve("card/5_photo.webp")));
+		}
+		assertFalse(service.supportsDerivatives("../3_still.gif"));
+		service.stop();
+	}
+
+	private static void writeAnimatedGif(Path file, BufferedImage... frames) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			for (BufferedImage frame : frames) {
+				writer.writeToSequence(new IIOImage(frame, null, null), null);
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static void assertSize(int width, int height, Path file) throws IOException {
+		assertNotNull(file);
+		BufferedImage image = ImageIO.read(file.toFile());
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+	}
+}
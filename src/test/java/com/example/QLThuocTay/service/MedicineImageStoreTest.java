@@ -0,0 +1,123 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+
+// Cùng nội dung chỉ lưu một lần; chỉ xoá ảnh không còn thuốc nào tham chiếu và đã qua thời gian ân hạn
+class MedicineImageStoreTest {
+
+	@TempDir
+	Path dir;
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+	@Test
+	void sameContentIsStoredOnceAndReleasedOnlyWhenUnreferenced() throws IOException {
+		MedicineImageStore store = newStore();
+		String first = store.store(jpeg("ảnh DSC_00329"));
+		String second = store.store(jpeg("ảnh DSC_00329"));
+		assertEquals(first, second);
+		assertTrue(first.matches("[0-9a-f]{64}\\.jpg"));
+		assertEquals(1, countImages());
+
+		age(first);
+		when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(), any())).thenReturn(true);
+		store.release(first);
+		assertTrue(Files.exists(dir.resolve(first)), "còn thuốc dùng thì giữ");
+
+		when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(), any())).thenReturn(false);
+		store.release(first);
+		assertEquals(0, countImages());
+	}
+
+	@Test
+	void typeComesFromMagicBytesAndSizeIsCapped() throws IOException {
+		MedicineImageStore store = newStore();
+		byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13};
+		assertTrue(store.store(new ByteArrayInputStream(png)).endsWith(".png"));
+		assertThrows(IllegalArgumentException.class,
+				() -> store.store(new ByteArrayInputStream("<html><script>".getBytes(StandardCharsets.UTF_8))));
+		assertThrows(IllegalArgumentException.class, () -> store.store(new ByteArrayInputStream(new byte[0])));
+
+		// Nguồn vô hạn: phải dừng ngay khi vượt 1 MB, không đọc hết
+		InputStream endless = new InputStream() {
+			private final byte[] header = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+			private long position;
+
+			@Override
+			public int read() {
+				return position < header.length ? header[(int) position++] & 0xFF : 0;
+			}
+		};
+		assertThrows(ImageTooLargeException.class, () -> store.store(endless));
+		assertEquals(1, countImages(), "không để lại file tạm");
+	}
+
+	@Test
+	void sweepRemovesOldOrphansOnly() throws IOException {
+		MedicineImageStore store = newStore();
+		for (String name : List.of("1748055333622_DSC_00329_b2ad54d6a0.jpg", "1748073491148_1748055333622_DSC_00329_b2ad54d6a0.jpg",
+				"Cetirizine_10mg.jpg", "parecetamol_500mg.jpg")) {
+			Files.writeString(dir.resolve(name), name);
+			age(name);
+		}
+		Files.writeString(dir.resolve("fresh.png"), "vừa upload, thuốc chưa lưu");
+		Files.createDirectories(dir.resolve("card"));
+		Files.writeString(dir.resolve("card/deleted.jpg"), "bản thu nhỏ của ảnh đã xoá");
+		age("card/deleted.jpg");
+		when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(
+				"1748055333622_DSC_00329_b2ad54d6a0.jpg", "file:///C:/QLThuocTay/web/images/medicines/Cetirizine_10mg.jpg"));
+
+		assertEquals(3, store.sweep());
+		assertTrue(Files.exists(dir.resolve("1748055333622_DSC_00329_b2ad54d6a0.jpg")));
+		assertTrue(Files.exists(dir.resolve("Cetirizine_10mg.jpg")));
+		assertTrue(Files.exists(dir.resolve("fresh.png")));
+		assertEquals(3, countImages());
+		assertTrue(Files.notExists(dir.resolve("card/deleted.jpg")));
+	}
+
+	private MedicineImageStore newStore() {
+		MedicineImageService imageService = new MedicineImageService(dir.toString(), 1, 10);
+		return new MedicineImageStore(jdbcTemplate, imageService, dir.toString(), 60, DataSize.ofMegabytes(1));
+	}
+
+	private void age(String name) throws IOException {
+		Files.setLastModifiedTime(dir.resolve(name), FileTime.fromMillis(System.currentTimeMillis() - 2 * 3_600_000L));
+	}
+
+	private long countImages() throws IOException {
+		try (var files = Files.list(dir)) {
+			return files.filter(Files::isRegularFile).count();
+		}
+	}
+
+	private static ByteArrayInputStream jpeg(String text) {
+		byte[] body = text.getBytes(StandardCharsets.UTF_8);
+		byte[] data = new byte[body.length + 3];
+		data[0] = (byte) 0xFF;
+		data[1] = (byte) 0xD8;
+		data[2] = (byte) 0xFF;
+		System.arraycopy(body, 0, data, 3, body.length);
+		return new ByteArrayInputStream(data);
+	}
+}
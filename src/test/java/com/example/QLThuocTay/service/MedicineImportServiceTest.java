@@ -0,0 +1,41 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+// Giá trong CSV nhập thuốc: dấu phân cách nghìn/thập phân kiểu Việt và kiểu Anh, từ chối khi không rõ
+class MedicineImportServiceTest {
+
+	@Test
+	void parsesGroupingAndDecimalSeparatorsOfBothStyles() {
+		assertPrice("12000", "12000");
+		assertPrice("12.5", "12.5");
+		assertPrice("12,5", "12.5");
+		assertPrice("12,50", "12.50");
+		assertPrice("1.000.000", "1000000");
+		assertPrice("1,000,000", "1000000");
+		assertPrice("12.000,00", "12000.00");
+		assertPrice("12,000.00", "12000.00");
+		assertPrice("1.234.567,8", "1234567.8");
+		assertPrice("12 000", "12000");
+	}
+
+	@Test
+	void rejectsAmbiguousOrMalformedSeparators() {
+		// Trước đây "12.000" được nhập thành 12
+		assertThrows(IllegalArgumentException.class, () -> MedicineImportService.parsePrice("12.000"));
+		assertThrows(IllegalArgumentException.class, () -> MedicineImportService.parsePrice("1,500"));
+		assertThrows(IllegalArgumentException.class, () -> MedicineImportService.parsePrice("1.00.000"));
+		assertThrows(IllegalArgumentException.class, () -> MedicineImportService.parsePrice("12.000.5,0"));
+		assertThrows(IllegalArgumentException.class, () -> MedicineImportService.parsePrice(".000.000"));
+		assertThrows(IllegalArgumentException.class, () -> MedicineImportService.parsePrice("12đ"));
+	}
+
+	private static void assertPrice(String cell, String expected) {
+		assertEquals(new BigDecimal(expected), MedicineImportService.parsePrice(cell), cell);
+	}
+}
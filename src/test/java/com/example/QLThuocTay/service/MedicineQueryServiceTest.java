@@ -0,0 +1,152 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.QLThuocTay.dto.FacetCountDTO;
+import com.example.QLThuocTay.dto.MedicineDTO;
+import com.example.QLThuocTay.dto.MedicineFilterDTO;
+import com.example.QLThuocTay.dto.MedicinePageDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+// Phân trang keyset: con trỏ mã hoá/giải mã và điều kiện "đứng sau" khi khoá sắp xếp là NULL (DB thay bằng mock)
+class MedicineQueryServiceTest {
+
+	private EntityManager entityManager;
+	private TypedQuery<MedicineDTO> rows;
+	private MedicineQueryService service;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		entityManager = mock(EntityManager.class);
+		rows = mock(TypedQuery.class, RETURNS_SELF);
+		TypedQuery<FacetCountDTO> facets = mock(TypedQuery.class, RETURNS_SELF);
+		when(facets.getResultList()).thenReturn(List.of());
+		when(entityManager.createQuery(anyString(), eq(MedicineDTO.class))).thenReturn(rows);
+		when(entityManager.createQuery(anyString(), eq(FacetCountDTO.class))).thenReturn(facets);
+		service = new MedicineQueryService(mock(CatalogSnapshotService.class), 10);
+		ReflectionTestUtils.setField(service, "entityManager", entityManager);
+	}
+
+	@Test
+	void nullPriceAtPageEndContinuesInsideTheNullTailAscending() {
+		when(rows.getResultList()).thenReturn(List.of(medicine(9L, "A", null), medicine(12L, "B", null)));
+		MedicinePageDTO first = service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.PRICE_ASC, cursor("price_asc|3|5000"), 1);
+		assertTrue(first.isHasMore());
+		assertEquals(1, first.getItems().size());
+		assertEquals("price_asc|9", decode(first.getNext()));
+
+		when(rows.getResultList()).thenReturn(List.of(medicine(9L, "C", null)));
+		service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.PRICE_ASC, first.getNext(), 1);
+
+		// NULLS LAST khi tăng dần: sau một dòng NULL chỉ còn dòng NULL có id lớn hơn
+		String jpql = lastJpql();
+		assertTrue(jpql.contains("(m.price IS NULL AND m.medicineId > :afterId)"), jpql);
+		assertTrue(jpql.endsWith("ORDER BY m.price ASC NULLS LAST, m.medicineId ASC"), jpql);
+		verify(rows).setParameter("afterId", 9L);
+	}
+
+	@Test
+	void nullPriceCursorDescendingMovesOnToNonNullRows() {
+		when(rows.getResultList()).thenReturn(List.of());
+		service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.PRICE_DESC, cursor("price_desc|9"), 10);
+
+		// NULLS FIRST khi giảm dần: sau dòng NULL là phần NULL còn lại (id nhỏ hơn) rồi mọi dòng có giá
+		String jpql = lastJpql();
+		assertTrue(jpql.contains("((m.price IS NULL AND m.medicineId < :afterId) OR m.price IS NOT NULL)"), jpql);
+		verify(rows, never()).setParameter(eq("afterValue"), any());
+	}
+
+	@Test
+	void nonNullCursorAscendingStillReachesTheNullTail() {
+		when(rows.getResultList()).thenReturn(List.of());
+		service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.PRICE_ASC, cursor("price_asc|3|12000.50"), 10);
+
+		String jpql = lastJpql();
+		assertTrue(jpql.contains("OR m.price IS NULL)"), jpql);
+		verify(rows).setParameter("afterValue", new BigDecimal("12000.50"));
+	}
+
+	@Test
+	void encodesNullKeyAsTwoPartsAndKeepsSeparatorsInNames() {
+		when(rows.getResultList()).thenReturn(List.of(medicine(4L, null, "1"), medicine(5L, "x", "1")));
+		MedicinePageDTO page = service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.NAME, null, 1);
+		assertEquals("name|4", decode(page.getNext()));
+
+		when(rows.getResultList()).thenReturn(List.of(medicine(4L, "Siro | ho", "1"), medicine(5L, "x", "1")));
+		page = service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.NAME, null, 1);
+		assertEquals("name|4|Siro | ho", decode(page.getNext()));
+
+		service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.NAME, page.getNext(), 1);
+		verify(rows).setParameter("afterValue", "Siro | ho");
+	}
+
+	@Test
+	void newestIgnoresKeyAndLastPageHasNoCursor() {
+		when(rows.getResultList()).thenReturn(List.of(medicine(2L, "A", null)));
+		MedicinePageDTO page = service.query(new MedicineFilterDTO(), MedicineQueryService.Sort.NEWEST, cursor("newest|8|bỏ qua"), 10);
+
+		assertFalse(page.isHasMore());
+		assertNull(page.getNext());
+		String jpql = lastJpql();
+		assertTrue(jpql.contains("m.medicineId < :afterId"), jpql);
+		assertTrue(jpql.endsWith("ORDER BY m.medicineId DESC"), jpql);
+	}
+
+	@Test
+	void rejectsCursorOfAnotherSortOrMalformed() {
+		MedicineFilterDTO filter = new MedicineFilterDTO();
+		assertThrows(IllegalArgumentException.class,
+				() -> service.query(filter, MedicineQueryService.Sort.PRICE_ASC, cursor("name|4|A"), 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.query(filter, MedicineQueryService.Sort.PRICE_ASC, cursor("price_asc|4|mười"), 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.query(filter, MedicineQueryService.Sort.PRICE_ASC, cursor("price_asc"), 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.query(filter, MedicineQueryService.Sort.PRICE_ASC, "%%%", 10));
+	}
+
+	private String lastJpql() {
+		ArgumentCaptor<String> jpql = ArgumentCaptor.forClass(String.class);
+		verify(entityManager, atLeastOnce()).createQuery(jpql.capture(), eq(MedicineDTO.class));
+		return jpql.getValue();
+	}
+
+	private static MedicineDTO medicine(Long id, String name, String price) {
+		return new MedicineDTO(id, name, null, null, price == null ? null : new BigDecimal(price),
+				1, null, null, null, null, null, null, null, null);
+	}
+
+	private static String cursor(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String decode(String cursor) {
+		return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,196 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.dto.MedicineDTO;
+import com.example.QLThuocTay.dto.MedicineSearchPageDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Tìm kiếm không dấu, xếp hạng theo trường, cập nhật từng thuốc; thời gian truy vấn ở 100k thuốc
+// là benchmark, chỉ chạy khi bật -Dbenchmark=true
+class MedicineSearchIndexTest {
+
+	@Test
+	void matchesWithoutDiacriticsAndRanksNameAboveDescription() {
+		MedicineSearchIndex index = indexOf(List.of(
+				medicine(1L, "Siro ho Prospan", "Thuốc ho", "Chiết xuất lá thường xuân", "Giảm đau họng"),
+				medicine(2L, "Vitamin C", "Vitamin", "Acid ascorbic", "Hỗ trợ giảm ho khi cảm lạnh"),
+				medicine(3L, "Panadol Extra", "Giảm đau", "Paracetamol, caffeine", "Hạ sốt, đau đầu")));
+
+		MedicineSearchPageDTO ho = index.search("ho", null, 0, 10);
+		assertEquals(2, ho.getTotal());
+		assertEquals(1L, ho.getItems().get(0).getId());
+		assertEquals(2L, ho.getItems().get(1).getId());
+
+		assertEquals(List.of(3L), ids(index.search("GIAM DAU para", null, 0, 10)));
+		assertEquals(List.of(1L), ids(index.search("thuong xuan", null, 0, 10)));
+		assertEquals(List.of(3L), ids(index.search("", "giảm đau", 0, 10)));
+		assertEquals(0, index.search("insulin", null, 0, 10).getTotal());
+	}
+
+	@Test
+	void updatesAndRemovalsAreVisibleImmediately() {
+		MedicineSearchIndex index = indexOf(List.of(
+				medicine(1L, "Berberin", "Tiêu hoá", "Berberin clorid", "Trị tiêu chảy"),
+				medicine(2L, "Smecta", "Tiêu hoá", "Diosmectit", "Trị tiêu chảy cấp")));
+
+		index.index(medicine(1L, "Berocca", "Vitamin", "Vitamin nhóm B", "Bổ sung năng lượng"));
+		assertEquals(List.of(2L), ids(index.search("tieu chay", null, 0, 10)));
+		assertEquals(List.of(1L), ids(index.search("berocca", null, 0, 10)));
+		assertEquals(0, index.search("berberin", null, 0, 10).getTotal());
+
+		index.remove(2L);
+		assertEquals(0, index.search("smecta", null, 0, 10).getTotal());
+		assertEquals(1, index.size());
+		assertEquals(List.of(1L), ids(index.search(null, null, 0, 10)));
+	}
+
+	@Test
+	void refreshDuringRebuildIsNotOverwrittenByTheOlderRead() throws InterruptedException {
+		List<MedicineDTO> db = new CopyOnWriteArrayList<>(List.of(
+				medicine(1L, "Berberin", "Tiêu hoá", "Berberin clorid", "Trị tiêu chảy")));
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MedicineRepository repository = mock(MedicineRepository.class);
+		// rebuild đọc bản cũ rồi dừng lại trước khi thay chỉ mục
+		when(repository.findAllMedicineDTOIncludingUnassigned()).thenAnswer(invocation -> {
+			List<MedicineDTO> read = List.copyOf(db);
+			reading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return read;
+		});
+		when(repository.findMedicineDTOByIds(anyCollection())).thenAnswer(invocation -> {
+			Collection<?> ids = invocation.getArgument(0);
+			return db.stream().filter(m -> ids.contains(m.getId())).toList();
+		});
+		MedicineSearchIndex index = new MedicineSearchIndex(repository,
+				new CatalogSnapshotService(repository, new ObjectMapper(), 0));
+
+		Thread rebuild = new Thread(index::rebuild);
+		rebuild.start();
+		assertTrue(reading.await(5, TimeUnit.SECONDS));
+		db.set(0, medicine(1L, "Berocca", "Vitamin", "Vitamin nhóm B", "Bổ sung năng lượng"));
+		Thread refresh = new Thread(() -> index.refresh(1L));
+		refresh.start();
+		// refresh phải chờ rebuild xong rồi mới đọc lại DB; không chờ thì nó chạy xong trước
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (refresh.isAlive() && refresh.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		release.countDown();
+		rebuild.join(5_000);
+		refresh.join(5_000);
+
+		assertEquals(List.of(1L), ids(index.search("berocca", null, 0, 10)));
+		assertEquals(0, index.search("berberin", null, 0, 10).getTotal());
+	}
+
+	@Test
+	@Tag("benchmark")
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void queriesStayFastAtOneHundredThousandMedicines() {
+		String[] words = { "thuốc", "viên", "nén", "siro", "giảm", "đau", "hạ", "sốt", "kháng", "sinh",
+				"vitamin", "bổ", "gan", "thận", "dạ", "dày", "ho", "cảm", "cúm", "dị", "ứng", "tiêu", "hoá", "xương" };
+		String[] categories = { "Giảm đau", "Kháng sinh", "Vitamin", "Tiêu hoá", "Hô hấp", "Da liễu" };
+		Random random = new Random(7);
+		List<MedicineDTO> medicines = new ArrayList<>(100_000);
+		for (long id = 1; id <= 100_000; id++) {
+			medicines.add(medicine(id, words(words, random, 2) + " " + id, categories[random.nextInt(categories.length)],
+					words(words, random, 3), words(words, random, 12)));
+		}
+		MedicineSearchIndex index = indexOf(medicines);
+		assertEquals(100_000, index.size());
+
+		String[] queries = { "giam dau", "thuoc ho", "vitamin bo gan", "siro", "khang sinh vien", "tieu ho", "da" };
+		for (int i = 0; i < 200; i++) {
+			index.search(queries[i % queries.length], null, 0, 20);
+		}
+		long[] times = new long[queries.length * 20];
+		for (int i = 0; i < times.length; i++) {
+			long start = System.nanoTime();
+			MedicineSearchPageDTO page = index.search(queries[i % queries.length], null, 0, 20);
+			times[i] = System.nanoTime() - start;
+			assertTrue(page.getItems().size() <= 20);
+		}
+		Arrays.sort(times);
+		long medianMillis = times[times.length / 2] / 1_000_000;
+		// Ngưỡng rộng để không chập chờn trên máy CI chậm; thực tế vài ms
+		assertTrue(medianMillis < 50, "median " + medianMillis + " ms");
+	}
+
+	@Test
+	void returnsCurrentStockAndPriceInsteadOfIndexedCopy() {
+		MedicineRepository repository = mock(MedicineRepository.class);
+		when(repository.findAllMedicineDTOIncludingUnassigned()).thenReturn(List.of(
+				medicine(1L, "Panadol Extra", "Giảm đau", "Paracetamol", "Hạ sốt")));
+		MedicineSearchIndex index = new MedicineSearchIndex(repository,
+				new CatalogSnapshotService(repository, new ObjectMapper(), 0));
+		index.rebuild();
+		// Đơn hàng trừ kho bằng JDBC, chỉ mục không được cập nhật
+		MedicineDTO sold = medicine(1L, "Panadol Extra", "Giảm đau", "Paracetamol", "Hạ sốt");
+		sold.setStockQuantity(3);
+		when(repository.findMedicineDTOByIds(anyCollection())).thenReturn(List.of(sold));
+
+		assertEquals(3, index.search("panadol", null, 0, 10).getItems().get(0).getStockQuantity());
+		assertEquals(3, index.search("", null, 0, 10).getItems().get(0).getStockQuantity());
+
+		// Đã xoá khỏi DB nhưng chỉ mục chưa bỏ: không trả về
+		when(repository.findMedicineDTOByIds(anyCollection())).thenReturn(List.of());
+		assertTrue(index.search("panadol", null, 0, 10).getItems().isEmpty());
+	}
+
+	private static MedicineSearchIndex indexOf(List<MedicineDTO> medicines) {
+		MedicineRepository repository = mock(MedicineRepository.class);
+		when(repository.findAllMedicineDTOIncludingUnassigned()).thenReturn(medicines);
+		// Tra lại theo id như DB: trả đúng các thuốc đã nạp
+		when(repository.findMedicineDTOByIds(anyCollection())).thenAnswer(invocation -> {
+			Collection<?> ids = invocation.getArgument(0);
+			return medicines.stream().filter(m -> ids.contains(m.getId())).toList();
+		});
+		MedicineSearchIndex index = new MedicineSearchIndex(repository,
+				new CatalogSnapshotService(repository, new ObjectMapper(), 0));
+		index.rebuild();
+		return index;
+	}
+
+	private static MedicineDTO medicine(long id, String name, String category, String ingredient, String description) {
+		return new MedicineDTO(id, name, category, "500mg", BigDecimal.TEN, 10, null, null, null, null,
+				description, ingredient, null, null);
+	}
+
+	private static String words(String[] words, Random random, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) text.append(' ');
+			text.append(words[random.nextInt(words.length)]);
+		}
+		return text.toString();
+	}
+
+	private static List<Long> ids(MedicineSearchPageDTO page) {
+		List<Long> ids = new ArrayList<>();
+		for (MedicineDTO medicine : page.getItems()) {
+			ids.add(medicine.getId());
+		}
+		return ids;
+	}
+}
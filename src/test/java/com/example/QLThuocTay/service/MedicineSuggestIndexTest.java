@@ -0,0 +1,209 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.example.QLThuocTay.dto.MedicineSuggestionDTO;
+
+// Gợi ý theo tiền tố không dấu, xếp theo độ phổ biến; đo truy vấn ở 100k tên là benchmark (-Dbenchmark=true)
+class MedicineSuggestIndexTest {
+
+	@Test
+	void suggestsByFoldedPrefixOfAnyWordRankedByPopularity() {
+		MedicineSuggestIndex index = newIndex();
+		index.load(
+				new long[] {1, 2, 3, 4},
+				new String[] {"Panadol Extra", "Paracetamol Stada", "Siro ho Prospan", "Efferalgan"},
+				new String[] {"Paracetamol, Cafein", "Paracetamol", "Lá thường xuân", "Paracetamol 500mg"},
+				new long[] {50, 10, 5, 80});
+
+		// "para" khớp tên thuốc 2 và hoạt chất của 1, 4; bán chạy trước, mỗi thuốc một lần
+		assertEquals(List.of(4L, 1L, 2L), ids(index.suggest("PARA", 10)));
+		assertEquals(List.of(1L), ids(index.suggest("panadol ex", 10)));
+		assertEquals(List.of(1L), ids(index.suggest("extra", 10)));
+		assertEquals(List.of(3L), ids(index.suggest("thuong xu", 10)));
+		assertEquals(List.of(3L), ids(index.suggest("prosp", 10)));
+		assertEquals(List.of(4L, 1L), ids(index.suggest("", 2)));
+		assertEquals(List.of(), ids(index.suggest("insulin", 10)));
+	}
+
+	@Test
+	void rerankReordersSuggestionsWithoutRebuildingSuffixes() {
+		MedicineSuggestIndex index = newIndex();
+		index.load(
+				new long[] {1, 2, 3},
+				new String[] {"Panadol Extra", "Paracetamol Stada", "Siro ho Prospan"},
+				new String[] {"Paracetamol, Cafein", "Paracetamol", "Lá thường xuân"},
+				new long[] {50, 10, 5});
+		long memory = index.memoryBytes();
+
+		index.rerank(Map.of(1L, 20L, 2L, 70L, 3L, 1L));
+
+		assertEquals(List.of(2L, 1L), ids(index.suggest("para", 10)));
+		assertEquals(List.of(2L, 1L, 3L), ids(index.suggest("", 10)));
+		assertEquals(List.of(3L), ids(index.suggest("thuong", 10)));
+		assertEquals(memory, index.memoryBytes());
+	}
+
+	@Test
+	void stockOnlyChangesDoNotRebuild() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		CatalogSnapshotService catalog = mock(CatalogSnapshotService.class);
+		when(catalog.contentVersion()).thenReturn(7L);
+		when(catalog.version()).thenReturn(7L, 8L, 9L);
+		MedicineSuggestIndex index = new MedicineSuggestIndex(jdbcTemplate, catalog, 600_000);
+		index.rebuild();
+
+		index.refreshIfChanged();
+		index.refreshIfChanged();
+
+		verify(jdbcTemplate, times(1)).query(startsWith("SELECT medicine_id, medicine_name"), any(RowCallbackHandler.class));
+		verify(jdbcTemplate, times(1)).query(startsWith("SELECT medicine_id, SUM(units) FROM sales_daily"), any(RowCallbackHandler.class));
+		verify(jdbcTemplate, never()).query(contains("orderdetail"), any(RowCallbackHandler.class));
+
+		when(catalog.contentVersion()).thenReturn(8L);
+		index.refreshIfChanged();
+		verify(jdbcTemplate, times(2)).query(startsWith("SELECT medicine_id, medicine_name"), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	void topSuggestionsAreTheMostPopularMatchesForScannedAndHeavyPrefixes() {
+		// 1k thuốc: "vit" khớp ít mục, đi nhánh quét; 20k thuốc: vượt SCAN_LIMIT, lấy top dựng sẵn
+		for (int n : new int[] {1_000, 20_000}) {
+			Catalog catalog = Catalog.random(n);
+			MedicineSuggestIndex index = newIndex();
+			index.load(catalog.ids, catalog.names, catalog.ingredients, catalog.popularity);
+
+			assertEquals(catalog.topPopularity("vitamin", 10), catalog.popularityOf(index.suggest("vit", 10)));
+
+			Map<Long, Long> sold = catalog.sold();
+			sold.put((long) n, 10_000L);
+			index.rerank(sold);
+			assertEquals(n, index.suggest("", 1).get(0).getId());
+		}
+	}
+
+	@Test
+	@Tag("benchmark")
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void buildRerankAndQueryLatencyAtOneHundredThousandNames() {
+		Catalog catalog = Catalog.random(100_000);
+		MedicineSuggestIndex index = newIndex();
+		for (int i = 0; i < 4; i++) {
+			index.load(catalog.ids, catalog.names, catalog.ingredients, catalog.popularity);
+		}
+		index.rerank(catalog.sold());
+
+		String[] queries = { "p", "pa", "para", "paracetamol 5", "vit", "siro h", "vien s", "amox", "kem", "omega 3", "12345" };
+		for (int i = 0; i < 20_000; i++) {
+			index.suggest(queries[i % queries.length], 10);
+		}
+		long[] nanos = new long[queries.length * 500];
+		for (int i = 0; i < nanos.length; i++) {
+			long start = System.nanoTime();
+			List<MedicineSuggestionDTO> top = index.suggest(queries[i % queries.length], 10);
+			nanos[i] = System.nanoTime() - start;
+			assertTrue(top.size() <= 10);
+		}
+		Arrays.sort(nanos);
+		long medianMicros = nanos[nanos.length / 2] / 1_000;
+		assertTrue(medianMicros < 500, "gợi ý quá chậm: " + medianMicros + " µs");
+	}
+
+	private static MedicineSuggestIndex newIndex() {
+		return new MedicineSuggestIndex(mock(JdbcTemplate.class), mock(CatalogSnapshotService.class), 600_000);
+	}
+
+	private static List<Long> ids(List<MedicineSuggestionDTO> suggestions) {
+		List<Long> ids = new ArrayList<>();
+		for (MedicineSuggestionDTO suggestion : suggestions) {
+			ids.add(suggestion.getId());
+		}
+		return ids;
+	}
+
+	// Danh mục ngẫu nhiên cố định (seed) kiểu tên thuốc bán lẻ: id = chỉ số + 1
+	private static final class Catalog {
+		private static final String[] WORDS = { "panadol", "paracetamol", "vitamin", "siro", "ho", "kháng", "sinh",
+				"amoxicillin", "berberin", "smecta", "oresol", "efferalgan", "decolgen", "tiffy", "bổ", "gan", "canxi",
+				"sắt", "men", "vi", "sinh", "kẽm", "omega", "glucosamin", "ibuprofen", "aspirin", "loratadin", "cetirizin" };
+		private static final String[] FORMS = { "viên nén", "viên sủi", "siro", "gói", "ống", "kem bôi" };
+
+		final long[] ids;
+		final String[] names;
+		final String[] ingredients;
+		final long[] popularity;
+
+		private Catalog(int n) {
+			ids = new long[n];
+			names = new String[n];
+			ingredients = new String[n];
+			popularity = new long[n];
+		}
+
+		static Catalog random(int n) {
+			Random random = new Random(3);
+			Catalog catalog = new Catalog(n);
+			for (int i = 0; i < n; i++) {
+				catalog.ids[i] = i + 1;
+				catalog.names[i] = word(random) + " " + word(random) + " " + (100 + random.nextInt(900)) + "mg "
+						+ FORMS[random.nextInt(FORMS.length)] + " " + i;
+				catalog.ingredients[i] = word(random) + ", " + word(random);
+				catalog.popularity[i] = (long) (1000 / Math.pow(1 + random.nextInt(n), 0.5));
+			}
+			return catalog;
+		}
+
+		private static String word(Random random) {
+			return WORDS[random.nextInt(WORDS.length)];
+		}
+
+		Map<Long, Long> sold() {
+			Map<Long, Long> sold = new HashMap<>();
+			for (int i = 0; i < ids.length; i++) {
+				sold.put(ids[i], popularity[i]);
+			}
+			return sold;
+		}
+
+		// Quét toàn bộ: độ phổ biến của limit thuốc đứng đầu trong số thuốc có từ này
+		List<Long> topPopularity(String word, int limit) {
+			List<Long> matched = new ArrayList<>();
+			for (int i = 0; i < ids.length; i++) {
+				if (VietnameseText.fold(names[i] + " " + ingredients[i]).contains(word)) matched.add(popularity[i]);
+			}
+			matched.sort(Comparator.reverseOrder());
+			return matched.subList(0, Math.min(limit, matched.size()));
+		}
+
+		List<Long> popularityOf(List<MedicineSuggestionDTO> suggestions) {
+			List<Long> values = new ArrayList<>();
+			for (MedicineSuggestionDTO suggestion : suggestions) {
+				values.add(popularity[(int) (suggestion.getId() - 1)]);
+			}
+			return values;
+		}
+	}
+}
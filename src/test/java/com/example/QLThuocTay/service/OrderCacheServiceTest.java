@@ -0,0 +1,131 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.QLThuocTay.Entities.OrderStatus;
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.Repository.UserRepository;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+
+// Cache đơn hàng không bao giờ trả trạng thái cũ sau khi chuyển trạng thái
+class OrderCacheServiceTest {
+
+	private static final long ORDER_ID = 1L;
+	private static final long USER_ID = 7L;
+
+	private OrderCacheService cache;
+	private OrderService orderService;
+	// Trạng thái "trong DB" của đơn, đổi khi UPDATE chuyển trạng thái chạy
+	private volatile String dbStatus;
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		dbStatus = OrderStatusRegistry.PENDING;
+		cache = new OrderCacheService(100, 100, 10);
+
+		OrderStatusRegistry registry = mock(OrderStatusRegistry.class);
+		OrderStatus processing = new OrderStatus();
+		processing.setStatusId(2);
+		processing.setStatusName(OrderStatusRegistry.PROCESSING);
+		when(registry.require(OrderStatusRegistry.PROCESSING)).thenReturn(processing);
+		when(registry.idsOf(any())).thenReturn(Set.of(1));
+
+		NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		doAnswer(invocation -> {
+			dbStatus = OrderStatusRegistry.PROCESSING;
+			ResultSet rs = mock(ResultSet.class);
+			when(rs.getLong("order_id")).thenReturn(ORDER_ID);
+			when(rs.getObject("user_id", Long.class)).thenReturn(USER_ID);
+			invocation.<RowCallbackHandler>getArgument(2).processRow(rs);
+			return null;
+		}).when(namedJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+		orderService = new OrderService(mock(UserRepository.class), registry, mock(MedicineRepository.class),
+				mock(JdbcTemplate.class), namedJdbcTemplate, cache, mock(SalesAggregateService.class),
+				mock(TopSellingService.class), mock(CatalogSnapshotService.class));
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void transitionEvictsCachedOrderAndUserHistory() {
+		assertEquals(OrderStatusRegistry.PENDING, getOrder().getStatusName());
+		assertEquals(OrderStatusRegistry.PENDING, getUserOrders().get(0).getStatusName());
+		assertEquals(OrderStatusRegistry.PENDING, getOrder().getStatusName());
+		assertEquals(2, loads.get());
+
+		orderService.transition(OrderTransition.CONFIRM, List.of(ORDER_ID));
+
+		assertEquals(OrderStatusRegistry.PROCESSING, getOrder().getStatusName());
+		assertEquals(OrderStatusRegistry.PROCESSING, getUserOrders().get(0).getStatusName());
+	}
+
+	@Test
+	void evictionWaitsForCommit() {
+		getOrder();
+		TransactionSynchronizationManager.initSynchronization();
+		orderService.transition(OrderTransition.CONFIRM, List.of(ORDER_ID));
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+		assertEquals(OrderStatusRegistry.PROCESSING, getOrder().getStatusName());
+	}
+
+	@Test
+	void loadOverlappingTransitionIsNotCached() {
+		// Lần nạp đọc trạng thái cũ, rồi transition commit trước khi lần nạp kịp ghi vào cache
+		OrderResponseDTO stale = cache.getOrder(ORDER_ID, () -> {
+			OrderResponseDTO dto = load();
+			orderService.transition(OrderTransition.CONFIRM, List.of(ORDER_ID));
+			return dto;
+		});
+		assertEquals(OrderStatusRegistry.PENDING, stale.getStatusName());
+
+		assertEquals(OrderStatusRegistry.PROCESSING, getOrder().getStatusName());
+	}
+
+	private OrderResponseDTO getOrder() {
+		return cache.getOrder(ORDER_ID, this::load);
+	}
+
+	private List<OrderResponseDTO> getUserOrders() {
+		return cache.getUserOrders(USER_ID, () -> List.of(load()));
+	}
+
+	private OrderResponseDTO load() {
+		loads.incrementAndGet();
+		OrderResponseDTO dto = new OrderResponseDTO();
+		dto.setOrderId(ORDER_ID);
+		dto.setUserId(USER_ID);
+		dto.setStatusName(dbStatus);
+		return dto;
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Xuất NDJSON theo cursor: các dòng liền nhau của một đơn gộp thành một dòng JSON, ngắt kết nối thì dừng đọc
+class OrderExportServiceTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+	private final List<Map<String, Object>> rows = new ArrayList<>();
+	// Vị trí cursor: số dòng đã đọc = position + 1
+	private final int[] position = { -1 };
+	private Connection connection;
+	private PreparedStatement statement;
+	private ResultSet resultSet;
+	private OrderExportService service;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		DataSource dataSource = mock(DataSource.class);
+		connection = mock(Connection.class);
+		statement = mock(PreparedStatement.class);
+		resultSet = mock(ResultSet.class, invocation -> {
+			String method = invocation.getMethod().getName();
+			if (method.equals("next")) return ++position[0] < rows.size();
+			if (method.startsWith("get") && invocation.getArguments().length > 0
+					&& invocation.getArgument(0) instanceof String column) {
+				Object value = rows.get(position[0]).get(column);
+				return method.equals("getLong") ? ((Number) value).longValue() : value;
+			}
+			return RETURNS_DEFAULTS.answer(invocation);
+		});
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
+		service = new OrderExportService(dataSource, objectMapper, 500);
+	}
+
+	@Test
+	void consecutiveRowsOfAnOrderBecomeOneLineAndTheLastOrderIsFlushed() throws IOException, SQLException {
+		row(10L, 5L, "Panadol", 2, "10000");
+		row(10L, 6L, "Smecta", 1, "4000");
+		// Đơn không có dòng chi tiết (LEFT JOIN): vẫn xuất, danh sách rỗng
+		row(11L, null, null, null, null);
+		row(12L, 5L, "Panadol", 3, "10000");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(3, service.export(null, null, null, out));
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(3, lines.length);
+		JsonNode first = objectMapper.readTree(lines[0]);
+		assertEquals(10L, first.get("orderId").asLong());
+		assertEquals("Khách 10", first.get("userName").asText());
+		assertEquals(2, first.get("orderDetails").size());
+		assertEquals("Smecta", first.get("orderDetails").get(1).get("medicineName").asText());
+		assertEquals(0, objectMapper.readTree(lines[1]).get("orderDetails").size());
+		JsonNode last = objectMapper.readTree(lines[2]);
+		assertEquals(12L, last.get("orderId").asLong());
+		assertEquals(3, last.get("orderDetails").get(0).get("quantity").asInt());
+		verify(statement).setFetchSize(500);
+	}
+
+	@Test
+	void clientDisconnectStopsReadingAndClosesTheCursor() throws SQLException {
+		for (long orderId = 1; orderId <= 5_000; orderId++) {
+			row(orderId, 5L, "Paracetamol 500mg viên nén", 2, "10000");
+		}
+		OutputStream disconnected = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+		};
+
+		assertThrows(UncheckedIOException.class, () -> service.export(null, null, null, disconnected));
+
+		// Lỗi ghi lộ ra khi bộ đệm 64 KB đầy lần đầu: phần lớn cursor chưa được đọc
+		assertTrue(position[0] + 1 < rows.size() / 2, "đã đọc " + (position[0] + 1) + " dòng");
+		verify(resultSet).close();
+		verify(statement).close();
+		verify(connection).close();
+	}
+
+	private void row(Long orderId, Long medicineId, String medicineName, Integer quantity, String price) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("order_id", orderId);
+		row.put("user_id", orderId);
+		row.put("full_name", "Khách " + orderId);
+		row.put("total_amount", new BigDecimal("24000"));
+		row.put("create_at", Timestamp.valueOf(LocalDateTime.of(2026, 10, 1, 9, 30)));
+		row.put("status_id", 1);
+		row.put("status_name", "Pending");
+		row.put("shipping_address", "12 Lê Lợi");
+		row.put("medicine_id", medicineId);
+		row.put("medicine_name", medicineName);
+		row.put("quantity", quantity);
+		row.put("price", price == null ? null : new BigDecimal(price));
+		rows.add(row);
+	}
+}
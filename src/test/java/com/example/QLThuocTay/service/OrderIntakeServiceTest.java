@@ -0,0 +1,100 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.QLThuocTay.Entities.Order;
+import com.example.QLThuocTay.dto.OrderDTO;
+import com.example.QLThuocTay.dto.OrderIntakeStatusDTO;
+import com.example.QLThuocTay.dto.OrderItemDTO;
+
+// Nhận đơn bất đồng bộ: hàng đợi đầy -> từ chối, batch lỗi -> ghi lại từng đơn (OrderService thay bằng mock)
+class OrderIntakeServiceTest {
+
+	private static final long BAD_USER = 99L;
+
+	private OrderIntakeService intake;
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (intake != null) intake.stop();
+	}
+
+	@Test
+	void failingOrderInBatchDoesNotFailTheOthers() throws InterruptedException {
+		OrderService orderService = mock(OrderService.class);
+		// Như createOrders thật: một đơn lỗi làm cả lời gọi (một transaction) thất bại
+		when(orderService.createOrders(anyList())).thenAnswer(invocation -> {
+			List<Order> created = new ArrayList<>();
+			for (OrderDTO orderDTO : invocation.<List<OrderDTO>>getArgument(0)) {
+				if (orderDTO.getUserId() == BAD_USER) throw new IllegalArgumentException("Invalid user id: " + BAD_USER);
+				Order order = new Order();
+				order.setOrderId(orderDTO.getUserId() * 100);
+				created.add(order);
+			}
+			return created;
+		});
+		intake = new OrderIntakeService(orderService, true, 100, 10, 50, 60);
+
+		List<OrderIntakeStatusDTO> submitted = new ArrayList<>();
+		for (long userId : new long[] {1, 2, BAD_USER, 3}) {
+			submitted.add(intake.submit(orderDTO(userId)));
+		}
+		// Luồng ghi khởi động sau khi đã có sẵn cả bốn đơn: chúng vào cùng một micro-batch
+		intake.start();
+
+		assertEquals(100L, finished(submitted.get(0)).getOrderId());
+		assertEquals(200L, finished(submitted.get(1)).getOrderId());
+		OrderIntakeStatusDTO failed = finished(submitted.get(2));
+		assertEquals(OrderIntakeService.FAILED, failed.getState());
+		assertEquals("Invalid user id: " + BAD_USER, failed.getMessage());
+		assertEquals(300L, finished(submitted.get(3)).getOrderId());
+		verify(orderService).createOrders(argThat(batch -> batch.size() == 4));
+		verify(orderService, times(5)).createOrders(anyList());
+	}
+
+	@Test
+	void fullQueueRejectsAndForgetsTheTicket() {
+		intake = new OrderIntakeService(mock(OrderService.class), false, 1, 10, 0, 60);
+
+		OrderIntakeStatusDTO queued = intake.submit(orderDTO(1L));
+		assertEquals(OrderIntakeService.QUEUED, intake.getStatus(queued.getTrackingId()).getState());
+		assertThrows(IntakeQueueFullException.class, () -> intake.submit(orderDTO(2L)));
+		assertThrows(IllegalArgumentException.class, () -> intake.submit(new OrderDTO()));
+		assertNull(intake.getStatus("không có"));
+	}
+
+	private OrderIntakeStatusDTO finished(OrderIntakeStatusDTO submitted) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		OrderIntakeStatusDTO status = intake.getStatus(submitted.getTrackingId());
+		while (OrderIntakeService.QUEUED.equals(status.getState()) && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			status = intake.getStatus(submitted.getTrackingId());
+		}
+		return status;
+	}
+
+	private static OrderDTO orderDTO(long userId) {
+		OrderItemDTO item = new OrderItemDTO();
+		item.setMedicineId(5L);
+		item.setQuantity(1);
+		OrderDTO order = new OrderDTO();
+		order.setUserId(userId);
+		order.setItems(List.of(item));
+		return order;
+	}
+}
@@ -0,0 +1,513 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.QLThuocTay.Entities.Medicine;
+import com.example.QLThuocTay.Entities.Order;
+import com.example.QLThuocTay.Entities.OrderDetail;
+import com.example.QLThuocTay.Entities.OrderDetailKey;
+import com.example.QLThuocTay.Entities.OrderStatus;
+import com.example.QLThuocTay.Entities.User;
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.Repository.OrderStatusRepository;
+import com.example.QLThuocTay.Repository.UserRepository;
+import com.example.QLThuocTay.dto.OrderDTO;
+import com.example.QLThuocTay.dto.OrderItemDTO;
+import com.example.QLThuocTay.dto.OrderPageDTO;
+import com.example.QLThuocTay.dto.OrderResponseDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+
+// Ghi đơn hàng: tồn kho, tổng tiền, bảng doanh số và cache đi cùng nhau (DB thay bằng mock)
+class OrderServiceTest {
+
+	private static final int PENDING = 1;
+	private static final int PROCESSING = 2;
+	private static final int COMPLETED = 3;
+	private static final int CANCELLED = 4;
+	private static final LocalDateTime CREATED = LocalDateTime.of(2026, 10, 1, 9, 30);
+	private static final LocalDate DAY = CREATED.toLocalDate();
+
+	private EntityManager entityManager;
+	private JdbcTemplate jdbcTemplate;
+	private NamedParameterJdbcTemplate namedJdbcTemplate;
+	private MedicineRepository medicineRepository;
+	private UserRepository userRepository;
+	private OrderCacheService orderCacheService;
+	private SalesAggregateService salesAggregateService;
+	private CatalogSnapshotService catalogSnapshotService;
+	private OrderStatusRegistry statuses;
+	private OrderService service;
+	private final List<String> listingJpql = new ArrayList<>();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		entityManager = mock(EntityManager.class);
+		jdbcTemplate = mock(JdbcTemplate.class);
+		namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		medicineRepository = mock(MedicineRepository.class);
+		userRepository = mock(UserRepository.class);
+		orderCacheService = mock(OrderCacheService.class);
+		salesAggregateService = mock(SalesAggregateService.class);
+		catalogSnapshotService = mock(CatalogSnapshotService.class);
+		OrderStatusRepository statusRepository = mock(OrderStatusRepository.class);
+		when(statusRepository.findAll()).thenReturn(List.of(
+				new OrderStatus(PENDING, OrderStatusRegistry.PENDING),
+				new OrderStatus(PROCESSING, OrderStatusRegistry.PROCESSING),
+				new OrderStatus(COMPLETED, OrderStatusRegistry.COMPLETED),
+				new OrderStatus(CANCELLED, OrderStatusRegistry.CANCELLED)));
+		statuses = new OrderStatusRegistry(statusRepository);
+		statuses.load();
+
+		service = new OrderService(userRepository, statuses, medicineRepository, jdbcTemplate, namedJdbcTemplate,
+				orderCacheService, salesAggregateService, mock(TopSellingService.class), catalogSnapshotService);
+		ReflectionTestUtils.setField(service, "entityManager", entityManager);
+		ReflectionTestUtils.setField(service, "batchSize", 50);
+
+		// findOrderDTO sau khi ghi: không cần dữ liệu trả về
+		TypedQuery<Object> query = mock(TypedQuery.class, RETURNS_SELF);
+		when(query.getResultList()).thenReturn(List.of());
+		when(entityManager.createQuery(anyString(), any(Class.class))).thenReturn(query);
+		when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(
+				invocation -> new int[invocation.<List<?>>getArgument(1).size()]);
+		when(jdbcTemplate.batchUpdate(startsWith("UPDATE medicines SET stock_quantity = stock_quantity - ?"), anyList()))
+				.thenAnswer(invocation -> ones(invocation.<List<?>>getArgument(1).size()));
+	}
+
+	@Test
+	void createComputesTotalBeforePersistAndReservesMergedDemand() {
+		User user = new User();
+		user.setUserId(3L);
+		when(userRepository.findAllById(any())).thenReturn(List.of(user));
+		when(medicineRepository.findAllById(any())).thenReturn(List.of(medicine(5L, "10000"), medicine(6L, "2500")));
+		// Tổng tiền phải có sẵn lúc persist: INSERT mang giá trị cuối, không có UPDATE sau đó
+		List<BigDecimal> totalsAtPersist = new ArrayList<>();
+		doAnswer(invocation -> {
+			if (invocation.getArgument(0) instanceof Order created) totalsAtPersist.add(created.getTotalAmount());
+			return null;
+		}).when(entityManager).persist(any());
+
+		Order order = service.createOrders(List.of(orderDTO(3L, item(5L, 2), item(6L, 4), item(5L, 1), item(99L, 1)))).get(0);
+
+		assertEquals(1, totalsAtPersist.size());
+		assertEquals(0, new BigDecimal("40000").compareTo(totalsAtPersist.get(0)));
+		assertEquals(Boolean.TRUE, order.getStockReserved());
+		List<Object[]> reserved = stockArgs("stock_quantity - ?");
+		assertArrayEquals(new Object[] {3, 5L, 3}, reserved.get(0));
+		assertArrayEquals(new Object[] {4, 6L, 4}, reserved.get(1));
+		SalesAggregateService.Deltas deltas = appliedDeltas();
+		assertEquals(3, deltas.units(order.getCreateAt().toLocalDate(), PENDING, 5L));
+		assertEquals(0, new BigDecimal("10000").compareTo(deltas.revenue(order.getCreateAt().toLocalDate(), PENDING, 6L)));
+	}
+
+	@Test
+	void createRejectsClosedStatusBeforeReservingStock() {
+		for (int closed : new int[] {COMPLETED, CANCELLED}) {
+			OrderDTO orderDTO = orderDTO(3L, item(5L, 2));
+			orderDTO.setStatusId(closed);
+			// Đơn đóng không bao giờ được hoàn kho: giữ kho cho nó là mất hàng vĩnh viễn
+			assertThrows(IllegalArgumentException.class, () -> service.createOrders(List.of(orderDTO)));
+		}
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+		verify(entityManager, never()).persist(any());
+	}
+
+	@Test
+	void raisingLineQuantityReservesOnlyTheDifferenceAndRecordsSalesDelta() {
+		Order order = order(10L, PENDING, true, "20000");
+		OrderDetail line = line(order, medicine(5L, "10000"), 2, "10000");
+
+		service.updateOrderLine(10L, 5L, 5);
+
+		assertArrayEquals(new Object[] {3, 5L, 3}, stockArgs("stock_quantity - ?").get(0));
+		assertEquals(5, line.getQuantity());
+		assertEquals(0, new BigDecimal("50000").compareTo(order.getTotalAmount()));
+		SalesAggregateService.Deltas deltas = appliedDeltas();
+		assertEquals(3, deltas.units(DAY, PENDING, 5L));
+		assertEquals(0, new BigDecimal("30000").compareTo(deltas.revenue(DAY, PENDING, 5L)));
+		verify(orderCacheService).invalidate(eq(List.of(10L)), any());
+	}
+
+	@Test
+	void removingLineReleasesStockAndRecordsNegativeSalesDelta() {
+		Order order = order(10L, PROCESSING, true, "20000");
+		OrderDetail line = line(order, medicine(5L, "10000"), 2, "10000");
+
+		service.updateOrderLine(10L, 5L, 0);
+
+		verify(entityManager).remove(line);
+		assertArrayEquals(new Object[] {2, 5L}, stockArgs("stock_quantity + ?").get(0));
+		assertEquals(0, BigDecimal.ZERO.compareTo(order.getTotalAmount()));
+		SalesAggregateService.Deltas deltas = appliedDeltas();
+		assertEquals(-2, deltas.units(DAY, PROCESSING, 5L));
+		assertEquals(0, new BigDecimal("-20000").compareTo(deltas.revenue(DAY, PROCESSING, 5L)));
+	}
+
+	@Test
+	void editingLineOfClosedOrderIsRejectedBeforeAnyWrite() {
+		Order order = order(10L, COMPLETED, true, "20000");
+		OrderDetail line = line(order, medicine(5L, "10000"), 2, "10000");
+
+		assertThrows(OrderNotEditableException.class, () -> service.updateOrderLine(10L, 5L, 3));
+
+		assertEquals(2, line.getQuantity());
+		assertEquals(0, new BigDecimal("20000").compareTo(order.getTotalAmount()));
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+		verify(salesAggregateService, never()).apply(any());
+	}
+
+	@Test
+	void updateWithoutItemsKeepsTheLines() {
+		Order order = order(10L, PENDING, true, "20000");
+		OrderDetail line = line(order, medicine(5L, "10000"), 2, "10000");
+		OrderDTO update = new OrderDTO();
+		update.setShippingAddress("12 Lê Lợi");
+
+		service.updateOrder(10L, update);
+
+		// items = null nghĩa là không đụng tới dòng: không xoá, không hoàn kho, không ghi doanh số âm
+		assertEquals("12 Lê Lợi", order.getShippingAddress());
+		assertEquals(2, line.getQuantity());
+		assertEquals(0, new BigDecimal("20000").compareTo(order.getTotalAmount()));
+		verify(entityManager, never()).createQuery(contains("FROM OrderDetail d"), eq(OrderDetail.class));
+		verify(entityManager, never()).remove(any());
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+		assertTrue(appliedDeltas().isEmpty());
+	}
+
+	@Test
+	void statusIdInUpdateGoesThroughTransition() {
+		Order order = order(10L, PENDING, true, "0");
+		moved(10L, PENDING);
+		OrderDTO update = orderDTO(null);
+		update.setStatusId(PROCESSING);
+
+		service.updateOrder(10L, update);
+
+		// Không ghi status_id qua entity: UPDATE có điều kiện của transition() chuyển trạng thái và doanh số
+		assertEquals(PENDING, order.getStatus().getStatusId());
+		verify(entityManager).clear();
+		verify(salesAggregateService).applyOrders(List.of(10L), PENDING, -1);
+		verify(salesAggregateService).applyOrders(List.of(10L), PROCESSING, 1);
+	}
+
+	@Test
+	void updateRejectsStatusChangeWithoutRuleOrThatLostTheRace() {
+		order(10L, COMPLETED, true, "0");
+		OrderDTO reopen = orderDTO(null);
+		reopen.setStatusId(PENDING);
+		assertThrows(OrderNotEditableException.class, () -> service.updateOrder(10L, reopen));
+		verify(entityManager, never()).flush();
+
+		OrderDTO unknown = orderDTO(null);
+		unknown.setStatusId(42);
+		assertThrows(IllegalArgumentException.class, () -> service.updateOrder(10L, unknown));
+
+		// Đơn đã bị chuyển bởi request khác: UPDATE có điều kiện không khớp dòng nào
+		order(11L, PENDING, true, "0");
+		OrderDTO cancel = orderDTO(null);
+		cancel.setStatusId(CANCELLED);
+		assertThrows(OrderNotEditableException.class, () -> service.updateOrder(11L, cancel));
+		verify(salesAggregateService, never()).applyOrders(anyList(), any(), anyInt());
+	}
+
+	@Test
+	void bulkTransitionMovesOnlyGuardedOrdersAndSalesPerPreviousStatus() {
+		moved(Map.of(10L, PENDING, 11L, PENDING, 12L, PROCESSING));
+
+		List<Long> updated = service.transition(OrderTransition.CANCEL, List.of(10L, 11L, 12L, 13L));
+
+		assertEquals(Set.of(10L, 11L, 12L), Set.copyOf(updated));
+		verify(namedJdbcTemplate).query(contains("status_id IN (:sourceIds) FOR UPDATE"),
+				argThat((SqlParameterSource params) -> Set.of(PENDING, PROCESSING).equals(params.getValue("sourceIds"))
+						&& Integer.valueOf(CANCELLED).equals(params.getValue("target"))),
+				any(RowCallbackHandler.class));
+		verify(salesAggregateService).applyOrders(argThat(ids -> Set.copyOf(ids).equals(Set.of(10L, 11L))), eq(PENDING), eq(-1));
+		verify(salesAggregateService).applyOrders(List.of(12L), PROCESSING, -1);
+		verify(salesAggregateService).applyOrders(updated, CANCELLED, 1);
+		verify(orderCacheService).invalidate(eq(updated), any());
+	}
+
+	@Test
+	void confirmDoesNotRestoreStockAndEmptyInputSkipsQuery() {
+		moved(10L, PENDING);
+
+		assertEquals(List.of(10L), service.transition(OrderTransition.CONFIRM, List.of(10L)));
+		assertEquals(List.of(), service.transition(OrderTransition.COMPLETE, List.of()));
+
+		verify(namedJdbcTemplate, never()).update(anyString(), any(SqlParameterSource.class));
+		verify(namedJdbcTemplate, times(1)).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+		assertEquals(Optional.of(OrderTransition.CANCEL), OrderTransition.fromAction(" Cancel "));
+		assertEquals(Optional.empty(), OrderTransition.fromAction("reopen"));
+	}
+
+	@Test
+	void deletingOpenReservedOrderRestoresItsStock() {
+		Order order = order(10L, PROCESSING, true, "20000");
+
+		assertTrue(service.deleteOrder(10L));
+
+		verify(namedJdbcTemplate).update(contains("o.stock_reserved"), argThat(restoring(10L)));
+		verify(salesAggregateService).applyOrders(List.of(10L), PROCESSING, -1);
+		verify(entityManager).remove(order);
+	}
+
+	@Test
+	void deletingClosedOrLegacyOrderLeavesStockAlone() {
+		order(10L, COMPLETED, true, "20000");
+		order(11L, CANCELLED, true, "20000");
+		// Đơn tạo trước khi có stock_reserved: chưa từng trừ kho
+		order(12L, PENDING, null, "20000");
+
+		assertTrue(service.deleteOrder(10L));
+		assertTrue(service.deleteOrder(11L));
+		assertTrue(service.deleteOrder(12L));
+
+		verify(namedJdbcTemplate, never()).update(anyString(), any(SqlParameterSource.class));
+		verify(salesAggregateService).applyOrders(List.of(11L), CANCELLED, -1);
+	}
+
+	@Test
+	void cancellingRestoresStockOnlyForOrdersThatMoved() {
+		moved(10L, PROCESSING);
+
+		assertEquals(List.of(10L), service.transition(OrderTransition.CANCEL, List.of(10L, 11L)));
+
+		verify(namedJdbcTemplate).update(contains("o.stock_reserved"), argThat(restoring(10L)));
+		verify(salesAggregateService).applyOrders(List.of(10L), PROCESSING, -1);
+		verify(salesAggregateService).applyOrders(List.of(10L), CANCELLED, 1);
+	}
+
+	@Test
+	void keysetPagesVisitEveryOrderOnceWhenCreateAtTies() {
+		listing(
+				listed(4L, 3L, CREATED, "Pending"),
+				listed(9L, 5L, CREATED, "Completed"),
+				listed(7L, 3L, CREATED, "Pending"),
+				listed(2L, 3L, CREATED.minusHours(1), "Pending"),
+				listed(8L, 5L, CREATED.minusHours(1), "Pending"),
+				listed(12L, 3L, CREATED.plusDays(1), "Cancelled"),
+				listed(1L, 5L, CREATED.minusDays(2), "Pending"));
+
+		// Mới nhất trước; cùng create_at thì order_id giảm dần
+		assertEquals(List.of(12L, 9L, 7L, 4L, 8L, 2L, 1L), walk(null, null, 2));
+		String jpql = listingJpql.get(1);
+		assertTrue(jpql.contains("(o.createAt < :afterCreateAt OR (o.createAt = :afterCreateAt AND o.orderId < :afterId))"), jpql);
+		assertTrue(jpql.endsWith("ORDER BY o.createAt DESC, o.orderId DESC"), jpql);
+
+		// Trang đầu không có điều kiện con trỏ; trang cuối không trả con trỏ
+		assertFalse(listingJpql.get(0).contains(":afterId"));
+		OrderPageDTO last = service.findOrders(null, null, CREATED.minusDays(2), 2L, 2);
+		assertEquals(List.of(1L), ids(last));
+		assertFalse(last.isHasMore());
+		assertNull(last.getNextCreateAt());
+		assertNull(last.getNextOrderId());
+	}
+
+	@Test
+	void keysetFiltersByStatusAndUserAcrossPages() {
+		listing(
+				listed(4L, 3L, CREATED, "Pending"),
+				listed(9L, 3L, CREATED, "Completed"),
+				listed(7L, 3L, CREATED, "Pending"),
+				listed(8L, 5L, CREATED, "Pending"),
+				listed(2L, 3L, CREATED.minusHours(1), "Pending"));
+
+		assertEquals(List.of(7L, 4L, 2L), walk("pending", 3L, 1));
+		assertTrue(listingJpql.get(0).contains("lower(s.statusName) = lower(:statusName) AND u.userId = :userId"));
+
+		OrderPageDTO first = service.findOrders("pending", 3L, null, null, 1);
+		assertEquals(CREATED, first.getNextCreateAt());
+		assertEquals(7L, first.getNextOrderId());
+	}
+
+	private Order order(Long orderId, int statusId, Boolean stockReserved, String total) {
+		Order order = new Order();
+		order.setOrderId(orderId);
+		order.setStatus(statuses.findById(statusId).orElseThrow());
+		order.setStockReserved(stockReserved);
+		order.setCreateAt(CREATED);
+		order.setTotalAmount(new BigDecimal(total));
+		when(entityManager.find(Order.class, orderId, LockModeType.PESSIMISTIC_WRITE)).thenReturn(order);
+		when(entityManager.find(Order.class, orderId)).thenReturn(order);
+		return order;
+	}
+
+	private OrderDetail line(Order order, Medicine medicine, int quantity, String price) {
+		OrderDetail detail = new OrderDetail();
+		detail.setId(new OrderDetailKey(order.getOrderId(), medicine.getMedicineId()));
+		detail.setOrder(order);
+		detail.setMedicine(medicine);
+		detail.setQuantity(quantity);
+		detail.setPrice(new BigDecimal(price));
+		when(entityManager.find(OrderDetail.class, detail.getId())).thenReturn(detail);
+		return detail;
+	}
+
+	// Truy vấn danh sách đơn giả: áp bộ lọc, điều kiện con trỏ và ORDER BY như JPQL trên bảng trong bộ nhớ
+	@SuppressWarnings("unchecked")
+	private void listing(OrderResponseDTO... orders) {
+		List<OrderResponseDTO> table = List.of(orders);
+		Map<String, Object> params = new HashMap<>();
+		int[] maxResults = { Integer.MAX_VALUE };
+		TypedQuery<OrderResponseDTO> query = mock(TypedQuery.class, RETURNS_SELF);
+		when(query.setParameter(anyString(), any())).thenAnswer(invocation -> {
+			params.put(invocation.getArgument(0), invocation.getArgument(1));
+			return query;
+		});
+		when(query.setMaxResults(anyInt())).thenAnswer(invocation -> {
+			maxResults[0] = invocation.getArgument(0);
+			return query;
+		});
+		when(query.getResultList()).thenAnswer(invocation -> {
+			LocalDateTime afterCreateAt = (LocalDateTime) params.get("afterCreateAt");
+			Long afterId = (Long) params.get("afterId");
+			return table.stream()
+					.filter(o -> !params.containsKey("statusName") || o.getStatusName().equalsIgnoreCase((String) params.get("statusName")))
+					.filter(o -> !params.containsKey("userId") || o.getUserId().equals(params.get("userId")))
+					.filter(o -> afterCreateAt == null || o.getCreateAt().isBefore(afterCreateAt)
+							|| (o.getCreateAt().equals(afterCreateAt) && o.getOrderId() < afterId))
+					.sorted(Comparator.comparing(OrderResponseDTO::getCreateAt).thenComparing(OrderResponseDTO::getOrderId).reversed())
+					.limit(maxResults[0])
+					.toList();
+		});
+		when(entityManager.createQuery(anyString(), eq(OrderResponseDTO.class))).thenAnswer(invocation -> {
+			params.clear();
+			listingJpql.add(invocation.getArgument(0));
+			return query;
+		});
+	}
+
+	// Đi hết các trang theo con trỏ next, trả về id theo thứ tự gặp
+	private List<Long> walk(String statusName, Long userId, int size) {
+		List<Long> seen = new ArrayList<>();
+		OrderPageDTO page = service.findOrders(statusName, userId, null, null, size);
+		seen.addAll(ids(page));
+		while (page.isHasMore()) {
+			page = service.findOrders(statusName, userId, page.getNextCreateAt(), page.getNextOrderId(), size);
+			seen.addAll(ids(page));
+		}
+		return seen;
+	}
+
+	private static List<Long> ids(OrderPageDTO page) {
+		List<Long> ids = new ArrayList<>();
+		for (OrderResponseDTO order : page.getItems()) {
+			ids.add(order.getOrderId());
+		}
+		return ids;
+	}
+
+	private static OrderResponseDTO listed(Long orderId, Long userId, LocalDateTime createAt, String statusName) {
+		return new OrderResponseDTO(orderId, userId, "Khách " + userId, BigDecimal.TEN, createAt, null, statusName, null);
+	}
+
+	private static OrderDTO orderDTO(Long userId, OrderItemDTO... items) {
+		OrderDTO order = new OrderDTO();
+		order.setUserId(userId);
+		order.setItems(List.of(items));
+		return order;
+	}
+
+	private static OrderItemDTO item(Long medicineId, int quantity) {
+		OrderItemDTO item = new OrderItemDTO();
+		item.setMedicineId(medicineId);
+		item.setQuantity(quantity);
+		return item;
+	}
+
+	private static Medicine medicine(Long id, String price) {
+		Medicine medicine = new Medicine();
+		medicine.setMedicineId(id);
+		medicine.setMedicineName("Thuốc " + id);
+		medicine.setPrice(new BigDecimal(price));
+		return medicine;
+	}
+
+	// Mô phỏng CTE của transition(): các đơn này chuyển được, kèm trạng thái cũ của từng đơn
+	private void moved(long orderId, int previousStatusId) {
+		moved(Map.of(orderId, previousStatusId));
+	}
+
+	private void moved(Map<Long, Integer> previousStatusIds) {
+		doAnswer(invocation -> {
+			for (Map.Entry<Long, Integer> row : previousStatusIds.entrySet()) {
+				ResultSet rs = mock(ResultSet.class);
+				when(rs.getLong("order_id")).thenReturn(row.getKey());
+				when(rs.getObject("user_id", Long.class)).thenReturn(3L);
+				when(rs.getObject("previous_status_id", Integer.class)).thenReturn(row.getValue());
+				invocation.<RowCallbackHandler>getArgument(2).processRow(rs);
+			}
+			return null;
+		}).when(namedJdbcTemplate).query(startsWith("WITH moved"), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+	}
+
+	private static ArgumentMatcher<SqlParameterSource> restoring(Long... orderIds) {
+		return params -> List.of(orderIds).equals(params.getValue("orderIds"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object[]> stockArgs(String change) {
+		ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(startsWith("UPDATE medicines SET stock_quantity = " + change), args.capture());
+		return args.getValue();
+	}
+
+	private SalesAggregateService.Deltas appliedDeltas() {
+		ArgumentCaptor<SalesAggregateService.Deltas> deltas = ArgumentCaptor.forClass(SalesAggregateService.Deltas.class);
+		verify(salesAggregateService).apply(deltas.capture());
+		return deltas.getValue();
+	}
+
+	private static int[] ones(int size) {
+		int[] counts = new int[size];
+		Arrays.fill(counts, 1);
+		return counts;
+	}
+}
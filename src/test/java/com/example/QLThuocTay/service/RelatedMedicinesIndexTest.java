@@ -0,0 +1,122 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.QLThuocTay.Repository.MedicineRepository;
+import com.example.QLThuocTay.dto.MedicineDTO;
+
+// Thuốc liên quan theo hoạt chất/loại, và cập nhật từng thuốc giữ chỉ mục nhất quán
+class RelatedMedicinesIndexTest {
+
+	@Test
+	void ranksSharedIngredientsAboveCategoryOnly() {
+		RelatedMedicinesIndex index = indexOf(List.of(
+				medicine(1L, "Paracetamol 500mg, Caffeine 65mg", "Giảm đau"),
+				medicine(2L, "Paracetamol 500mg", "Giảm đau"),
+				medicine(3L, "Paracetamol, Caffeine, Phenylephrine", "Cảm cúm"),
+				medicine(4L, "Ibuprofen 400mg", "Giảm đau"),
+				medicine(5L, "Vitamin C (acid ascorbic)", "Vitamin")));
+
+		// Chung hoạt chất đứng trước chỉ chung loại; khác cả hai thì không liên quan
+		List<Long> related = index.related(1L, 10);
+		assertEquals(3, related.size());
+		assertEquals(Set.of(2L, 3L), new HashSet<>(related.subList(0, 2)));
+		assertEquals(4L, related.get(2));
+		assertFalse(index.related(5L, 10).contains(1L));
+		assertEquals(related.subList(0, 1), index.related(1L, 1));
+	}
+
+	@Test
+	void incrementalUpdatesRefreshAffectedNeighbors() {
+		RelatedMedicinesIndex index = indexOf(List.of(
+				medicine(1L, "Loratadin", "Dị ứng"),
+				medicine(2L, "Cetirizin", "Dị ứng"),
+				medicine(3L, "Vitamin C, Kẽm", "Vitamin"),
+				medicine(4L, "Vitamin B1, B6, B12", "Vitamin")));
+
+		index.index(medicine(5L, "Vitamin C, Kẽm gluconat", "Vitamin"));
+		assertEquals(5L, index.related(3L, 10).get(0));
+
+		index.index(medicine(5L, "Loratadin 10mg", "Dị ứng"));
+		assertFalse(index.related(3L, 10).contains(5L));
+		assertEquals(5L, index.related(1L, 10).get(0));
+
+		index.remove(1L);
+		assertFalse(index.contains(1L));
+		assertFalse(index.related(5L, 10).contains(1L));
+		assertTrue(index.related(5L, 10).contains(2L));
+	}
+
+	@Test
+	void randomUpdatesNeverLeaveDeadOrSelfNeighbors() {
+		String[] ingredients = { "paracetamol", "caffeine", "ibuprofen", "loratadin", "cetirizin", "vitamin", "kem",
+				"omeprazol", "amoxicillin", "clavulanic", "metformin", "berberin", "diosmectit", "simethicon", "magie" };
+		String[] categories = { "Giảm đau", "Dị ứng", "Vitamin", "Tiêu hoá", "Kháng sinh" };
+		Random random = new Random(11);
+		List<MedicineDTO> initial = new ArrayList<>();
+		for (long id = 1; id <= 2_000; id++) {
+			initial.add(randomMedicine(id, ingredients, categories, random));
+		}
+		RelatedMedicinesIndex index = indexOf(initial);
+		Set<Long> live = new HashSet<>();
+		for (MedicineDTO medicine : initial) live.add(medicine.getId());
+
+		for (int i = 0; i < 1_000; i++) {
+			long id = 1 + random.nextInt(2_500);
+			if (random.nextInt(4) == 0) {
+				index.remove(id);
+				live.remove(id);
+			} else {
+				index.index(randomMedicine(id, ingredients, categories, random));
+				live.add(id);
+			}
+		}
+
+		for (long id = 1; id <= 2_500; id++) {
+			assertEquals(live.contains(id), index.contains(id));
+			List<Long> related = index.related(id, RelatedMedicinesIndex.MAX_K);
+			assertTrue(related.size() <= RelatedMedicinesIndex.MAX_K);
+			for (Long other : related) {
+				assertTrue(live.contains(other), "thuốc đã xoá vẫn nằm trong danh sách của " + id);
+				assertTrue(other != id);
+			}
+			if (live.contains(id)) assertEquals(RelatedMedicinesIndex.MAX_K, related.size());
+		}
+	}
+
+	private static RelatedMedicinesIndex indexOf(List<MedicineDTO> medicines) {
+		MedicineRepository repository = mock(MedicineRepository.class);
+		when(repository.findAllMedicineDTOIncludingUnassigned()).thenReturn(medicines);
+		RelatedMedicinesIndex index = new RelatedMedicinesIndex(repository);
+		index.rebuild();
+		return index;
+	}
+
+	private static MedicineDTO randomMedicine(long id, String[] ingredients, String[] categories, Random random) {
+		StringBuilder ingredient = new StringBuilder();
+		int count = 1 + random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) ingredient.append(", ");
+			ingredient.append(ingredients[random.nextInt(ingredients.length)]);
+		}
+		return medicine(id, ingredient.toString(), categories[random.nextInt(categories.length)]);
+	}
+
+	private static MedicineDTO medicine(long id, String ingredient, String category) {
+		return new MedicineDTO(id, "Thuốc " + id, category, "1 viên", BigDecimal.TEN, 10, null, null, null, null,
+				null, ingredient, null, null);
+	}
+}
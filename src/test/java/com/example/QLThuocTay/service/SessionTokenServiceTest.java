@@ -0,0 +1,133 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.QLThuocTay.Entities.User;
+import com.example.QLThuocTay.Entities.UserRole;
+
+class SessionTokenServiceTest {
+
+	private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+	private static final long TTL = TimeUnit.MINUTES.toMillis(30);
+
+	private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+	private final SessionTokenService service = new SessionTokenService(SECRET, TTL, now::get);
+
+	@Test
+	void issuedTokenVerifiesWithUserAndRole() {
+		SessionTokenService.Session issued = service.issue(user(7L, "Admin"));
+
+		SessionTokenService.Session session = service.verify(issued.getToken());
+
+		assertNotNull(session);
+		assertEquals(7L, session.getUserId());
+		assertEquals("Admin", session.getRole());
+		assertEquals(issued.getTokenId(), session.getTokenId());
+		assertEquals(now.get() + TTL, session.getExpiresAt());
+	}
+
+	@Test
+	void rejectsTamperedOrForeignTokens() {
+		String token = service.issue(user(7L, "customer")).getToken();
+		int dot = token.indexOf('.');
+		// Đổi một ký tự trong payload
+		char c = token.charAt(dot - 2);
+		String tampered = token.substring(0, dot - 2) + (c == 'A' ? 'B' : 'A') + token.substring(dot - 1);
+		SessionTokenService other = new SessionTokenService(
+				"fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8), TTL, now::get);
+
+		assertNull(service.verify(tampered));
+		assertNull(service.verify(token.substring(0, dot)));
+		assertNull(service.verify("not.a-token"));
+		assertNull(service.verify(null));
+		assertNull(other.verify(token));
+	}
+
+	@Test
+	void expiresAfterTtl() {
+		String token = service.issue(user(7L, "customer")).getToken();
+
+		now.addAndGet(TTL - 1);
+		assertNotNull(service.verify(token));
+		now.addAndGet(1);
+		assertNull(service.verify(token));
+	}
+
+	@Test
+	void revokedTokenIsRejectedUntilPurgedAfterExpiry() {
+		String first = service.issue(user(7L, "customer")).getToken();
+		String second = service.issue(user(7L, "customer")).getToken();
+
+		assertTrue(service.revoke(first));
+		assertFalse(service.revoke("garbage"));
+
+		assertNull(service.verify(first));
+		assertNotNull(service.verify(second));
+		service.purge();
+		assertEquals(1, service.revokedCount());
+
+		now.addAndGet(TTL + TimeUnit.MINUTES.toMillis(2));
+		service.purge();
+		assertEquals(0, service.revokedCount());
+	}
+
+	@Test
+	void revokeUserInvalidatesEarlierTokensOnly() {
+		String old = service.issue(user(7L, "customer")).getToken();
+		String otherUser = service.issue(user(8L, "customer")).getToken();
+		now.addAndGet(1);
+		service.revokeUser(7L);
+		now.addAndGet(1);
+		String fresh = service.issue(user(7L, "customer")).getToken();
+
+		assertNull(service.verify(old));
+		assertNotNull(service.verify(otherUser));
+		assertNotNull(service.verify(fresh));
+	}
+
+	@Test
+	void userCutoffIsPurgedOnceEveryEarlierTokenHasExpired() {
+		String before = service.issue(user(7L, "customer")).getToken();
+		now.addAndGet(1);
+		service.revokeUser(7L);
+		now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+		String after = service.issue(user(7L, "Admin")).getToken();
+
+		assertNull(service.verify(before));
+		assertNotNull(service.verify(after));
+
+		// Token cấp ngay trước mốc vẫn có thể còn hạn: giữ mốc đến hết TTL tính từ mốc
+		now.addAndGet(TTL - TimeUnit.MINUTES.toMillis(5) - 1);
+		service.purge();
+		assertEquals(1, service.notBeforeCount());
+
+		now.addAndGet(2);
+		service.purge();
+		assertEquals(0, service.notBeforeCount());
+		assertNotNull(service.verify(after));
+	}
+
+	@Test
+	void bearerTokenParsesAuthorizationHeader() {
+		assertEquals("abc.def", SessionTokenService.bearerToken("Bearer abc.def"));
+		assertEquals("abc.def", SessionTokenService.bearerToken("bearer  abc.def "));
+		assertNull(SessionTokenService.bearerToken("Basic abc"));
+		assertNull(SessionTokenService.bearerToken("Bearer "));
+		assertNull(SessionTokenService.bearerToken(null));
+	}
+
+	private static User user(Long id, String role) {
+		UserRole userRole = new UserRole(role);
+		return new User(id, "Nguyễn Văn A", "a@example.com", "0900000000", "hash", userRole);
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// So sánh top-k của sketch với số đếm chính xác trên luồng phân phối lệch (Zipf)
+class SlidingTopKTest {
+
+	private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+	private static final int ITEMS = 5_000;
+	private static final int CAPACITY = 200;
+	private static final int K = 20;
+
+	@Test
+	void topKMatchesExactCountsWithinErrorBounds() {
+		SlidingTopK topK = new SlidingTopK(HOUR, 24, CAPACITY);
+		Map<Long, Long> exact = new HashMap<>();
+		Random random = new Random(42);
+		double[] cdf = zipfCdf(ITEMS, 1.1);
+		long start = 100 * 24 * HOUR;
+		long now = start + 23 * HOUR;
+
+		for (int i = 0; i < 200_000; i++) {
+			long item = sample(cdf, random);
+			long quantity = 1 + random.nextInt(3);
+			long timestamp = start + (long) (random.nextDouble() * 23 * HOUR);
+			topK.offer(item, quantity, timestamp);
+			exact.merge(item, quantity, Long::sum);
+		}
+
+		List<SpaceSavingSketch.Counter> top = topK.top(K, now);
+		assertEquals(K, top.size());
+
+		Set<Long> exactTop = new HashSet<>(exactTop(exact, K));
+		int hits = 0;
+		for (SpaceSavingSketch.Counter counter : top) {
+			long actual = exact.getOrDefault(counter.getItem(), 0L);
+			assertTrue(counter.getCount() >= actual, "ước lượng phải là chặn trên");
+			assertTrue(counter.getCount() - counter.getError() <= actual, "sai số phải bao được số thật");
+			if (exactTop.contains(counter.getItem())) hits++;
+		}
+		assertTrue(hits >= K * 9 / 10, "recall top-" + K + " quá thấp: " + hits);
+	}
+
+	@Test
+	void memoryStaysBoundedAndOldBucketsLeaveTheWindow() {
+		SlidingTopK topK = new SlidingTopK(HOUR, 24, CAPACITY);
+		long start = 100 * 24 * HOUR;
+		for (long item = 0; item < 100_000; item++) {
+			topK.offer(item, 1, start);
+		}
+		topK.offer(1L, 1_000_000, start);
+		assertTrue(topK.top(CAPACITY * 10, start).size() <= CAPACITY);
+		assertEquals(1L, topK.top(1, start).get(0).getItem());
+
+		topK.offer(2L, 5, start + 30 * HOUR);
+		List<SpaceSavingSketch.Counter> later = topK.top(K, start + 30 * HOUR);
+		assertEquals(1, later.size());
+		assertEquals(2L, later.get(0).getItem());
+	}
+
+	private static double[] zipfCdf(int n, double s) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1.0 / Math.pow(i + 1, s);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	private static long sample(double[] cdf, Random random) {
+		double u = random.nextDouble();
+		int lo = 0;
+		int hi = cdf.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cdf[mid] < u) lo = mid + 1; else hi = mid;
+		}
+		return lo;
+	}
+
+	private static List<Long> exactTop(Map<Long, Long> exact, int k) {
+		List<Map.Entry<Long, Long>> entries = new ArrayList<>(exact.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+		List<Long> top = new ArrayList<>(k);
+		for (int i = 0; i < k && i < entries.size(); i++) {
+			top.add(entries.get(i).getKey());
+		}
+		return top;
+	}
+}
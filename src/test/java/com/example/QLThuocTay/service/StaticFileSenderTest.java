@@ -0,0 +1,94 @@
+package com.example.QLThuocTay.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+// Gửi ảnh: 304 theo ETag, Range/If-Range, và nhánh sendfile của Tomcat (chỉ đặt thuộc tính, không ghi body)
+class StaticFileSenderTest {
+
+	private static final String ETAG = "\"abc\"";
+
+	@TempDir
+	Path dir;
+
+	private final StaticFileSender sender = new StaticFileSender();
+
+	@Test
+	void conditionalAndRangeRequests() throws IOException {
+		Path file = Files.writeString(dir.resolve("a.jpg"), "0123456789");
+
+		MockHttpServletResponse full = send(file, request());
+		assertEquals(200, full.getStatus());
+		assertEquals("0123456789", full.getContentAsString());
+		assertEquals("image/jpeg", full.getContentType());
+		assertEquals("bytes", full.getHeader("Accept-Ranges"));
+
+		MockHttpServletRequest cached = request();
+		cached.addHeader("If-None-Match", "W/\"x\", " + ETAG);
+		MockHttpServletResponse notModified = send(file, cached);
+		assertEquals(304, notModified.getStatus());
+		assertEquals(0, notModified.getContentAsByteArray().length);
+
+		MockHttpServletRequest range = request();
+		range.addHeader("Range", "bytes=2-4");
+		MockHttpServletResponse partial = send(file, range);
+		assertEquals(206, partial.getStatus());
+		assertEquals("234", partial.getContentAsString());
+		assertEquals("bytes 2-4/10", partial.getHeader("Content-Range"));
+
+		MockHttpServletRequest stale = request();
+		stale.addHeader("Range", "bytes=2-4");
+		stale.addHeader("If-Range", "\"old\"");
+		assertEquals(200, send(file, stale).getStatus());
+
+		MockHttpServletRequest beyond = request();
+		beyond.addHeader("Range", "bytes=20-");
+		MockHttpServletResponse unsatisfiable = send(file, beyond);
+		assertEquals(416, unsatisfiable.getStatus());
+		assertEquals("bytes */10", unsatisfiable.getHeader("Content-Range"));
+
+		assertArrayEquals(new long[] {7, 10}, StaticFileSender.parseRange("bytes=-3", 10));
+		assertArrayEquals(new long[] {5, 10}, StaticFileSender.parseRange("bytes=5-99", 10));
+		assertArrayEquals(new long[0], StaticFileSender.parseRange("bytes=0-1,4-5", 10));
+		assertNull(StaticFileSender.parseRange("bytes=10-", 10));
+		assertFalse(sender.send(dir.resolve("missing.jpg"), ETAG, "no-cache", request(), new MockHttpServletResponse()));
+	}
+
+	@Test
+	void handsBodyToTomcatSendfileWhenSupported() throws IOException {
+		Path file = Files.write(dir.resolve("b.png"), "PNGDATA".getBytes(StandardCharsets.UTF_8));
+		MockHttpServletRequest request = request();
+		request.setAttribute(StaticFileSender.SENDFILE_SUPPORTED, Boolean.TRUE);
+		request.addHeader("Range", "bytes=1-");
+
+		MockHttpServletResponse response = send(file, request);
+		assertEquals(206, response.getStatus());
+		assertEquals(6, response.getContentLengthLong());
+		assertEquals(0, response.getContentAsByteArray().length);
+		assertEquals(file.toAbsolutePath().toString(), request.getAttribute(StaticFileSender.SENDFILE_FILENAME));
+		assertEquals(1L, request.getAttribute(StaticFileSender.SENDFILE_START));
+		assertEquals(7L, request.getAttribute(StaticFileSender.SENDFILE_END));
+	}
+
+	private MockHttpServletResponse send(Path file, MockHttpServletRequest request) throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		sender.send(file, ETAG, "public, max-age=31536000, immutable", request, response);
+		return response;
+	}
+
+	private static MockHttpServletRequest request() {
+		return new MockHttpServletRequest("GET", "/images/medicines/a.jpg");
+	}
+}
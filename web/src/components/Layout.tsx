@@ -6,18 +6,10 @@ const Layout: React.FC = () => {
   const [sidebarOpen, setSidebarOpen] = useState(false);
   const [search, setSearch] = useState('');
   const [suggestions, setSuggestions] = useState<string[]>([]);
-  const [medicinesList, setMedicinesList] = useState<string[]>([]);
   const [categoriesList, setCategoriesList] = useState<string[]>([]);
   const navigate = useNavigate();
   const user = JSON.parse(localStorage.getItem('user') || 'null');
   useEffect(() => {
-    axios.get('http://localhost:8081/medicines/all')
-      .then(res => {
-        const data = res.data as { name: string }[];
-        setMedicinesList(data.map(item => item.name));
-        console.log('Medicines:', data.map(item => item.name));
-      })
-      .catch(() => setMedicinesList([]));
     axios.get('http://localhost:8081/categories/all')
       .then(res => {
         const data = res.data as { categoryName: string }[];
@@ -28,7 +20,15 @@ const Layout: React.FC = () => {
   }, []);
 
   const handleLogout = () => {
+    // Thu hồi token phía server; lỗi mạng vẫn đăng xuất phía client
+    const token = localStorage.getItem('token');
+    if (token) {
+      axios.post('http://localhost:8081/users/logout', null, { headers: { Authorization: `Bearer ${token}` } })
+        .catch(() => {});
+    }
+    delete axios.defaults.headers.common.Authorization;
     localStorage.removeItem('user');
+    localStorage.removeItem('token');
     navigate('/login');
   };
 
@@ -43,27 +43,37 @@ const Layout: React.FC = () => {
     setSearch('');
   };
 
-  const handleChange = (e: React.ChangeEvent<HTMLInputElement>) => {
-    const value = e.target.value;
-    setSearch(value);
-
-    if (medicinesList.length === 0 && categoriesList.length === 0) {
+  // Gợi ý thuốc lấy từ /medicines/suggest (debounce 150ms), không tải cả danh sách thuốc
+  useEffect(() => {
+    const keyword = search.trim();
+    if (keyword.length === 0) {
       setSuggestions([]);
       return;
     }
-
-    if (value.trim().length > 0) {
-      const medicineFiltered = medicinesList.filter(med =>
-        med.toLowerCase().includes(value.toLowerCase())
-      );
+    let cancelled = false;
+    const timer = setTimeout(() => {
       const categoryFiltered = categoriesList.filter(cat =>
-        cat.toLowerCase().includes(value.toLowerCase())
+        cat.toLowerCase().includes(keyword.toLowerCase())
       );
-      const allSuggestions = Array.from(new Set([...medicineFiltered, ...categoryFiltered]));
-      setSuggestions(allSuggestions.slice(0, 5));
-    } else {
-      setSuggestions([]);
-    }
+      axios.get('http://localhost:8081/medicines/suggest', { params: { q: keyword, limit: 10 } })
+        .then(res => {
+          if (cancelled) return;
+          const data = res.data as { id: number; name: string }[];
+          const allSuggestions = Array.from(new Set([...data.map(item => item.name), ...categoryFiltered]));
+          setSuggestions(allSuggestions.slice(0, 5));
+        })
+        .catch(() => {
+          if (!cancelled) setSuggestions(categoryFiltered.slice(0, 5));
+        });
+    }, 150);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [search, categoriesList]);
+
+  const handleChange = (e: React.ChangeEvent<HTMLInputElement>) => {
+    setSearch(e.target.value);
   };
 
   const handleSuggestionClick = (suggestion: string) => {
@@ -1,5 +1,6 @@
 import { Outlet, Link, useNavigate } from 'react-router-dom';
 import { useState } from 'react';
+import axios from 'axios';
 
 const adminMenu = [
   { label: "Dashboard", to: "/admin/dashboard", icon: (
@@ -46,7 +47,15 @@ const LayoutAd = () => {
   const navigate = useNavigate();
 
   const handleLogout = () => {
+    // Thu hồi token phía server; lỗi mạng vẫn đăng xuất phía client
+    const token = localStorage.getItem('token');
+    if (token) {
+      axios.post('http://localhost:8081/users/logout', null, { headers: { Authorization: `Bearer ${token}` } })
+        .catch(() => {});
+    }
+    delete axios.defaults.headers.common.Authorization;
     localStorage.removeItem('user');
+    localStorage.removeItem('token');
     navigate('/login');
   };
 
@@ -2,6 +2,13 @@ import { StrictMode } from 'react'
 import { createRoot } from 'react-dom/client'
 import './index.css'
 import App from './App.tsx'
+import axios from 'axios'
+
+// Token phiên đăng nhập (lưu lúc đăng nhập) gửi kèm mọi request axios
+const token = localStorage.getItem('token')
+if (token) {
+  axios.defaults.headers.common.Authorization = `Bearer ${token}`
+}
 
 createRoot(document.getElementById('root')!).render(
   <StrictMode>
@@ -1,10 +1,143 @@
+import { useEffect, useState } from "react";
+import axios from "axios";
+
+interface SalesPeriod {
+  periodStart: string;
+  units: number;
+  revenue: number;
+}
+
+interface MedicineSales {
+  medicineId: number;
+  medicineName: string | null;
+  units: number;
+  revenue: number;
+}
+
+interface SalesReport {
+  period: string;
+  from: string;
+  to: string;
+  totalUnits: number;
+  totalRevenue: number;
+  periods: SalesPeriod[];
+  topMedicines: MedicineSales[];
+}
+
+const periodLabels: Record<string, string> = {
+  day: "Ngày",
+  week: "Tuần",
+  month: "Tháng",
+};
 
 const HomeAd = () => {
+  const [period, setPeriod] = useState("day");
+  const [report, setReport] = useState<SalesReport | null>(null);
+  const [message, setMessage] = useState("");
+
+  // Báo cáo đọc từ bảng gộp doanh số, không tải toàn bộ đơn hàng về trình duyệt
+  useEffect(() => {
+    axios
+      .get<SalesReport>("http://localhost:8081/reports/sales", {
+        params: { period, top: 10 },
+      })
+      .then((res) => {
+        setReport(res.data);
+        setMessage("");
+      })
+      .catch(() => setMessage("Không thể tải báo cáo doanh số!"));
+  }, [period]);
+
   return (
     <div className="p-6 min-h-screen bg-gray-50">
-      {/* Trang quản trị - Để trống */}
+      <div className="flex items-center gap-4 mb-6">
+        <h1 className="text-2xl font-bold">Doanh số</h1>
+        <select
+          value={period}
+          onChange={(e) => setPeriod(e.target.value)}
+          className="border px-2 py-1 rounded"
+        >
+          {Object.entries(periodLabels).map(([value, label]) => (
+            <option key={value} value={value}>
+              {label}
+            </option>
+          ))}
+        </select>
+      </div>
+      {message && <div className="mb-4 text-red-600">{message}</div>}
+
+      {report && (
+        <>
+          <div className="flex gap-6 mb-8">
+            <div className="bg-white rounded shadow px-6 py-4">
+              <div className="text-gray-500">Doanh thu</div>
+              <div className="text-2xl font-bold text-blue-800">
+                {report.totalRevenue.toLocaleString("vi-VN")}₫
+              </div>
+            </div>
+            <div className="bg-white rounded shadow px-6 py-4">
+              <div className="text-gray-500">Số lượng bán</div>
+              <div className="text-2xl font-bold">{report.totalUnits}</div>
+            </div>
+          </div>
+
+          <div className="grid md:grid-cols-2 gap-8">
+            <section>
+              <h2 className="text-xl font-semibold mb-2">
+                Theo {periodLabels[report.period].toLowerCase()}
+              </h2>
+              <table className="w-full border text-sm bg-white">
+                <thead>
+                  <tr className="bg-gray-100 text-center">
+                    <th className="border px-2 py-1">{periodLabels[report.period]}</th>
+                    <th className="border px-2 py-1">Số lượng</th>
+                    <th className="border px-2 py-1">Doanh thu</th>
+                  </tr>
+                </thead>
+                <tbody>
+                  {report.periods.map((row) => (
+                    <tr key={row.periodStart} className="text-center">
+                      <td className="border px-2 py-1">{row.periodStart}</td>
+                      <td className="border px-2 py-1">{row.units}</td>
+                      <td className="border px-2 py-1">
+                        {row.revenue.toLocaleString("vi-VN")}₫
+                      </td>
+                    </tr>
+                  ))}
+                </tbody>
+              </table>
+            </section>
+
+            <section>
+              <h2 className="text-xl font-semibold mb-2">Thuốc bán chạy</h2>
+              <table className="w-full border text-sm bg-white">
+                <thead>
+                  <tr className="bg-gray-100 text-center">
+                    <th className="border px-2 py-1">Tên thuốc</th>
+                    <th className="border px-2 py-1">Số lượng</th>
+                    <th className="border px-2 py-1">Doanh thu</th>
+                  </tr>
+                </thead>
+                <tbody>
+                  {report.topMedicines.map((row) => (
+                    <tr key={row.medicineId} className="text-center">
+                      <td className="border px-2 py-1">
+                        {row.medicineName || `#${row.medicineId}`}
+                      </td>
+                      <td className="border px-2 py-1">{row.units}</td>
+                      <td className="border px-2 py-1">
+                        {row.revenue.toLocaleString("vi-VN")}₫
+                      </td>
+                    </tr>
+                  ))}
+                </tbody>
+              </table>
+            </section>
+          </div>
+        </>
+      )}
     </div>
   );
 };
 
-export default HomeAd;
\ No newline at end of file
+export default HomeAd;
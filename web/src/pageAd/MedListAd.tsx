@@ -22,9 +22,26 @@ interface Supplier {
   name: string;
 }
 
+interface ImportStatus {
+  jobId: string;
+  state: string;
+  bytesTotal: number;
+  bytesRead: number;
+  rowsRead: number;
+  inserted: number;
+  updated: number;
+  failed: number;
+  errors: Array<{ line: number; message: string }>;
+  message?: string;
+}
+
 const IMAGE_PREFIX = "http://localhost:8081/images/medicines/";
+// Khớp app.images.upload.max-size phía server
+const MAX_IMAGE_BYTES = 5 * 1024 * 1024;
+// Ảnh thu nhỏ theo kích thước (server trả ảnh gốc nếu chưa tạo xong)
+type ImageSize = "thumb" | "card" | "detail";
 
-function getImageUrl(imageUrl?: string | File | null): string {
+function getImageUrl(imageUrl?: string | File | null, size: ImageSize = "thumb"): string {
   if (!imageUrl) return "/images/no-image.png";
   // Nếu là file upload (object File)
   if (typeof imageUrl === "object") {
@@ -33,7 +50,7 @@ function getImageUrl(imageUrl?: string | File | null): string {
   // Nếu là URL tuyệt đối
   if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) return imageUrl;
   // Nếu là tên file trả về từ backend
-  return IMAGE_PREFIX + imageUrl;
+  return IMAGE_PREFIX + size + "/" + imageUrl;
 }
 
 const MedListAd = () => {
@@ -54,6 +71,7 @@ const MedListAd = () => {
   const [message, setMessage] = useState<string>("");
   const [categories, setCategories] = useState<Array<{ id: number; name: string }>>([]);
   const [suppliers, setSuppliers] = useState<Supplier[]>([]);
+  const [importStatus, setImportStatus] = useState<ImportStatus | null>(null);
 
   useEffect(() => {
     fetchMeds();
@@ -94,6 +112,33 @@ const MedListAd = () => {
       .catch(() => setMessage("Không thể tải danh sách thuốc!"));
   };
 
+  // Nhập CSV: gửi nguyên file, server xử lý nền; hỏi tiến độ mỗi giây tới khi xong
+  const handleImport = (e: React.ChangeEvent<HTMLInputElement>) => {
+    const file = e.target.files?.[0];
+    e.target.value = "";
+    if (!file) return;
+    axios
+      .post<ImportStatus>("http://localhost:8081/medicines/import", file, {
+        headers: { "Content-Type": "text/csv" },
+      })
+      .then((res) => {
+        setImportStatus(res.data);
+        const timer = setInterval(() => {
+          axios
+            .get<ImportStatus>(`http://localhost:8081/medicines/import/${res.data.jobId}`)
+            .then((poll) => {
+              setImportStatus(poll.data);
+              if (poll.data.state === "COMPLETED" || poll.data.state === "FAILED") {
+                clearInterval(timer);
+                fetchMeds();
+              }
+            })
+            .catch(() => clearInterval(timer));
+        }, 1000);
+      })
+      .catch((err) => setMessage("Nhập CSV thất bại: " + (err.response?.data || err.message)));
+  };
+
   // Xử lý submit thêm/sửa
   const handleSubmit = (e: React.FormEvent) => {
     e.preventDefault();
@@ -361,9 +406,15 @@ const MedListAd = () => {
           <input
             className="border px-2 py-1 rounded"
             type="file"
-            accept="image/*"
+            accept="image/jpeg,image/png,image/gif,image/webp"
             onChange={(e) => {
               const file = e.target.files?.[0];
+              // Server từ chối ảnh lớn hơn MAX_IMAGE_BYTES (413); báo ngay thay vì chờ upload xong
+              if (file && file.size > MAX_IMAGE_BYTES) {
+                setMessage("Ảnh vượt quá 5 MB, vui lòng chọn ảnh nhỏ hơn.");
+                e.target.value = "";
+                return;
+              }
               if (file) setNewMed({ ...newMed, imageUrl: file });
             }}
           />
@@ -507,6 +558,37 @@ const MedListAd = () => {
           )}
         </div>
       </form>
+      <div className="mb-6">
+        <label className="bg-green-600 text-white px-4 py-1 rounded cursor-pointer">
+          Nhập từ CSV
+          <input type="file" accept=".csv,text/csv" className="hidden" onChange={handleImport} />
+        </label>
+        <span className="ml-2 text-xs text-gray-500">
+          Cột: name, category, supplier, price, stock, expiry_date, dosage, ingredient, description (id nếu cập nhật)
+        </span>
+        {importStatus && (
+          <div className="mt-2 text-sm">
+            <div>
+              {importStatus.state} —{" "}
+              {importStatus.bytesTotal > 0
+                ? Math.floor((importStatus.bytesRead * 100) / importStatus.bytesTotal)
+                : 100}
+              %: {importStatus.rowsRead} dòng, thêm {importStatus.inserted}, cập nhật {importStatus.updated}, lỗi{" "}
+              {importStatus.failed}
+              {importStatus.message && <span className="text-red-600"> ({importStatus.message})</span>}
+            </div>
+            {importStatus.errors.length > 0 && (
+              <ul className="text-red-600 max-h-32 overflow-y-auto">
+                {importStatus.errors.slice(0, 50).map((err, idx) => (
+                  <li key={idx}>
+                    Dòng {err.line}: {err.message}
+                  </li>
+                ))}
+              </ul>
+            )}
+          </div>
+        )}
+      </div>
       <table className="w-full border mt-6 overflow-x-auto text-sm">
         <thead>
           <tr className="bg-gray-100 text-center">
@@ -21,6 +21,18 @@ interface Order {
   orderDetails: OrderDetail[];
 }
 
+interface OrderPage {
+  items: Order[];
+  nextCreateAt: string | null;
+  nextOrderId: number | null;
+  hasMore: boolean;
+}
+
+interface Cursor {
+  createAt: string;
+  orderId: number;
+}
+
 // Map status name to label
 const statusLabels: Record<string, string> = {
   Pending: "Chờ xác nhận",
@@ -28,8 +40,13 @@ const statusLabels: Record<string, string> = {
   Completed: "Thành công",
 };
 
+const STATUSES = ["Pending", "Processing", "Completed"];
+const PAGE_SIZE = 20;
+
 const OrderListAd = () => {
   const [orders, setOrders] = useState<Order[]>([]);
+  // Con trỏ trang kế tiếp cho từng trạng thái (null = đã hết)
+  const [cursors, setCursors] = useState<Record<string, Cursor | null>>({});
   const [loading, setLoading] = useState(false);
   const [message, setMessage] = useState("");
 
@@ -38,12 +55,32 @@ const OrderListAd = () => {
     // eslint-disable-next-line
   }, []);
 
+  const fetchPage = (status: string, cursor?: Cursor) =>
+    axios
+      .get<OrderPage>("http://localhost:8081/orders", {
+        params: {
+          status,
+          size: PAGE_SIZE,
+          afterCreateAt: cursor?.createAt,
+          afterId: cursor?.orderId,
+        },
+      })
+      .then((res) => res.data);
+
+  const toCursor = (page: OrderPage): Cursor | null =>
+    page.hasMore && page.nextCreateAt && page.nextOrderId
+      ? { createAt: page.nextCreateAt, orderId: page.nextOrderId }
+      : null;
+
+  // Tải trang đầu của từng trạng thái
   const fetchOrders = () => {
     setLoading(true);
-    axios
-      .get<Order[]>("http://localhost:8081/orders/all")
-      .then((res) => {
-        setOrders(res.data);
+    Promise.all(STATUSES.map((status) => fetchPage(status)))
+      .then((pages) => {
+        setOrders(pages.flatMap((page) => page.items));
+        const next: Record<string, Cursor | null> = {};
+        STATUSES.forEach((status, i) => (next[status] = toCursor(pages[i])));
+        setCursors(next);
         setLoading(false);
       })
       .catch(() => {
@@ -52,6 +89,23 @@ const OrderListAd = () => {
       });
   };
 
+  // Tải thêm một trang cho một trạng thái
+  const loadMore = (status: string) => {
+    const cursor = cursors[status];
+    if (!cursor) return;
+    setLoading(true);
+    fetchPage(status, cursor)
+      .then((page) => {
+        setOrders((prev) => [...prev, ...page.items]);
+        setCursors((prev) => ({ ...prev, [status]: toCursor(page) }));
+        setLoading(false);
+      })
+      .catch(() => {
+        setMessage("Không thể tải thêm đơn hàng!");
+        setLoading(false);
+      });
+  };
+
   // Xác nhận đơn hàng (Pending -> Processing)
   const handleConfirm = (orderId: number) => {
     if (!window.confirm("Xác nhận đơn hàng này?")) return;
@@ -91,6 +145,27 @@ const OrderListAd = () => {
       .catch(() => setMessage("Có lỗi khi huỷ đơn hàng!"));
   };
 
+  // Xác nhận một lượt tất cả đơn chờ đang hiển thị (một request, một UPDATE)
+  const handleConfirmAll = (orderIds: number[]) => {
+    if (orderIds.length === 0) return;
+    if (!window.confirm(`Xác nhận ${orderIds.length} đơn hàng?`)) return;
+    axios
+      .post<{ succeeded: number[]; failed: number[] }>(
+        "http://localhost:8081/orders/transition",
+        { action: "confirm", orderIds }
+      )
+      .then((res) => {
+        const failed = res.data.failed.length;
+        setMessage(
+          `Đã xác nhận ${res.data.succeeded.length} đơn hàng.` +
+            (failed > 0 ? ` ${failed} đơn không thể xác nhận.` : "")
+        );
+        fetchOrders();
+        setTimeout(() => setMessage(""), 3000);
+      })
+      .catch(() => setMessage("Có lỗi khi xác nhận đơn hàng!"));
+  };
+
   // Lọc đơn hàng theo trạng thái
   const pendingOrders = orders.filter((o) => o.statusName === "Pending");
   const processingOrders = orders.filter((o) => o.statusName === "Processing");
@@ -99,6 +174,7 @@ const OrderListAd = () => {
   // Hiển thị một bảng đơn hàng
   const renderOrderTable = (
     title: string,
+    status: string,
     list: Order[],
     actions: (order: Order) => React.ReactNode
   ) => (
@@ -162,6 +238,14 @@ const OrderListAd = () => {
           </table>
         </div>
       )}
+      {cursors[status] && (
+        <button
+          onClick={() => loadMore(status)}
+          className="mt-2 text-blue-700 hover:underline"
+        >
+          Xem thêm
+        </button>
+      )}
     </section>
   );
 
@@ -170,8 +254,18 @@ const OrderListAd = () => {
       <h1 className="text-2xl font-bold mb-4">Quản lý đơn hàng</h1>
       {message && <div className="mb-4 text-green-700">{message}</div>}
 
+      {pendingOrders.length > 0 && (
+        <button
+          onClick={() => handleConfirmAll(pendingOrders.map((o) => o.orderId))}
+          className="mb-4 bg-green-600 text-white px-3 py-1 rounded hover:bg-green-700"
+        >
+          Xác nhận tất cả đơn chờ
+        </button>
+      )}
+
       {renderOrderTable(
         "Đơn chờ xác nhận",
+        "Pending",
         pendingOrders,
         (order) => (
           <>
@@ -193,6 +287,7 @@ const OrderListAd = () => {
 
       {renderOrderTable(
         "Đơn đang vận chuyển",
+        "Processing",
         processingOrders,
         (order) => (
           <>
@@ -214,6 +309,7 @@ const OrderListAd = () => {
 
       {renderOrderTable(
         "Đơn thành công",
+        "Completed",
         completedOrders,
         () => <span className="text-green-700 font-semibold">✔</span>
       )}
@@ -1,4 +1,4 @@
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import axios from "axios";
 import { useNavigate } from "react-router-dom";
 
@@ -12,15 +12,17 @@ interface Medicine {
 }
 
 const IMAGE_PREFIX = "http://localhost:8081/images/medicines/";
+// Ảnh thu nhỏ theo kích thước (server trả ảnh gốc nếu chưa tạo xong)
+type ImageSize = "thumb" | "card" | "detail";
 
-function getImageUrl(imageUrl?: string) {
+function getImageUrl(imageUrl?: string, size: ImageSize = "thumb") {
   if (!imageUrl) return "/images/no-image.png";
   if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) return imageUrl;
   if (imageUrl.startsWith("file:///")) {
     const fileName = imageUrl.split("/").pop();
-    return fileName ? IMAGE_PREFIX + fileName : "/images/no-image.png";
+    return fileName ? IMAGE_PREFIX + size + "/" + fileName : "/images/no-image.png";
   }
-  return IMAGE_PREFIX + imageUrl;
+  return IMAGE_PREFIX + size + "/" + imageUrl;
 }
 
 const getCartKey = () => {
@@ -34,6 +36,8 @@ const GioHang: React.FC = () => {
   const [placingOrder, setPlacingOrder] = useState(false);
   const [message, setMessage] = useState<string>("");
   const [address, setAddress] = useState<string>("");
+  // Khóa chống tạo đơn trùng khi bấm lại/gửi lại; chỉ đổi sau khi đặt hàng thành công
+  const idempotencyKey = useRef<string>(crypto.randomUUID());
   const navigate = useNavigate();
 
   useEffect(() => {
@@ -41,13 +45,17 @@ const GioHang: React.FC = () => {
     if (cartRaw) {
       const cartData: { id: number; quantity: number }[] = JSON.parse(cartRaw);
       if (cartData.length > 0) {
+        // Chỉ tải các thuốc trong giỏ; thuốc đã bị xoá (missing) không hiển thị
         axios
-          .get<Medicine[]>("http://localhost:8081/medicines/all")
+          .post<{ items: Medicine[]; missing: number[] }>(
+            "http://localhost:8081/medicines/batch",
+            cartData.map((item) => item.id)
+          )
           .then((res) => {
-            const allMeds = res.data;
+            const byId = new Map(res.data.items.map((m) => [m.id, m]));
             const cartMeds: Medicine[] = cartData
               .map((item) => {
-                const found = allMeds.find((m) => m.id === item.id);
+                const found = byId.get(item.id);
                 if (found) {
                   return {
                     ...found,
@@ -133,7 +141,10 @@ const GioHang: React.FC = () => {
         })),
         totalAmount: total,
       };
-      await axios.post("http://localhost:8081/orders/add", orderPayload);
+      await axios.post("http://localhost:8081/orders/add", orderPayload, {
+        headers: { "Idempotency-Key": idempotencyKey.current },
+      });
+      idempotencyKey.current = crypto.randomUUID();
       setMessage("Đặt hàng thành công! Đơn hàng của bạn đang chờ xác nhận.");
       updateCart([]);
       setTimeout(() => {
@@ -8,29 +8,40 @@ const banners = [
 ];
 
 const IMAGE_PREFIX = "http://localhost:8081/images/medicines/";
+// Ảnh thu nhỏ theo kích thước (server trả ảnh gốc nếu chưa tạo xong)
+type ImageSize = "thumb" | "card" | "detail";
 
-function getImageUrl(imageUrl?: string): string {
+function getImageUrl(imageUrl?: string, size: ImageSize = "card"): string {
   if (!imageUrl) return "/images/no-image.png";
   if (typeof imageUrl !== "string") return "/images/no-image.png";
   if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) return imageUrl;
   if (imageUrl.startsWith("file:///")) {
     const fileName = imageUrl.split("/").pop();
-    return fileName ? IMAGE_PREFIX + fileName : "/images/no-image.png";
+    return fileName ? IMAGE_PREFIX + size + "/" + fileName : "/images/no-image.png";
   }
-  return IMAGE_PREFIX + imageUrl;
+  return IMAGE_PREFIX + size + "/" + imageUrl;
 }
 
 const Home: React.FC = () => {
   const [current, setCurrent] = useState(0);
   const [fade, setFade] = useState(true);
   const [medicines, setMedicines] = useState<any[]>([]);
+  const [bestSellers, setBestSellers] = useState(false);
   const navigate = useNavigate();
 
+  // Ưu tiên thuốc bán chạy trong tuần; chưa có đơn nào thì lấy danh sách thuốc như cũ
   useEffect(() => {
-    fetch('http://localhost:8081/medicines/all')
+    fetch('http://localhost:8081/medicines/top?window=week&k=5')
       .then(res => res.json())
-      .then(data => {
-        setMedicines(data);
+      .then((top: { medicine: any }[]) => {
+        if (Array.isArray(top) && top.length > 0) {
+          setMedicines(top.map(item => item.medicine));
+          setBestSellers(true);
+          return;
+        }
+        return fetch('http://localhost:8081/medicines/all')
+          .then(res => res.json())
+          .then(data => setMedicines(data));
       })
       .catch(() => setMedicines([]));
   }, []);
@@ -99,7 +110,7 @@ const Home: React.FC = () => {
       </div>
       {/* Danh sách thuốc 1 hàng ngang, chỉ 5 thuốc */}
       <div className="w-full max-w-7xl mt-10 px-4">
-        <h3 className="text-2xl font-bold mb-8 text-blue-900 text-center tracking-wide">DANH SÁCH THUỐC</h3>
+        <h3 className="text-2xl font-bold mb-8 text-blue-900 text-center tracking-wide">{bestSellers ? 'THUỐC BÁN CHẠY' : 'DANH SÁCH THUỐC'}</h3>
         <div className="flex flex-row gap-6 justify-center">
           {medicines.slice(0, 5).map((med) => (
             <div
@@ -1,5 +1,6 @@
 import React, { useState } from 'react';
 import { useNavigate } from 'react-router-dom';
+import axios from 'axios';
 
 const Login: React.FC = () => {
     const [email, setEmail] = useState('');
@@ -19,10 +20,13 @@ const Login: React.FC = () => {
             });
 
             if (response.ok) {
-                const user = await response.json();
+                // { token, expiresAt, user }: token gửi kèm mọi request sau qua header Authorization
+                const { token, user } = await response.json();
                 console.log("Đăng nhập thành công:", user);
 
                 localStorage.setItem('user', JSON.stringify(user));
+                localStorage.setItem('token', token);
+                axios.defaults.headers.common.Authorization = `Bearer ${token}`;
                 alert("Đăng nhập thành công! Vui lòng đợi trong giây lát.");
 
                 setTimeout(() => {
@@ -23,15 +23,17 @@ const tabList = [
 ];
 
 const IMAGE_PREFIX = "http://localhost:8081/images/medicines/";
+// Ảnh thu nhỏ theo kích thước (server trả ảnh gốc nếu chưa tạo xong)
+type ImageSize = "thumb" | "card" | "detail";
 
-function getImageUrl(imageUrl?: string) {
+function getImageUrl(imageUrl?: string, size: ImageSize = "card") {
   if (!imageUrl) return "/images/no-image.png";
   if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) return imageUrl;
   if (imageUrl.startsWith("file:///")) {
     const fileName = imageUrl.split("/").pop();
-    return fileName ? IMAGE_PREFIX + fileName : "/images/no-image.png";
+    return fileName ? IMAGE_PREFIX + size + "/" + fileName : "/images/no-image.png";
   }
-  return IMAGE_PREFIX + imageUrl;
+  return IMAGE_PREFIX + size + "/" + imageUrl;
 }
 
 function getCartKey() {
@@ -71,20 +73,12 @@ const MedicinesDetail = () => {
       .catch(() => setMedicine(null));
   }, [id]);
 
-  // Lấy sản phẩm cùng nhóm công dụng (ví dụ cùng category)
+  // Sản phẩm liên quan (cùng hoạt chất/loại), server tính sẵn
   useEffect(() => {
-    if (medicine?.categoryName) {
-      axios.get<Medicine[]>(`http://localhost:8081/medicines/all`)
-        .then(res => {
-          const filtered = res.data.filter(
-            (item: Medicine) =>
-              item.categoryName === medicine.categoryName &&
-              (item.id || item.medicineId) !== (medicine.id || medicine.medicineId)
-          );
-          setRelated(filtered);
-        });
-    }
-  }, [medicine]);
+    axios.get<Medicine[]>(`http://localhost:8081/medicines/${id}/related`, { params: { k: 8 } })
+      .then(res => setRelated(res.data))
+      .catch(() => setRelated([]));
+  }, [id]);
 
   // Thêm vào giỏ hàng (check đăng nhập)
   const handleAddToCart = (med: Medicine) => {
@@ -112,7 +106,7 @@ const MedicinesDetail = () => {
       <div className="flex flex-col md:flex-row items-center md:items-start gap-10 bg-white rounded-2xl shadow-lg p-8">
         <div className="flex-shrink-0 w-full md:w-1/2 flex justify-center items-center">
           <img
-            src={getImageUrl(medicine.imageUrl)}
+            src={getImageUrl(medicine.imageUrl, "detail")}
             alt={medicine.name || medicine.medicineName}
             className="w-80 h-80 object-contain rounded-xl border shadow"
             onError={e => { (e.currentTarget as HTMLImageElement).src = "/images/no-image.png"; }}
@@ -18,60 +18,167 @@ interface Medicine {
   ingredient?: string;
 }
 
+interface Category {
+  categoryId: number;
+  categoryName: string;
+}
+
+interface SearchPage {
+  items: Medicine[];
+  total: number;
+  page: number;
+  size: number;
+}
+
+interface Facet {
+  id: number | null;
+  name: string | null;
+  count: number;
+}
+
+interface MedicinePage {
+  items: Medicine[];
+  next: string | null;
+  hasMore: boolean;
+  total: number;
+  categories: Facet[];
+  suppliers: Facet[];
+}
+
+interface LoadedPage {
+  items: Medicine[];
+  total: number;
+  next: string | null;
+  hasMore: boolean;
+  categoryFacets?: Facet[];
+}
+
+const PAGE_SIZE = 24;
+
 const IMAGE_PREFIX = "http://localhost:8081/images/medicines/";
+// Ảnh thu nhỏ theo kích thước (server trả ảnh gốc nếu chưa tạo xong)
+type ImageSize = "thumb" | "card" | "detail";
 
-function getImageUrl(imageUrl?: string): string {
+function getImageUrl(imageUrl?: string, size: ImageSize = "card"): string {
   // Xử lý các trường hợp trả về từ backend
   if (!imageUrl) return "/images/no-image.png";
   if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) return imageUrl;
   if (imageUrl.startsWith("file:///")) {
     const fileName = imageUrl.split("/").pop();
-    return fileName ? IMAGE_PREFIX + fileName : "/images/no-image.png";
+    return fileName ? IMAGE_PREFIX + size + "/" + fileName : "/images/no-image.png";
   }
-  return IMAGE_PREFIX + imageUrl;
+  return IMAGE_PREFIX + size + "/" + imageUrl;
 }
 
 const MedicinesList = () => {
   const location = useLocation();
   const navigate = useNavigate();
   const params = new URLSearchParams(location.search);
-  const search = params.get('search')?.toLowerCase() || '';
+  const search = params.get('search')?.trim() || '';
 
   const [medicines, setMedicines] = useState<Medicine[]>([]);
+  const [total, setTotal] = useState<number>(0);
+  // Trang kế: số trang với /medicines/search, con trỏ keyset với /medicines
+  const [page, setPage] = useState<number>(0);
+  const [next, setNext] = useState<string | null>(null);
+  const [hasMore, setHasMore] = useState<boolean>(false);
   const [loading, setLoading] = useState<boolean>(true);
+  const [loadingMore, setLoadingMore] = useState<boolean>(false);
   const [error, setError] = useState<string | null>(null);
-  const [selectedCategory, setSelectedCategory] = useState<string>('Tất cả');
+  const [categories, setCategories] = useState<Category[]>([]);
+  const [selectedCategory, setSelectedCategory] = useState<Category | null>(null);
+  const [categoryCounts, setCategoryCounts] = useState<Record<number, number>>({});
+  const [sort, setSort] = useState<string>('name');
+  const [inStock, setInStock] = useState<boolean>(false);
 
   useEffect(() => {
     axios
-      .get<Medicine[]>('http://localhost:8081/medicines/all')
-      .then((response) => {
-        setMedicines(response.data);
+      .get<Category[]>('http://localhost:8081/categories/all')
+      .then((response) => setCategories(response.data))
+      .catch(() => setCategories([]));
+  }, []);
+
+  // Có từ khoá: tìm theo độ liên quan; không có: lọc/sắp xếp ở server kèm số lượng theo loại
+  const fetchPage = (pageToLoad: number, after: string | null): Promise<LoadedPage> => {
+    if (search) {
+      return axios
+        .get<SearchPage>('http://localhost:8081/medicines/search', {
+          params: {
+            q: search,
+            category: selectedCategory?.categoryName,
+            page: pageToLoad,
+            size: PAGE_SIZE,
+          },
+        })
+        .then((response) => ({
+          items: response.data.items,
+          total: response.data.total,
+          next: null,
+          hasMore: (pageToLoad + 1) * response.data.size < response.data.total,
+        }));
+    }
+    return axios
+      .get<MedicinePage>('http://localhost:8081/medicines', {
+        params: {
+          categoryId: selectedCategory?.categoryId,
+          inStock: inStock || undefined,
+          sort,
+          after: after || undefined,
+          size: PAGE_SIZE,
+        },
+      })
+      .then((response) => ({
+        items: response.data.items,
+        total: response.data.total,
+        next: response.data.next,
+        hasMore: response.data.hasMore,
+        categoryFacets: response.data.categories,
+      }));
+  };
+
+  useEffect(() => {
+    let cancelled = false;
+    setLoading(true);
+    fetchPage(0, null)
+      .then((loaded) => {
+        if (cancelled) return;
+        setMedicines(loaded.items);
+        setTotal(loaded.total);
+        setPage(0);
+        setNext(loaded.next);
+        setHasMore(loaded.hasMore);
+        const counts: Record<number, number> = {};
+        (loaded.categoryFacets || []).forEach((facet) => {
+          if (facet.id !== null) counts[facet.id] = facet.count;
+        });
+        setCategoryCounts(counts);
+        setError(null);
         setLoading(false);
       })
       .catch((_error) => {
+        if (cancelled) return;
         setError('Không thể lấy danh sách thuốc.');
         setLoading(false);
       });
-  }, []);
-
-  const categories = Array.from(
-    new Set(medicines.map((med) => med.categoryName || 'Không xác định'))
-  );
-
-  // Lọc theo category trước, sau đó mới search
-  const filteredByCategory = selectedCategory === 'Tất cả'
-    ? medicines
-    : medicines.filter((med) => med.categoryName === selectedCategory);
+    return () => {
+      cancelled = true;
+    };
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [search, selectedCategory, sort, inStock]);
 
-  const searchedMedicines = search
-    ? filteredByCategory.filter(
-        (med) =>
-          (med.name?.toLowerCase().includes(search) ||
-           med.medicineName?.toLowerCase().includes(search) ||
-           med.categoryName?.toLowerCase().includes(search))
-      )
-    : filteredByCategory;
+  const loadMore = () => {
+    setLoadingMore(true);
+    fetchPage(page + 1, next)
+      .then((loaded) => {
+        setMedicines((prev) => [...prev, ...loaded.items]);
+        setTotal(loaded.total);
+        setPage(page + 1);
+        setNext(loaded.next);
+        setHasMore(loaded.hasMore);
+        setLoadingMore(false);
+      })
+      .catch(() => setLoadingMore(false));
+  };
 
   if (loading) {
     return <div className="text-center text-gray-600 py-10">Đang tải...</div>;
@@ -88,18 +195,21 @@ const MedicinesList = () => {
         <h3 className="text-lg font-bold mb-4 text-blue-800">Loại thuốc</h3>
         <ul>
           <li
-            className={`cursor-pointer mb-2 px-3 py-2 rounded hover:bg-blue-100 ${selectedCategory === 'Tất cả' ? 'bg-blue-600 text-white' : ''}`}
-            onClick={() => setSelectedCategory('Tất cả')}
+            className={`cursor-pointer mb-2 px-3 py-2 rounded hover:bg-blue-100 ${selectedCategory === null ? 'bg-blue-600 text-white' : ''}`}
+            onClick={() => setSelectedCategory(null)}
           >
             Tất cả
           </li>
           {categories.map((cat) => (
             <li
-              key={cat}
-              className={`cursor-pointer mb-2 px-3 py-2 rounded hover:bg-blue-100 ${selectedCategory === cat ? 'bg-blue-600 text-white' : ''}`}
+              key={cat.categoryId}
+              className={`cursor-pointer mb-2 px-3 py-2 rounded hover:bg-blue-100 ${selectedCategory?.categoryId === cat.categoryId ? 'bg-blue-600 text-white' : ''}`}
               onClick={() => setSelectedCategory(cat)}
             >
-              {cat}
+              {cat.categoryName}
+              {!search && (
+                <span className="ml-1 text-xs opacity-75">({categoryCounts[cat.categoryId] ?? 0})</span>
+              )}
             </li>
           ))}
         </ul>
@@ -109,15 +219,34 @@ const MedicinesList = () => {
         <h2 className="text-2xl font-bold mb-6 text-blue-800">
           {search
             ? `Kết quả tìm kiếm cho "${search}"`
-            : selectedCategory === 'Tất cả'
+            : selectedCategory === null
               ? 'Tất cả thuốc'
-              : `Thuốc thuộc loại "${selectedCategory}"`}
+              : `Thuốc thuộc loại "${selectedCategory.categoryName}"`}
         </h2>
-        {searchedMedicines.length === 0 ? (
+        {!search && (
+          <div className="flex items-center gap-6 mb-6 text-sm">
+            <select
+              className="border rounded px-3 py-2"
+              value={sort}
+              onChange={(e) => setSort(e.target.value)}
+            >
+              <option value="name">Tên A-Z</option>
+              <option value="price_asc">Giá tăng dần</option>
+              <option value="price_desc">Giá giảm dần</option>
+              <option value="newest">Mới nhất</option>
+            </select>
+            <label className="flex items-center gap-2 cursor-pointer">
+              <input type="checkbox" checked={inStock} onChange={(e) => setInStock(e.target.checked)} />
+              Chỉ hiện thuốc còn hàng
+            </label>
+            <span className="text-gray-500">{total} thuốc</span>
+          </div>
+        )}
+        {medicines.length === 0 ? (
           <div className="text-center text-gray-500">Không có thuốc nào.</div>
         ) : (
           <div className="grid grid-cols-1 sm:grid-cols-2 md:grid-cols-3 lg:grid-cols-4 gap-6">
-            {searchedMedicines.map((medicine) => (
+            {medicines.map((medicine) => (
               <div
                 key={medicine.medicineId || medicine.id}
                 className="bg-white p-5 rounded-2xl shadow-md flex flex-col items-start min-w-[240px] max-w-[270px] hover:shadow-xl transition border border-gray-100"
@@ -158,6 +287,17 @@ const MedicinesList = () => {
             ))}
           </div>
         )}
+        {hasMore && (
+          <div className="text-center mt-8">
+            <button
+              className="bg-blue-600 hover:bg-blue-700 text-white font-semibold px-6 py-2 rounded-lg transition disabled:opacity-50"
+              onClick={loadMore}
+              disabled={loadingMore}
+            >
+              {loadingMore ? 'Đang tải...' : `Xem thêm (${total - medicines.length})`}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
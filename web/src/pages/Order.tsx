@@ -30,12 +30,14 @@ const STATUS_COLORS: Record<number, string> = {
 };
 
 const IMAGE_PREFIX = "http://localhost:8081/images/medicines/";
+// Ảnh thu nhỏ theo kích thước (server trả ảnh gốc nếu chưa tạo xong)
+type ImageSize = "thumb" | "card" | "detail";
 
 // Trả về đường dẫn ảnh đúng chuẩn
-function getImageUrl(imageUrl?: string) {
+function getImageUrl(imageUrl?: string, size: ImageSize = "thumb") {
   if (!imageUrl) return "/images/no-image.png";
   if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) return imageUrl;
-  return IMAGE_PREFIX + imageUrl;
+  return IMAGE_PREFIX + size + "/" + imageUrl;
 }
 
 const OrderPage: React.FC = () => {